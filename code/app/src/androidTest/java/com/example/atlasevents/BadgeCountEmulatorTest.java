@@ -0,0 +1,167 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.NotificationRepository;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the aggregate counts and the listeners behind the sidebar badges against the local
+ * Firestore emulator.
+ *
+ * @see EmulatorFirestore
+ * @see InviteRepository#countPendingInvitesForUser(String)
+ * @see NotificationRepository#countUnreadForUser(String, List)
+ * @see InviteRepository#listenForPendingInviteCount(String, InviteRepository.PendingCountListener)
+ * @see NotificationRepository#listenForUnreadCount(String, List, NotificationRepository.UnreadCountListener)
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeCountEmulatorTest {
+
+    private FirebaseFirestore db;
+    private String userEmail;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        userEmail = "badge-" + UUID.randomUUID() + "@test.com";
+    }
+
+    @Test
+    public void countPendingInvitesForUser_CountsOnlyUnexpiredPending() throws Exception {
+        long now = System.currentTimeMillis();
+        addInvite("open-1", "pending", now + 60_000L);
+        addInvite("open-2", "pending", now + 60_000L);
+        addInvite("expired", "pending", now - 60_000L);
+        addInvite("answered", "accepted", now + 60_000L);
+
+        InviteRepository inviteRepository = new InviteRepository(db);
+        assertEquals(Integer.valueOf(2), EmulatorFirestore.await(
+                inviteRepository.countPendingInvitesForUser(userEmail)));
+    }
+
+    @Test
+    public void countUnreadForUser_LeavesOutReadAndBlocked() throws Exception {
+        CollectionReference notifications = db.collection("users").document(userEmail)
+                .collection("notifications");
+        addNotification(notifications, "organizer@test.com", false);
+        addNotification(notifications, "organizer@test.com", false);
+        addNotification(notifications, "organizer@test.com", true);
+        addNotification(notifications, "blocked@test.com", false);
+
+        NotificationRepository notificationRepository = new NotificationRepository(db);
+        assertEquals(Integer.valueOf(3), EmulatorFirestore.await(
+                notificationRepository.countUnreadForUser(userEmail, Collections.emptyList())));
+        assertEquals(Integer.valueOf(2), EmulatorFirestore.await(
+                notificationRepository.countUnreadForUser(userEmail,
+                        Arrays.asList("blocked@test.com", "other@test.com"))));
+
+        // More blocked organizers than one "in" filter holds
+        List<String> manyBlocked = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            manyBlocked.add("blocked" + i + "@test.com");
+        }
+        manyBlocked.add("blocked@test.com");
+        assertEquals(Integer.valueOf(2), EmulatorFirestore.await(
+                notificationRepository.countUnreadForUser(userEmail, manyBlocked)));
+
+        // An organizer blocked twice, within one chunk and across chunks, is subtracted once
+        manyBlocked.add(0, "blocked@test.com");
+        manyBlocked.add("blocked@test.com");
+        assertEquals(Integer.valueOf(2), EmulatorFirestore.await(
+                notificationRepository.countUnreadForUser(userEmail, manyBlocked)));
+    }
+
+    @Test
+    public void badgeListeners_CountFromTheirSnapshots() throws Exception {
+        CollectionReference notifications = db.collection("users").document(userEmail)
+                .collection("notifications");
+        DocumentReference unread = addNotification(notifications, "organizer@test.com", false);
+        addNotification(notifications, "blocked@test.com", false);
+        InviteRepository inviteRepository = new InviteRepository(db);
+        long now = EmulatorFirestore.await(inviteRepository.getServerTime());
+        DocumentReference invite = addInvite("listened", "pending", now + 60_000L);
+
+        NotificationRepository notificationRepository = new NotificationRepository(db);
+        BlockingQueue<Integer> notificationCounts = new LinkedBlockingQueue<>();
+        BlockingQueue<Integer> inviteCounts = new LinkedBlockingQueue<>();
+        ListenerRegistration notificationListener = notificationRepository.listenForUnreadCount(userEmail,
+                Collections.singletonList("blocked@test.com"), notificationCounts::add);
+        ListenerRegistration inviteListener = inviteRepository.listenForPendingInviteCount(userEmail,
+                inviteCounts::add);
+        try {
+            assertEquals(Integer.valueOf(1), notificationCounts.poll(10, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), inviteCounts.poll(10, TimeUnit.SECONDS));
+
+            // Reading the only unread notification and answering the only invite
+            EmulatorFirestore.await(unread.update("read", true));
+            assertEquals(Integer.valueOf(0), notificationCounts.poll(10, TimeUnit.SECONDS));
+            EmulatorFirestore.await(invite.update("status", "declined"));
+            assertEquals(Integer.valueOf(0), inviteCounts.poll(10, TimeUnit.SECONDS));
+        } finally {
+            notificationListener.remove();
+            inviteListener.remove();
+        }
+    }
+
+    @Test
+    public void inviteBadge_DropsWhenADeadlinePassesWithoutWrites() throws Exception {
+        InviteRepository inviteRepository = new InviteRepository(db);
+        long now = EmulatorFirestore.await(inviteRepository.getServerTime());
+        addInvite("short", "pending", now + 3_000L);
+        addInvite("long", "pending", now + 60_000L);
+
+        BlockingQueue<Integer> inviteCounts = new LinkedBlockingQueue<>();
+        ListenerRegistration inviteListener = inviteRepository.listenForPendingInviteCount(userEmail,
+                inviteCounts::add);
+        try {
+            assertEquals(Integer.valueOf(2), inviteCounts.poll(10, TimeUnit.SECONDS));
+            // Nothing marks the invite expired; the listener counts again at its deadline
+            assertEquals(Integer.valueOf(1), inviteCounts.poll(15, TimeUnit.SECONDS));
+        } finally {
+            inviteListener.remove();
+        }
+    }
+
+    private DocumentReference addInvite(String eventId, String status, long expirationTime) throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        data.put("eventId", eventId);
+        data.put("recipientEmail", userEmail);
+        data.put("status", status);
+        data.put("expirationTime", expirationTime);
+        DocumentReference ref = db.collection("invites")
+                .document(InviteRepository.inviteId(eventId + "-" + UUID.randomUUID(), userEmail));
+        EmulatorFirestore.await(ref.set(data));
+        return ref;
+    }
+
+    private static DocumentReference addNotification(CollectionReference notifications, String organizer,
+                                                     boolean read) throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "Badge");
+        data.put("fromOrganizeremail", organizer);
+        data.put("read", read);
+        return EmulatorFirestore.await(notifications.add(data));
+    }
+}
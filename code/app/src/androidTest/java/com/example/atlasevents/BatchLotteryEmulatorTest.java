@@ -0,0 +1,111 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.NotificationRepository;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the batch lottery against the local Firestore emulator and prints the timing report.
+ * <p>
+ * Pass {@code -e batchEventCount N} to change how many closed events are seeded.
+ * </p>
+ *
+ * @see EmulatorFirestore
+ * @see BatchLotteryRunner
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchLotteryEmulatorTest {
+
+    private static final int DEFAULT_EVENT_COUNT = 20;
+    private static final int WAITLIST_PER_EVENT = 30;
+    private static final int SLOTS = 10;
+    private static final int MAX_PARALLEL = 4;
+
+    private FirebaseFirestore db;
+    private LotteryService lotteryService;
+    private List<DocumentReference> seeded;
+
+    @Before
+    public void setUp() throws Exception {
+        db = EmulatorFirestore.get();
+        lotteryService = new LotteryService(db, new NotificationRepository(db), new InviteRepository(db));
+
+        int eventCount = Integer.parseInt(InstrumentationRegistry.getArguments()
+                .getString("batchEventCount", String.valueOf(DEFAULT_EVENT_COUNT)));
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, -2);
+
+        seeded = new ArrayList<>();
+        String run = UUID.randomUUID().toString();
+        for (int e = 0; e < eventCount; e++) {
+            DocumentReference ref = db.collection("events").document("batch-" + run + "-" + e);
+            List<Map<String, Object>> waitlist = new ArrayList<>();
+            for (int i = 0; i < WAITLIST_PER_EVENT; i++) {
+                waitlist.add(EmulatorFirestore.entrantMap("e" + e + "-" + i + "@test.com"));
+            }
+
+            Map<String, Object> event = new HashMap<>();
+            event.put("id", ref.getId());
+            event.put("eventName", "Batch Event " + e);
+            event.put("slots", SLOTS);
+            event.put("regEndDate", cal.getTime());
+            event.put("waitlist", EmulatorFirestore.legacyListMap(waitlist));
+            event.put("inviteList", EmulatorFirestore.legacyListMap(new ArrayList<>()));
+            event.put("acceptedList", EmulatorFirestore.legacyListMap(new ArrayList<>()));
+            event.put("declinedList", EmulatorFirestore.legacyListMap(new ArrayList<>()));
+            EmulatorFirestore.await(ref.set(event));
+            seeded.add(ref);
+        }
+    }
+
+    @Test
+    public void runAll_DrawsSeededEventsOnceAndRedrawsWhenSlotsGrow() throws Exception {
+        BatchLotteryRunner runner = lotteryService.createBatchRunner(MAX_PARALLEL);
+
+        BatchLotteryRunner.Report first = runner.run(ids(seeded)).get(5, TimeUnit.MINUTES);
+        assertEquals(seeded.size(), first.getEventCount());
+        assertEquals(0, first.getFailureCount());
+        assertEquals(seeded.size() * SLOTS, first.getTotalEntrantsSelected());
+
+        for (DocumentReference ref : seeded) {
+            DocumentSnapshot doc = EmulatorFirestore.await(ref.get());
+            assertNotNull(doc.get("lastLotteryRun"));
+            assertEquals(Long.valueOf(SLOTS), doc.getLong("lastDrawnSlots"));
+        }
+
+        // Growing one event's capacity makes it due again, for the new slots only
+        DocumentReference grown = seeded.get(0);
+        EmulatorFirestore.await(grown.update("slots", SLOTS + 5));
+        BatchLotteryRunner.Report second = runner.run(ids(seeded)).get(5, TimeUnit.MINUTES);
+        assertEquals(0, second.getFailureCount());
+        assertEquals(5, second.getTotalEntrantsSelected());
+    }
+
+    private static List<String> ids(List<DocumentReference> refs) {
+        List<String> ids = new ArrayList<>();
+        for (DocumentReference ref : refs) {
+            ids.add(ref.getId());
+        }
+        return ids;
+    }
+}
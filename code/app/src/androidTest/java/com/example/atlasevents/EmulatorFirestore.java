@@ -0,0 +1,99 @@
+package com.example.atlasevents;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives instrumented tests a Firestore instance connected to the local emulator.
+ * <p>
+ * A separate {@link FirebaseApp} is used so the default instance used by the app (and by the
+ * intent tests) keeps pointing at the real project. Start the emulator with
+ * {@code firebase emulators:start --only firestore}; the host and port can be overridden with
+ * the instrumentation arguments {@code firestoreEmulatorHost} and {@code firestoreEmulatorPort}.
+ * </p>
+ */
+public final class EmulatorFirestore {
+
+    private static final String APP_NAME = "firestore-emulator-tests";
+    private static final String DEFAULT_HOST = "10.0.2.2"; // host loopback from the Android emulator
+    private static final int DEFAULT_PORT = 8080;
+
+    private static FirebaseFirestore instance;
+
+    private EmulatorFirestore() {
+    }
+
+    /**
+     * @return Firestore instance bound to the emulator, created on first use
+     */
+    public static synchronized FirebaseFirestore get() {
+        if (instance != null) {
+            return instance;
+        }
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        FirebaseApp defaultApp = FirebaseApp.initializeApp(context);
+        FirebaseApp app;
+        try {
+            app = FirebaseApp.getInstance(APP_NAME);
+        } catch (IllegalStateException notInitialized) {
+            app = FirebaseApp.initializeApp(context, defaultApp.getOptions(), APP_NAME);
+        }
+
+        String host = InstrumentationRegistry.getArguments().getString("firestoreEmulatorHost", DEFAULT_HOST);
+        int port = Integer.parseInt(InstrumentationRegistry.getArguments()
+                .getString("firestoreEmulatorPort", String.valueOf(DEFAULT_PORT)));
+
+        instance = FirebaseFirestore.getInstance(app);
+        instance.useEmulator(host, port);
+        return instance;
+    }
+
+    /**
+     * Blocks until the task completes, failing the test after 60 seconds.
+     */
+    public static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return An entrant as stored in an inline entrant list, named after their email
+     */
+    public static Map<String, Object> entrantMap(String email) {
+        Map<String, Object> entrant = new HashMap<>();
+        entrant.put("email", email);
+        entrant.put("name", email);
+        entrant.put("userType", "Entrant");
+        return entrant;
+    }
+
+    /**
+     * @return An inline entrant list in the current {@link EntrantList#WIRE_FORMAT}
+     */
+    public static Map<String, Object> listMap(List<Map<String, Object>> entrants) {
+        Map<String, Object> list = new HashMap<>();
+        list.put("format", EntrantList.WIRE_FORMAT);
+        list.put("entrants", entrants);
+        return list;
+    }
+
+    /**
+     * Builds a list in the legacy format, so tests also cover reading old documents.
+     */
+    public static Map<String, Object> legacyListMap(List<Map<String, Object>> entrants) {
+        Map<String, Object> list = new HashMap<>();
+        list.put("allEntrants", entrants);
+        list.put("waitList", entrants);
+        return list;
+    }
+}
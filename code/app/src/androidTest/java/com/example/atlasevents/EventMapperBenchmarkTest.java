@@ -0,0 +1,166 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.atlasevents.data.EventMapper;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compares {@link EventMapper} with {@link DocumentSnapshot#toObject(Class)} on event documents
+ * read from the local Firestore emulator, and logs the time per conversion.
+ * <p>
+ * Pass {@code -e mapperEventCount N} to change how many events are seeded.
+ * </p>
+ *
+ * @see EmulatorFirestore
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventMapperBenchmarkTest {
+
+    private static final String TAG = "EventMapperBenchmarkTest";
+    private static final int DEFAULT_EVENT_COUNT = 2000;
+    private static final int ENTRANTS_PER_EVENT = 20;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int BATCH_SIZE = 400;
+
+    private FirebaseFirestore db;
+    private String run;
+    private List<DocumentSnapshot> documents;
+
+    @Before
+    public void setUp() throws Exception {
+        db = EmulatorFirestore.get();
+        int eventCount = Integer.parseInt(InstrumentationRegistry.getArguments()
+                .getString("mapperEventCount", String.valueOf(DEFAULT_EVENT_COUNT)));
+
+        run = UUID.randomUUID().toString();
+        Calendar cal = Calendar.getInstance();
+        WriteBatch batch = db.batch();
+        for (int e = 0; e < eventCount; e++) {
+            DocumentReference ref = db.collection("events").document("mapper-" + run + "-" + e);
+            batch.set(ref, eventData(ref.getId(), e, cal));
+            if ((e + 1) % BATCH_SIZE == 0) {
+                EmulatorFirestore.await(batch.commit());
+                batch = db.batch();
+            }
+        }
+        EmulatorFirestore.await(batch.commit());
+
+        QuerySnapshot snapshot = EmulatorFirestore.await(
+                db.collection("events").whereEqualTo("benchmarkRun", run).get());
+        documents = snapshot.getDocuments();
+        assertEquals(eventCount, documents.size());
+    }
+
+    @Test
+    public void eventMapper_IsFasterThanToObjectAndReadsTheSameFields() {
+        for (DocumentSnapshot doc : documents) {
+            Event expected = doc.toObject(Event.class);
+            Event actual = EventMapper.fromSnapshot(doc);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getEventName(), actual.getEventName());
+            assertEquals(expected.getSlots(), actual.getSlots());
+            assertEquals(expected.getEntrantLimit(), actual.getEntrantLimit());
+            assertEquals(expected.getRegEndDate(), actual.getRegEndDate());
+            assertEquals(expected.getOrganizer().getEmail(), actual.getOrganizer().getEmail());
+            assertEquals(expected.getWaitlist().size(), actual.getWaitlist().size());
+            assertEquals(expected.getEntrantCoords().size(), actual.getEntrantCoords().size());
+            assertEquals(expected.getTags(), actual.getTags());
+            assertEquals(expected.getSearchKeywords(), actual.getSearchKeywords());
+        }
+
+        long toObjectNanos = 0;
+        long mapperNanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (DocumentSnapshot doc : documents) {
+                doc.toObject(Event.class);
+            }
+            long middle = System.nanoTime();
+            for (DocumentSnapshot doc : documents) {
+                EventMapper.fromSnapshot(doc);
+            }
+            long end = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                toObjectNanos += middle - start;
+                mapperNanos += end - middle;
+            }
+        }
+
+        long conversions = (long) documents.size() * MEASURED_ROUNDS;
+        Log.i(TAG, String.format(Locale.ROOT,
+                "Event conversion over %d documents: toObject %.1f us/doc, EventMapper %.1f us/doc (%.1fx)",
+                documents.size(), toObjectNanos / 1000.0 / conversions, mapperNanos / 1000.0 / conversions,
+                (double) toObjectNanos / Math.max(1, mapperNanos)));
+        assertTrue("EventMapper should not be slower than toObject", mapperNanos <= toObjectNanos);
+    }
+
+    private Map<String, Object> eventData(String id, int index, Calendar cal) {
+        Map<String, Object> organizer = new HashMap<>();
+        organizer.put("name", "Organizer " + index);
+        organizer.put("email", "organizer" + index + "@test.com");
+        organizer.put("userType", "Organizer");
+
+        EntrantList waitlist = new EntrantList();
+        Map<String, Object> coords = new HashMap<>();
+        for (int i = 0; i < ENTRANTS_PER_EVENT; i++) {
+            String email = "e" + index + "-" + i + "@test.com";
+            Entrant entrant = new Entrant();
+            entrant.setEmail(email);
+            entrant.setName("Entrant " + i);
+            waitlist.addEntrant(entrant);
+            coords.put(email, new GeoPoint(53.5, -113.5));
+        }
+
+        Event template = new Event();
+        template.setEventName("Benchmark Event " + index);
+        template.setTags(Arrays.asList("music", "outdoor"));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("benchmarkRun", run);
+        data.put("id", id);
+        data.put("eventName", template.getEventName());
+        data.put("description", "Seeded for the mapper benchmark");
+        data.put("address", index + " Main St");
+        data.put("organizer", organizer);
+        data.put("slots", 10);
+        data.put("entrantLimit", 100);
+        data.put("regStartDate", cal.getTime());
+        data.put("regEndDate", cal.getTime());
+        data.put("date", cal.getTime());
+        data.put("time", "18:00");
+        data.put("imageUrl", "");
+        data.put("waitlist", waitlist.toFirestoreMap());
+        data.put("inviteList", new EntrantList().toFirestoreMap());
+        data.put("acceptedList", new EntrantList().toFirestoreMap());
+        data.put("declinedList", new EntrantList().toFirestoreMap());
+        data.put("entrantCoords", coords);
+        data.put("tags", template.getTags());
+        data.put("searchKeywords", new ArrayList<>(template.getSearchKeywords()));
+        return data;
+    }
+}
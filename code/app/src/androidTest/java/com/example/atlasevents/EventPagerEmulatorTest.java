@@ -0,0 +1,159 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.atlasevents.data.EventPager;
+import com.example.atlasevents.data.EventRepository;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pages through an organizer's events against the local Firestore emulator.
+ *
+ * @see EmulatorFirestore
+ * @see EventPager
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventPagerEmulatorTest {
+
+    private static final int EVENTS = 25;
+    private static final int PAGE_SIZE = 10;
+    private static final int PREFETCH_DISTANCE = 2;
+
+    private EventRepository eventRepository;
+    private String organizerEmail;
+    private final BlockingQueue<Page> pages = new LinkedBlockingQueue<>();
+
+    /** A page delivered to the callback. */
+    private static final class Page {
+        final ArrayList<Event> events;
+        final boolean firstPage;
+        final boolean hasMore;
+
+        Page(ArrayList<Event> events, boolean firstPage, boolean hasMore) {
+            this.events = events;
+            this.firstPage = firstPage;
+            this.hasMore = hasMore;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        FirebaseFirestore db = EmulatorFirestore.get();
+        eventRepository = new EventRepository(db);
+        organizerEmail = "pager-" + UUID.randomUUID() + "@test.com";
+
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < EVENTS; i++) {
+            DocumentReference ref = db.collection("events").document();
+            Map<String, Object> organizer = new HashMap<>();
+            organizer.put("email", organizerEmail);
+            Map<String, Object> event = new HashMap<>();
+            event.put("id", ref.getId());
+            event.put("eventName", "Paged Event " + i);
+            event.put("organizer", organizer);
+            batch.set(ref, event);
+        }
+        EmulatorFirestore.await(batch.commit());
+    }
+
+    @Test
+    public void pager_LoadsEveryEventOncePageByPage() throws Exception {
+        EventPager pager = newPager();
+        onMain(pager::loadNextPage);
+
+        Page first = nextPage();
+        assertTrue(first.firstPage);
+        assertTrue(first.hasMore);
+        assertEquals(PAGE_SIZE, first.events.size());
+        Set<String> ids = new HashSet<>();
+        addIds(ids, first);
+
+        // Far from the end: nothing is requested
+        onMain(() -> pager.onItemVisible(PAGE_SIZE - 2 - PREFETCH_DISTANCE));
+        assertFalse(pager.isLoading());
+
+        // Within the prefetch distance of the end
+        onMain(() -> pager.onItemVisible(PAGE_SIZE - 1 - PREFETCH_DISTANCE));
+        Page second = nextPage();
+        assertFalse(second.firstPage);
+        assertEquals(PAGE_SIZE, second.events.size());
+        addIds(ids, second);
+
+        onMain(() -> pager.onItemVisible(pager.getLoadedCount() - 1));
+        Page third = nextPage();
+        assertFalse(third.hasMore);
+        assertEquals(EVENTS - 2 * PAGE_SIZE, third.events.size());
+        addIds(ids, third);
+
+        assertEquals(EVENTS, ids.size());
+        assertFalse(pager.hasMore());
+        onMain(() -> pager.onItemVisible(pager.getLoadedCount() - 1));
+        assertNull(pages.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void reset_DiscardsPageInFlight() throws Exception {
+        EventPager pager = newPager();
+        onMain(() -> {
+            pager.loadNextPage();
+            pager.reset();
+            pager.loadNextPage();
+        });
+
+        Page page = nextPage();
+        assertTrue(page.firstPage);
+        assertEquals(PAGE_SIZE, page.events.size());
+        assertEquals(PAGE_SIZE, pager.getLoadedCount());
+        assertNull(pages.poll(1, TimeUnit.SECONDS));
+    }
+
+    private EventPager newPager() {
+        return eventRepository.pageEventsByOrganizer(organizerEmail, PAGE_SIZE, PREFETCH_DISTANCE,
+                new EventPager.PageCallback() {
+                    @Override
+                    public void onPage(ArrayList<Event> events, boolean firstPage, boolean hasMore) {
+                        pages.add(new Page(events, firstPage, hasMore));
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        fail("Page failed: " + e);
+                    }
+                });
+    }
+
+    private Page nextPage() throws InterruptedException {
+        Page page = pages.poll(10, TimeUnit.SECONDS);
+        assertNotNull("Timed out waiting for a page", page);
+        return page;
+    }
+
+    private static void addIds(Set<String> ids, Page page) {
+        for (Event event : page.events) {
+            assertTrue("Duplicate " + event.getId(), ids.add(event.getId()));
+        }
+    }
+
+    private static void onMain(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.data.EventMapper;
+import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.EventRepository.SaveResult;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Checks partial and full saves and version conflicts against the local Firestore emulator.
+ *
+ * @see EmulatorFirestore
+ * @see EventRepository#saveEvent(Event)
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventSaveEmulatorTest {
+
+    private FirebaseFirestore db;
+    private EventRepository eventRepository;
+    private DocumentReference eventRef;
+
+    @Before
+    public void setUp() throws Exception {
+        db = EmulatorFirestore.get();
+        eventRepository = new EventRepository(db);
+        eventRef = db.collection("events").document("save-" + UUID.randomUUID());
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", eventRef.getId());
+        event.put("eventName", "Save Event");
+        event.put("description", "Original");
+        event.put("slots", 5);
+        event.put("membersEnabled", true);
+        event.put("waitingCount", 0);
+        EmulatorFirestore.await(eventRef.set(event));
+    }
+
+    @Test
+    public void saveEvent_WritesOnlyChangedFields() throws Exception {
+        Event event = load();
+        // Someone joins after the event was loaded
+        EmulatorFirestore.await(eventRef.update("waitingCount", 3));
+
+        event.setDescription("Edited");
+        assertEquals(SaveResult.SAVED, EmulatorFirestore.await(eventRepository.saveEvent(event)));
+        assertEquals(1L, event.getVersion());
+        assertTrue(event.getChangedFields().isEmpty());
+
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals("Edited", doc.getString("description"));
+        assertEquals(Long.valueOf(3), doc.getLong("waitingCount"));
+        assertEquals(Long.valueOf(1), doc.getLong("version"));
+        DocumentSnapshot summary = EmulatorFirestore.await(
+                db.collection("eventSummaries").document(eventRef.getId()).get());
+        assertEquals(Long.valueOf(3), summary.getLong("waitingCount"));
+    }
+
+    @Test
+    public void saveEvent_ConcurrentEditFailsFast() throws Exception {
+        Event first = load();
+        Event second = load();
+
+        first.setSlots(8);
+        assertEquals(SaveResult.SAVED, EmulatorFirestore.await(eventRepository.saveEvent(first)));
+
+        second.setEventName("Renamed");
+        assertEquals(SaveResult.VERSION_CONFLICT, EmulatorFirestore.await(eventRepository.saveEvent(second)));
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals("Save Event", doc.getString("eventName"));
+        assertEquals(Long.valueOf(8), doc.getLong("slots"));
+
+        // A reloaded copy saves normally
+        Event reloaded = load();
+        reloaded.setEventName("Renamed");
+        assertEquals(SaveResult.SAVED, EmulatorFirestore.await(eventRepository.saveEvent(reloaded)));
+        assertEquals(2L, reloaded.getVersion());
+    }
+
+    @Test
+    public void saveEvent_FullSaveKeepsLotteryFields() throws Exception {
+        Map<String, Object> lottery = new HashMap<>();
+        lottery.put("reservedSlots", 2);
+        lottery.put("pendingResample", 1);
+        lottery.put("lastDrawnSlots", 5);
+        EmulatorFirestore.await(eventRef.update(lottery));
+
+        // Built locally, so it doesn't track changes and is written in full
+        Event event = new Event();
+        event.setId(eventRef.getId());
+        event.setEventName("Save Event");
+        event.setDescription("Rewritten");
+        event.setSlots(5);
+        assertFalse(event.isTrackingChanges());
+        assertEquals(SaveResult.SAVED, EmulatorFirestore.await(eventRepository.saveEvent(event)));
+
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals("Rewritten", doc.getString("description"));
+        assertEquals(Long.valueOf(2), doc.getLong("reservedSlots"));
+        assertEquals(Long.valueOf(1), doc.getLong("pendingResample"));
+        assertEquals(Long.valueOf(5), doc.getLong("lastDrawnSlots"));
+        assertFalse(doc.contains("lastLotteryRun"));
+        assertEquals(Long.valueOf(1), doc.getLong("version"));
+    }
+
+    private Event load() throws Exception {
+        return EventMapper.fromSnapshot(EmulatorFirestore.await(eventRef.get()));
+    }
+}
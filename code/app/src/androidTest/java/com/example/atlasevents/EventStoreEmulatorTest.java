@@ -0,0 +1,144 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.atlasevents.data.EventStore;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks request coalescing, expiry and subscriptions of the {@link EventStore} against the
+ * local Firestore emulator.
+ *
+ * @see EmulatorFirestore
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventStoreEmulatorTest {
+
+    private static final int CONCURRENT_REQUESTS = 10;
+
+    private final AtomicLong now = new AtomicLong(1_000L);
+    private EventStore store;
+    private DocumentReference eventRef;
+
+    @Before
+    public void setUp() throws Exception {
+        FirebaseFirestore db = EmulatorFirestore.get();
+        store = new EventStore(db, now::get);
+        eventRef = db.collection("events").document("store-" + UUID.randomUUID());
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", eventRef.getId());
+        event.put("eventName", "Store Event");
+        EmulatorFirestore.await(eventRef.set(event));
+    }
+
+    @Test
+    public void get_ConcurrentRequestsShareOneRead() throws Exception {
+        List<Task<Event>> requests = new ArrayList<>();
+        onMain(() -> {
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                requests.add(store.get(eventRef.getId()));
+            }
+        });
+        List<Event> events = EmulatorFirestore.await(Tasks.whenAllSuccess(requests));
+        assertEquals(CONCURRENT_REQUESTS, events.size());
+        // Each caller gets its own copy
+        assertNotSame(events.get(0), events.get(1));
+        assertEquals("Store Event", events.get(0).getEventName());
+        assertEquals(1, store.getNetworkReads());
+
+        // Answered from the store until it expires
+        assertEquals("Store Event", getOnMain().getEventName());
+        assertEquals(1, store.getNetworkReads());
+        now.addAndGet(EventStore.MAX_UNWATCHED_AGE_MS);
+        getOnMain();
+        assertEquals(2, store.getNetworkReads());
+
+        onMain(() -> store.invalidate(eventRef.getId()));
+        getOnMain();
+        assertEquals(3, store.getNetworkReads());
+        assertEquals(CONCURRENT_REQUESTS + 3, store.getRequests());
+    }
+
+    @Test
+    public void subscribe_DeliversChangesToEverySubscriber() throws Exception {
+        BlockingQueue<String> first = new LinkedBlockingQueue<>();
+        BlockingQueue<String> second = new LinkedBlockingQueue<>();
+        AtomicReference<ListenerRegistration> firstSubscription = new AtomicReference<>();
+        AtomicReference<ListenerRegistration> secondSubscription = new AtomicReference<>();
+        onMain(() -> firstSubscription.set(store.subscribe(eventRef.getId(), names(first))));
+        assertEquals("Store Event", next(first));
+
+        // The second subscriber is answered from the shared listener's copy
+        onMain(() -> secondSubscription.set(store.subscribe(eventRef.getId(), names(second))));
+        assertEquals("Store Event", second.poll());
+
+        EmulatorFirestore.await(eventRef.update("eventName", "Renamed Event"));
+        assertEquals("Renamed Event", next(first));
+        assertEquals("Renamed Event", next(second));
+
+        // While subscribed, reads never expire and cost nothing
+        now.addAndGet(10 * EventStore.MAX_UNWATCHED_AGE_MS);
+        assertEquals("Renamed Event", getOnMain().getEventName());
+        assertEquals(0, store.getNetworkReads());
+
+        onMain(() -> {
+            firstSubscription.get().remove();
+            secondSubscription.get().remove();
+        });
+        EmulatorFirestore.await(eventRef.update("eventName", "Unwatched Event"));
+        assertNull(first.poll(1, TimeUnit.SECONDS));
+        assertNull(second.poll());
+    }
+
+    private Event getOnMain() throws Exception {
+        AtomicReference<Task<Event>> request = new AtomicReference<>();
+        onMain(() -> request.set(store.get(eventRef.getId())));
+        return EmulatorFirestore.await(request.get());
+    }
+
+    private static EventStore.Listener names(BlockingQueue<String> names) {
+        return new EventStore.Listener() {
+            @Override
+            public void onEvent(Event event) {
+                names.add(event.getEventName());
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail("Subscription failed: " + e);
+            }
+        };
+    }
+
+    private static String next(BlockingQueue<String> names) throws InterruptedException {
+        String name = names.poll(10, TimeUnit.SECONDS);
+        assertNotNull("Timed out waiting for the event", name);
+        return name;
+    }
+
+    private static void onMain(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+}
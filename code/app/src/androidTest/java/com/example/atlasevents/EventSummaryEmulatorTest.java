@@ -0,0 +1,189 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.EventRepository.JoinResult;
+import com.example.atlasevents.data.EventSummaryRepository;
+import com.example.atlasevents.data.MigrationRepository;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Checks that event summaries follow writes to their events, against the local Firestore
+ * emulator, and reports how much smaller they are.
+ *
+ * @see EmulatorFirestore
+ * @see EventSummaryRepository
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventSummaryEmulatorTest {
+
+    private static final String TAG = "EventSummaryEmulatorTest";
+    private FirebaseFirestore db;
+    private EventRepository eventRepository;
+    private EventSummaryRepository summaryRepository;
+    private String organizerEmail;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        eventRepository = new EventRepository(db);
+        summaryRepository = new EventSummaryRepository(db);
+        organizerEmail = "summary-" + UUID.randomUUID() + "@test.com";
+    }
+
+    @Test
+    public void addAndJoin_KeepSummaryInStep() throws Exception {
+        String id = EmulatorFirestore.await(eventRepository.addEvent(newEvent("Summary Event")));
+
+        DocumentSnapshot summary = EmulatorFirestore.await(summaryRepository.summary(id).get());
+        assertTrue(EventSummaryRepository.isComplete(summary));
+        assertEquals("Summary Event", summary.getString("eventName"));
+        assertEquals(Long.valueOf(0), summary.getLong("waitingCount"));
+
+        Entrant entrant = new Entrant();
+        entrant.setEmail("joiner@test.com");
+        entrant.setName("Joiner");
+        assertEquals(JoinResult.JOINED, EmulatorFirestore.await(
+                eventRepository.joinWaitlist(id, entrant, null)));
+        summary = EmulatorFirestore.await(summaryRepository.summary(id).get());
+        assertEquals(Long.valueOf(1), summary.getLong("waitingCount"));
+
+        eventRepository.deleteEvent(id);
+    }
+
+    @Test
+    public void getEventsByOrganizer_ReturnsSummariesThatCannotBeSaved() throws Exception {
+        EmulatorFirestore.await(eventRepository.addEvent(newEvent("Organizer Summary")));
+        EmulatorFirestore.await(new MigrationRepository(db).runPending());
+
+        ArrayList<Event> events = eventsByOrganizer();
+        assertEquals(1, events.size());
+        Event summary = events.get(0);
+        assertTrue(summary.isSummary());
+        assertEquals("Organizer Summary", summary.getEventName());
+        assertNull(summary.getDescription());
+
+        TaskCompletionSource<Boolean> updated = new TaskCompletionSource<>();
+        eventRepository.updateEvent(summary, updated::setResult);
+        assertFalse(EmulatorFirestore.await(updated.getTask()));
+    }
+
+    @Test
+    public void rebuildAll_BuildsMissingSummariesAndReportsSizes() throws Exception {
+        // An older event written without a summary, with a long description and inline lists
+        String id = "summary-" + UUID.randomUUID();
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", id);
+        event.put("eventName", "Legacy Event");
+        event.put("description", new String(new char[2000]).replace('\0', 'x'));
+        event.put("slots", 3);
+        Map<String, Object> organizer = new HashMap<>();
+        organizer.put("email", organizerEmail);
+        event.put("organizer", organizer);
+        EntrantList waitlist = new EntrantList();
+        for (int i = 0; i < 50; i++) {
+            Entrant entrant = new Entrant();
+            entrant.setEmail("waiting" + i + "@test.com");
+            entrant.setName("Waiting " + i);
+            waitlist.addEntrant(entrant);
+        }
+        event.put("waitlist", waitlist.toFirestoreMap());
+        EmulatorFirestore.await(db.collection("events").document(id).set(event));
+
+        EventSummaryRepository.SizeReport report = EmulatorFirestore.await(summaryRepository.rebuildAll());
+        Log.i(TAG, "Event summaries: " + report);
+        assertTrue(report.getEvents() >= 1);
+        assertTrue(report.getSummaryBytes() < report.getEventBytes());
+
+        DocumentSnapshot summary = EmulatorFirestore.await(summaryRepository.summary(id).get());
+        assertTrue(EventSummaryRepository.isComplete(summary));
+        assertEquals(Long.valueOf(50), summary.getLong("waitingCount"));
+        assertFalse(summary.contains("description"));
+        assertFalse(summary.contains("waitlist"));
+    }
+
+    @Test
+    public void getEventsByOrganizer_ReadsEventsUntilBackfillRuns() throws Exception {
+        // An older event written without a summary
+        String id = "summary-" + UUID.randomUUID();
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", id);
+        event.put("eventName", "Unsummarized Event");
+        event.put("slots", 3);
+        Map<String, Object> organizer = new HashMap<>();
+        organizer.put("email", organizerEmail);
+        event.put("organizer", organizer);
+        EmulatorFirestore.await(db.collection("events").document(id).set(event));
+        MigrationRepository migrations = new MigrationRepository(db);
+        EmulatorFirestore.await(migrations.marker(MigrationRepository.SUMMARIES).delete());
+
+        // Not backfilled yet, so the event document itself is listed
+        eventRepository = new EventRepository(db);
+        ArrayList<Event> events = eventsByOrganizer();
+        assertEquals(1, events.size());
+        assertEquals(id, events.get(0).getId());
+        assertFalse(events.get(0).isSummary());
+
+        EmulatorFirestore.await(migrations.runPending());
+        assertTrue(EmulatorFirestore.await(migrations.isComplete(MigrationRepository.SUMMARIES)));
+
+        eventRepository = new EventRepository(db);
+        events = eventsByOrganizer();
+        assertEquals(1, events.size());
+        assertEquals(id, events.get(0).getId());
+        assertTrue(events.get(0).isSummary());
+    }
+
+    private ArrayList<Event> eventsByOrganizer() throws Exception {
+        TaskCompletionSource<ArrayList<Event>> found = new TaskCompletionSource<>();
+        eventRepository.getEventsByOrganizer(organizerEmail, new EventRepository.EventsCallback() {
+            @Override
+            public void onSuccess(ArrayList<Event> events) {
+                found.setResult(events);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                found.setException(e);
+            }
+        });
+        return EmulatorFirestore.await(found.getTask());
+    }
+
+    private Event newEvent(String name) {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, -1);
+        Date start = cal.getTime();
+        cal.add(Calendar.DAY_OF_YEAR, 10);
+        Date end = cal.getTime();
+
+        Organizer organizer = new Organizer();
+        organizer.setEmail(organizerEmail);
+        Event event = new Event();
+        event.setEventName(name);
+        event.setOrganizer(organizer);
+        event.setSlots(5);
+        event.setEntrantLimit(-1);
+        event.setRegStartDate(start);
+        event.setRegEndDate(end);
+        return event;
+    }
+}
@@ -6,6 +6,7 @@ import androidx.test.espresso.idling.CountingIdlingResource;
 import com.example.atlasevents.data.EventRepository;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.GeoPoint;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -208,6 +209,42 @@ public class FakeEventRepository extends EventRepository {
         }
     }
 
+    @Override
+    public Task<JoinResult> joinWaitlist(String eventId, Entrant entrant, GeoPoint location) {
+        Event event = events.get(eventId);
+        if (event == null) {
+            return Tasks.forResult(JoinResult.EVENT_NOT_FOUND);
+        }
+        if (event.getWaitlist().containsEntrant(entrant)
+                || event.getInviteList().containsEntrant(entrant)
+                || event.getAcceptedList().containsEntrant(entrant)) {
+            return Tasks.forResult(JoinResult.ALREADY_JOINED);
+        }
+        int added = event.addToWaitlist(entrant);
+        if (added == -1) {
+            return Tasks.forResult(JoinResult.REGISTRATION_CLOSED);
+        }
+        if (added == 0) {
+            return Tasks.forResult(JoinResult.WAITLIST_FULL);
+        }
+        event.addToEntrantLocation(entrant.getEmail(), location);
+        return Tasks.forResult(JoinResult.JOINED);
+    }
+
+    @Override
+    public Task<LeaveResult> leaveWaitlist(String eventId, String email) {
+        Event event = events.get(eventId);
+        if (event == null) {
+            return Tasks.forResult(LeaveResult.EVENT_NOT_FOUND);
+        }
+        Entrant removed = event.getWaitlist().removeEntrant(email);
+        if (removed == null) {
+            return Tasks.forResult(LeaveResult.NOT_ON_WAITLIST);
+        }
+        event.removeFromEntrantLocation(removed);
+        return Tasks.forResult(LeaveResult.LEFT);
+    }
+
     @Override
     public void deleteEvent(String eventId) {
         events.remove(eventId);
@@ -0,0 +1,282 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.LotteryService.InvitationResult;
+import com.example.atlasevents.data.EventMapper;
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.MembershipRepository;
+import com.example.atlasevents.data.NotificationRepository;
+import com.example.atlasevents.data.model.Invite;
+import com.example.atlasevents.data.model.Member;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Fires conflicting invitation transitions in parallel against the local Firestore emulator
+ * and checks that each invite ends in exactly one state, matched by the entrant's membership.
+ *
+ * @see EmulatorFirestore
+ * @see LotteryService#transitionInvitation(String, String, String)
+ */
+@RunWith(AndroidJUnit4.class)
+public class InvitationStateEmulatorTest {
+
+    private static final int INVITEES = 20;
+    /** Every contender runs on its own service, like separate devices. */
+    private static final List<String> CONTENDERS = Arrays.asList(
+            "accepted", "declined", "expired", "accepted", "declined", "expired");
+
+    private FirebaseFirestore db;
+    private InviteRepository inviteRepository;
+    private MembershipRepository membershipRepository;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        inviteRepository = new InviteRepository(db);
+        membershipRepository = new MembershipRepository(db);
+    }
+
+    @Test
+    public void conflictingTransitions_MembersEvent_OneWinnerEach() throws Exception {
+        DocumentReference eventRef = db.collection("events").document("state-" + UUID.randomUUID());
+        Map<String, Object> event = baseEvent(eventRef);
+        event.put("membersEnabled", true);
+        event.put("invitedCount", INVITEES);
+        EmulatorFirestore.await(eventRef.set(event));
+        for (int i = 0; i < INVITEES; i++) {
+            String email = invitee(i);
+            EmulatorFirestore.await(membershipRepository.member(eventRef.getId(), email)
+                    .set(new Member(email, "Invitee " + i, Member.STATUS_INVITED)));
+            EmulatorFirestore.await(inviteRepository.createInvite(invite(eventRef.getId(), email)));
+        }
+
+        int accepted = 0;
+        for (int i = 0; i < INVITEES; i++) {
+            String finalStatus = race(eventRef.getId(), invitee(i));
+            Member member = EmulatorFirestore.await(membershipRepository.getMember(eventRef.getId(), invitee(i)));
+            if ("accepted".equals(finalStatus)) {
+                accepted++;
+                assertEquals(Member.STATUS_ACCEPTED, member.getStatus());
+            } else {
+                assertEquals(Member.STATUS_DECLINED, member.getStatus());
+            }
+        }
+
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals(Long.valueOf(0), doc.getLong("invitedCount"));
+        assertEquals(Long.valueOf(accepted), doc.getLong("acceptedCount"));
+        assertEquals(Long.valueOf(INVITEES - accepted), doc.getLong("declinedCount"));
+        DocumentSnapshot summary = EmulatorFirestore.await(
+                db.collection("eventSummaries").document(eventRef.getId()).get());
+        assertEquals(Long.valueOf(accepted), summary.getLong("acceptedCount"));
+        assertEquals(Long.valueOf(INVITEES - accepted), summary.getLong("declinedCount"));
+    }
+
+    @Test
+    public void conflictingTransitions_InlineListEvent_OneWinnerEach() throws Exception {
+        DocumentReference eventRef = db.collection("events").document("state-" + UUID.randomUUID());
+        Map<String, Object> event = baseEvent(eventRef);
+        EntrantList inviteList = new EntrantList();
+        for (int i = 0; i < INVITEES; i++) {
+            Entrant entrant = new Entrant();
+            entrant.setEmail(invitee(i));
+            entrant.setName("Invitee " + i);
+            inviteList.addEntrant(entrant);
+        }
+        event.put("inviteList", inviteList.toFirestoreMap());
+        event.put("acceptedList", new EntrantList().toFirestoreMap());
+        event.put("declinedList", new EntrantList().toFirestoreMap());
+        EmulatorFirestore.await(eventRef.set(event));
+        for (int i = 0; i < INVITEES; i++) {
+            EmulatorFirestore.await(inviteRepository.createInvite(invite(eventRef.getId(), invitee(i))));
+        }
+
+        List<String> finalStatuses = new ArrayList<>();
+        for (int i = 0; i < INVITEES; i++) {
+            finalStatuses.add(race(eventRef.getId(), invitee(i)));
+        }
+
+        Event stored = EventMapper.fromSnapshot(EmulatorFirestore.await(eventRef.get()));
+        assertEquals(0, stored.getInviteList().size());
+        for (int i = 0; i < INVITEES; i++) {
+            boolean inAccepted = stored.getAcceptedList().getEntrantByEmail(invitee(i)) != null;
+            boolean inDeclined = stored.getDeclinedList().getEntrantByEmail(invitee(i)) != null;
+            assertTrue("Entrant must be in exactly one list", inAccepted != inDeclined);
+            assertEquals("accepted".equals(finalStatuses.get(i)), inAccepted);
+        }
+        assertEquals(INVITEES, stored.getAcceptedList().size() + stored.getDeclinedList().size());
+    }
+
+    @Test
+    public void transitionInvitation_RepeatsAndLateResponses() throws Exception {
+        DocumentReference eventRef = db.collection("events").document("state-" + UUID.randomUUID());
+        Map<String, Object> event = baseEvent(eventRef);
+        event.put("membersEnabled", true);
+        event.put("invitedCount", 2);
+        EmulatorFirestore.await(eventRef.set(event));
+        String onTime = invitee(0);
+        String late = invitee(1);
+        for (String email : Arrays.asList(onTime, late)) {
+            EmulatorFirestore.await(membershipRepository.member(eventRef.getId(), email)
+                    .set(new Member(email, email, Member.STATUS_INVITED)));
+        }
+        EmulatorFirestore.await(inviteRepository.createInvite(invite(eventRef.getId(), onTime)));
+        Invite expiredInvite = invite(eventRef.getId(), late);
+        expiredInvite.setExpirationTime(System.currentTimeMillis() - 1_000L);
+        EmulatorFirestore.await(inviteRepository.createInvite(expiredInvite));
+
+        LotteryService service = newService();
+        // A double tap on one screen: the second is turned away while the first runs
+        Task<InvitationResult> first = service.transitionInvitation(eventRef.getId(), onTime, "accepted");
+        Task<InvitationResult> second = service.transitionInvitation(eventRef.getId(), onTime, "accepted");
+        assertEquals(InvitationResult.APPLIED, EmulatorFirestore.await(first));
+        assertEquals(InvitationResult.IN_PROGRESS, EmulatorFirestore.await(second));
+        // A retry once it finished changes nothing
+        assertEquals(InvitationResult.ALREADY_APPLIED, EmulatorFirestore.await(
+                service.transitionInvitation(eventRef.getId(), onTime, "accepted")));
+        assertEquals(InvitationResult.CONFLICT, EmulatorFirestore.await(
+                service.transitionInvitation(eventRef.getId(), onTime, "declined")));
+
+        // Past the deadline only expiry goes through
+        assertEquals(InvitationResult.EXPIRED, EmulatorFirestore.await(
+                service.transitionInvitation(eventRef.getId(), late, "accepted")));
+        assertEquals(InvitationResult.APPLIED, EmulatorFirestore.await(
+                service.transitionInvitation(eventRef.getId(), late, "expired")));
+
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals(Long.valueOf(0), doc.getLong("invitedCount"));
+        assertEquals(Long.valueOf(1), doc.getLong("acceptedCount"));
+        assertEquals(Long.valueOf(1), doc.getLong("declinedCount"));
+        // The expired slot is queued on the event until a resample refills it
+        assertEquals(Long.valueOf(1), doc.getLong("pendingResample"));
+    }
+
+    @Test
+    public void resampleLottery_ExpiresReplacedInvitesWithTheNewList() throws Exception {
+        DocumentReference eventRef = db.collection("events").document("state-" + UUID.randomUUID());
+        Map<String, Object> event = baseEvent(eventRef);
+        String redrawn = invitee(0);
+        String replaced = invitee(1);
+        // Only the first invitee is still on the waitlist, so the resample draws it again
+        EntrantList waitlist = new EntrantList();
+        waitlist.addEntrant(entrant(redrawn));
+        EntrantList inviteList = new EntrantList();
+        inviteList.addEntrant(entrant(redrawn));
+        inviteList.addEntrant(entrant(replaced));
+        event.put("waitlist", waitlist.toFirestoreMap());
+        event.put("inviteList", inviteList.toFirestoreMap());
+        EmulatorFirestore.await(eventRef.set(event));
+        for (String email : Arrays.asList(redrawn, replaced)) {
+            EmulatorFirestore.await(inviteRepository.createInvite(invite(eventRef.getId(), email)));
+        }
+
+        TaskCompletionSource<Integer> done = new TaskCompletionSource<>();
+        newService().resampleLottery(eventRef.getId(), new LotteryService.LotteryCallback() {
+            @Override
+            public void onLotteryCompleted(int entrantsSelected, String message) {
+                done.setResult(entrantsSelected);
+            }
+
+            @Override
+            public void onLotteryFailed(Exception e) {
+                done.setException(e);
+            }
+        });
+        // The re-drawn invitee already holds a pending invite, so none is created
+        assertEquals(Integer.valueOf(0), EmulatorFirestore.await(done.getTask()));
+
+        Event stored = EventMapper.fromSnapshot(EmulatorFirestore.await(eventRef.get()));
+        assertEquals(1, stored.getInviteList().size());
+        assertNotNull(stored.getInviteList().getEntrantByEmail(redrawn));
+        assertEquals("pending", inviteStatus(eventRef.getId(), redrawn));
+        assertEquals("expired", inviteStatus(eventRef.getId(), replaced));
+    }
+
+    private String inviteStatus(String eventId, String email) throws Exception {
+        return EmulatorFirestore.await(db.collection("invites")
+                .document(InviteRepository.inviteId(eventId, email)).get()).getString("status");
+    }
+
+    private static Entrant entrant(String email) {
+        Entrant entrant = new Entrant();
+        entrant.setEmail(email);
+        entrant.setName(email);
+        return entrant;
+    }
+
+    /**
+     * Runs every contender against one invite at once and checks that exactly one of them
+     * applied its transition and the rest saw it.
+     *
+     * @return The invite's final status
+     */
+    private String race(String eventId, String email) throws Exception {
+        List<Task<InvitationResult>> results = new ArrayList<>();
+        for (String status : CONTENDERS) {
+            results.add(newService().transitionInvitation(eventId, email, status));
+        }
+        EmulatorFirestore.await(Tasks.whenAllComplete(results));
+
+        String finalStatus = EmulatorFirestore.await(db.collection("invites")
+                .document(InviteRepository.inviteId(eventId, email)).get()).getString("status");
+        int applied = 0;
+        for (int i = 0; i < CONTENDERS.size(); i++) {
+            assertTrue("Transition failed: " + results.get(i).getException(), results.get(i).isSuccessful());
+            InvitationResult result = results.get(i).getResult();
+            if (result == InvitationResult.APPLIED) {
+                applied++;
+                assertEquals(CONTENDERS.get(i), finalStatus);
+            } else if (CONTENDERS.get(i).equals(finalStatus)) {
+                assertEquals(InvitationResult.ALREADY_APPLIED, result);
+            } else {
+                assertTrue("Unexpected " + result, result == InvitationResult.CONFLICT
+                        || result == InvitationResult.EXPIRED);
+            }
+        }
+        assertEquals("Exactly one transition must win for " + email, 1, applied);
+        return finalStatus;
+    }
+
+    private LotteryService newService() {
+        return new LotteryService(db, new NotificationRepository(db), inviteRepository);
+    }
+
+    private static Map<String, Object> baseEvent(DocumentReference eventRef) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", eventRef.getId());
+        event.put("eventName", "State Machine Event");
+        event.put("slots", INVITEES);
+        Map<String, Object> organizer = new HashMap<>();
+        organizer.put("email", "organizer@test.com");
+        event.put("organizer", organizer);
+        return event;
+    }
+
+    private static Invite invite(String eventId, String email) {
+        return new Invite(eventId, email, "State Machine Event", "organizer@test.com",
+                System.currentTimeMillis() + 60 * 60 * 1000L);
+    }
+
+    private static String invitee(int i) {
+        return "invitee" + i + "@test.com";
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.model.Invite;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the invites of a large draw against the local Firestore emulator, one write per invite
+ * as before and in transactions with derived IDs, and checks that lookups and retries use the
+ * derived IDs and that creating an invite again only replaces a declined or expired one.
+ *
+ * @see EmulatorFirestore
+ * @see InviteRepository#createInvites(List)
+ */
+@RunWith(AndroidJUnit4.class)
+public class InviteBatchEmulatorTest {
+
+    private static final String TAG = "InviteBatchEmulatorTest";
+    private static final int DRAW_SIZE = 5000;
+
+    private FirebaseFirestore db;
+    private InviteRepository inviteRepository;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        inviteRepository = new InviteRepository(db);
+    }
+
+    @Test
+    public void createInvites_LargeDrawBenchmark() throws Exception {
+        // Before: one set() per invite on a random ID
+        List<Invite> single = invites("single-" + UUID.randomUUID(), DRAW_SIZE);
+        long start = System.nanoTime();
+        List<Task<Void>> writes = new ArrayList<>();
+        for (Invite invite : single) {
+            DocumentReference ref = db.collection("invites").document();
+            Map<String, Object> data = new HashMap<>();
+            data.put("inviteId", ref.getId());
+            data.put("eventId", invite.getEventId());
+            data.put("recipientEmail", invite.getRecipientEmail());
+            data.put("status", invite.getStatus());
+            data.put("expirationTime", invite.getExpirationTime());
+            data.put("createdAt", FieldValue.serverTimestamp());
+            writes.add(ref.set(data));
+        }
+        Tasks.await(Tasks.whenAll(writes), 5, TimeUnit.MINUTES);
+        long singleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // After: transactions with derived IDs
+        List<Invite> batched = invites("batched-" + UUID.randomUUID(), DRAW_SIZE);
+        start = System.nanoTime();
+        int created = Tasks.await(inviteRepository.createInvites(batched), 5, TimeUnit.MINUTES);
+        long batchedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Log.i(TAG, DRAW_SIZE + " invites: " + singleMs + " ms one by one, "
+                + batchedMs + " ms batched");
+        assertEquals(DRAW_SIZE, created);
+        assertEquals(DRAW_SIZE, EmulatorFirestore.await(db.collection("invites")
+                .whereEqualTo("eventId", batched.get(0).getEventId()).get()).size());
+    }
+
+    @Test
+    public void createInvites_RetryIsIdempotentAndLookupsUseDerivedIds() throws Exception {
+        String eventId = "retry-" + UUID.randomUUID();
+        List<Invite> invites = invites(eventId, 3);
+        assertEquals(Integer.valueOf(3), EmulatorFirestore.await(inviteRepository.createInvites(invites)));
+        assertEquals(Integer.valueOf(0), EmulatorFirestore.await(inviteRepository.createInvites(invites(eventId, 3))));
+
+        assertEquals(3, EmulatorFirestore.await(db.collection("invites")
+                .whereEqualTo("eventId", eventId).get()).size());
+        Invite found = EmulatorFirestore.await(
+                inviteRepository.getInviteByEventAndRecipient(eventId, "entrant1@test.com"));
+        assertNotNull(found);
+        assertEquals(InviteRepository.inviteId(eventId, "entrant1@test.com"), found.getInviteId());
+
+        // Answered invites are no longer returned
+        EmulatorFirestore.await(inviteRepository.updateInviteStatus(found.getInviteId(), "accepted"));
+        assertNull(EmulatorFirestore.await(
+                inviteRepository.getInviteByEventAndRecipient(eventId, "entrant1@test.com")));
+
+        EmulatorFirestore.await(inviteRepository.deleteInviteByEventAndRecipient(eventId, "entrant2@test.com"));
+        assertFalse(EmulatorFirestore.await(db.collection("invites")
+                .document(InviteRepository.inviteId(eventId, "entrant2@test.com")).get()).exists());
+    }
+
+    @Test
+    public void createInvite_LeavesAcceptedInviteUntouched() throws Exception {
+        String eventId = "answered-" + UUID.randomUUID();
+        Invite first = invites(eventId, 1).get(0);
+        assertTrue(EmulatorFirestore.await(inviteRepository.createInvite(first)));
+        EmulatorFirestore.await(inviteRepository.updateInviteStatus(first.getInviteId(), "accepted"));
+
+        // A repeated draw creates the invite again with a later deadline
+        Invite again = new Invite(eventId, first.getRecipientEmail(), "Draw Event",
+                "organizer@test.com", first.getExpirationTime() + 60_000L);
+        assertFalse(EmulatorFirestore.await(inviteRepository.createInvite(again)));
+        List<Invite> batch = invites(eventId, 2);
+        assertEquals(Integer.valueOf(1), EmulatorFirestore.await(inviteRepository.createInvites(batch)));
+
+        DocumentSnapshot doc = EmulatorFirestore.await(db.collection("invites")
+                .document(first.getInviteId()).get());
+        assertEquals("accepted", doc.getString("status"));
+        assertEquals(Long.valueOf(first.getExpirationTime()), doc.getLong("expirationTime"));
+        assertEquals("pending", EmulatorFirestore.await(db.collection("invites")
+                .document(InviteRepository.inviteId(eventId, "entrant1@test.com")).get()).getString("status"));
+    }
+
+    @Test
+    public void createInvite_ReplacesDeclinedAndExpiredInvites() throws Exception {
+        String eventId = "redrawn-" + UUID.randomUUID();
+        List<Invite> first = invites(eventId, 2);
+        assertEquals(Integer.valueOf(2), EmulatorFirestore.await(inviteRepository.createInvites(first)));
+        EmulatorFirestore.await(inviteRepository.updateInviteStatus(first.get(0).getInviteId(), "declined"));
+        EmulatorFirestore.await(inviteRepository.updateInviteStatus(first.get(1).getInviteId(), "expired"));
+
+        // Both entrants are drawn again and get a fresh pending invite with the new deadline
+        long deadline = first.get(0).getExpirationTime() + 60_000L;
+        List<Invite> again = new ArrayList<>();
+        for (Invite invite : first) {
+            again.add(new Invite(eventId, invite.getRecipientEmail(), "Draw Event",
+                    "organizer@test.com", deadline));
+        }
+        assertEquals(Integer.valueOf(2), EmulatorFirestore.await(inviteRepository.createInvites(again)));
+
+        for (Invite invite : first) {
+            DocumentSnapshot doc = EmulatorFirestore.await(db.collection("invites")
+                    .document(invite.getInviteId()).get());
+            assertEquals("pending", doc.getString("status"));
+            assertEquals(Long.valueOf(deadline), doc.getLong("expirationTime"));
+        }
+    }
+
+    @Test
+    public void getInviteByEventAndRecipient_FindsInviteWithRandomId() throws Exception {
+        String eventId = "legacy-" + UUID.randomUUID();
+        DocumentReference ref = db.collection("invites").document();
+        Map<String, Object> data = new HashMap<>();
+        data.put("inviteId", ref.getId());
+        data.put("eventId", eventId);
+        data.put("recipientEmail", "old@test.com");
+        data.put("status", "pending");
+        data.put("expirationTime", System.currentTimeMillis() + 60_000L);
+        EmulatorFirestore.await(ref.set(data));
+
+        Invite found = EmulatorFirestore.await(
+                inviteRepository.getInviteByEventAndRecipient(eventId, "old@test.com"));
+        assertNotNull(found);
+        assertEquals(ref.getId(), found.getInviteId());
+    }
+
+    private static List<Invite> invites(String eventId, int count) {
+        long expirationTime = System.currentTimeMillis() + 24 * 60 * 60 * 1000L;
+        List<Invite> invites = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            invites.add(new Invite(eventId, "entrant" + i + "@test.com", "Draw Event",
+                    "organizer@test.com", expirationTime));
+        }
+        return invites;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.MembershipRepository;
+import com.example.atlasevents.data.NotificationRepository;
+import com.example.atlasevents.data.model.Invite;
+import com.example.atlasevents.data.model.Member;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that reading invites has no side effects, that expiring them only touches invites
+ * still pending and that the sweep runs under a lease and through the invitation state
+ * machine, against the local Firestore emulator.
+ *
+ * @see EmulatorFirestore
+ * @see InviteExpiryScheduler
+ */
+@RunWith(AndroidJUnit4.class)
+public class InviteExpiryEmulatorTest {
+
+    private static final long LEASE_MS = 60_000L;
+
+    private FirebaseFirestore db;
+    private InviteRepository inviteRepository;
+    private String userEmail;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        inviteRepository = new InviteRepository(db);
+        userEmail = "expiry-" + UUID.randomUUID() + "@test.com";
+    }
+
+    @Test
+    public void getPendingInvitesForUser_FiltersExpiredWithoutWriting() throws Exception {
+        long now = System.currentTimeMillis();
+        Invite open = invite("open-" + UUID.randomUUID(), now + 60_000L);
+        Invite expired = invite("expired-" + UUID.randomUUID(), now - 60_000L);
+        EmulatorFirestore.await(inviteRepository.createInvites(Arrays.asList(open, expired)));
+
+        List<Invite> pending = EmulatorFirestore.await(inviteRepository.getPendingInvitesForUser(userEmail));
+        assertEquals(1, pending.size());
+        assertEquals(open.getInviteId(), pending.get(0).getInviteId());
+
+        // The expired invite is left for the sweep
+        assertEquals("pending", EmulatorFirestore.await(db.collection("invites")
+                .document(expired.getInviteId()).get()).getString("status"));
+    }
+
+    @Test
+    public void expireInvites_ExpiresOnlyPendingInvitesAcrossChunks() throws Exception {
+        String eventId = "sweep-" + UUID.randomUUID();
+        long deadline = System.currentTimeMillis() - 60_000L;
+        List<Invite> invites = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            invites.add(new Invite(eventId, "entrant" + i + "@test.com", "Sweep Event",
+                    "organizer@test.com", deadline));
+        }
+        EmulatorFirestore.await(inviteRepository.createInvites(invites));
+        // Answered after the sweep queried them
+        EmulatorFirestore.await(inviteRepository.updateInviteStatus(invites.get(0).getInviteId(), "accepted"));
+        EmulatorFirestore.await(inviteRepository.updateInviteStatus(invites.get(599).getInviteId(), "declined"));
+
+        assertEquals(Integer.valueOf(598), EmulatorFirestore.await(inviteRepository.expireInvites(invites)));
+        assertEquals(598, EmulatorFirestore.await(db.collection("invites")
+                .whereEqualTo("eventId", eventId)
+                .whereEqualTo("status", "expired").get()).size());
+        assertEquals("accepted", EmulatorFirestore.await(db.collection("invites")
+                .document(invites.get(0).getInviteId()).get()).getString("status"));
+        assertEquals("declined", EmulatorFirestore.await(db.collection("invites")
+                .document(invites.get(599).getInviteId()).get()).getString("status"));
+
+        // A repeated page expires nothing
+        assertEquals(Integer.valueOf(0), EmulatorFirestore.await(inviteRepository.expireInvites(invites)));
+    }
+
+    @Test
+    public void sweep_ExpiresThroughTheStateMachine() throws Exception {
+        DocumentReference eventRef = db.collection("events").document("sweep-" + UUID.randomUUID());
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", eventRef.getId());
+        event.put("eventName", "Sweep Event");
+        event.put("slots", 2);
+        event.put("membersEnabled", true);
+        event.put("invitedCount", 1);
+        event.put("acceptedCount", 1);
+        Map<String, Object> organizer = new HashMap<>();
+        organizer.put("email", "organizer@test.com");
+        event.put("organizer", organizer);
+        EmulatorFirestore.await(eventRef.set(event));
+
+        // One entrant never answered; the other accepted but their invite was never updated
+        MembershipRepository membershipRepository = new MembershipRepository(db);
+        String unanswered = "unanswered-" + UUID.randomUUID() + "@test.com";
+        String accepted = "accepted-" + UUID.randomUUID() + "@test.com";
+        EmulatorFirestore.await(membershipRepository.member(eventRef.getId(), unanswered)
+                .set(new Member(unanswered, unanswered, Member.STATUS_INVITED)));
+        EmulatorFirestore.await(membershipRepository.member(eventRef.getId(), accepted)
+                .set(new Member(accepted, accepted, Member.STATUS_ACCEPTED)));
+        long deadline = System.currentTimeMillis() - 60_000L;
+        EmulatorFirestore.await(inviteRepository.createInvites(Arrays.asList(
+                new Invite(eventRef.getId(), unanswered, "Sweep Event", "organizer@test.com", deadline),
+                new Invite(eventRef.getId(), accepted, "Sweep Event", "organizer@test.com", deadline))));
+        EmulatorFirestore.await(db.collection("leases").document("inviteExpirySweep").delete());
+
+        LotteryService lotteryService = new LotteryService(db, new NotificationRepository(db), inviteRepository);
+        AtomicReference<Task<Integer>> sweep = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> sweep.set(
+                new InviteExpiryScheduler(inviteRepository, lotteryService, new Handler(Looper.getMainLooper()))
+                        .sweep()));
+        assertTrue(EmulatorFirestore.await(sweep.get()) >= 2);
+
+        assertEquals("expired", inviteStatus(eventRef.getId(), unanswered));
+        assertEquals(Member.STATUS_DECLINED, EmulatorFirestore.await(
+                membershipRepository.getMember(eventRef.getId(), unanswered)).getStatus());
+        // No transition applies to the accepted entrant, so only the invite is expired
+        assertEquals("expired", inviteStatus(eventRef.getId(), accepted));
+        assertEquals(Member.STATUS_ACCEPTED, EmulatorFirestore.await(
+                membershipRepository.getMember(eventRef.getId(), accepted)).getStatus());
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals(Long.valueOf(0), doc.getLong("invitedCount"));
+        assertEquals(Long.valueOf(1), doc.getLong("declinedCount"));
+        assertEquals(Long.valueOf(1), doc.getLong("acceptedCount"));
+    }
+
+    @Test
+    public void acquireSweepLease_AllowsOneHolderAtATime() throws Exception {
+        String first = "first-" + UUID.randomUUID();
+        String second = "second-" + UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        // Clear a lease left by an earlier run
+        EmulatorFirestore.await(db.collection("leases").document("inviteExpirySweep").delete());
+
+        assertTrue(EmulatorFirestore.await(inviteRepository.acquireSweepLease(first, now, LEASE_MS)));
+        assertFalse(EmulatorFirestore.await(inviteRepository.acquireSweepLease(second, now, LEASE_MS)));
+        // The holder renews its own lease
+        assertTrue(EmulatorFirestore.await(inviteRepository.acquireSweepLease(first, now + 1_000L, LEASE_MS)));
+
+        // Releasing someone else's lease does nothing
+        EmulatorFirestore.await(inviteRepository.releaseSweepLease(second));
+        assertFalse(EmulatorFirestore.await(inviteRepository.acquireSweepLease(second, now, LEASE_MS)));
+
+        // A lapsed lease can be taken over
+        assertTrue(EmulatorFirestore.await(inviteRepository.acquireSweepLease(second,
+                now + 2 * LEASE_MS, LEASE_MS)));
+        EmulatorFirestore.await(inviteRepository.releaseSweepLease(second));
+        assertTrue(EmulatorFirestore.await(inviteRepository.acquireSweepLease(first, now, LEASE_MS)));
+        EmulatorFirestore.await(inviteRepository.releaseSweepLease(first));
+    }
+
+    private String inviteStatus(String eventId, String email) throws Exception {
+        return EmulatorFirestore.await(db.collection("invites")
+                .document(InviteRepository.inviteId(eventId, email)).get()).getString("status");
+    }
+
+    private Invite invite(String eventId, long expirationTime) {
+        return new Invite(eventId, userEmail, "Expiry Event", "organizer@test.com", expirationTime);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.model.Invite;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the batch event lookup and the pending invites listener behind the invites screen,
+ * against the local Firestore emulator.
+ *
+ * @see EmulatorFirestore
+ * @see EventInvitesActivity
+ */
+@RunWith(AndroidJUnit4.class)
+public class InviteHydrationEmulatorTest {
+
+    private FirebaseFirestore db;
+    private EventRepository eventRepository;
+    private InviteRepository inviteRepository;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        eventRepository = new EventRepository(db);
+        inviteRepository = new InviteRepository(db);
+    }
+
+    @Test
+    public void getEventsByIds_ReadsManyEventsInOrder() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 35; i++) {
+            Event event = new Event();
+            event.setEventName("Hydration " + i);
+            event.setSlots(5);
+            ids.add(EmulatorFirestore.await(eventRepository.addEvent(event)));
+        }
+        // An older event without a summary, a duplicate and a missing event
+        String legacyId = "hydration-" + UUID.randomUUID();
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put("id", legacyId);
+        legacy.put("eventName", "Legacy Hydration");
+        EmulatorFirestore.await(db.collection("events").document(legacyId).set(legacy));
+        ids.add(0, legacyId);
+        ids.add(ids.get(1));
+        ids.add("missing-" + UUID.randomUUID());
+
+        List<Event> events = EmulatorFirestore.await(eventRepository.getEventsByIds(ids));
+        assertEquals(36, events.size());
+        assertEquals("Legacy Hydration", events.get(0).getEventName());
+        for (int i = 0; i < 35; i++) {
+            assertEquals("Hydration " + i, events.get(i + 1).getEventName());
+            assertTrue(events.get(i + 1).isSummary());
+        }
+    }
+
+    @Test
+    public void listenToPendingInvites_ReportsOnlyChanges() throws Exception {
+        String userEmail = "hydration-" + UUID.randomUUID() + "@test.com";
+        long expirationTime = System.currentTimeMillis() + 60 * 60 * 1000L;
+        Invite first = new Invite("event-a", userEmail, "Event A", "organizer@test.com", expirationTime);
+        EmulatorFirestore.await(inviteRepository.createInvite(first));
+
+        BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+        ListenerRegistration registration = inviteRepository.listenToPendingInvites(userEmail,
+                new InviteRepository.PendingInvitesListener() {
+                    @Override
+                    public void onInvitesChanged(List<Invite> added, List<Invite> modified, List<String> removedIds) {
+                        for (Invite invite : added) {
+                            changes.add("added " + invite.getEventId());
+                        }
+                        for (Invite invite : modified) {
+                            changes.add("modified " + invite.getEventId());
+                        }
+                        for (String inviteId : removedIds) {
+                            changes.add("removed " + inviteId);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        changes.add("failed " + e);
+                    }
+                });
+        try {
+            assertEquals("added event-a", next(changes));
+
+            Invite second = new Invite("event-b", userEmail, "Event B", "organizer@test.com", expirationTime);
+            EmulatorFirestore.await(inviteRepository.createInvite(second));
+            assertEquals("added event-b", next(changes));
+
+            EmulatorFirestore.await(inviteRepository.updateInviteStatus(first.getInviteId(), "accepted"));
+            assertEquals("removed " + first.getInviteId(), next(changes));
+            assertNull(changes.poll(1, TimeUnit.SECONDS));
+        } finally {
+            registration.remove();
+        }
+    }
+
+    private static String next(BlockingQueue<String> changes) throws InterruptedException {
+        String change = changes.poll(10, TimeUnit.SECONDS);
+        assertNotNull("Timed out waiting for a change", change);
+        return change;
+    }
+}
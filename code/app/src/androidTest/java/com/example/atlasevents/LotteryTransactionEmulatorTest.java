@@ -0,0 +1,140 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.NotificationRepository;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs lottery commits against the local Firestore emulator while entrants keep joining,
+ * and checks that no concurrent join is lost.
+ *
+ * @see EmulatorFirestore
+ */
+@RunWith(AndroidJUnit4.class)
+public class LotteryTransactionEmulatorTest {
+
+    private static final int INITIAL_WAITLIST = 200;
+    private static final int CONCURRENT_JOINS = 50;
+    private static final int SLOTS = 40;
+
+    private FirebaseFirestore db;
+    private LotteryService lotteryService;
+    private DocumentReference eventRef;
+
+    @Before
+    public void setUp() throws Exception {
+        db = EmulatorFirestore.get();
+        lotteryService = new LotteryService(db, new NotificationRepository(db), new InviteRepository(db));
+        LotteryService.getCommitStats().reset();
+
+        eventRef = db.collection("events").document("lottery-tx-" + UUID.randomUUID());
+
+        List<Map<String, Object>> waitlist = new ArrayList<>();
+        for (int i = 0; i < INITIAL_WAITLIST; i++) {
+            waitlist.add(EmulatorFirestore.entrantMap("initial" + i + "@test.com"));
+        }
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, -2);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", eventRef.getId());
+        event.put("eventName", "Transaction Test Event");
+        event.put("slots", SLOTS);
+        event.put("regEndDate", cal.getTime());
+        event.put("waitlist", EmulatorFirestore.legacyListMap(waitlist));
+        event.put("inviteList", EmulatorFirestore.legacyListMap(new ArrayList<>()));
+        event.put("acceptedList", EmulatorFirestore.legacyListMap(new ArrayList<>()));
+        event.put("declinedList", EmulatorFirestore.legacyListMap(new ArrayList<>()));
+        EmulatorFirestore.await(eventRef.set(event));
+    }
+
+    @Test
+    public void drawLottery_ConcurrentJoins_NoJoinIsLost() throws Exception {
+        CountDownLatch drawDone = new CountDownLatch(1);
+        AtomicReference<Exception> drawError = new AtomicReference<>();
+
+        lotteryService.drawLottery(eventRef.getId(), new LotteryService.LotteryCallback() {
+            @Override
+            public void onLotteryCompleted(int entrantsSelected, String message) {
+                drawDone.countDown();
+            }
+
+            @Override
+            public void onLotteryFailed(Exception exception) {
+                drawError.set(exception);
+                drawDone.countDown();
+            }
+        });
+
+        // Fire atomic joins while the draw transaction is in flight
+        List<Task<Void>> joins = new ArrayList<>();
+        Set<String> joinedEmails = new HashSet<>();
+        for (int i = 0; i < CONCURRENT_JOINS; i++) {
+            String email = "late" + i + "@test.com";
+            joinedEmails.add(email);
+            Entrant entrant = new Entrant();
+            entrant.setEmail(email);
+            entrant.setName(email);
+            joins.add(eventRef.update("waitlist.entrants", FieldValue.arrayUnion(EntrantList.toEntry(entrant))));
+        }
+        for (Task<Void> join : joins) {
+            EmulatorFirestore.await(join);
+        }
+
+        assertTrue("Draw did not finish", drawDone.await(60, TimeUnit.SECONDS));
+        assertNull("Draw failed: " + drawError.get(), drawError.get());
+
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        Set<String> waiting = emailsOf(doc, "waitlist");
+        Set<String> invited = emailsOf(doc, "inviteList");
+
+        assertEquals(SLOTS, invited.size());
+        for (String email : joinedEmails) {
+            assertTrue("Join lost: " + email, waiting.contains(email) || invited.contains(email));
+        }
+        assertEquals(INITIAL_WAITLIST + CONCURRENT_JOINS, waiting.size() + invited.size());
+
+        LotteryCommitStats stats = LotteryService.getCommitStats();
+        assertEquals(1, stats.getCommits());
+        assertEquals(0, stats.getFailedCommits());
+        assertEquals(0, stats.getContentionFailures());
+        // Joins that landed mid-draw show up as retries of the one commit, never as lost writes
+        assertEquals(stats.getAttempts(), stats.getMaxAttempts());
+        assertEquals(stats.getRetries() > 0 ? 1 : 0, stats.getContendedCommits());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> emailsOf(DocumentSnapshot doc, String field) {
+        Set<String> emails = new HashSet<>();
+        EntrantList list = EntrantList.fromFirestoreMap((Map<String, Object>) doc.get(field));
+        for (int i = 0; i < list.size(); i++) {
+            emails.add(list.getEntrant(i).getEmail());
+        }
+        return emails;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.MembershipRepository;
+import com.example.atlasevents.data.MigrationRepository;
+import com.example.atlasevents.data.NotificationRepository;
+import com.example.atlasevents.data.model.Member;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Migrates events with inline entrant lists to the members subcollection against the local
+ * Firestore emulator, then draws from them and looks entrants' events up through the members
+ * index.
+ *
+ * @see EmulatorFirestore
+ * @see MembershipRepository
+ */
+@RunWith(AndroidJUnit4.class)
+public class MembershipEmulatorTest {
+
+    private static final int WAITLIST = 1200; // more than two member pages
+    private static final int ACCEPTED = 3;
+    private static final int SLOTS = 40;
+
+    private FirebaseFirestore db;
+    private MembershipRepository membershipRepository;
+    private LotteryService lotteryService;
+    private DocumentReference eventRef;
+
+    @Before
+    public void setUp() throws Exception {
+        db = EmulatorFirestore.get();
+        membershipRepository = new MembershipRepository(db);
+        lotteryService = new LotteryService(db, new NotificationRepository(db), new InviteRepository(db));
+
+        eventRef = db.collection("events").document("members-" + UUID.randomUUID());
+
+        List<Map<String, Object>> waitlist = new ArrayList<>();
+        for (int i = 0; i < WAITLIST; i++) {
+            waitlist.add(EmulatorFirestore.entrantMap("waiting" + i + "@test.com"));
+        }
+        List<Map<String, Object>> accepted = new ArrayList<>();
+        for (int i = 0; i < ACCEPTED; i++) {
+            accepted.add(EmulatorFirestore.entrantMap("accepted" + i + "@test.com"));
+        }
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, -2);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", eventRef.getId());
+        event.put("eventName", "Membership Test Event");
+        event.put("slots", SLOTS);
+        event.put("regEndDate", cal.getTime());
+        event.put("waitlist", EmulatorFirestore.listMap(waitlist));
+        event.put("inviteList", EmulatorFirestore.listMap(new ArrayList<>()));
+        event.put("acceptedList", EmulatorFirestore.listMap(accepted));
+        event.put("declinedList", EmulatorFirestore.listMap(new ArrayList<>()));
+        EmulatorFirestore.await(eventRef.set(event));
+    }
+
+    @Test
+    public void migrateThenDraw_CountersMatchMembers() throws Exception {
+        int migrated = EmulatorFirestore.await(membershipRepository.migrateEvent(eventRef.getId()));
+        assertEquals(WAITLIST + ACCEPTED, migrated);
+
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals(Boolean.TRUE, doc.getBoolean("membersEnabled"));
+        assertNull(doc.get("waitlist"));
+        assertEquals(Long.valueOf(WAITLIST), doc.getLong("waitingCount"));
+        assertEquals(Long.valueOf(ACCEPTED), doc.getLong("acceptedCount"));
+
+        CountDownLatch drawDone = new CountDownLatch(1);
+        AtomicReference<Exception> drawError = new AtomicReference<>();
+        lotteryService.drawLottery(eventRef.getId(), new LotteryService.LotteryCallback() {
+            @Override
+            public void onLotteryCompleted(int entrantsSelected, String message) {
+                drawDone.countDown();
+            }
+
+            @Override
+            public void onLotteryFailed(Exception exception) {
+                drawError.set(exception);
+                drawDone.countDown();
+            }
+        });
+        assertTrue("Draw did not finish", drawDone.await(120, TimeUnit.SECONDS));
+        assertNull(drawError.get());
+
+        int drawn = SLOTS - ACCEPTED;
+        List<Member> invited = EmulatorFirestore.await(
+                membershipRepository.getMembers(eventRef.getId(), Member.STATUS_INVITED));
+        List<Member> waiting = EmulatorFirestore.await(
+                membershipRepository.getMembers(eventRef.getId(), Member.STATUS_WAITING));
+        assertEquals(drawn, invited.size());
+        assertEquals(WAITLIST - drawn, waiting.size());
+
+        doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals(Long.valueOf(drawn), doc.getLong("invitedCount"));
+        assertEquals(Long.valueOf(WAITLIST - drawn), doc.getLong("waitingCount"));
+        assertEquals(Long.valueOf(0), doc.getLong("reservedSlots"));
+        assertEquals(Long.valueOf(SLOTS), doc.getLong("lastDrawnSlots"));
+        assertNotNull(doc.get("lastLotteryRun"));
+    }
+
+    @Test
+    public void concurrentDraws_ReserveSlotsOnce() throws Exception {
+        EmulatorFirestore.await(membershipRepository.migrateEvent(eventRef.getId()));
+        LotteryService.getCommitStats().reset();
+
+        // Separate services, like two devices drawing the same event at once
+        CompletableFuture<Integer> first = newService().drawOpenSlotsAsync(eventRef.getId());
+        CompletableFuture<Integer> second = newService().drawOpenSlotsAsync(eventRef.getId());
+        int invitedByDraws = first.get(120, TimeUnit.SECONDS) + second.get(120, TimeUnit.SECONDS);
+
+        int drawn = SLOTS - ACCEPTED;
+        assertEquals(drawn, invitedByDraws);
+        assertEquals(drawn, EmulatorFirestore.await(
+                membershipRepository.getMembers(eventRef.getId(), Member.STATUS_INVITED)).size());
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals(Long.valueOf(drawn), doc.getLong("invitedCount"));
+        assertEquals(Long.valueOf(0), doc.getLong("reservedSlots"));
+        assertEquals(Long.valueOf(SLOTS), doc.getLong("lastDrawnSlots"));
+
+        // Both reservations and every invite chunk went through the counted commit path
+        assertTrue(LotteryService.getCommitStats().getCommits() >= 3);
+        assertEquals(0, LotteryService.getCommitStats().getFailedCommits());
+    }
+
+    @Test
+    public void backfillThenGetEventsByEntrant_UsesMembersIndex() throws Exception {
+        String email = "index-" + UUID.randomUUID() + "@test.com";
+        List<Map<String, Object>> entrant = new ArrayList<>();
+        entrant.add(EmulatorFirestore.entrantMap(email));
+
+        // Waiting in the seeded event, declined in a second one
+        EmulatorFirestore.await(eventRef.update("waitlist", EmulatorFirestore.listMap(entrant)));
+        DocumentReference declinedRef = db.collection("events").document("members-" + UUID.randomUUID());
+        Map<String, Object> declinedEvent = new HashMap<>();
+        declinedEvent.put("id", declinedRef.getId());
+        declinedEvent.put("eventName", "Declined Event");
+        declinedEvent.put("declinedList", EmulatorFirestore.listMap(entrant));
+        EmulatorFirestore.await(declinedRef.set(declinedEvent));
+
+        int migrated = EmulatorFirestore.await(membershipRepository.migrateAllEvents());
+        assertTrue(migrated >= 2);
+        assertEquals(Boolean.TRUE, EmulatorFirestore.await(declinedRef.get()).getBoolean("membersEnabled"));
+
+        List<Event> events = eventsByEntrant(email);
+        assertEquals(1, events.size());
+        assertEquals(eventRef.getId(), events.get(0).getId());
+
+        // Leaving removes the event from the entrant's events
+        assertEquals(EventRepository.LeaveResult.LEFT,
+                EmulatorFirestore.await(new EventRepository(db).leaveWaitlist(eventRef.getId(), email)));
+        assertNull(EmulatorFirestore.await(membershipRepository.getMember(eventRef.getId(), email)));
+    }
+
+    @Test
+    public void migrateEvent_DeletesMembersNoLongerOnTheLists() throws Exception {
+        // Left by an earlier attempt whose switch aborted after this entrant left
+        String left = "left-" + UUID.randomUUID() + "@test.com";
+        EmulatorFirestore.await(membershipRepository.member(eventRef.getId(), left)
+                .set(new Member(left, left, Member.STATUS_WAITING)));
+
+        int migrated = EmulatorFirestore.await(membershipRepository.migrateEvent(eventRef.getId()));
+        assertEquals(WAITLIST + ACCEPTED, migrated);
+        assertFalse(EmulatorFirestore.await(membershipRepository.member(eventRef.getId(), left).get()).exists());
+        assertEquals(WAITLIST + ACCEPTED, EmulatorFirestore.await(
+                membershipRepository.members(eventRef.getId()).get()).size());
+
+        // Deleting the event takes its members with it
+        assertEquals(Integer.valueOf(WAITLIST + ACCEPTED),
+                EmulatorFirestore.await(membershipRepository.deleteMembers(eventRef.getId())));
+        assertTrue(EmulatorFirestore.await(membershipRepository.members(eventRef.getId()).get()).isEmpty());
+    }
+
+    @Test
+    public void getEventsByEntrant_FindsInlineListEventsUntilBackfillRuns() throws Exception {
+        String email = "fallback-" + UUID.randomUUID() + "@test.com";
+        List<Map<String, Object>> entrant = new ArrayList<>();
+        entrant.add(EmulatorFirestore.entrantMap(email));
+        EmulatorFirestore.await(eventRef.update("waitlist", EmulatorFirestore.listMap(entrant)));
+        MigrationRepository migrations = new MigrationRepository(db);
+        EmulatorFirestore.await(migrations.marker(MigrationRepository.MEMBERS).delete());
+
+        // Not migrated yet, so only the fallback scan finds it
+        List<Event> events = eventsByEntrant(email);
+        assertEquals(1, events.size());
+        assertEquals(eventRef.getId(), events.get(0).getId());
+
+        EmulatorFirestore.await(migrations.runPending());
+        assertTrue(EmulatorFirestore.await(migrations.isComplete(MigrationRepository.MEMBERS)));
+        assertEquals(Boolean.TRUE, EmulatorFirestore.await(eventRef.get()).getBoolean("membersEnabled"));
+
+        // Found once, now through the members index
+        events = eventsByEntrant(email);
+        assertEquals(1, events.size());
+        assertEquals(eventRef.getId(), events.get(0).getId());
+    }
+
+    private List<Event> eventsByEntrant(String email) throws Exception {
+        TaskCompletionSource<List<Event>> found = new TaskCompletionSource<>();
+        new EventRepository(db).getEventsByEntrant(email, new EventRepository.EventsCallback() {
+            @Override
+            public void onSuccess(ArrayList<Event> events) {
+                found.setResult(events);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                found.setException(e);
+            }
+        });
+        return EmulatorFirestore.await(found.getTask());
+    }
+
+    private LotteryService newService() {
+        return new LotteryService(db, new NotificationRepository(db), new InviteRepository(db));
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.MigrationRepository;
+import com.example.atlasevents.data.SearchIndexRepository;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Migrates events that store every keyword prefix on the event document to the
+ * {@code searchIndex} collection against the local Firestore emulator, then searches them,
+ * including cancelled and concurrent searches.
+ *
+ * @see EmulatorFirestore
+ * @see SearchIndexRepository
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchIndexEmulatorTest {
+
+    private static final String TAG = "SearchIndexEmulatorTest";
+    private static final List<String> TAGS = Arrays.asList("photography", "international", "outdoors");
+
+    private FirebaseFirestore db;
+    private SearchIndexRepository searchIndexRepository;
+    private EventRepository eventRepository;
+    private String marker;
+    private DocumentReference eventRef;
+
+    @Before
+    public void setUp() throws Exception {
+        db = EmulatorFirestore.get();
+        searchIndexRepository = new SearchIndexRepository(db);
+        eventRepository = new EventRepository(db);
+
+        // A unique word so other tests' events do not match the searches
+        marker = "zq" + UUID.randomUUID().toString().replace("-", "").substring(0, 10);
+        String name = "Astrophotography " + marker + " Weekend";
+
+        eventRef = db.collection("events").document("search-" + UUID.randomUUID());
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", eventRef.getId());
+        event.put("eventName", name);
+        event.put("slots", 10);
+        event.put("tags", TAGS);
+        event.put("searchKeywords", everyPrefix(name, TAGS));
+        EmulatorFirestore.await(eventRef.set(event));
+    }
+
+    @Test
+    public void migrateThenSearch_UsesBoundedIndex() throws Exception {
+        SearchIndexRepository.MigrationReport report =
+                EmulatorFirestore.await(searchIndexRepository.migrateAllEvents());
+        Log.i(TAG, "Search index migration: " + report);
+        assertTrue(report.getEvents() >= 1);
+        assertTrue(report.getBytes() < report.getLegacyBytes());
+
+        DocumentSnapshot event = EmulatorFirestore.await(eventRef.get());
+        assertFalse(event.contains("searchKeywords"));
+        DocumentSnapshot entry = EmulatorFirestore.await(searchIndexRepository.entry(eventRef.getId()).get());
+        assertTrue(entry.exists());
+        List<?> keywords = (List<?>) entry.get("keywords");
+        assertTrue(keywords.size() <= SearchKeywords.MAX_KEYWORDS);
+        assertFalse("Grams are capped", keywords.contains("astrophotography"));
+
+        // The full word is longer than the cap and is narrowed on the client
+        assertEquals(1, search(marker).size());
+        assertEquals(1, search(marker + " astrophot").size());
+        assertEquals(0, search(marker + " astrophotos").size());
+    }
+
+    @Test
+    public void searchBeforeBackfill_FindsEventsByLegacyKeywords() throws Exception {
+        MigrationRepository migrations = new MigrationRepository(db);
+        EmulatorFirestore.await(migrations.marker(MigrationRepository.SEARCH_INDEX).delete());
+
+        // Not indexed yet, so only the legacy field finds it
+        assertFalse(EmulatorFirestore.await(searchIndexRepository.entry(eventRef.getId()).get()).exists());
+        assertEquals(1, search(marker).size());
+
+        EmulatorFirestore.await(migrations.runPending());
+        assertTrue(EmulatorFirestore.await(migrations.isComplete(MigrationRepository.SEARCH_INDEX)));
+        assertFalse(EmulatorFirestore.await(eventRef.get()).contains("searchKeywords"));
+        assertEquals(1, search(marker).size());
+    }
+
+    @Test
+    public void addUpdateDeleteEvent_KeepIndexInStep() throws Exception {
+        Event event = new Event();
+        event.setEventName("Pottery " + marker);
+        event.setTags(new ArrayList<>(Arrays.asList("arts")));
+        event.setSlots(5);
+        String id = EmulatorFirestore.await(eventRepository.addEvent(event));
+
+        assertFalse(EmulatorFirestore.await(db.collection("events").document(id).get())
+                .contains("searchKeywords"));
+        assertEquals(1, search(marker).size());
+
+        event.setEventName("Ceramics " + marker);
+        TaskCompletionSource<Boolean> updated = new TaskCompletionSource<>();
+        eventRepository.updateEvent(event, updated::setResult);
+        assertTrue(EmulatorFirestore.await(updated.getTask()));
+        assertEquals(0, search("pottery " + marker).size());
+        assertEquals(1, search("ceram " + marker).size());
+    }
+
+    @Test
+    public void searchEvents_MergesBothQueriesAndRecordsLatency() throws Exception {
+        Event event = new Event();
+        // Found by the index through the tag and by the name prefix query
+        event.setEventName(marker + " Choir");
+        event.setTags(new ArrayList<>(Arrays.asList(marker)));
+        EmulatorFirestore.await(eventRepository.addEvent(event));
+
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<EventRepository.SearchRequest> request = new AtomicReference<>();
+        TaskCompletionSource<List<Event>> done = new TaskCompletionSource<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                request.set(eventRepository.searchEvents(marker, new EventRepository.SearchCallback() {
+                    @Override
+                    public void onResults(ArrayList<Event> events, boolean complete) {
+                        calls.incrementAndGet();
+                        if (complete) {
+                            done.setResult(events);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        done.setException(e);
+                    }
+                })));
+
+        List<Event> events = EmulatorFirestore.await(done.getTask());
+        assertEquals(1, events.size());
+        assertEquals(2, calls.get());
+        Log.i(TAG, "Search latency: index " + request.get().getIndexLatencyMs()
+                + " ms, name " + request.get().getNameLatencyMs() + " ms");
+        assertTrue(request.get().getIndexLatencyMs() >= 0);
+        assertTrue(request.get().getNameLatencyMs() >= 0);
+    }
+
+    @Test
+    public void cancelledSearch_NeverCallsBack() throws Exception {
+        AtomicInteger staleCalls = new AtomicInteger();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            EventRepository.SearchRequest stale = eventRepository.searchEvents("astro", new EventRepository.SearchCallback() {
+                @Override
+                public void onResults(ArrayList<Event> events, boolean complete) {
+                    staleCalls.incrementAndGet();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    staleCalls.incrementAndGet();
+                }
+            });
+            stale.cancel();
+        });
+
+        // A later search answering means the cancelled one's queries have answered too
+        search(marker);
+        assertEquals(0, staleCalls.get());
+    }
+
+    private List<Event> search(String query) throws Exception {
+        TaskCompletionSource<List<Event>> found = new TaskCompletionSource<>();
+        eventRepository.searchEventsByKeyword(query, new EventRepository.EventsCallback() {
+            @Override
+            public void onSuccess(ArrayList<Event> events) {
+                found.setResult(events);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                found.setException(e);
+            }
+        });
+        return EmulatorFirestore.await(found.getTask());
+    }
+
+    /**
+     * Keywords as stored by earlier versions: every prefix of every word.
+     */
+    private static List<String> everyPrefix(String name, List<String> tags) {
+        LinkedHashSet<String> keywords = new LinkedHashSet<>();
+        List<String> values = new ArrayList<>(tags);
+        values.add(0, name);
+        for (String value : values) {
+            for (String piece : value.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+                for (int i = 2; i <= piece.length(); i++) {
+                    keywords.add(piece.substring(0, i));
+                }
+            }
+        }
+        return new ArrayList<>(keywords);
+    }
+}
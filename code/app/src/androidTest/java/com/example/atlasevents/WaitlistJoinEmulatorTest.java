@@ -0,0 +1,206 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.EventRepository.JoinResult;
+import com.example.atlasevents.data.EventRepository.LeaveResult;
+import com.example.atlasevents.data.MembershipRepository;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.GeoPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs simultaneous waitlist joins against the local Firestore emulator and checks that the
+ * entrant limit holds and that every join gets a definite result.
+ *
+ * @see EmulatorFirestore
+ * @see EventRepository#joinWaitlist
+ */
+@RunWith(AndroidJUnit4.class)
+public class WaitlistJoinEmulatorTest {
+
+    private static final String TAG = "WaitlistJoinEmulatorTest";
+    private static final int CONCURRENT_JOINS = 1000;
+    private static final int ENTRANT_LIMIT = 600;
+    private static final int LEGACY_JOINS = 200;
+    private static final int LEGACY_LIMIT = 150;
+    /** Rounds in which joins that ran out of transaction attempts are sent again. */
+    private static final int MAX_ROUNDS = 20;
+
+    private FirebaseFirestore db;
+    private EventRepository eventRepository;
+    private MembershipRepository membershipRepository;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        eventRepository = new EventRepository(db);
+        membershipRepository = new MembershipRepository(db);
+    }
+
+    @Test
+    public void joinWaitlist_ThousandSimultaneousJoins_LimitHolds() throws Exception {
+        DocumentReference eventRef = seedEvent(true, ENTRANT_LIMIT);
+
+        Map<JoinResult, Integer> results = joinAll(eventRef.getId(), CONCURRENT_JOINS);
+        Log.i(TAG, CONCURRENT_JOINS + " simultaneous joins: " + results);
+
+        assertEquals(Integer.valueOf(ENTRANT_LIMIT), results.get(JoinResult.JOINED));
+        assertEquals(Integer.valueOf(CONCURRENT_JOINS - ENTRANT_LIMIT), results.get(JoinResult.WAITLIST_FULL));
+
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals(Long.valueOf(ENTRANT_LIMIT), doc.getLong("waitingCount"));
+        assertEquals(ENTRANT_LIMIT, EmulatorFirestore.await(
+                membershipRepository.getMembers(eventRef.getId(), null)).size());
+    }
+
+    @Test
+    public void joinWaitlist_LegacyEvent_SimultaneousJoinsAreNotLost() throws Exception {
+        DocumentReference eventRef = seedEvent(false, LEGACY_LIMIT);
+
+        Map<JoinResult, Integer> results = joinAll(eventRef.getId(), LEGACY_JOINS);
+        Log.i(TAG, LEGACY_JOINS + " simultaneous legacy joins: " + results);
+
+        assertEquals(Integer.valueOf(LEGACY_LIMIT), results.get(JoinResult.JOINED));
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        @SuppressWarnings("unchecked")
+        EntrantList waitlist = EntrantList.fromFirestoreMap((Map<String, Object>) doc.get("waitlist"));
+        assertEquals(LEGACY_LIMIT, waitlist.size());
+    }
+
+    @Test
+    public void joinAndLeave_ReturnPreciseResults() throws Exception {
+        DocumentReference eventRef = seedEvent(true, -1);
+        String eventId = eventRef.getId();
+        Entrant entrant = entrant("repeat@test.com");
+
+        assertEquals(JoinResult.JOINED, EmulatorFirestore.await(
+                eventRepository.joinWaitlist(eventId, entrant, new GeoPoint(53.5, -113.5))));
+        assertEquals(JoinResult.ALREADY_JOINED, EmulatorFirestore.await(
+                eventRepository.joinWaitlist(eventId, entrant, null)));
+        DocumentSnapshot doc = EmulatorFirestore.await(eventRef.get());
+        assertNotNull(doc.get("entrantCoords"));
+        assertEquals(Long.valueOf(1), doc.getLong("waitingCount"));
+
+        assertEquals(LeaveResult.LEFT, EmulatorFirestore.await(
+                eventRepository.leaveWaitlist(eventId, entrant.getEmail())));
+        assertEquals(LeaveResult.NOT_ON_WAITLIST, EmulatorFirestore.await(
+                eventRepository.leaveWaitlist(eventId, entrant.getEmail())));
+        doc = EmulatorFirestore.await(eventRef.get());
+        assertEquals(Long.valueOf(0), doc.getLong("waitingCount"));
+
+        assertEquals(JoinResult.EVENT_NOT_FOUND, EmulatorFirestore.await(
+                eventRepository.joinWaitlist("missing-" + UUID.randomUUID(), entrant, null)));
+    }
+
+    @Test
+    public void joinWaitlist_RegistrationClosed() throws Exception {
+        DocumentReference eventRef = seedEvent(true, -1);
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, -2);
+        EmulatorFirestore.await(eventRef.update("regEndDate", cal.getTime()));
+
+        assertEquals(JoinResult.REGISTRATION_CLOSED, EmulatorFirestore.await(
+                eventRepository.joinWaitlist(eventRef.getId(), entrant("late@test.com"), null)));
+    }
+
+    /**
+     * Starts all joins at once, sends joins that ran out of transaction attempts again, and
+     * tallies the results.
+     */
+    private Map<JoinResult, Integer> joinAll(String eventId, int count) throws Exception {
+        List<Entrant> pending = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pending.add(entrant("joiner" + i + "@test.com"));
+        }
+
+        Map<JoinResult, Integer> results = new EnumMap<>(JoinResult.class);
+        for (int round = 0; round < MAX_ROUNDS && !pending.isEmpty(); round++) {
+            List<Task<JoinResult>> joins = new ArrayList<>();
+            for (Entrant entrant : pending) {
+                joins.add(eventRepository.joinWaitlist(eventId, entrant, null));
+            }
+            Tasks.await(Tasks.whenAllComplete(joins), 5, TimeUnit.MINUTES);
+
+            List<Entrant> retry = new ArrayList<>();
+            for (int i = 0; i < joins.size(); i++) {
+                Task<JoinResult> join = joins.get(i);
+                if (join.isSuccessful()) {
+                    results.merge(join.getResult(), 1, Integer::sum);
+                } else if (isAborted(join.getException())) {
+                    retry.add(pending.get(i));
+                } else {
+                    throw join.getException();
+                }
+            }
+            pending = retry;
+        }
+        assertTrue("Joins still contending after " + MAX_ROUNDS + " rounds: " + pending.size(),
+                pending.isEmpty());
+        return results;
+    }
+
+    private static boolean isAborted(Exception e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.ABORTED;
+    }
+
+    private DocumentReference seedEvent(boolean membersEnabled, int entrantLimit) throws Exception {
+        DocumentReference eventRef = db.collection("events").document("join-" + UUID.randomUUID());
+
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, -2);
+        Date start = cal.getTime();
+        cal.add(Calendar.DAY_OF_YEAR, 10);
+        Date end = cal.getTime();
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", eventRef.getId());
+        event.put("eventName", "Join Test Event");
+        event.put("slots", 10);
+        event.put("entrantLimit", entrantLimit);
+        event.put("regStartDate", start);
+        event.put("regEndDate", end);
+        event.put("entrantCoords", new HashMap<>());
+        if (membersEnabled) {
+            event.put("membersEnabled", true);
+            event.put("waitingCount", 0);
+        } else {
+            for (String list : new String[]{"waitlist", "inviteList", "acceptedList", "declinedList"}) {
+                event.put(list, new EntrantList().toFirestoreMap());
+            }
+        }
+        EmulatorFirestore.await(eventRef.set(event));
+        return eventRef;
+    }
+
+    private static Entrant entrant(String email) {
+        Entrant entrant = new Entrant();
+        entrant.setEmail(email);
+        entrant.setName(email);
+        return entrant;
+    }
+}
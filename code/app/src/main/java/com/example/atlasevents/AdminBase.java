@@ -3,6 +3,7 @@ package com.example.atlasevents;
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.LinearLayout;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -10,6 +11,7 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
+import com.example.atlasevents.data.MigrationRepository;
 import com.example.atlasevents.data.UserRepository;
 import com.google.android.material.card.MaterialCardView;
 
@@ -25,9 +27,13 @@ import com.google.android.material.card.MaterialCardView;
  * The base layout includes a vertical navigation sidebar with icons for
  * notifications, events, images, organizers, profiles, and logout functionality.
  * </p>
+ * <p>
+ * Starting an admin screen also runs the one-time data backfills that have not finished yet.
+ * </p>
  *
  * @see Session
  * @see UserRepository
+ * @see MigrationRepository#runPending()
  */
 public abstract class AdminBase extends AppCompatActivity {
 
@@ -54,6 +60,13 @@ public abstract class AdminBase extends AppCompatActivity {
         SidebarNavigation();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        new MigrationRepository().runPending().addOnFailureListener(e ->
+                Log.e("AdminBase", "Backfills failed, they are retried on the next admin screen", e));
+    }
+
     /**
      * Sets up click listeners for all navigation sidebar icons based on the new admin XML.
      * <p>
@@ -16,7 +16,9 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.bumptech.glide.Glide;
+import com.example.atlasevents.data.EventPager;
 import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.utils.PagingScrollListener;
 
 import java.util.ArrayList;
 
@@ -25,8 +27,8 @@ import java.util.ArrayList;
  * <p>
  * This activity extends {@link AdminBase} to provide the navigation sidebar and
  * displays all events retrieved from Firebase. Events are shown as cards that admins
- * can tap to view detailed information. The activity handles fetching events from
- * the repository and dynamically creating event card views.
+ * can tap to view detailed information. Events are loaded a page at a time as the
+ * admin scrolls, and the activity dynamically creates event card views for each page.
  * </p>
  *
  * @see AdminBase
@@ -56,6 +58,16 @@ public class AdminDashboardActivity extends AdminBase {
      */
     private LinearLayout emptyState;
 
+    /**
+     * Loads the events page by page.
+     */
+    private EventPager eventPager;
+
+    /**
+     * Requests the next page as the admin scrolls towards the end.
+     */
+    private PagingScrollListener scrollListener;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -71,50 +83,59 @@ public class AdminDashboardActivity extends AdminBase {
         emptyState.setVisibility(View.GONE);
         eventsScrollView.setVisibility(View.GONE);
 
-        loadEventsFromFirebase();
+        eventPager = eventRepository.pageEvents(EventPager.DEFAULT_PAGE_SIZE,
+                EventPager.DEFAULT_PREFETCH_DISTANCE, new EventPager.PageCallback() {
+                    @Override
+                    public void onPage(ArrayList<Event> events, boolean firstPage, boolean hasMore) {
+                        if (firstPage && events.isEmpty()) {
+                            showEmptyState();
+                            return;
+                        }
+                        displayEvents(events, firstPage);
+                        eventsContainer.post(scrollListener::check);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        if (eventPager.getLoadedCount() == 0) {
+                            showEmptyState();
+                        }
+                    }
+                });
+        scrollListener = PagingScrollListener.attach(eventsScrollView, eventsContainer, eventPager);
+        // The first page is loaded by onResume
     }
 
     /**
-     * Fetches all events from Firebase and displays them.
+     * Loads the first page of events from Firebase and displays it.
      * <p>
-     * Makes an asynchronous call to the event repository to retrieve all available
-     * events. On success, the events are passed to {@link #displayEvents(ArrayList)}
-     * for rendering. On failure, {@link #showEmptyState()} is called to show an
-     * empty state layout.
+     * Further pages are loaded as the admin scrolls. Each page is passed to
+     * {@link #displayEvents(ArrayList, boolean)} for rendering. If there are no events or
+     * the first page fails to load, {@link #showEmptyState()} is called to show an empty
+     * state layout.
      * </p>
      */
     private void loadEventsFromFirebase() {
-        eventRepository.getAllEvents(new EventRepository.EventsCallback(){
-            @Override
-            public void onSuccess(ArrayList<Event> events) {
-                if (events.isEmpty()) {
-                    showEmptyState();
-                } else {
-                    displayEvents(events);
-                }
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                showEmptyState();
-            }
-        });
+        eventPager.reset();
+        eventPager.loadNextPage();
     }
 
     /**
-     * Displays a list of events as card views in the events container.
+     * Displays a page of events as card views in the events container.
      * <p>
-     * Clears any existing event cards and dynamically inflates new card views
-     * for each event in the list. Each card shows the event name and image,
-     * and is clickable to open event details.
+     * The first page replaces any existing event cards; later pages are appended.
+     * Each card shows the event name and image, and is clickable to open event details.
      * </p>
      *
-     * @param events The list of events to display
+     * @param events The page of events to display
+     * @param firstPage True to replace the cards already shown
      */
-    private void displayEvents(ArrayList<Event> events) {
+    private void displayEvents(ArrayList<Event> events, boolean firstPage) {
         emptyState.setVisibility(View.GONE);
         eventsScrollView.setVisibility(View.VISIBLE);
-        eventsContainer.removeAllViews();
+        if (firstPage) {
+            eventsContainer.removeAllViews();
+        }
 
         LayoutInflater inflater = LayoutInflater.from(this);
 
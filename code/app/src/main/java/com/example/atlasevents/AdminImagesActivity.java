@@ -12,8 +12,10 @@ import android.widget.ScrollView;
 import android.widget.Toast;
 
 import com.bumptech.glide.Glide;
+import com.example.atlasevents.data.EventPager;
 import com.example.atlasevents.data.EventRepository;
 import com.example.atlasevents.utils.ImageUploader;
+import com.example.atlasevents.utils.PagingScrollListener;
 
 import java.util.ArrayList;
 
@@ -23,8 +25,8 @@ import java.util.ArrayList;
  * This activity extends {@link AdminBase} to provide the navigation sidebar and
  * displays only events that include an image. Events with images are presented
  * as image cards that admins can interact with through a popup menu. The
- * activity retrieves all events from Firebase, filters those with image URLs,
- * and dynamically creates the corresponding card views.
+ * activity queries Firebase for events with image URLs a page at a time as the
+ * admin scrolls, and dynamically creates the corresponding card views.
  * </p>
  *
  * @see AdminBase
@@ -34,6 +36,16 @@ import java.util.ArrayList;
  */
 public class AdminImagesActivity extends AdminBase {
 
+    /**
+     * Image cards per page; they are larger than event cards, so fewer fill the screen.
+     */
+    private static final int PAGE_SIZE = 10;
+
+    /**
+     * Cards before the end at which the next page is requested.
+     */
+    private static final int PREFETCH_DISTANCE = 3;
+
     /**
      * Container layout that holds all event image cards.
      */
@@ -59,6 +71,16 @@ public class AdminImagesActivity extends AdminBase {
      */
     ImageUploader uploader;
 
+    /**
+     * Loads the events with images page by page.
+     */
+    private EventPager eventPager;
+
+    /**
+     * Requests the next page as the admin scrolls towards the end.
+     */
+    private PagingScrollListener scrollListener;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -76,56 +98,61 @@ public class AdminImagesActivity extends AdminBase {
         emptyState.setVisibility(View.GONE);
         imagesScrollView.setVisibility(View.GONE);
 
-        loadEventsFromFirebase();
+        eventPager = eventRepository.pageEventsWithImages(PAGE_SIZE, PREFETCH_DISTANCE,
+                new EventPager.PageCallback() {
+                    @Override
+                    public void onPage(ArrayList<Event> events, boolean firstPage, boolean hasMore) {
+                        if (firstPage && events.isEmpty()) {
+                            showEmptyState();
+                            return;
+                        }
+                        displayImages(events, firstPage);
+                        imagesContainer.post(scrollListener::check);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        if (eventPager.getLoadedCount() == 0) {
+                            showEmptyState();
+                        }
+                    }
+                });
+        scrollListener = PagingScrollListener.attach(imagesScrollView, imagesContainer, eventPager);
+        // The first page is loaded by onResume
     }
 
     /**
-     * Fetches all events from Firebase and displays only those containing images.
+     * Loads the first page of events containing images from Firebase and displays it.
      * <p>
-     * Retrieves all events asynchronously, filters out those without an image URL,
-     * and forwards the filtered list to {@link #displayImages(ArrayList)}. If no
-     * events with images are found or the fetch fails, {@link #showEmptyState()} is shown.
+     * Only events with an image URL are queried, and further pages are loaded as the
+     * admin scrolls. Each page is forwarded to {@link #displayImages(ArrayList, boolean)}.
+     * If no events with images are found or the first page fails to load,
+     * {@link #showEmptyState()} is shown.
      * </p>
      */
     private void loadEventsFromFirebase() {
-        eventRepository.getAllEvents(new EventRepository.EventsCallback(){
-            @Override
-            public void onSuccess(ArrayList<Event> events) {
-                ArrayList<Event> eventsWithImages = new ArrayList<Event>();
-                for (Event event : events) {
-                    if (!event.getImageUrl().isEmpty()){
-                        eventsWithImages.add(event);
-                    }
-                }
-                if (eventsWithImages.isEmpty()) {
-                    showEmptyState();
-                } else {
-                    displayImages(eventsWithImages);
-                }
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                showEmptyState();
-            }
-        });
+        eventPager.reset();
+        eventPager.loadNextPage();
     }
 
     /**
-     * Displays event images as card views in the container.
+     * Displays a page of event images as card views in the container.
      * <p>
-     * Removes any existing content and inflates a card layout for each event
-     * containing an image. Each card displays the event image and includes a
-     * menu button that allows admins to view image details or remove the
-     * associated image from the event.
+     * The first page replaces any existing content; later pages are appended. A card
+     * layout is inflated for each event containing an image. Each card displays the
+     * event image and includes a menu button that allows admins to view image details
+     * or remove the associated image from the event.
      * </p>
      *
-     * @param events The list of events containing images
+     * @param events The page of events containing images
+     * @param firstPage True to replace the cards already shown
      */
-    private void displayImages(ArrayList<Event> events) {
+    private void displayImages(ArrayList<Event> events, boolean firstPage) {
         emptyState.setVisibility(View.GONE);
         imagesScrollView.setVisibility(View.VISIBLE);
-        imagesContainer.removeAllViews();
+        if (firstPage) {
+            imagesContainer.removeAllViews();
+        }
 
         LayoutInflater inflater = LayoutInflater.from(this);
 
@@ -0,0 +1,261 @@
+package com.example.atlasevents;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the lottery for every event that is due for a draw, with bounded parallelism.
+ * <p>
+ * The runner asks a {@link DueEventFinder} for the events whose registration has closed and
+ * that still need a draw (no previous run, or more slots than at the last run), then hands
+ * them to an {@link EventDrawer} with at most {@code maxParallel} draws in flight. Each draw is
+ * timed and the run finishes with a {@link Report} containing per-event timings and overall
+ * throughput. The next draw is started on the runner's executor rather than in the completion
+ * of the previous one, so draws that complete immediately do not deepen the stack.
+ * </p>
+ * <p>
+ * This class has no Android or Firebase dependencies. In the app it is wired to Firestore via
+ * {@link LotteryService#findEventsDueForDraw()} and {@link LotteryService#drawOpenSlotsAsync(String)}.
+ * </p>
+ */
+public class BatchLotteryRunner {
+
+    /**
+     * Finds the IDs of events that are due for a lottery draw.
+     */
+    public interface DueEventFinder {
+        CompletableFuture<List<String>> findDueEventIds();
+    }
+
+    /**
+     * Draws the lottery for one event.
+     */
+    public interface EventDrawer {
+        /**
+         * @param eventId The event ID
+         * @return Future resolving with the number of entrants invited
+         */
+        CompletableFuture<Integer> draw(String eventId);
+    }
+
+    private final DueEventFinder finder;
+    private final EventDrawer drawer;
+    private final int maxParallel;
+    private final Executor executor;
+
+    /**
+     * Creates a runner that starts draws on the common fork-join pool.
+     *
+     * @param finder Source of due events
+     * @param drawer Performs each draw
+     * @param maxParallel Maximum number of draws in flight at once (at least 1)
+     */
+    public BatchLotteryRunner(DueEventFinder finder, EventDrawer drawer, int maxParallel) {
+        this(finder, drawer, maxParallel, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param finder Source of due events
+     * @param drawer Performs each draw
+     * @param maxParallel Maximum number of draws in flight at once (at least 1)
+     * @param executor Executor each finished draw hands the next one to
+     */
+    public BatchLotteryRunner(DueEventFinder finder, EventDrawer drawer, int maxParallel, Executor executor) {
+        if (finder == null || drawer == null || executor == null) {
+            throw new IllegalArgumentException("Finder, drawer and executor cannot be null");
+        }
+        if (maxParallel < 1) {
+            throw new IllegalArgumentException("maxParallel must be at least 1");
+        }
+        this.finder = finder;
+        this.drawer = drawer;
+        this.maxParallel = maxParallel;
+        this.executor = executor;
+    }
+
+    /**
+     * Finds all due events and draws them.
+     *
+     * @return Future resolving with the run report once every draw has finished
+     */
+    public CompletableFuture<Report> runAll() {
+        long startNanos = System.nanoTime();
+        return finder.findDueEventIds().thenCompose(eventIds -> runEvents(eventIds, startNanos));
+    }
+
+    /**
+     * Draws the given events with bounded parallelism.
+     *
+     * @param eventIds Events to draw
+     * @return Future resolving with the run report once every draw has finished
+     */
+    public CompletableFuture<Report> run(List<String> eventIds) {
+        return runEvents(eventIds, System.nanoTime());
+    }
+
+    private CompletableFuture<Report> runEvents(List<String> eventIds, long startNanos) {
+        List<String> ids = eventIds != null ? new ArrayList<>(eventIds) : new ArrayList<>();
+        List<EventResult> results = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Report> done = new CompletableFuture<>();
+
+        if (ids.isEmpty()) {
+            done.complete(new Report(results, System.nanoTime() - startNanos, maxParallel));
+            return done;
+        }
+
+        AtomicInteger nextIndex = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(ids.size());
+        Runnable[] worker = new Runnable[1];
+        worker[0] = () -> {
+            int index = nextIndex.getAndIncrement();
+            if (index >= ids.size()) {
+                return;
+            }
+            String eventId = ids.get(index);
+            long drawStart = System.nanoTime();
+
+            CompletableFuture<Integer> draw;
+            try {
+                draw = drawer.draw(eventId);
+            } catch (RuntimeException e) {
+                draw = new CompletableFuture<>();
+                draw.completeExceptionally(e);
+            }
+
+            draw.whenCompleteAsync((selected, error) -> {
+                long elapsed = System.nanoTime() - drawStart;
+                results.add(new EventResult(eventId, elapsed,
+                        error == null && selected != null ? selected : 0, error));
+                if (remaining.decrementAndGet() == 0) {
+                    done.complete(new Report(results, System.nanoTime() - startNanos, maxParallel));
+                } else {
+                    worker[0].run();
+                }
+            }, executor);
+        };
+
+        int initial = Math.min(maxParallel, ids.size());
+        for (int i = 0; i < initial; i++) {
+            worker[0].run();
+        }
+        return done;
+    }
+
+    /**
+     * Outcome and timing of one event's draw.
+     */
+    public static class EventResult {
+        private final String eventId;
+        private final long durationNanos;
+        private final int entrantsSelected;
+        private final Throwable error;
+
+        EventResult(String eventId, long durationNanos, int entrantsSelected, Throwable error) {
+            this.eventId = eventId;
+            this.durationNanos = durationNanos;
+            this.entrantsSelected = entrantsSelected;
+            this.error = error;
+        }
+
+        public String getEventId() {
+            return eventId;
+        }
+
+        public long getDurationMillis() {
+            return durationNanos / 1_000_000;
+        }
+
+        public int getEntrantsSelected() {
+            return entrantsSelected;
+        }
+
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Summary of a batch run.
+     */
+    public static class Report {
+        private final List<EventResult> results;
+        private final long wallNanos;
+        private final int maxParallel;
+
+        Report(List<EventResult> results, long wallNanos, int maxParallel) {
+            this.results = new ArrayList<>(results);
+            this.wallNanos = wallNanos;
+            this.maxParallel = maxParallel;
+        }
+
+        /** @return Per-event results in completion order */
+        public List<EventResult> getResults() {
+            return Collections.unmodifiableList(results);
+        }
+
+        public int getEventCount() {
+            return results.size();
+        }
+
+        public int getFailureCount() {
+            int failures = 0;
+            for (EventResult result : results) {
+                if (!result.isSuccessful()) {
+                    failures++;
+                }
+            }
+            return failures;
+        }
+
+        public int getTotalEntrantsSelected() {
+            int total = 0;
+            for (EventResult result : results) {
+                total += result.getEntrantsSelected();
+            }
+            return total;
+        }
+
+        public long getWallMillis() {
+            return wallNanos / 1_000_000;
+        }
+
+        /** @return Events drawn per second of wall time */
+        public double getEventsPerSecond() {
+            return wallNanos > 0 ? results.size() / (wallNanos / 1e9) : 0;
+        }
+
+        /** @return Slowest single draw in milliseconds */
+        public long getMaxEventMillis() {
+            long max = 0;
+            for (EventResult result : results) {
+                max = Math.max(max, result.getDurationMillis());
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                    "Batch lottery: %d events (%d failed), %d entrants invited in %d ms, "
+                            + "%.2f events/s, max %d ms per event, parallelism %d",
+                    getEventCount(), getFailureCount(), getTotalEntrantsSelected(), getWallMillis(),
+                    getEventsPerSecond(), getMaxEventMillis(), maxParallel));
+            for (EventResult result : results) {
+                sb.append(String.format(Locale.ROOT, "%n  %s: %d ms, %d invited%s",
+                        result.getEventId(), result.getDurationMillis(), result.getEntrantsSelected(),
+                        result.isSuccessful() ? "" : " (failed: " + result.getError() + ")"));
+            }
+            return sb.toString();
+        }
+    }
+}
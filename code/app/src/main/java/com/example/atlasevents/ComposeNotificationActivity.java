@@ -15,6 +15,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.MembershipRepository;
 import com.example.atlasevents.data.NotificationRepository;
 
 /**
@@ -196,9 +197,15 @@ public class ComposeNotificationActivity extends AppCompatActivity {
         eventRepository.getEventById(eventId, new EventRepository.EventCallback() {
             @Override
             public void onSuccess(Event event) {
-                // Store the event and update the count displays
-                currentEvent = event;
                 updateCounts(event);
+                // Events with a members subcollection need their lists loaded before sending;
+                // store the event once they are
+                new MembershipRepository().loadEntrantLists(event).addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        Log.e(TAG, "Failed to load members", task.getException());
+                    }
+                    currentEvent = event;
+                });
             }
             
             @Override
@@ -218,9 +225,9 @@ public class ComposeNotificationActivity extends AppCompatActivity {
      */
     private void updateCounts(Event event) {
         // Get the size of each list (handle null lists gracefully)
-        int waitingCount = event.getWaitlist() != null ? event.getWaitlist().size() : 0;
-        int chosenCount = event.getInviteList() != null ? event.getInviteList().size() : 0;
-        int cancelledCount = event.getDeclinedList() != null ? event.getDeclinedList().size() : 0;
+        int waitingCount = event.countWaiting();
+        int chosenCount = event.countInvited();
+        int cancelledCount = event.countDeclined();
         
         // Update the count displays
         waitingListCountBtn.setText(String.valueOf(waitingCount));
@@ -18,13 +18,15 @@ import androidx.core.content.ContextCompat;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.Lifecycle;
 
 import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.NotificationRepository;
 import com.example.atlasevents.data.UserRepository;
 import com.example.atlasevents.Event;
 import com.example.atlasevents.utils.NotificationHelper;
 import com.google.android.material.card.MaterialCardView;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.zxing.integration.android.IntentIntegrator;
@@ -57,6 +59,9 @@ public abstract class EntrantBase extends AppCompatActivity {
 
     protected UserRepository userRepository;
     private ListenerRegistration badgeListener;
+    private ListenerRegistration invitesBadgeListener;
+    private InviteRepository inviteRepository;
+    private NotificationRepository notificationRepository;
     private final FirebaseFirestore firestore = FirebaseFirestore.getInstance();
 
     private ActivityResultLauncher<String> requestPermissionLauncher;
@@ -77,6 +82,8 @@ public abstract class EntrantBase extends AppCompatActivity {
         session = new Session(this);
         userRepository = new UserRepository();
         eventRepository = new EventRepository();
+        inviteRepository = new InviteRepository();
+        notificationRepository = new NotificationRepository();
 
         SidebarNavigation();
 
@@ -93,6 +100,7 @@ public abstract class EntrantBase extends AppCompatActivity {
     @Override
     protected void onStart() {
         super.onStart();
+        InviteExpiryScheduler.getInstance().start();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             if (ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) == PackageManager.PERMISSION_GRANTED) {
                 // Permission already granted, start listener directly
@@ -112,6 +120,8 @@ public abstract class EntrantBase extends AppCompatActivity {
     @Override
     protected void onStop() {
         stopNotificationBadgeListener();
+        stopEventInvitesBadgeListener();
+        InviteExpiryScheduler.getInstance().stop();
         super.onStop();
     }
 
@@ -238,26 +248,26 @@ public abstract class EntrantBase extends AppCompatActivity {
         // Don't finish current activity so user can come back
     }
     /**
-     * Starts the event invites badge count listener
+     * Starts the event invites badge count listener. The badge is counted from the user's
+     * pending invites whenever they change, and again when one passes its deadline.
      */
     private void startEventInvitesBadgeListener() {
         String email = session.getUserEmail();
         if (email == null) {
             return;
         }
+        stopEventInvitesBadgeListener();
+        invitesBadgeListener = inviteRepository.listenForPendingInviteCount(email, this::updateEventInvitesBadge);
+    }
 
-        // Listen for events where user is in inviteList
-        firestore.collection("events")
-                .whereArrayContains("inviteList", email)
-                .addSnapshotListener((snapshot, error) -> {
-                    if (error != null || snapshot == null) {
-                        updateEventInvitesBadge(0);
-                        return;
-                    }
-
-                    int inviteCount = snapshot.size();
-                    updateEventInvitesBadge(inviteCount);
-                });
+    /**
+     * Removes the event invites badge listener if it is active.
+     */
+    private void stopEventInvitesBadgeListener() {
+        if (invitesBadgeListener != null) {
+            invitesBadgeListener.remove();
+            invitesBadgeListener = null;
+        }
     }
 
     /**
@@ -279,6 +289,8 @@ public abstract class EntrantBase extends AppCompatActivity {
     /**
      * Starts the unread-count listener and asks for notification permission on Tiramisu+.
      * I call this when the screen comes into view so the badge is always fresh.
+     * The listener watches the unread notifications, so the badge drops as soon as one is
+     * read, and counts them from its snapshot, leaving out blocked organizers.
      */
     private void startNotificationBadgeListener() {
         String email = session.getUserEmail();
@@ -299,27 +311,11 @@ public abstract class EntrantBase extends AppCompatActivity {
                             blocked.addAll(stored);
                         }
                     }
-                    badgeListener = firestore.collection("users")
-                            .document(email)
-                            .collection("notifications")
-                            .addSnapshotListener((snapshot, error) -> {
-                                if (error != null || snapshot == null) {
-                                    updateBadge(0);
-                                    return;
-                                }
-                                int unread = 0;
-                                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                                    Boolean read = doc.getBoolean("read");
-                                    String organizer = doc.getString("fromOrganizeremail");
-                                    if (organizer != null && blocked.contains(organizer)) {
-                                        continue;
-                                    }
-                                    if (read == null || !read) {
-                                        unread++;
-                                    }
-                                }
-                                updateBadge(unread);
-                            });
+                    if (!getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+                        // Stopped while the preferences were loading
+                        return;
+                    }
+                    badgeListener = notificationRepository.listenForUnreadCount(email, blocked, this::updateBadge);
                 })
                 .addOnFailureListener(e -> updateBadge(0));
     }
@@ -1,69 +1,371 @@
 package com.example.atlasevents;
 
+import com.google.firebase.firestore.Exclude;
+
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Ordered list of entrants indexed by email.
+ * <p>
+ * Entrants are kept in an insertion-ordered map keyed by email, so {@link #containsEntrant(String)},
+ * {@link #getEntrantByEmail(String)} and {@link #removeEntrant(String)} run in constant time and
+ * do not depend on {@link Entrant#equals(Object)}. Each email appears at most once. Positional
+ * access ({@link #getEntrant(int)}) is served from an index that is rebuilt lazily after the
+ * list changes, so adapters iterating by position stay O(1) per item.
+ * </p>
+ * <p>
+ * In Firestore a list is stored in the compact v2 format:
+ * {@code {format: 2, entrants: [{email, name}, ...]}}. Each entrant is written once and only
+ * the fields needed to display the list are kept; phone numbers and other profile details are
+ * loaded from {@code users} when needed
+ * (see {@link com.example.atlasevents.data.UserRepository#hydrateEntrants}). The legacy format,
+ * which copied full entrant objects into both {@code waitList} and {@code allEntrants}, is
+ * still read.
+ * </p>
+ */
 public class EntrantList implements Serializable {
 
-    private ArrayList<Entrant> userList;
+    /** Version written to the {@code format} field of serialized lists. */
+    public static final int WIRE_FORMAT = 2;
+
+    static final String FIELD_FORMAT = "format";
+    static final String FIELD_ENTRANTS = "entrants";
+    static final String FIELD_EMAIL = "email";
+    static final String FIELD_NAME = "name";
+    static final String LEGACY_FIELD_WAIT_LIST = "waitList";
+    static final String LEGACY_FIELD_ALL_ENTRANTS = "allEntrants";
+
+    /** Key prefix for entrants without an email; cannot collide with a real address. */
+    private static final String ANONYMOUS_KEY_PREFIX = "\u0000anonymous:";
+
+    private final LinkedHashMap<String, Entrant> entrants = new LinkedHashMap<>();
+    private int nextAnonymousKey = 0;
+
+    /** Keys in insertion order; null when the list changed since it was last built. */
+    private transient ArrayList<String> positions;
+    private transient WaitListView waitListView;
 
     public EntrantList() {
-        userList = new ArrayList<>();
     }
 
     public Entrant getEntrant(int i) {
-        return userList.get(i);
+        return entrants.get(positions().get(i));
+    }
+
+    /**
+     * Looks up an entrant by email.
+     *
+     * @param email The entrant's email
+     * @return The entrant, or null if not in the list
+     */
+    public Entrant getEntrantByEmail(String email) {
+        return email != null ? entrants.get(email) : null;
     }
 
     public void removeEntrant(int i) {
-        userList.remove(i);
+        entrants.remove(positions().get(i));
+        positions = null;
     }
 
     /**
      * Returns all entrants as a List. Safe for UI display.
      */
+    @Exclude
     public List<Entrant> getAllEntrants() {
-        return new ArrayList<>(userList);
+        return new ArrayList<>(entrants.values());
+    }
+
+    /**
+     * Reads the legacy {@code allEntrants} array. Entrants already in the list are kept.
+     */
+    public void setAllEntrants(List<Entrant> userList) {
+        addAll(userList);
     }
 
     /**
-     * Deprecated getter for backward compatibility
+     * Deprecated getter for backward compatibility. The returned list is a live view:
+     * removing or clearing through it updates this list.
      */
     @Deprecated
-    public ArrayList<Entrant> getWaitList() {
-        return userList;
+    @Exclude
+    public List<Entrant> getWaitList() {
+        if (waitListView == null) {
+            waitListView = new WaitListView();
+        }
+        return waitListView;
     }
 
-    public void setWaitList(ArrayList<Entrant> userList) {
-        this.userList = userList != null ? userList : new ArrayList<>();
+    /**
+     * Reads the legacy {@code waitList} array. Entrants already in the list are kept.
+     */
+    public void setWaitList(List<Entrant> userList) {
+        addAll(userList);
+    }
+
+    /**
+     * @return The wire format version, always {@link #WIRE_FORMAT}
+     */
+    public int getFormat() {
+        return WIRE_FORMAT;
     }
 
-    public void addEntrant(Entrant entrant) {
-        if (entrant != null) {
-            userList.add(entrant);
+    /**
+     * Accepts the stored format version; the entrants are parsed the same way for every version.
+     */
+    public void setFormat(int format) {
+    }
+
+    /**
+     * Returns the compact entries written to Firestore: one {@code {email, name}} map per
+     * entrant, in list order.
+     */
+    public List<Map<String, Object>> getEntrants() {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Entrant entrant : entrants.values()) {
+            if (entrant.getEmail() != null) {
+                entries.add(toEntry(entrant));
+            }
         }
+        return entries;
+    }
+
+    /**
+     * Reads compact entries. Entrants already in the list are kept.
+     */
+    public void setEntrants(List<Map<String, Object>> entries) {
+        if (entries == null) {
+            return;
+        }
+        for (Map<String, Object> entry : entries) {
+            Entrant entrant = fromEntry(entry);
+            if (entrant != null) {
+                addEntrant(entrant);
+            }
+        }
+    }
+
+    /**
+     * Appends an entrant. An entrant whose email is already in the list is not added again.
+     *
+     * @param entrant The entrant to add
+     * @return true if the entrant was added
+     */
+    public boolean addEntrant(Entrant entrant) {
+        if (entrant == null) {
+            return false;
+        }
+        String key = entrant.getEmail();
+        if (key == null) {
+            key = ANONYMOUS_KEY_PREFIX + nextAnonymousKey++;
+        } else if (entrants.containsKey(key)) {
+            return false;
+        }
+        entrants.put(key, entrant);
+        positions = null;
+        return true;
     }
 
     public void removeEntrant(Entrant entrant) {
-        userList.remove(entrant);
+        if (entrant == null) {
+            return;
+        }
+        if (entrant.getEmail() != null) {
+            removeEntrant(entrant.getEmail());
+            return;
+        }
+        // Entrants without an email can only be matched by identity
+        Iterator<Entrant> it = entrants.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() == entrant) {
+                it.remove();
+                positions = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the entrant with the given email.
+     *
+     * @param entrantEmail The entrant's email
+     * @return The removed entrant, or null if not in the list
+     */
+    public Entrant removeEntrant(String entrantEmail) {
+        if (entrantEmail == null) {
+            return null;
+        }
+        Entrant removed = entrants.remove(entrantEmail);
+        if (removed != null) {
+            positions = null;
+        }
+        return removed;
     }
 
     public boolean containsEntrant(Entrant entrant) {
-        return userList.contains(entrant);
+        return entrant != null && containsEntrant(entrant.getEmail());
     }
 
     public boolean containsEntrant(String entrantEmail) {
-        if (entrantEmail == null) return false;
-        for (Entrant entrant : userList) {
-            if (entrantEmail.equals(entrant.getEmail())) {
-                return true;
+        return entrantEmail != null && entrants.containsKey(entrantEmail);
+    }
+
+    public void clear() {
+        entrants.clear();
+        positions = null;
+    }
+
+    public int size() {
+        return entrants.size();
+    }
+
+    /**
+     * Serializes the list in the compact v2 format, for use in {@code update()} maps.
+     *
+     * @return Map with {@code format} and {@code entrants}
+     */
+    public Map<String, Object> toFirestoreMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(FIELD_FORMAT, WIRE_FORMAT);
+        map.put(FIELD_ENTRANTS, getEntrants());
+        return map;
+    }
+
+    /**
+     * Parses a list stored in any known format: compact v2, the legacy
+     * {@code waitList}/{@code allEntrants} arrays, or a map keyed by email.
+     *
+     * @param data Raw list value from a document snapshot, may be null
+     * @return Parsed list, empty if the data is missing or unrecognised
+     */
+    @SuppressWarnings("unchecked")
+    public static EntrantList fromFirestoreMap(Map<String, Object> data) {
+        EntrantList list = new EntrantList();
+        if (data == null) {
+            return list;
+        }
+
+        boolean structured = false;
+        for (String field : new String[]{FIELD_ENTRANTS, LEGACY_FIELD_WAIT_LIST, LEGACY_FIELD_ALL_ENTRANTS}) {
+            Object value = data.get(field);
+            if (value instanceof List) {
+                structured = true;
+                for (Object item : (List<Object>) value) {
+                    if (item instanceof Map) {
+                        Entrant entrant = fromEntry((Map<String, Object>) item);
+                        if (entrant != null) {
+                            list.addEntrant(entrant);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (!structured) {
+            // Older map structure: email -> entrant data
+            for (Object value : data.values()) {
+                if (value instanceof Map) {
+                    Entrant entrant = fromEntry((Map<String, Object>) value);
+                    if (entrant != null) {
+                        list.addEntrant(entrant);
+                    }
+                }
             }
         }
-        return false;
+        return list;
     }
 
-    public int size() {
-        return userList.size();
+    /**
+     * Builds the compact entry stored for one entrant.
+     *
+     * @param entrant The entrant
+     * @return Map with the entrant's email and name
+     */
+    public static Map<String, Object> toEntry(Entrant entrant) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put(FIELD_EMAIL, entrant.getEmail());
+        if (entrant.getName() != null) {
+            entry.put(FIELD_NAME, entrant.getName());
+        }
+        return entry;
+    }
+
+    /**
+     * Creates an entrant from a stored entry of any format. Legacy entries may carry phone
+     * number and user type, which are kept; passwords are ignored.
+     *
+     * @return The entrant, or null if the entry has no email
+     */
+    private static Entrant fromEntry(Map<String, Object> entry) {
+        Object email = entry.get(FIELD_EMAIL);
+        if (!(email instanceof String)) {
+            return null;
+        }
+        Entrant entrant = new Entrant();
+        entrant.setEmail((String) email);
+        if (entry.get(FIELD_NAME) instanceof String) {
+            entrant.setName((String) entry.get(FIELD_NAME));
+        }
+        if (entry.get("phoneNumber") instanceof String) {
+            entrant.setPhoneNumber((String) entry.get("phoneNumber"));
+        }
+        return entrant;
+    }
+
+    private void addAll(List<Entrant> userList) {
+        if (userList == null) {
+            return;
+        }
+        for (Entrant entrant : userList) {
+            addEntrant(entrant);
+        }
+    }
+
+    private ArrayList<String> positions() {
+        if (positions == null) {
+            positions = new ArrayList<>(entrants.keySet());
+        }
+        return positions;
+    }
+
+    /**
+     * List view over the entrants for callers of {@link #getWaitList()}.
+     */
+    private class WaitListView extends AbstractList<Entrant> {
+        @Override
+        public Entrant get(int index) {
+            return getEntrant(index);
+        }
+
+        @Override
+        public int size() {
+            return entrants.size();
+        }
+
+        @Override
+        public boolean add(Entrant entrant) {
+            modCount++;
+            return addEntrant(entrant);
+        }
+
+        @Override
+        public Entrant remove(int index) {
+            Entrant removed = getEntrant(index);
+            removeEntrant(index);
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            modCount++;
+            EntrantList.this.clear();
+        }
     }
 }
@@ -11,29 +11,43 @@ import androidx.appcompat.widget.SearchView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.atlasevents.data.EventCatalog;
 import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.SearchResultCache;
 
 import java.util.ArrayList;
 
 /**
- * Entrant search screen that queries Firestore as the user types, with a debounce
- * and two-keystroke threshold to reduce network calls. Supports searching by event
- * name or tags through the precomputed searchKeywords field.
+ * Entrant search screen that searches events by name or tags as the user types.
+ * <p>
+ * Once the shared {@link EventCatalog} has loaded, every keystroke is answered from its
+ * in-memory index with prefix and typo-tolerant matching and no network call. Until then the
+ * screen falls back to querying Firestore through the search index collection, with a
+ * debounce and two-keystroke threshold to reduce network calls. Each new query cancels the
+ * previous one, so results for text the user has already typed past are never shown, and
+ * queries that extend a recent one are answered by the {@link SearchResultCache}.
+ * </p>
  */
 public class EntrantSearchActivity extends EntrantBase {
 
     private static final long SEARCH_DEBOUNCE_MS = 350L;
+    /** Maximum local matches ranked per keystroke, before filtering out ineligible events. */
+    private static final int SEARCH_RESULT_LIMIT = 100;
 
     private RecyclerView eventsRecyclerView;
     private LinearLayout emptyState;
     private EventCardAdapter adapter;
     private EventRepository eventRepository;
+    private EventCatalog eventCatalog;
+    private final EventCatalog.Listener catalogListener = this::showCatalogResults;
     private String currentUserEmail;
 
     private final Handler searchHandler = new Handler(Looper.getMainLooper());
     private Runnable searchRunnable;
+    private EventRepository.SearchRequest currentSearch;
     private String lastRequestedQuery = "";
     private int lastRequestedLength = 0;
+    private String currentQuery = "";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -47,6 +61,7 @@ public class EntrantSearchActivity extends EntrantBase {
         currentUserEmail = session != null ? session.getUserEmail() : null;
 
         eventRepository = new EventRepository();
+        eventCatalog = EventCatalog.getInstance();
         adapter = new EventCardAdapter(this::openEventDetails);
         eventsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         eventsRecyclerView.setAdapter(adapter);
@@ -68,13 +83,33 @@ public class EntrantSearchActivity extends EntrantBase {
             }
         });
 
-        fetchOpenEvents();
+        if (!eventCatalog.isLoaded()) {
+            fetchOpenEvents();
+        }
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        eventCatalog.addListener(catalogListener);
+        eventCatalog.start();
+        SearchResultCache.getInstance().start();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        eventCatalog.removeListener(catalogListener);
+        eventCatalog.stop();
+        SearchResultCache.getInstance().stop();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        if (lastRequestedQuery.length() >= 2) {
+        if (eventCatalog.isLoaded()) {
+            showCatalogResults();
+        } else if (lastRequestedQuery.length() >= 2) {
             searchEvents(lastRequestedQuery);
         } else {
             fetchOpenEvents();
@@ -85,6 +120,13 @@ public class EntrantSearchActivity extends EntrantBase {
         if (searchRunnable != null) {
             searchHandler.removeCallbacks(searchRunnable);
         }
+        currentQuery = rawQuery == null ? "" : rawQuery.trim().toLowerCase();
+        if (eventCatalog.isLoaded()) {
+            cancelCurrentSearch();
+            // Local lookups are cheap enough to run on every keystroke
+            showCatalogResults();
+            return;
+        }
         searchRunnable = () -> triggerSearch(rawQuery);
         searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
     }
@@ -119,29 +161,72 @@ public class EntrantSearchActivity extends EntrantBase {
         searchEvents(query);
     }
 
+    /**
+     * Shows the cached events matching the current query, or every cached event when the query
+     * is empty.
+     */
+    private void showCatalogResults() {
+        if (currentQuery.isEmpty()) {
+            updateResults(filterEligibleEvents(eventCatalog.getAll()));
+            return;
+        }
+        // Rank every match so ineligible events don't use up the result limit
+        ArrayList<Event> eligible = filterEligibleEvents(
+                eventCatalog.search(currentQuery, eventCatalog.size()));
+        if (eligible.size() > SEARCH_RESULT_LIMIT) {
+            eligible = new ArrayList<>(eligible.subList(0, SEARCH_RESULT_LIMIT));
+        }
+        updateResults(eligible);
+    }
+
     private void searchEvents(String query) {
-        eventRepository.searchEventsByKeyword(query, new EventRepository.EventsCallback() {
+        cancelCurrentSearch();
+        currentSearch = eventRepository.searchEvents(query, new EventRepository.SearchCallback() {
             @Override
-            public void onSuccess(ArrayList<Event> events) {
-                updateResults(filterEligibleEvents(events));
+            public void onResults(ArrayList<Event> events, boolean complete) {
+                // The catalog may have loaded while the query was in flight
+                if (eventCatalog.isLoaded()) {
+                    return;
+                }
+                // Results from the first query to answer are shown right away
+                if (complete || !events.isEmpty()) {
+                    updateResults(filterEligibleEvents(events));
+                }
             }
 
             @Override
             public void onFailure(Exception e) {
+                if (eventCatalog.isLoaded()) {
+                    return;
+                }
                 updateResults(new ArrayList<>());
             }
         });
     }
 
+    private void cancelCurrentSearch() {
+        if (currentSearch != null) {
+            currentSearch.cancel();
+            currentSearch = null;
+        }
+    }
+
     private void fetchOpenEvents() {
+        cancelCurrentSearch();
         eventRepository.getAvailableEvents(new EventRepository.EventsCallback() {
             @Override
             public void onSuccess(ArrayList<Event> events) {
+                if (eventCatalog.isLoaded()) {
+                    return;
+                }
                 updateResults(filterEligibleEvents(events));
             }
 
             @Override
             public void onFailure(Exception e) {
+                if (eventCatalog.isLoaded()) {
+                    return;
+                }
                 updateResults(new ArrayList<>());
             }
         });
@@ -206,5 +291,6 @@ public class EntrantSearchActivity extends EntrantBase {
         if (searchRunnable != null) {
             searchHandler.removeCallbacks(searchRunnable);
         }
+        cancelCurrentSearch();
     }
 }
@@ -3,7 +3,7 @@ package com.example.atlasevents;
 
 import android.util.Log;
 
-import com.example.atlasevents.data.EventRepository;
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.GeoPoint;
 
 import java.io.Serializable;
@@ -11,13 +11,13 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
-import java.util.Locale;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Set;
 
 
 /**
@@ -29,10 +29,21 @@ import java.util.ArrayList;
  * event objects to be passed between Android components.
  * </p>
  * <p>
+ * Events read from Firestore record which stored fields their setters change, so that
+ * {@link com.example.atlasevents.data.EventRepository#saveEvent(Event)} writes only those
+ * fields. Entrant lists changed through their getters are not seen; set the list again to
+ * save it.
+ * </p>
+ * <p>
  * The event maintains multiple entrant lists to track participants through different
  * stages of the registration process, and provides lottery functionality to randomly
  * select entrants from the waitlist.
  * </p>
+ * <p>
+ * Events are plain value objects and hold no repositories or Firebase handles, so creating one
+ * per loaded document is cheap. Documents are converted with
+ * {@link com.example.atlasevents.data.EventMapper}.
+ * </p>
  *
  * Modifications made to add lottery getters and setters to support LotteryService functionality
  * @see LotteryService
@@ -42,9 +53,6 @@ import java.util.ArrayList;
  */
 public class Event implements Serializable {
 
-    Random random = new Random();
-    transient EventRepository db = new EventRepository();
-
     private String id;
     private int slots; //Number of slots available
     private Organizer organizer;
@@ -55,6 +63,7 @@ public class Event implements Serializable {
     }
 
     public void setAddress(String address) {
+        changed("address", this.address, address);
         this.address = address;
     }
 
@@ -63,6 +72,7 @@ public class Event implements Serializable {
     }
 
     public void setDescription(String description) {
+        changed("description", Description, description);
         Description = description;
     }
 
@@ -83,8 +93,19 @@ public class Event implements Serializable {
     private boolean requireGeolocation;
     private int entrantLimit = -1;
     private Date lastLotteryRun;
+    private int lastDrawnSlots;
+    private int pendingResample;
+    private boolean membersEnabled;
+    private int waitingCount;
+    private int invitedCount;
+    private int acceptedCount;
+    private int declinedCount;
+    private boolean summary;
+    private long version;
     private ArrayList<String> tags;
     private ArrayList<String> searchKeywords;
+    /** Stored fields changed by setters, null while changes are not tracked. */
+    private LinkedHashSet<String> changedFields;
 
 
     public Event(){
@@ -92,6 +113,7 @@ public class Event implements Serializable {
         inviteList = new EntrantList();
         acceptedList = new EntrantList();
         declinedList = new EntrantList();
+        entrantCoords = new HashMap<>();
         imageUrl = "";
         tags = new ArrayList<>();
         searchKeywords = new ArrayList<>();
@@ -177,6 +199,17 @@ public class Event implements Serializable {
         return location;
     }
 
+    /**
+     * Geohash of the event's location, stored on the event document so that events near a
+     * point can be found with range queries. Derived from the location, so it is never set.
+     *
+     * @return The geohash, or null if the event has no location
+     * @see GeoHash
+     */
+    public String getGeohash() {
+        return location == null ? null : GeoHash.encode(location.getLatitude(), location.getLongitude());
+    }
+
     public String getId() {
         return id;
     }
@@ -193,6 +226,13 @@ public class Event implements Serializable {
         return tags == null ? new ArrayList<>() : new ArrayList<>(tags);
     }
 
+    /**
+     * Keywords for searching this event, rebuilt whenever the name or tags change. They are
+     * stored in the {@code searchIndex} collection rather than on the event document.
+     *
+     * @see SearchKeywords#build(String, List)
+     */
+    @Exclude
     public ArrayList<String> getSearchKeywords() {
         return searchKeywords == null ? new ArrayList<>() : new ArrayList<>(searchKeywords);
     }
@@ -200,45 +240,175 @@ public class Event implements Serializable {
     public Date getLastLotteryRun() {
         return lastLotteryRun;
     }
+
+    /**
+     * @return Number of slots the event had when the lottery last ran, used to re-draw
+     *         automatically when slots are added
+     */
+    public int getLastDrawnSlots() {
+        return lastDrawnSlots;
+    }
+
+    /**
+     * @return Number of slots freed by declines or expiries that no resample has refilled yet
+     * @see LotteryService#resumePendingResamples()
+     */
+    public int getPendingResample() {
+        return pendingResample;
+    }
+
+    /**
+     * @return true if membership is stored in the {@code members} subcollection with counters
+     *         on this document, false if the entrant lists are stored inline
+     * @see com.example.atlasevents.data.MembershipRepository
+     */
+    public boolean isMembersEnabled() {
+        return membersEnabled;
+    }
+
+    /**
+     * @return true if this event was loaded from its {@code eventSummaries} document, which
+     *         holds only what list screens show; such an event must not be saved
+     * @see com.example.atlasevents.data.EventSummaryRepository
+     */
+    @Exclude
+    public boolean isSummary() {
+        return summary;
+    }
+
+    public int getWaitingCount() {
+        return waitingCount;
+    }
+
+    public int getInvitedCount() {
+        return invitedCount;
+    }
+
+    public int getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public int getDeclinedCount() {
+        return declinedCount;
+    }
+
+    /**
+     * @return Number of times the event's details have been saved, checked when saving so
+     *         that concurrent edits do not overwrite each other; 0 for events never edited
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if the event records the fields its setters change
+     * @see #startTrackingChanges()
+     */
+    @Exclude
+    public boolean isTrackingChanges() {
+        return changedFields != null;
+    }
+
+    /**
+     * @return Names of the stored fields changed since tracking started or the event was last
+     *         saved, in the order they were first changed
+     */
+    @Exclude
+    public Set<String> getChangedFields() {
+        return changedFields == null ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(changedFields));
+    }
+
+    /**
+     * Starts recording changed fields, with none changed. Called once the event has been read
+     * from its document, and again after it is saved.
+     */
+    public void startTrackingChanges() {
+        changedFields = new LinkedHashSet<>();
+    }
+
+    /**
+     * @return Number of entrants on the waiting list, from the counter or the inline list
+     */
+    public int countWaiting() {
+        return membersEnabled || summary ? waitingCount : sizeOf(waitList);
+    }
+
+    /**
+     * @return Number of entrants holding a pending invite
+     */
+    public int countInvited() {
+        return membersEnabled || summary ? invitedCount : sizeOf(inviteList);
+    }
+
+    /**
+     * @return Number of entrants who accepted their invite
+     */
+    public int countAccepted() {
+        return membersEnabled || summary ? acceptedCount : sizeOf(acceptedList);
+    }
+
+    /**
+     * @return Number of entrants who declined or were cancelled
+     */
+    public int countDeclined() {
+        return membersEnabled || summary ? declinedCount : sizeOf(declinedList);
+    }
+
+    private static int sizeOf(EntrantList list) {
+        return list != null ? list.size() : 0;
+    }
     //Setters
     public void setDate(Date date) {
+        changed("date", this.date, date);
         this.date = date;
     }
     public void setTime(String time) {
+        changed("time", this.time, time);
         this.time = time;
     }
     public void setRegStartDate(Date regStartDate) {
+        changed("regStartDate", this.regStartDate, regStartDate);
         this.regStartDate = regStartDate;
     }
     public void setRegEndDate(Date regEndDate) {
+        changed("regEndDate", this.regEndDate, regEndDate);
         this.regEndDate = regEndDate;
     }
 
     public void setSlots(int slots) {
+        changed("slots", this.slots, slots);
         this.slots = slots;
     }
     public void setDeclinedList(EntrantList declinedList) {
+        changed("declinedList", this.declinedList, declinedList);
         this.declinedList = declinedList;
     }
 
     public void setInviteList(EntrantList inviteList) {
+        changed("inviteList", this.inviteList, inviteList);
         this.inviteList = inviteList;
     }
     public void setAcceptedList(EntrantList acceptedList) {
+        changed("acceptedList", this.acceptedList, acceptedList);
         this.acceptedList = acceptedList;
     }
     public void setWaitlist(EntrantList waitList) {
+        changed("waitlist", this.waitList, waitList);
         this.waitList = waitList;
     }
     public void setOrganizer(Organizer organizer) {
+        changed("organizer", this.organizer, organizer);
         this.organizer = organizer;
     }
     public void setEventName(String eventName) {
+        changed("eventName", this.eventName, eventName);
         this.eventName = eventName;
         refreshSearchKeywords();
     }
 
     public void setTags(List<String> tags) {
+        changed("tags", this.tags, tags == null ? new ArrayList<>() : tags);
         if (tags == null) {
             this.tags = new ArrayList<>();
         } else {
@@ -256,6 +426,7 @@ public class Event implements Serializable {
     }
 
     public void setLocation(GeoPoint location) {
+        changed("location", this.location, location);
         this.location = location;
     }
 
@@ -263,40 +434,79 @@ public class Event implements Serializable {
         this.id = id;
     }
 
-    public void setRequireGeolocation(boolean bool){this.requireGeolocation = bool;}
-    public void setEntrantLimit(int max){this.entrantLimit = max;}
+    public void setRequireGeolocation(boolean bool){
+        changed("requireGeolocation", this.requireGeolocation, bool);
+        this.requireGeolocation = bool;
+    }
+    public void setEntrantLimit(int max){
+        changed("entrantLimit", this.entrantLimit, max);
+        this.entrantLimit = max;
+    }
     public void addToEntrantLocation(String email, GeoPoint coords) {
         if (coords != null) {
+            changed("entrantCoords", entrantCoords.get(email), coords);
             entrantCoords.put(email, coords);
         }
     }
     public void removeFromEntrantLocation(Entrant entrant) {
-        if (entrantCoords.containsKey(entrant)) {
-            entrantCoords.remove(entrant);
+        if (entrant != null && entrantCoords.containsKey(entrant.getEmail())) {
+            entrantCoords.remove(entrant.getEmail());
+            changed("entrantCoords", null, entrant.getEmail());
         }
         return;
     }
 
     public void setImageUrl(String imageUrl) {
+        changed("imageUrl", this.imageUrl, imageUrl);
         this.imageUrl = imageUrl;
     }
     public void setLastLotteryRun(Date lastLotteryRun) {
+        changed("lastLotteryRun", this.lastLotteryRun, lastLotteryRun);
         this.lastLotteryRun = lastLotteryRun;
     }
+    public void setLastDrawnSlots(int lastDrawnSlots) {
+        changed("lastDrawnSlots", this.lastDrawnSlots, lastDrawnSlots);
+        this.lastDrawnSlots = lastDrawnSlots;
+    }
+    public void setPendingResample(int pendingResample) {
+        this.pendingResample = pendingResample;
+    }
+    public void setMembersEnabled(boolean membersEnabled) {
+        this.membersEnabled = membersEnabled;
+    }
+    public void setWaitingCount(int waitingCount) {
+        this.waitingCount = waitingCount;
+    }
+    public void setInvitedCount(int invitedCount) {
+        this.invitedCount = invitedCount;
+    }
+    public void setAcceptedCount(int acceptedCount) {
+        this.acceptedCount = acceptedCount;
+    }
+    public void setDeclinedCount(int declinedCount) {
+        this.declinedCount = declinedCount;
+    }
+    public void setSummary(boolean summary) {
+        this.summary = summary;
+    }
+    public void setVersion(long version) {
+        this.version = version;
+    }
 
     /**
-     * Builds a list of searchable prefixes from the event name and tags to support simple prefix searches.
+     * Records that a stored field changed, if changes are tracked and the value differs.
      */
-    private void refreshSearchKeywords() {
-        LinkedHashSet<String> keywords = new LinkedHashSet<>();
-        addKeywordPrefixes(keywords, eventName);
-
-        if (tags != null) {
-            for (String tag : tags) {
-                addKeywordPrefixes(keywords, tag);
-            }
+    private void changed(String field, Object oldValue, Object newValue) {
+        if (changedFields != null && !Objects.equals(oldValue, newValue)) {
+            changedFields.add(field);
         }
+    }
 
+    /**
+     * Rebuilds the bounded search keywords from the event name and tags.
+     */
+    private void refreshSearchKeywords() {
+        List<String> keywords = SearchKeywords.build(eventName, tags);
         if (searchKeywords == null) {
             searchKeywords = new ArrayList<>();
         } else {
@@ -305,34 +515,20 @@ public class Event implements Serializable {
         searchKeywords.addAll(keywords);
     }
 
-    private void addKeywordPrefixes(LinkedHashSet<String> keywords, String value) {
-        if (value == null) {
-            return;
-        }
-
-        String normalized = value.trim().toLowerCase(Locale.ROOT);
-        if (normalized.isEmpty()) {
-            return;
-        }
-
-        String[] pieces = normalized.split("\\s+");
-        for (String piece : pieces) {
-            for (int i = 2; i <= piece.length(); i++) {
-                keywords.add(piece.substring(0, i));
-            }
-        }
-    }
-
     /**
      * This method randomly selects entrants from the waitlist and moves them to the invited list.
      */
     public void runLottery(){
-        while (slots > 0){
-            int i = random.nextInt(waitList.size());  //random int from 0 to size of waitlist
-            inviteList.addEntrant(waitList.getEntrant(i)); //add i'th user in waitlist to invite list
-            waitList.removeEntrant(i);  //remove user from waitlist
-            slots--;    //decrement slots
+        List<Entrant> selected = new LotterySelector().select(waitList.getAllEntrants(), slots);
+        for (Entrant entrant : selected) {
+            inviteList.addEntrant(entrant); //move each winner from the waitlist to the invite list
+            waitList.removeEntrant(entrant);
         }
+        if (!selected.isEmpty()) {
+            changed("inviteList", null, inviteList);
+            changed("waitlist", null, waitList);
+        }
+        setSlots(slots - selected.size());
     }
 
     /**
@@ -340,6 +536,17 @@ public class Event implements Serializable {
      * @return true if registration is open, false otherwise
      */
     public boolean isRegistrationOpen() {
+        return isRegistrationOpen(regStartDate, regEndDate);
+    }
+
+    /**
+     * Validates if registration is currently open for the given registration dates.
+     * Used where only the stored fields are at hand, such as inside a transaction.
+     * @param regStartDate first day of registration, may be null
+     * @param regEndDate last day of registration, may be null
+     * @return true if registration is open, false otherwise
+     */
+    public static boolean isRegistrationOpen(Date regStartDate, Date regEndDate) {
         if (regStartDate == null || regEndDate == null) {
             Log.w("Registration", "Registration dates not set");
             return false;
@@ -380,10 +587,12 @@ public class Event implements Serializable {
         int currentSize = waitList.size();
         if (entrantLimit == -1) {
             waitList.addEntrant(entrant);
+            changed("waitlist", null, waitList);
             return 1;
         }
         if (currentSize < entrantLimit) {
             waitList.addEntrant(entrant);
+            changed("waitlist", null, waitList);
             return 1;
         } else {
             Log.w("Waitlist", "Cannot add entrant: waitlist limit reached");
@@ -398,6 +607,7 @@ public class Event implements Serializable {
     public void removeFromWaitlist(Entrant entrant){
         if(waitList.containsEntrant(entrant)) {
             waitList.removeEntrant(entrant);
+            changed("waitlist", null, waitList);
         }
     }
 
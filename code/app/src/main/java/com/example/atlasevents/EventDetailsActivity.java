@@ -21,7 +21,10 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.bumptech.glide.Glide;
 import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.EventStore;
+import com.example.atlasevents.data.MembershipRepository;
 import com.example.atlasevents.data.UserRepository;
+import com.example.atlasevents.data.model.Member;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.MapView;
@@ -32,6 +35,7 @@ import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
@@ -65,12 +69,17 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
     public static final String EventKey = "com.example.atlasevents.EVENT";
 
     private EventRepository eventRepository;
+    private MembershipRepository membershipRepository;
     private UserRepository userRepository;
+    private ListenerRegistration eventSubscription;
     private FusedLocationProviderClient fusedLocationClient;
     private Session session;
 
     private Event currentEvent;
     private Entrant currentEntrant;
+    /** Status in the event's members subcollection, null if the entrant is not a member. */
+    private String memberStatus;
+    private boolean memberStatusLoaded;
     private boolean pendingLocationPermissionForJoin;
     private GoogleMap eventMap;
     private LatLng eventLatLng;
@@ -117,6 +126,7 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
         });
 
         eventRepository = new EventRepository();
+        membershipRepository = new MembershipRepository();
         userRepository = new UserRepository();
         session = new Session(this);
 
@@ -146,7 +156,8 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
      * Loads the event and entrant data from the repositories.
      * <p>
      * Fetches the currently logged-in entrant based on the stored session email
-     * and retrieves the selected event from Firestore using its ID.
+     * and subscribes to the selected event in the {@link EventStore}, which shows an event
+     * handed over by the previous screen straight away and redisplays it whenever it changes.
      * </p>
      */
     private void loadData(){
@@ -154,44 +165,32 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
             currentEntrant = entrant;
             tryUpdateWaitlistButtons();
         });
-        String qrEventId = getIntent().getStringExtra("qrId");
-        String tappedEventId = getIntent().getStringExtra(EventKey);
-        if (qrEventId != null) {
-            eventRepository.getEventById(qrEventId, new EventRepository.EventCallback() {
-                @Override
-                public void onSuccess(Event event) {
-                    currentEvent = event;
-                    displayEventDetails(event);
-                    tryUpdateWaitlistButtons();
-                    loadBlockedStatus();
-                }
-
-                @Override
-                public void onFailure(Exception e) {
-                    Log.e("EventDetailsActivity", "Failed to fetch event", e);
-                    Toast.makeText(EventDetailsActivity.this, "Failed to load event", Toast.LENGTH_SHORT).show();
-                    finish();
-                }
-            });
-        } else if (tappedEventId != null){
-            //             eventRepository.getEventById(getIntent().getSerializableExtra(EventKey).toString(), new EventRepository.EventCallback() {
-            eventRepository.getEventById(tappedEventId, new EventRepository.EventCallback() {
-                @Override
-                public void onSuccess(Event event) {
-                    currentEvent = event;
-                    displayEventDetails(event);
-                    tryUpdateWaitlistButtons();
+        String eventId = getIntent().getStringExtra("qrId");
+        if (eventId == null) {
+            eventId = getIntent().getStringExtra(EventKey);
+        }
+        if (eventId == null) {
+            return;
+        }
+        eventSubscription = EventStore.getInstance().subscribe(eventId, new EventStore.Listener() {
+            @Override
+            public void onEvent(Event event) {
+                boolean firstLoad = currentEvent == null;
+                currentEvent = event;
+                displayEventDetails(event);
+                tryUpdateWaitlistButtons();
+                if (firstLoad) {
                     loadBlockedStatus();
                 }
+            }
 
-                @Override
-                public void onFailure(Exception e) {
-                    Log.e("EventDetailsActivity", "Failed to fetch event", e);
-                    Toast.makeText(EventDetailsActivity.this, "Failed to load event", Toast.LENGTH_SHORT).show();
-                    finish();
-                }
-            });
-        }
+            @Override
+            public void onFailure(Exception e) {
+                Log.e("EventDetailsActivity", "Failed to fetch event", e);
+                Toast.makeText(EventDetailsActivity.this, "Failed to load event", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        });
     }
 
     /**
@@ -200,10 +199,31 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
      */
     private void tryUpdateWaitlistButtons() {
         if (currentEntrant != null && currentEvent != null) {
+            if (currentEvent.isMembersEnabled() && !memberStatusLoaded) {
+                loadMemberStatus();
+                return;
+            }
             updateWaitlistButtons();
         }
     }
 
+    /**
+     * Reads the current entrant's member document for events that store membership in the
+     * members subcollection, then updates the waitlist buttons.
+     */
+    private void loadMemberStatus() {
+        membershipRepository.getMember(currentEvent.getId(), currentEntrant.getEmail())
+                .addOnCompleteListener(this, task -> {
+                    if (task.isSuccessful()) {
+                        memberStatus = task.getResult() != null ? task.getResult().getStatus() : null;
+                    } else {
+                        Log.e("EventDetailsActivity", "Failed to load membership", task.getException());
+                    }
+                    memberStatusLoaded = true;
+                    updateWaitlistButtons();
+                });
+    }
+
     /**
      * Displays event details on the screen.
      * <p>
@@ -229,8 +249,7 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
             eventMapView.setVisibility(View.GONE);
         }
 
-        waitlistCountTextView.setText(String.valueOf(
-                event.getWaitlist() != null ? event.getWaitlist().size() : 0));
+        waitlistCountTextView.setText(String.valueOf(event.countWaiting()));
 
         if(!event.getImageUrl().isEmpty()){
             Glide.with(this).load(event.getImageUrl()).into(eventImageView);
@@ -298,9 +317,18 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
      */
     private void updateWaitlistButtons() {
         if (currentEvent == null || currentEntrant == null) return;
-        boolean inWaitlist = currentEvent.getWaitlist().containsEntrant(currentEntrant);
-        boolean inAcceptedList = currentEvent.getAcceptedList().containsEntrant(currentEntrant);
-        boolean inInvitedList = currentEvent.getInviteList().containsEntrant(currentEntrant);
+        boolean inWaitlist;
+        boolean inAcceptedList;
+        boolean inInvitedList;
+        if (currentEvent.isMembersEnabled()) {
+            inWaitlist = Member.STATUS_WAITING.equals(memberStatus);
+            inAcceptedList = Member.STATUS_ACCEPTED.equals(memberStatus);
+            inInvitedList = Member.STATUS_INVITED.equals(memberStatus);
+        } else {
+            inWaitlist = currentEvent.getWaitlist().containsEntrant(currentEntrant);
+            inAcceptedList = currentEvent.getAcceptedList().containsEntrant(currentEntrant);
+            inInvitedList = currentEvent.getInviteList().containsEntrant(currentEntrant);
+        }
 
         if (inAcceptedList){
             joinWaitlistButton.setVisibility(View.GONE);
@@ -345,67 +373,107 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
         if (currentEvent == null || currentEntrant == null) return;
         pendingLocationPermissionForJoin = false;
 
-        int joined = currentEvent.addToWaitlist(currentEntrant);
-        if (joined == 1) {
-
-            if (currentEvent.getRequireGeolocation()
-                    && ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-                fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
-                        .addOnSuccessListener(this, location -> {
-                            if (location != null) {
-                                GeoPoint geoPoint = new GeoPoint(location.getLatitude(), location.getLongitude());
-                                currentEvent.addToEntrantLocation(currentEntrant.getEmail(), geoPoint);
-                            }
-                            updateWaitList();
-
-                        }).addOnFailureListener(e -> {
-                            Log.e("EventDetails", "Location not found", e);
-                            updateWaitList();
-                        });
-            } else {
-                updateWaitList();
-            }
-        } else if (joined == 0) {
-            Toast.makeText(this, "Waitlist limit reached", Toast.LENGTH_SHORT).show();
-        } else if (joined == -1) {
-            Toast.makeText(this, "Waitlist not open yet or past deadline", Toast.LENGTH_SHORT).show();
+        if (currentEvent.getRequireGeolocation()
+                && ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
+            fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
+                    .addOnSuccessListener(this, location -> {
+                        GeoPoint geoPoint = null;
+                        if (location != null) {
+                            geoPoint = new GeoPoint(location.getLatitude(), location.getLongitude());
+                        }
+                        updateWaitList(geoPoint);
+
+                    }).addOnFailureListener(e -> {
+                        Log.e("EventDetails", "Location not found", e);
+                        updateWaitList(null);
+                    });
+        } else {
+            updateWaitList(null);
         }
     }
 
-    private void updateWaitList() {
-        eventRepository.updateEvent(currentEvent, success -> {
-            if (success) {
-                Toast.makeText(this, "Waitlist Joined Successfully", Toast.LENGTH_SHORT).show();
-                waitlistCountTextView.setText(String.valueOf(currentEvent.getWaitlist().size()));
-                updateWaitlistButtons();
-            } else {
-                Toast.makeText(this, "Failed to join Waitlist", Toast.LENGTH_SHORT).show();
-            }
-        });
+    /**
+     * Saves the join. Registration dates and the entrant limit are checked against the stored
+     * event when the join commits, and only the current entrant's entry is written.
+     *
+     * @param location Where the entrant joined from, or null
+     */
+    private void updateWaitList(GeoPoint location) {
+        eventRepository.joinWaitlist(currentEvent.getId(), currentEntrant, location)
+                .addOnCompleteListener(this, task -> {
+                    if (!task.isSuccessful()) {
+                        Log.e("EventDetailsActivity", "Failed to join waitlist", task.getException());
+                        Toast.makeText(this, "Failed to join Waitlist", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    switch (task.getResult()) {
+                        case JOINED:
+                            // Counters arrive with the event's next snapshot
+                            if (!currentEvent.isMembersEnabled()) {
+                                currentEvent.getWaitlist().addEntrant(currentEntrant);
+                                if (location != null) {
+                                    currentEvent.addToEntrantLocation(currentEntrant.getEmail(), location);
+                                }
+                            }
+                            Toast.makeText(this, "Waitlist Joined Successfully", Toast.LENGTH_SHORT).show();
+                            break;
+                        case ALREADY_JOINED:
+                            Toast.makeText(this, "You are already on this waitlist", Toast.LENGTH_SHORT).show();
+                            break;
+                        case WAITLIST_FULL:
+                            Toast.makeText(this, "Waitlist limit reached", Toast.LENGTH_SHORT).show();
+                            break;
+                        case REGISTRATION_CLOSED:
+                            Toast.makeText(this, "Waitlist not open yet or past deadline", Toast.LENGTH_SHORT).show();
+                            break;
+                        case EVENT_NOT_FOUND:
+                            Toast.makeText(this, "This event no longer exists", Toast.LENGTH_SHORT).show();
+                            finish();
+                            return;
+                    }
+                    memberStatusLoaded = false;
+                    waitlistCountTextView.setText(String.valueOf(currentEvent.countWaiting()));
+                    tryUpdateWaitlistButtons();
+                });
     }
 
     /**
      * Removes the current entrant from the event's waitlist.
      * <p>
-     * Updates the event in Firestore and refreshes the UI buttons
-     * to reflect the updated waitlist status.
+     * Only the entrant's own entry is removed in Firestore; the UI buttons are then
+     * refreshed to reflect the updated waitlist status.
      * </p>
      */
     private void leaveWaitlist() {
         if (currentEvent == null || currentEntrant == null) return;
 
-        currentEvent.removeFromWaitlist(currentEntrant);
-        currentEvent.removeFromEntrantLocation(currentEntrant);
-        eventRepository.updateEvent(currentEvent, success -> {
-            if (success) {
-                Toast.makeText(this, "Left waitlist successfully", Toast.LENGTH_SHORT).show();
-                waitlistCountTextView.setText(String.valueOf(currentEvent.getWaitlist().size()));
-                updateWaitlistButtons();
-            } else {
-                Toast.makeText(this, "Failed to leave waitlist", Toast.LENGTH_SHORT).show();
-            }
-        });
-
+        eventRepository.leaveWaitlist(currentEvent.getId(), currentEntrant.getEmail())
+                .addOnCompleteListener(this, task -> {
+                    if (!task.isSuccessful()) {
+                        Log.e("EventDetailsActivity", "Failed to leave waitlist", task.getException());
+                        Toast.makeText(this, "Failed to leave waitlist", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    switch (task.getResult()) {
+                        case LEFT:
+                            if (!currentEvent.isMembersEnabled()) {
+                                currentEvent.removeFromWaitlist(currentEntrant);
+                                currentEvent.removeFromEntrantLocation(currentEntrant);
+                            }
+                            Toast.makeText(this, "Left waitlist successfully", Toast.LENGTH_SHORT).show();
+                            break;
+                        case NOT_ON_WAITLIST:
+                            Toast.makeText(this, "You are no longer on this waitlist", Toast.LENGTH_SHORT).show();
+                            break;
+                        case EVENT_NOT_FOUND:
+                            Toast.makeText(this, "This event no longer exists", Toast.LENGTH_SHORT).show();
+                            finish();
+                            return;
+                    }
+                    memberStatusLoaded = false;
+                    waitlistCountTextView.setText(String.valueOf(currentEvent.countWaiting()));
+                    tryUpdateWaitlistButtons();
+                });
     }
     
     /**
@@ -553,6 +621,9 @@ public class EventDetailsActivity extends AppCompatActivity implements OnMapRead
 
     @Override
     protected void onDestroy() {
+        if (eventSubscription != null) {
+            eventSubscription.remove();
+        }
         if (eventMapView != null) {
             eventMapView.onDestroy();
         }
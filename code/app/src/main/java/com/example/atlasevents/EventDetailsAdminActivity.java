@@ -144,8 +144,7 @@ public class EventDetailsAdminActivity extends AppCompatActivity {
         dateTextView.setText(event.getDateFormatted());
         timeTextView.setText(event.getTime());
 
-        waitlistCountTextView.setText(String.valueOf(
-                event.getWaitlist() != null ? event.getWaitlist().size() : 0));
+        waitlistCountTextView.setText(String.valueOf(event.countWaiting()));
 
         if(!event.getImageUrl().isEmpty()){
             Glide.with(this).load(event.getImageUrl()).into(eventImageView);
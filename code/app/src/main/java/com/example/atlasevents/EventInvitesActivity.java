@@ -1,7 +1,6 @@
 package com.example.atlasevents;
 
 import android.os.Bundle;
-import android.os.Handler;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -24,12 +23,12 @@ import com.example.atlasevents.Session;
 import com.example.atlasevents.data.InviteRepository;
 import com.example.atlasevents.data.model.Invite;
 import com.example.atlasevents.data.EventRepository;
-import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,6 +38,11 @@ import java.util.Map;
  * This activity displays all pending event invitations with Accept/Decline buttons.
  * Invitations are separate from regular notifications and bypass opt-out settings.
  * </p>
+ * <p>
+ * While the screen is visible it listens to the user's pending invites and patches the list:
+ * arriving invites get a card, answered or expired ones lose theirs. The events of new cards
+ * are fetched together with {@link EventRepository#getEventsByIds(List)}.
+ * </p>
  */
 public class EventInvitesActivity extends AppCompatActivity {
     private static final String TAG = "EventInvitesActivity";
@@ -50,6 +54,12 @@ public class EventInvitesActivity extends AppCompatActivity {
     private InviteRepository inviteRepo;
     private EventRepository eventRepository;
     private TextView emptyStateText;
+    private ListenerRegistration invitesListener;
+    /** Invitation cards by invite ID; each card's tag is its invite. */
+    private final Map<String, View> cards = new HashMap<>();
+    /** Events fetched for invitation cards, by event ID. */
+    private final Map<String, Event> events = new HashMap<>();
+    private boolean awaitingFirstSnapshot;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -78,9 +88,18 @@ public class EventInvitesActivity extends AppCompatActivity {
 
         // Add debug button to check Firestore data
         addDebugButton();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        startInvitesListener();
+    }
 
-        // Load invitations
-        loadEventInvites();
+    @Override
+    protected void onStop() {
+        stopInvitesListener();
+        super.onStop();
     }
 
     /**
@@ -126,147 +145,158 @@ public class EventInvitesActivity extends AppCompatActivity {
                 });
     }
     /**
-     * Loads event invitations for the current user from the invites collection
+     * Starts listening to the current user's pending invites. The first snapshot replaces
+     * whatever the screen showed; later ones patch it.
      */
-    private void loadEventInvites() {
+    private void startInvitesListener() {
         String userEmail = session.getUserEmail();
 
         if (userEmail == null || userEmail.isEmpty()) {
             showEmptyState("Please log in to view invitations");
             return;
         }
-        Log.d(TAG, "Loading invitations for user: " + userEmail);
-
-        // Load invites from the invites collection
-        inviteRepo.getPendingInvitesForUser(userEmail)
-                .addOnCompleteListener(task -> {
-                    if (!task.isSuccessful()) {
-                        Exception exception = task.getException();
-                        Log.e(TAG, "Error loading event invitations", exception);
-                        
-                        // Log detailed error information
-                        if (exception != null) {
-                            Log.e(TAG, "Exception message: " + exception.getMessage());
-                            Log.e(TAG, "Exception class: " + exception.getClass().getName());
-                            if (exception.getCause() != null) {
-                                Log.e(TAG, "Cause: " + exception.getCause().getMessage());
-                            }
-                            
-                            // Check if it's a Firestore index error
-                            String errorMsg = exception.getMessage();
-                            if (errorMsg != null && errorMsg.contains("index")) {
-                                Log.e(TAG, "FIRESTORE INDEX REQUIRED! Check Logcat for index creation URL");
-                                showEmptyState("Database index required. Please check logs for setup instructions.");
-                            } else {
-                                showEmptyState("Failed to load invitations: " + exception.getMessage());
-                            }
-                        } else {
-                            showEmptyState("Failed to load invitations");
-                        }
-                        return;
-                    }
+        Log.d(TAG, "Listening to invitations for user: " + userEmail);
 
-                    List<Invite> invites = task.getResult();
-                    Log.d(TAG, "Loaded " + (invites != null ? invites.size() : 0) + " invites");
-                    
-                    if (invites == null || invites.isEmpty()) {
-                        showEmptyState("No pending event invitations");
-                        return;
-                    }
+        stopInvitesListener();
+        awaitingFirstSnapshot = true;
+        invitesListener = inviteRepo.listenToPendingInvites(userEmail, new InviteRepository.PendingInvitesListener() {
+            @Override
+            public void onInvitesChanged(List<Invite> added, List<Invite> modified, List<String> removedIds) {
+                applyInviteChanges(added, modified, removedIds);
+            }
 
-                    invitesContainer.removeAllViews();
+            @Override
+            public void onFailure(Exception e) {
+                showLoadError(e);
+            }
+        });
+    }
 
-                    // Load event details for each invite
-                    for (Invite invite : invites) {
-                        loadEventForInvite(invite);
-                    }
-                });
+    /**
+     * Removes the pending invites listener if it is active.
+     */
+    private void stopInvitesListener() {
+        if (invitesListener != null) {
+            invitesListener.remove();
+            invitesListener = null;
+        }
     }
 
     /**
-     * Loads event details for an invite and displays the invitation card
+     * Adds, replaces and removes invitation cards for one snapshot of the pending invites,
+     * then fetches the events of the new cards in one request.
      */
-    private void loadEventForInvite(Invite invite) {
-        eventRepository.getEventById(invite.getEventId(), new EventRepository.EventCallback() {
-            @Override
-            public void onSuccess(Event event) {
-                        if (event != null) {
-                    event.setId(invite.getEventId()); // Ensure event ID is set
-                    addInvitationCard(event, invite);
-                        }
-                    }
+    private void applyInviteChanges(List<Invite> added, List<Invite> modified, List<String> removedIds) {
+        if (awaitingFirstSnapshot) {
+            awaitingFirstSnapshot = false;
+            invitesContainer.removeAllViews();
+            cards.clear();
+        }
+        Log.d(TAG, "Invites changed: " + added.size() + " added, " + modified.size()
+                + " modified, " + removedIds.size() + " removed");
 
-            @Override
-            public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load event for invite: " + invite.getEventId(), e);
-                // Still show the invite even if event loading fails
-                addInvitationCardFromInvite(invite);
+        for (String inviteId : removedIds) {
+            View card = cards.remove(inviteId);
+            if (card != null) {
+                invitesContainer.removeView(card);
             }
-                });
+        }
+        for (Invite invite : modified) {
+            View old = cards.get(invite.getInviteId());
+            int index = old != null ? invitesContainer.indexOfChild(old) : 0;
+            if (old != null) {
+                invitesContainer.removeView(old);
+            }
+            showCard(invite, index);
+        }
+        // New invites are newest first and go above the ones already shown
+        for (int i = 0; i < added.size(); i++) {
+            View old = cards.get(added.get(i).getInviteId());
+            if (old != null) {
+                invitesContainer.removeView(old);
+            }
+            showCard(added.get(i), i);
+        }
+
+        if (cards.isEmpty()) {
+            showEmptyState("No pending event invitations");
+        } else {
+            emptyStateText.setVisibility(View.GONE);
+        }
+
+        List<Invite> changed = new ArrayList<>(added);
+        changed.addAll(modified);
+        List<String> eventIds = new ArrayList<>();
+        for (Invite invite : changed) {
+            if (!events.containsKey(invite.getEventId()) && !eventIds.contains(invite.getEventId())) {
+                eventIds.add(invite.getEventId());
+            }
+        }
+        if (!eventIds.isEmpty()) {
+            loadEventsForInvites(eventIds);
+        }
     }
 
+    private void showCard(Invite invite, int index) {
+        View card = createInvitationCard(invite);
+        cards.put(invite.getInviteId(), card);
+        invitesContainer.addView(card, index);
+    }
 
     /**
-     * Creates and adds an invitation card for an event
+     * Fetches the events of invitation cards together and shows each on its cards.
      */
-    private void addInvitationCard(Event event, Invite invite) {
-        View cardView = LayoutInflater.from(this)
-                .inflate(R.layout.notification_invite, invitesContainer, false);
+    private void loadEventsForInvites(List<String> eventIds) {
+        eventRepository.getEventsByIds(eventIds)
+                .addOnSuccessListener(found -> {
+                    for (Event event : found) {
+                        events.put(event.getId(), event);
+                    }
+                    for (View card : cards.values()) {
+                        Event event = events.get(((Invite) card.getTag()).getEventId());
+                        if (event != null) {
+                            showEvent(card, event);
+                        }
+                    }
+                })
+                // The cards already show what the invites store about the event
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to load events for invites", e));
+    }
 
-        // Initialize views
-        TextView tagTextView = cardView.findViewById(R.id.notificationTag);
-        TextView titleTextView = cardView.findViewById(R.id.notificationTitle);
-        TextView eventNameTextView = cardView.findViewById(R.id.notificationEventName);
-        TextView organizerTextView = cardView.findViewById(R.id.notificationOrganizer);
-        TextView messageTextView = cardView.findViewById(R.id.notificationMessage);
-        TextView responseDeadline = cardView.findViewById(R.id.responseDeadline);
-        Button acceptButton = cardView.findViewById(R.id.acceptButton);
-        Button declineButton = cardView.findViewById(R.id.declineButton);
+    private void showLoadError(Exception exception) {
+        Log.e(TAG, "Error loading event invitations", exception);
 
-        // Set event data
-        if (titleTextView != null) {
-            titleTextView.setText("Event Invitation: " + invite.getEventName());
-        }
-        eventNameTextView.setText(invite.getEventName());
-        organizerTextView.setText("Organized by: " + invite.getOrganizerEmail());
-        messageTextView.setText(invite.getMessage() != null ? invite.getMessage() : 
-                "You have been invited to this event from the waitlist!");
+        // Log detailed error information
+        if (exception != null) {
+            Log.e(TAG, "Exception message: " + exception.getMessage());
+            Log.e(TAG, "Exception class: " + exception.getClass().getName());
+            if (exception.getCause() != null) {
+                Log.e(TAG, "Cause: " + exception.getCause().getMessage());
+            }
 
-        // Set initial response deadline text
-        if (invite.getExpirationTime() > 0) {
-            long timeRemaining = invite.getExpirationTime() - System.currentTimeMillis();
-            if (timeRemaining > 0) {
-                responseDeadline.setText("⏰ Please respond within " + formatTimeRemaining(timeRemaining));
+            // Check if it's a Firestore index error
+            String errorMsg = exception.getMessage();
+            if (errorMsg != null && errorMsg.contains("index")) {
+                Log.e(TAG, "FIRESTORE INDEX REQUIRED! Check Logcat for index creation URL");
+                showEmptyState("Database index required. Please check logs for setup instructions.");
             } else {
-                responseDeadline.setText("⏰ Response time expired");
-                acceptButton.setEnabled(false);
-                declineButton.setEnabled(false);
+                showEmptyState("Failed to load invitations: " + exception.getMessage());
             }
         } else {
-            responseDeadline.setText("⏰ Please respond within 24 hours");
+            showEmptyState("Failed to load invitations");
         }
-
-        // Set up button listeners
-        acceptButton.setOnClickListener(v -> {
-            handleInvitationResponse(event.getId(), invite.getRecipientEmail(), true, cardView);
-        });
-
-        declineButton.setOnClickListener(v -> {
-            handleInvitationResponse(event.getId(), invite.getRecipientEmail(), false, cardView);
-        });
-
-        invitesContainer.addView(cardView);
+        cards.clear();
     }
 
     /**
-     * Creates and adds an invitation card from invite data only (when event loading fails)
+     * Creates an invitation card from the invite, showing its event once it is loaded
      */
-    private void addInvitationCardFromInvite(Invite invite) {
+    private View createInvitationCard(Invite invite) {
         View cardView = LayoutInflater.from(this)
                 .inflate(R.layout.notification_invite, invitesContainer, false);
+        cardView.setTag(invite);
 
         // Initialize views
-        TextView tagTextView = cardView.findViewById(R.id.notificationTag);
         TextView titleTextView = cardView.findViewById(R.id.notificationTitle);
         TextView eventNameTextView = cardView.findViewById(R.id.notificationEventName);
         TextView organizerTextView = cardView.findViewById(R.id.notificationOrganizer);
@@ -307,7 +337,27 @@ public class EventInvitesActivity extends AppCompatActivity {
             handleInvitationResponse(invite.getEventId(), invite.getRecipientEmail(), false, cardView);
         });
 
-        invitesContainer.addView(cardView);
+        Event event = events.get(invite.getEventId());
+        if (event != null) {
+            showEvent(cardView, event);
+        }
+        return cardView;
+    }
+
+    /**
+     * Shows the event's current name on an invitation card, in case it was renamed after the
+     * invite was sent
+     */
+    private void showEvent(View cardView, Event event) {
+        if (event.getEventName() == null) {
+            return;
+        }
+        TextView titleTextView = cardView.findViewById(R.id.notificationTitle);
+        TextView eventNameTextView = cardView.findViewById(R.id.notificationEventName);
+        if (titleTextView != null) {
+            titleTextView.setText("Event Invitation: " + event.getEventName());
+        }
+        eventNameTextView.setText(event.getEventName());
     }
 
     /**
@@ -336,10 +386,7 @@ public class EventInvitesActivity extends AppCompatActivity {
                             responseDeadline.setTextColor(ContextCompat.getColor(EventInvitesActivity.this, 
                                     android.R.color.holo_green_dark));
 
-                            // Reload invites to refresh the list after a short delay
-                            new Handler().postDelayed(() -> {
-                                loadEventInvites();
-                            }, 1500);
+                            // The invites listener removes the card once the invite is answered
                         });
                     }
 
@@ -348,7 +395,9 @@ public class EventInvitesActivity extends AppCompatActivity {
                         runOnUiThread(() -> {
                             acceptButton.setEnabled(true);
                             declineButton.setEnabled(true);
-                            responseDeadline.setText("❌ Error - please try again");
+                            responseDeadline.setText(exception != null && exception.getMessage() != null
+                                    ? "❌ " + exception.getMessage()
+                                    : "❌ Error - please try again");
                             responseDeadline.setTextColor(ContextCompat.getColor(EventInvitesActivity.this, 
                                     android.R.color.holo_red_dark));
                         });
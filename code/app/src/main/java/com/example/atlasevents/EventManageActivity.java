@@ -38,10 +38,16 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.bumptech.glide.Glide;
 import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.data.EventStore;
+import com.example.atlasevents.data.EventSummaryRepository;
+import com.example.atlasevents.data.MembershipRepository;
+import com.example.atlasevents.data.UserRepository;
 import com.example.atlasevents.data.NotificationRepository;
+import com.example.atlasevents.data.model.Member;
 import com.example.atlasevents.data.model.Notification;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.WriteBatch;
 import com.example.atlasevents.utils.MapWarmUpManager;
 import android.widget.EditText;
 
@@ -51,6 +57,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -97,6 +104,24 @@ public class EventManageActivity extends AppCompatActivity {
     /** Repository for sending notifications. */
     private NotificationRepository notificationRepository;
 
+    /** Repository for events that store membership in the members subcollection. */
+    private MembershipRepository membershipRepository;
+
+    /** Subscription to the event in the {@link EventStore}, removed in {@link #onDestroy()}. */
+    private ListenerRegistration eventSubscription;
+
+    /** Incremented each time the visible list is shown, so only the latest load is applied. */
+    private int listsGeneration;
+
+    /** Status of the member list last loaded for a members-subcollection event, or null. */
+    private String loadedStatus;
+
+    /** The event's counter for {@link #loadedStatus} when that list was loaded. */
+    private int loadedCount;
+
+    /** The member list last loaded, reused until its counter changes. */
+    private EntrantList loadedList;
+
     /** Text view displaying the name of the event. */
     private TextView eventNameTextView;
 
@@ -149,7 +174,7 @@ public class EventManageActivity extends AppCompatActivity {
     private ArrayList<Entrant> entrantList;
 
     /** List used for CSV download functionality. */
-    private ArrayList<Entrant> downloadableList;
+    private List<Entrant> downloadableList;
 
     /** Button for drawing the lottery. */
     private Button drawLotteryButton;
@@ -214,6 +239,7 @@ public class EventManageActivity extends AppCompatActivity {
         eventRepository = new EventRepository();
         lotteryService = new LotteryService();
         notificationRepository = new NotificationRepository();
+        membershipRepository = new MembershipRepository();
 
         initializeViews();
         setupClickListeners();
@@ -226,6 +252,9 @@ public class EventManageActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (eventSubscription != null) {
+            eventSubscription.remove();
+        }
         // Cancel countdown timer to prevent memory leaks
         if (countDownTimer != null) {
             countDownTimer.cancel();
@@ -308,22 +337,22 @@ public class EventManageActivity extends AppCompatActivity {
 
         waitingListButton.setOnClickListener(view -> {
             setListVisibility(false, true, false, false);
-            loadData();
+            showCurrentEvent();
         });
 
         enrolledButton.setOnClickListener(view -> {
             setListVisibility(false, false, false, true);
-            loadData();
+            showCurrentEvent();
         });
 
         cancelledButton.setOnClickListener(view -> {
             setListVisibility(false, false, true, false);
-            loadData();
+            showCurrentEvent();
         });
 
         chosenButton.setOnClickListener(view -> {
             setListVisibility(true, false, false, false);
-            loadData();
+            showCurrentEvent();
         });
     }
 
@@ -343,11 +372,12 @@ public class EventManageActivity extends AppCompatActivity {
     }
 
     /**
-     * Loads event data from Firestore using the provided event ID.
+     * Subscribes to the event in the {@link EventStore} using the provided event ID.
      * <p>
-     * Retrieves the event details such as name, date, location, image,
-     * and all entrant lists. Once loaded, the method updates the UI elements and
-     * populates the appropriate entrant list based on visibility settings.
+     * Each time the event changes, including after the organizer's own changes on this
+     * screen, the event details, counts and the visible list are shown again. For events with
+     * a members subcollection only the visible list is read, and only again when its counter
+     * changed (see {@link #showVisibleList()}).
      * </p>
      * <p>
      * If the event retrieval fails, a toast message is displayed and the
@@ -369,42 +399,121 @@ public class EventManageActivity extends AppCompatActivity {
             return;
         }
 
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-
-        // Only fetch the event from Firebase; we don't rely on Event methods for lists
         String finalEventId = eventId;
-        db.collection("events").document(eventId)
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    if (!snapshot.exists()) {
-                        Toast.makeText(this, "Event not found", Toast.LENGTH_SHORT).show();
-                        finish();
-                        return;
-                    }
+        eventSubscription = EventStore.getInstance().subscribe(eventId, new EventStore.Listener() {
+            @Override
+            public void onEvent(Event event) {
+                currentEvent = event;
+                eventName = currentEvent.getEventName();
+                MapWarmUpManager.cacheEntrantCoords(finalEventId, currentEvent.getEntrantCoords());
+                updateEventUI(currentEvent);
+                updateLotteryUI(currentEvent);
+                startLotteryTimerIfNeeded(currentEvent);
+                showVisibleList();
+            }
 
-                    Event event = snapshot.toObject(Event.class); // for other Event fields like name
-                    if (event == null) {
-                        Toast.makeText(this, "Failed to parse event", Toast.LENGTH_SHORT).show();
-                        finish();
-                        return;
-                    }
+            @Override
+            public void onFailure(Exception e) {
+                Log.e("EventManageActivity", "Failed to fetch event", e);
+                Toast.makeText(EventManageActivity.this, "Failed to load event", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        });
+    }
 
-                    currentEvent = event;
-                    eventName = currentEvent.getEventName();
-                    MapWarmUpManager.cacheEntrantCoords(finalEventId, currentEvent.getEntrantCoords());
-                    updateEventUI(currentEvent, snapshot);
-                    updateLotteryUI(currentEvent);
-                    startLotteryTimerIfNeeded(currentEvent);
+    /**
+     * Shows the loaded event again, after the organizer picks another list.
+     */
+    private void showCurrentEvent() {
+        if (currentEvent == null) {
+            return;
+        }
+        updateLotteryUI(currentEvent);
+        showVisibleList();
+        updateCountDisplays(currentEvent);
+    }
 
-                    //display lists directly from Firebase snapshot
-                    displayCurrentListFromSnapshot(currentEvent, snapshot);
-                    updateCountDisplays(currentEvent, snapshot);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("EventManageActivity", "Failed to fetch event", e);
-                    Toast.makeText(EventManageActivity.this, "Failed to load event", Toast.LENGTH_SHORT).show();
-                    finish();
-                });
+    /**
+     * Shows the list the organizer picked. Events that store their lists inline already hold
+     * it; for events with a members subcollection it is loaded from the members with that
+     * status, and the loaded list is reused while the event's counter for it is unchanged.
+     */
+    private void showVisibleList() {
+        int loadGeneration = ++listsGeneration;
+        Event event = currentEvent;
+        String status = visibleStatus();
+        if (!event.isMembersEnabled() || status == null) {
+            displayCurrentList(event);
+            return;
+        }
+        int count = countOf(event, status);
+        if (status.equals(loadedStatus) && count == loadedCount) {
+            setList(event, status, loadedList);
+            displayCurrentList(event);
+            return;
+        }
+        membershipRepository.loadEntrantList(event.getId(), status).addOnCompleteListener(this, listTask -> {
+            if (loadGeneration != listsGeneration) {
+                // Another list or a newer version of the event is showing
+                return;
+            }
+            if (!listTask.isSuccessful()) {
+                Log.e("EventManageActivity", "Failed to load members", listTask.getException());
+                Toast.makeText(this, "Failed to load entrants", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            loadedStatus = status;
+            loadedCount = count;
+            loadedList = listTask.getResult();
+            setList(event, status, loadedList);
+            displayCurrentList(event);
+        });
+    }
+
+    /**
+     * @return Member status of the list the organizer picked, or null if none is shown
+     */
+    private String visibleStatus() {
+        if (chosenVisible.get()) {
+            return Member.STATUS_INVITED;
+        } else if (cancelledVisible.get()) {
+            return Member.STATUS_DECLINED;
+        } else if (enrolledVisible.get()) {
+            return Member.STATUS_ACCEPTED;
+        } else if (waitlistVisible.get()) {
+            return Member.STATUS_WAITING;
+        }
+        return null;
+    }
+
+    private static int countOf(Event event, String status) {
+        switch (status) {
+            case Member.STATUS_INVITED:
+                return event.countInvited();
+            case Member.STATUS_DECLINED:
+                return event.countDeclined();
+            case Member.STATUS_ACCEPTED:
+                return event.countAccepted();
+            default:
+                return event.countWaiting();
+        }
+    }
+
+    private static void setList(Event event, String status, EntrantList list) {
+        switch (status) {
+            case Member.STATUS_INVITED:
+                event.setInviteList(list);
+                break;
+            case Member.STATUS_DECLINED:
+                event.setDeclinedList(list);
+                break;
+            case Member.STATUS_ACCEPTED:
+                event.setAcceptedList(list);
+                break;
+            default:
+                event.setWaitlist(list);
+                break;
+        }
     }
 
 
@@ -413,16 +522,14 @@ public class EventManageActivity extends AppCompatActivity {
      *
      * @param event The event to display
      */
-    private void updateEventUI(Event event, DocumentSnapshot snapshot) {
+    private void updateEventUI(Event event) {
         // Populate event details
         eventNameTextView.setText(event.getEventName());
         dateTextView.setText(event.getDateFormatted());
         locationTextView.setText(event.getAddress());
 
         // Update count displays
-        if (snapshot != null) {
-            updateCountDisplays(event,snapshot);
-        }
+        updateCountDisplays(event);
 
         // Load event image using Glide
         if (!event.getImageUrl().isEmpty()) {
@@ -440,11 +547,11 @@ public class EventManageActivity extends AppCompatActivity {
      *
      * @param event The event with entrant lists
      */
-    private void updateCountDisplays(Event event, DocumentSnapshot snapshot) {
-        int waitlistCount = event.getWaitlist() != null ? event.getWaitlist().size() : 0;
-        int chosenCount = event.getInviteList() != null ? event.getInviteList().size() : 0;
-        int cancelledCount = event.getDeclinedList() != null ? event.getDeclinedList().size() : 0;
-        int finalEnrolledCount = event.getAcceptedList() != null ? event.getAcceptedList().size() : 0;
+    private void updateCountDisplays(Event event) {
+        int waitlistCount = event.countWaiting();
+        int chosenCount = event.countInvited();
+        int cancelledCount = event.countDeclined();
+        int finalEnrolledCount = event.countAccepted();
 
         waitlistCountTextView.setText(String.valueOf(waitlistCount));
         chosenCountTextView.setText(String.valueOf(chosenCount));
@@ -458,9 +565,9 @@ public class EventManageActivity extends AppCompatActivity {
      *
      * @param event The event with entrant lists
      */
-    private void displayCurrentListFromSnapshot(Event event, DocumentSnapshot snapshot) {
+    private void displayCurrentList(Event event) {
         String listTitle = "";
-        ArrayList<Entrant> listToDisplay = new ArrayList<>();
+        List<Entrant> listToDisplay = new ArrayList<>();
 
         if (chosenVisible.get()) {
             listTitle = "Chosen Entrants";
@@ -529,9 +636,9 @@ public class EventManageActivity extends AppCompatActivity {
     private void updateLotteryUI(Event event) {
         boolean lotteryAvailable = lotteryService.isLotteryAvailable(event);
         int availableSlots = calculateAvailableSlots(event);
-        int waitlistSize = event.getWaitlist() != null ? event.getWaitlist().size() : 0;
-        int acceptedCount = event.getAcceptedList() != null ? event.getAcceptedList().size() : 0;
-        int pendingInvites = event.getInviteList() != null ? event.getInviteList().size() : 0;
+        int waitlistSize = event.countWaiting();
+        int acceptedCount = event.countAccepted();
+        int pendingInvites = event.countInvited();
         // NEW: Check cooldown period
 
         String entrantLimit = String.valueOf(event.getEntrantLimit());
@@ -636,7 +743,7 @@ public class EventManageActivity extends AppCompatActivity {
                     if (currentEvent != null) {
                         updateLotteryUI(currentEvent);
                         lotteryTimerCard.setVisibility(View.GONE);
-                        loadData(); // Reload to get updated state
+                        showCurrentEvent();
                     }
                 }, 2000);
             }
@@ -677,7 +784,7 @@ public class EventManageActivity extends AppCompatActivity {
      */
     private int calculateAvailableSlots(Event event) {
         int entrantLimit = event.getSlots();
-        int acceptedCount = event.getAcceptedList() != null ? event.getAcceptedList().size() : 0;
+        int acceptedCount = event.countAccepted();
 
         return Math.max(0, entrantLimit - acceptedCount);
     }
@@ -689,8 +796,8 @@ public class EventManageActivity extends AppCompatActivity {
         if (currentEvent == null) return;
 
         int availableSlots = calculateAvailableSlots(currentEvent);
-        int waitlistSize = currentEvent.getWaitlist() != null ? currentEvent.getWaitlist().size() : 0;
-        int pendingInvites = currentEvent.getInviteList() != null ? currentEvent.getInviteList().size() : 0;
+        int waitlistSize = currentEvent.countWaiting();
+        int pendingInvites = currentEvent.countInvited();
         int totalToSelect = availableSlots + pendingInvites;
         String message;
         if (pendingInvites>0){message= String.format(
@@ -701,7 +808,7 @@ public class EventManageActivity extends AppCompatActivity {
                         "• Accepted entrants (%d) remain unaffected",
                 currentEvent.getEventName(), availableSlots, pendingInvites, totalToSelect, waitlistSize,
                 pendingInvites, totalToSelect,
-                currentEvent.getAcceptedList() != null ? currentEvent.getAcceptedList().size() : 0
+                currentEvent.countAccepted()
         );
         } else {
             message = String.format(
@@ -731,7 +838,7 @@ public class EventManageActivity extends AppCompatActivity {
 
         setLotteryInProgress(true);
 
-        int pendingInvites = currentEvent.getInviteList() != null ? currentEvent.getInviteList().size() : 0;
+        int pendingInvites = currentEvent.countInvited();
 
         LotteryService.LotteryCallback lotteryCallback = new LotteryService.LotteryCallback() {
             @Override
@@ -739,8 +846,7 @@ public class EventManageActivity extends AppCompatActivity {
                 runOnUiThread(() -> {
                     setLotteryInProgress(false);
                     showLotteryResult(true, entrantsSelected, message);
-                    // Reload data to reflect changes
-                    loadData();
+                    // The event subscription shows the drawn entrants
                 });
             }
 
@@ -828,6 +934,20 @@ public class EventManageActivity extends AppCompatActivity {
             return;
         }
 
+        // Event lists only store email and name; load phone numbers from user profiles first
+        String fileType = listType;
+        List<Entrant> entrants = new ArrayList<>(listToDownload);
+        new UserRepository().hydrateEntrants(entrants)
+                .addOnCompleteListener(task -> writeEntrantsCsv(entrants, fileType));
+    }
+
+    /**
+     * Writes entrants to a CSV file in Downloads.
+     *
+     * @param listToDownload The entrants to write
+     * @param listType Name of the list, used in the file name
+     */
+    private void writeEntrantsCsv(List<Entrant> listToDownload, String listType) {
         String fileName = eventName + "_" + listType + ".csv";
         ContentResolver resolver = getContentResolver();
 
@@ -982,23 +1102,19 @@ public class EventManageActivity extends AppCompatActivity {
             return;
         }
 
-        // Find the entrant in the source list by email
-        Entrant entrantToMove = null;
-        for (int i = 0; i < sourceList.size(); i++) {
-            Entrant e = sourceList.getEntrant(i);
-            if (e != null && e.getEmail() != null && e.getEmail().equals(entrant.getEmail())) {
-                entrantToMove = e;
-                break;
-            }
+        if (currentEvent.isMembersEnabled()) {
+            moveMemberToCancelled(entrant, sourceListName);
+            return;
         }
 
+        // Remove the entrant from the source list by email
+        Entrant entrantToMove = sourceList.removeEntrant(entrant.getEmail());
         if (entrantToMove == null) {
             Toast.makeText(this, "Entrant not found in " + sourceListName, Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // Remove from source list and add to declined list
-        sourceList.removeEntrant(entrantToMove);
+        // Add to declined list
         declinedList.addEntrant(entrantToMove);
 
         // Update the event object
@@ -1023,14 +1139,16 @@ public class EventManageActivity extends AppCompatActivity {
             updates.put("waitlist", convertEntrantListToMap(waitlist));
         }
 
-        // Update Firestore
+        // Update Firestore, with the list counts in the event's summary
         FirebaseFirestore db = FirebaseFirestore.getInstance();
-        db.collection("events").document(currentEvent.getId())
-                .update(updates)
+        WriteBatch batch = db.batch();
+        batch.update(db.collection("events").document(currentEvent.getId()), updates);
+        new EventSummaryRepository(db).updateCounts(batch, currentEvent.getId(),
+                EventSummaryRepository.countData(currentEvent));
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(this, "Moved to cancelled list", Toast.LENGTH_SHORT).show();
-                    // Reload data to reflect changes
-                    loadData();
+                    // The event subscription shows the change
                 })
                 .addOnFailureListener(e -> {
                     Log.e("EventManageActivity", "Failed to move entrant to cancelled list", e);
@@ -1038,39 +1156,41 @@ public class EventManageActivity extends AppCompatActivity {
                 });
     }
 
+    /**
+     * Moves a member of a members-subcollection event to the declined status. Only the
+     * entrant's member document and the event counters are written.
+     *
+     * @param entrant The entrant to move
+     * @param sourceListName Name of the list shown to the organizer
+     */
+    private void moveMemberToCancelled(Entrant entrant, String sourceListName) {
+        String status = enrolledVisible.get() ? Member.STATUS_ACCEPTED
+                : chosenVisible.get() ? Member.STATUS_INVITED : Member.STATUS_WAITING;
+        membershipRepository.transitionMembers(currentEvent.getId(),
+                        Collections.singletonList(entrant.getEmail()), status, Member.STATUS_DECLINED)
+                .addOnSuccessListener(this, moved -> {
+                    if (moved.isEmpty()) {
+                        Toast.makeText(this, "Entrant not found in " + sourceListName, Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(this, "Moved to cancelled list", Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .addOnFailureListener(this, e -> {
+                    Log.e("EventManageActivity", "Failed to move entrant to cancelled list", e);
+                    Toast.makeText(this, "Failed to move entrant: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                });
+    }
+
     /**
      * Converts EntrantList to a Map for Firestore storage.
-     * This method mirrors the conversion logic from LotteryService.
+     * Uses the same compact v2 format as LotteryService.
      *
      * @param entrantList The entrant list to convert
      * @return A Map representation suitable for Firestore
+     * @see EntrantList#toFirestoreMap()
      */
     private Map<String, Object> convertEntrantListToMap(EntrantList entrantList) {
-        Map<String, Object> map = new HashMap<>();
-        List<Map<String, Object>> allEntrantsArray = new ArrayList<>();
-        List<Map<String, Object>> waitListArray = new ArrayList<>();
-
-        for (int i = 0; i < entrantList.size(); i++) {
-            Entrant entrant = entrantList.getEntrant(i);
-            if (entrant != null && entrant.getEmail() != null) {
-                Map<String, Object> entrantMap = new HashMap<>();
-                entrantMap.put("name", entrant.getName());
-                entrantMap.put("email", entrant.getEmail());
-                entrantMap.put("phoneNumber", entrant.getPhoneNumber());
-                entrantMap.put("userType", entrant.getUserType());
-                if (entrant.getPassword() != null) {
-                    entrantMap.put("password", entrant.getPassword());
-                }
-
-                allEntrantsArray.add(entrantMap);
-                waitListArray.add(entrantMap);
-            }
-        }
-
-        map.put("allEntrants", allEntrantsArray);
-        map.put("waitList", waitListArray);
-
-        return map;
+        return entrantList.toFirestoreMap();
     }
 
     /**
@@ -0,0 +1,345 @@
+package com.example.atlasevents;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory typeahead index over event names and tags.
+ * <p>
+ * Names and tags are split into tokens by {@link SearchKeywords#tokenize(String)} and kept in an
+ * inverted index: a sorted map from token to the events containing it. A query token matches
+ * every indexed token it is a prefix of, found with one range scan of the sorted map, so the
+ * cost of a keystroke depends on the number of matching tokens rather than on the catalog
+ * size. Query tokens of three or more characters that match nothing by prefix are also matched
+ * fuzzily against tokens sharing their first letter, allowing one typo (two for six or more
+ * characters).
+ * </p>
+ * <p>
+ * Every query token must match for an event to be returned. Results are ranked by how well each
+ * token matched (whole word before prefix before typo, name before tag), then by name.
+ * </p>
+ * <p>
+ * This class has no Android or Firebase dependencies so it can be unit tested on the JVM. It is
+ * not thread-safe; {@link com.example.atlasevents.data.EventCatalog} uses it from the main
+ * thread only.
+ * </p>
+ *
+ * @see com.example.atlasevents.data.EventCatalog
+ */
+public class EventSearchIndex {
+
+    private static final double NAME_EXACT = 4.0;
+    private static final double NAME_PREFIX = 3.0;
+    private static final double TAG_EXACT = 2.0;
+    private static final double TAG_PREFIX = 1.5;
+    /** Multiplier applied to a match that needed typo correction. */
+    private static final double FUZZY_FACTOR = 0.5;
+    /** Bonus when the whole query is a prefix of the event name. */
+    private static final double NAME_STARTS_WITH = 2.0;
+
+    private static final int FUZZY_MIN_LENGTH = 3;
+    private static final int TWO_EDITS_MIN_LENGTH = 6;
+
+    /** Token to the events that contain it in their name or tags. */
+    private final TreeMap<String, Posting> postings = new TreeMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** Incremented for every query token, marking which entries it has already scored. */
+    private int tokenStamp = 0;
+
+    /**
+     * Indexed event with its tokens, kept so the event can be removed or replaced.
+     * <p>
+     * The mutable fields are scratch space for {@link #search(String, int)}, which avoids
+     * allocating a score map per keystroke.
+     * </p>
+     */
+    private static final class Entry {
+        final Event event;
+        final String sortName;
+        final Set<String> nameTokens;
+        final Set<String> tagTokens;
+
+        int stamp;
+        double tokenScore;
+        double totalScore;
+
+        Entry(Event event, String sortName, Set<String> nameTokens, Set<String> tagTokens) {
+            this.event = event;
+            this.sortName = sortName;
+            this.nameTokens = nameTokens;
+            this.tagTokens = tagTokens;
+        }
+    }
+
+    /**
+     * Events containing one token, split by where the token appears.
+     */
+    private static final class Posting {
+        final Set<Entry> names = new HashSet<>();
+        final Set<Entry> tags = new HashSet<>();
+
+        boolean isEmpty() {
+            return names.isEmpty() && tags.isEmpty();
+        }
+    }
+
+    /**
+     * Adds an event, replacing any indexed event with the same ID.
+     *
+     * @param event The event to index; events without an ID are ignored
+     */
+    public void put(Event event) {
+        if (event == null || event.getId() == null) {
+            return;
+        }
+        remove(event.getId());
+
+        Set<String> nameTokens = new HashSet<>(SearchKeywords.tokenize(event.getEventName()));
+        Set<String> tagTokens = new HashSet<>();
+        for (String tag : event.getTags()) {
+            tagTokens.addAll(SearchKeywords.tokenize(tag));
+        }
+        Entry entry = new Entry(event, SearchKeywords.normalize(event.getEventName()), nameTokens, tagTokens);
+        entries.put(event.getId(), entry);
+        for (String token : nameTokens) {
+            posting(token).names.add(entry);
+        }
+        for (String token : tagTokens) {
+            posting(token).tags.add(entry);
+        }
+    }
+
+    /**
+     * Removes an event from the index.
+     *
+     * @param eventId The event ID
+     */
+    public void remove(String eventId) {
+        Entry entry = eventId != null ? entries.remove(eventId) : null;
+        if (entry == null) {
+            return;
+        }
+        for (String token : entry.nameTokens) {
+            Posting posting = postings.get(token);
+            posting.names.remove(entry);
+            removeIfEmpty(token, posting);
+        }
+        for (String token : entry.tagTokens) {
+            Posting posting = postings.get(token);
+            posting.tags.remove(entry);
+            removeIfEmpty(token, posting);
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Every indexed event, in no particular order
+     */
+    public List<Event> getAll() {
+        List<Event> events = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            events.add(entry.event);
+        }
+        return events;
+    }
+
+    /**
+     * @return Number of distinct tokens in the index
+     */
+    public int tokenCount() {
+        return postings.size();
+    }
+
+    /**
+     * Finds the events matching a typeahead query.
+     *
+     * @param query Text typed by the user
+     * @param limit Maximum number of results
+     * @return Matching events, best match first; empty for a blank query
+     */
+    public List<Event> search(String query, int limit) {
+        List<String> queryTokens = SearchKeywords.tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<Entry> candidates = null;
+        for (String queryToken : queryTokens) {
+            List<Entry> matched = scoreToken(queryToken);
+            if (candidates == null) {
+                for (Entry entry : matched) {
+                    entry.totalScore = entry.tokenScore;
+                }
+                candidates = matched;
+            } else {
+                // Every query token must match
+                List<Entry> remaining = new ArrayList<>();
+                for (Entry entry : candidates) {
+                    if (entry.stamp == tokenStamp) {
+                        entry.totalScore += entry.tokenScore;
+                        remaining.add(entry);
+                    }
+                }
+                candidates = remaining;
+            }
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        // Keep only the best results in a min-heap instead of sorting every candidate
+        String normalizedQuery = String.join(" ", queryTokens);
+        PriorityQueue<Entry> best = new PriorityQueue<>(limit, Collections.reverseOrder(RANKING));
+        for (Entry entry : candidates) {
+            if (entry.sortName.startsWith(normalizedQuery)) {
+                entry.totalScore += NAME_STARTS_WITH;
+            }
+            if (best.size() < limit) {
+                best.add(entry);
+            } else if (RANKING.compare(entry, best.peek()) < 0) {
+                best.poll();
+                best.add(entry);
+            }
+        }
+
+        List<Entry> ranked = new ArrayList<>(best);
+        Collections.sort(ranked, RANKING);
+        List<Event> results = new ArrayList<>(ranked.size());
+        for (Entry entry : ranked) {
+            results.add(entry.event);
+        }
+        return results;
+    }
+
+    /**
+     * Scores the events matching one query token into their {@code tokenScore}, keeping each
+     * event's best match.
+     *
+     * @return The matching entries, each once
+     */
+    private List<Entry> scoreToken(String queryToken) {
+        tokenStamp++;
+        List<Entry> matched = new ArrayList<>();
+        SortedMap<String, Posting> prefixed = postings.subMap(queryToken, queryToken + Character.MAX_VALUE);
+        for (Map.Entry<String, Posting> posting : prefixed.entrySet()) {
+            boolean exact = posting.getKey().length() == queryToken.length();
+            addScores(matched, posting.getValue(), exact, 1.0);
+        }
+
+        if (matched.isEmpty() && queryToken.length() >= FUZZY_MIN_LENGTH) {
+            int maxEdits = queryToken.length() >= TWO_EDITS_MIN_LENGTH ? 2 : 1;
+            String first = queryToken.substring(0, 1);
+            SortedMap<String, Posting> sameInitial = postings.subMap(first, first + Character.MAX_VALUE);
+            for (Map.Entry<String, Posting> posting : sameInitial.entrySet()) {
+                if (prefixEditDistance(queryToken, posting.getKey(), maxEdits) <= maxEdits) {
+                    addScores(matched, posting.getValue(), false, FUZZY_FACTOR);
+                }
+            }
+        }
+        return matched;
+    }
+
+    private void addScores(List<Entry> matched, Posting posting, boolean exact, double factor) {
+        double nameScore = (exact ? NAME_EXACT : NAME_PREFIX) * factor;
+        double tagScore = (exact ? TAG_EXACT : TAG_PREFIX) * factor;
+        for (Entry entry : posting.names) {
+            addScore(matched, entry, nameScore);
+        }
+        for (Entry entry : posting.tags) {
+            addScore(matched, entry, tagScore);
+        }
+    }
+
+    private void addScore(List<Entry> matched, Entry entry, double score) {
+        if (entry.stamp != tokenStamp) {
+            entry.stamp = tokenStamp;
+            entry.tokenScore = score;
+            matched.add(entry);
+        } else if (entry.tokenScore < score) {
+            entry.tokenScore = score;
+        }
+    }
+
+    /**
+     * Computes the smallest edit distance between {@code query} and any prefix of
+     * {@code token}, giving up once it exceeds {@code maxEdits}.
+     *
+     * @return The distance, or {@code maxEdits + 1} if it is larger than {@code maxEdits}
+     */
+    static int prefixEditDistance(String query, String token, int maxEdits) {
+        int n = query.length();
+        int m = Math.min(token.length(), n + maxEdits);
+        if (m < n - maxEdits) {
+            return maxEdits + 1;
+        }
+
+        // Column j holds the distance between query[0..i) and token[0..j)
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char q = query.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                int substitution = previous[j - 1] + (q == token.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        // The query may match any prefix of the token, so take the best column
+        int best = maxEdits + 1;
+        for (int j = 0; j <= m; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    private Posting posting(String token) {
+        Posting posting = postings.get(token);
+        if (posting == null) {
+            posting = new Posting();
+            postings.put(token, posting);
+        }
+        return posting;
+    }
+
+    private void removeIfEmpty(String token, Posting posting) {
+        if (posting.isEmpty()) {
+            postings.remove(token);
+        }
+    }
+
+    /** Best score first, then by name. */
+    private static final Comparator<Entry> RANKING = (a, b) -> {
+        int byScore = Double.compare(b.totalScore, a.totalScore);
+        return byScore != 0 ? byScore : a.sortName.compareTo(b.sortName);
+    };
+}
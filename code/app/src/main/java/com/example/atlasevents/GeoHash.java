@@ -0,0 +1,255 @@
+package com.example.atlasevents;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Geohash encoding and the range queries that cover a circle, for finding events near a point
+ * with ordinary Firestore range queries on a stored geohash string.
+ * <p>
+ * A geohash interleaves longitude and latitude bits, so points that share a prefix lie in the
+ * same cell. A circle is covered by the cells, at a precision about as large as the circle, that
+ * contain its center and the eight points on its bounding box. Each cell is one string range and
+ * overlapping ranges are merged, so a search runs at most nine queries. The cells may include
+ * points outside the circle; callers filter by {@link #distanceKm} afterwards. The bounds
+ * follow the approach of the GeoFire library.
+ * </p>
+ */
+public final class GeoHash {
+
+    /** Characters stored for each event, about 1 m by 0.6 m. */
+    public static final int DEFAULT_PRECISION = 10;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int BITS_PER_CHAR = 5;
+    private static final int MAX_BITS = 22 * BITS_PER_CHAR;
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double METERS_PER_DEGREE_LATITUDE = 110574;
+    private static final double EARTH_MERIDIONAL_CIRCUMFERENCE = 40007860;
+    private static final double EARTH_EQUATORIAL_RADIUS = 6378137.0;
+    private static final double EARTH_ECCENTRICITY_SQUARED = 0.00669447819799;
+    private static final double EPSILON = 1e-12;
+
+    private GeoHash() {
+    }
+
+    /**
+     * A range of geohashes for {@code orderBy("geohash").startAt(start).endAt(end)}.
+     */
+    public static final class Range {
+        public final String start;
+        public final String end;
+
+        Range(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @param hash A geohash
+         * @return True if the range query would return a document with this geohash
+         */
+        public boolean contains(String hash) {
+            return hash.compareTo(start) >= 0 && hash.compareTo(end) <= 0;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + "]";
+        }
+    }
+
+    /**
+     * Encodes a point at {@link #DEFAULT_PRECISION}.
+     */
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Encodes a point.
+     *
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @param precision Number of characters
+     * @return The geohash
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean even = true;
+        int bit = 0;
+        int value = 0;
+        while (hash.length() < precision) {
+            if (even) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    value = (value << 1) | 1;
+                    minLng = mid;
+                } else {
+                    value <<= 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    value = (value << 1) | 1;
+                    minLat = mid;
+                } else {
+                    value <<= 1;
+                    maxLat = mid;
+                }
+            }
+            even = !even;
+            if (++bit == BITS_PER_CHAR) {
+                hash.append(BASE32.charAt(value));
+                bit = 0;
+                value = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Computes the geohash ranges that together contain every point within a radius of a
+     * center.
+     *
+     * @param latitude Center latitude in degrees
+     * @param longitude Center longitude in degrees
+     * @param radiusKm Radius in kilometres
+     * @return Non-overlapping ranges, at most nine
+     */
+    public static List<Range> queryBounds(double latitude, double longitude, double radiusKm) {
+        double radius = radiusKm * 1000;
+        int queryBits = Math.max(1, boundingBoxBits(latitude, radius));
+        int precision = (int) Math.ceil((double) queryBits / BITS_PER_CHAR);
+
+        double latDelta = radius / METERS_PER_DEGREE_LATITUDE;
+        double north = Math.min(90, latitude + latDelta);
+        double south = Math.max(-90, latitude - latDelta);
+        double lngDelta = Math.max(metersToLongitudeDegrees(radius, north),
+                metersToLongitudeDegrees(radius, south));
+        double west = wrapLongitude(longitude - lngDelta);
+        double east = wrapLongitude(longitude + lngDelta);
+
+        double[][] points = {
+                {latitude, longitude}, {latitude, west}, {latitude, east},
+                {north, longitude}, {north, west}, {north, east},
+                {south, longitude}, {south, west}, {south, east}
+        };
+        Set<String> starts = new LinkedHashSet<>();
+        List<Range> ranges = new ArrayList<>();
+        for (double[] point : points) {
+            Range range = rangeForHash(encode(point[0], point[1], precision), queryBits);
+            if (starts.add(range.start)) {
+                ranges.add(range);
+            }
+        }
+        return merge(ranges);
+    }
+
+    /**
+     * Great-circle distance by the haversine formula.
+     *
+     * @return Distance in kilometres
+     */
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * The range of hashes sharing the first {@code bits} bits of a hash.
+     */
+    private static Range rangeForHash(String hash, int bits) {
+        int precision = (int) Math.ceil((double) bits / BITS_PER_CHAR);
+        if (hash.length() < precision) {
+            return new Range(hash, hash + "~");
+        }
+        hash = hash.substring(0, precision);
+        String base = hash.substring(0, hash.length() - 1);
+        int lastValue = BASE32.indexOf(hash.charAt(hash.length() - 1));
+        int significantBits = bits - base.length() * BITS_PER_CHAR;
+        int unusedBits = BITS_PER_CHAR - significantBits;
+        int startValue = (lastValue >> unusedBits) << unusedBits;
+        int endValue = startValue + (1 << unusedBits);
+        String end = endValue > 31 ? base + "~" : base + BASE32.charAt(endValue);
+        return new Range(base + BASE32.charAt(startValue), end);
+    }
+
+    /**
+     * Merges overlapping ranges so no document is read twice.
+     */
+    private static List<Range> merge(List<Range> ranges) {
+        List<Range> sorted = new ArrayList<>(ranges);
+        Collections.sort(sorted, (a, b) -> a.start.compareTo(b.start));
+        List<Range> merged = new ArrayList<>();
+        for (Range range : sorted) {
+            Range last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range.start.compareTo(last.end) <= 0) {
+                String end = range.end.compareTo(last.end) > 0 ? range.end : last.end;
+                merged.set(merged.size() - 1, new Range(last.start, end));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Bits of geohash precision whose cells are at least as large as a circle of this radius.
+     */
+    private static int boundingBoxBits(double latitude, double radius) {
+        double latDelta = radius / METERS_PER_DEGREE_LATITUDE;
+        double north = Math.min(90, latitude + latDelta);
+        double south = Math.max(-90, latitude - latDelta);
+        int latBits = (int) Math.floor(latitudeBits(radius)) * 2;
+        int lngBitsNorth = (int) Math.floor(longitudeBits(radius, north)) * 2 - 1;
+        int lngBitsSouth = (int) Math.floor(longitudeBits(radius, south)) * 2 - 1;
+        return Math.min(latBits, Math.min(lngBitsNorth, Math.min(lngBitsSouth, MAX_BITS)));
+    }
+
+    private static double latitudeBits(double resolution) {
+        return Math.min(log2(EARTH_MERIDIONAL_CIRCUMFERENCE / 2 / resolution), MAX_BITS);
+    }
+
+    private static double longitudeBits(double resolution, double latitude) {
+        double degrees = metersToLongitudeDegrees(resolution, latitude);
+        return Math.abs(degrees) > 0.000001 ? Math.max(1, log2(360 / degrees)) : 1;
+    }
+
+    private static double metersToLongitudeDegrees(double distance, double latitude) {
+        double radians = Math.toRadians(latitude);
+        double numerator = Math.cos(radians) * EARTH_EQUATORIAL_RADIUS * Math.PI / 180;
+        double denominator = 1 / Math.sqrt(1 - EARTH_ECCENTRICITY_SQUARED * Math.sin(radians) * Math.sin(radians));
+        double deltaDegrees = numerator * denominator;
+        if (deltaDegrees < EPSILON) {
+            return distance > 0 ? 360 : 0;
+        }
+        return Math.min(360, distance / deltaDegrees);
+    }
+
+    private static double wrapLongitude(double longitude) {
+        if (longitude >= -180 && longitude <= 180) {
+            return longitude;
+        }
+        double adjusted = longitude + 180;
+        if (adjusted > 0) {
+            return (adjusted % 360) - 180;
+        }
+        return 180 - (-adjusted % 360);
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
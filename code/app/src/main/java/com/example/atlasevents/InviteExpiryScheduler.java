@@ -0,0 +1,318 @@
+package com.example.atlasevents;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.model.Invite;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Expires unanswered lottery invitations and auto-declines their entrants.
+ * <p>
+ * Each invite stores its deadline once, in {@code expirationTime}, when it is created. Instead
+ * of posting one 24-hour timer per invited entrant (which dies with the process), this
+ * scheduler periodically runs a sweep that:
+ * </p>
+ * <ol>
+ *   <li>takes the sweep lease, so only one client sweeps at a time, and gives up if another
+ *       client holds it,</li>
+ *   <li>reads the server time with {@link InviteRepository#getServerTime()}, the clock the
+ *       deadlines were set with, so a device clock that runs ahead does not expire invites
+ *       early,</li>
+ *   <li>queries the pending invites whose deadline passed by then, ordered by
+ *       {@code expirationTime},</li>
+ *   <li>expires each one through the invitation state machine with
+ *       {@link LotteryService#expireInvitation(String, String)}, which moves the invite and
+ *       the entrant's membership together, records the freed slot on the event and leaves
+ *       invites answered in the meantime alone; invites of one event are expired one after
+ *       the other, different events in parallel,</li>
+ *   <li>marks invites whose event is gone or whose entrant is no longer invited expired, so
+ *       they leave the query,</li>
+ *   <li>queues the resamples for slots freed earlier that were never refilled, for instance
+ *       because the client that freed them closed within the resample window.</li>
+ * </ol>
+ * <p>
+ * The lease is renewed before each page and released when the sweep ends. The work per sweep
+ * is proportional to the number of expired invites. Because the deadlines live in Firestore,
+ * invites that expired while the app was closed are picked up by the first sweep after the
+ * next launch, and an invite left pending by a crash is picked up by the next sweep. Reading
+ * invites never expires them. Only one main-looper message exists at a time.
+ * </p>
+ *
+ * @see InviteRepository#getExpiredPendingInvites(long, int)
+ * @see InviteRepository#acquireSweepLease(String, long, long)
+ * @see LotteryService#expireInvitation(String, String)
+ */
+public class InviteExpiryScheduler {
+    private static final String TAG = "InviteExpiryScheduler";
+
+    /** Time between sweeps while the app is in the foreground. */
+    private static final long SWEEP_INTERVAL_MS = 5 * 60 * 1000;
+
+    /** Maximum invites fetched per query; a full page triggers another sweep right away. */
+    private static final int SWEEP_PAGE_SIZE = 500;
+
+    /** How long the sweep lease lasts, renewed before each page. */
+    private static final long SWEEP_LEASE_MS = 2 * 60 * 1000;
+
+    private static InviteExpiryScheduler instance;
+
+    private final InviteRepository inviteRepo;
+    private final LotteryService lotteryService;
+    private final Handler handler;
+    private final Runnable sweepRunnable = this::runScheduledSweep;
+    /** Identifies this process as the holder of the sweep lease. */
+    private final String leaseHolder = UUID.randomUUID().toString();
+
+    private int activeClients = 0;
+    private boolean sweepInProgress = false;
+
+    /**
+     * Returns the process-wide scheduler, creating it on first use.
+     *
+     * @return The shared scheduler
+     */
+    public static synchronized InviteExpiryScheduler getInstance() {
+        if (instance == null) {
+            instance = new InviteExpiryScheduler(new InviteRepository(), new LotteryService(),
+                    new Handler(Looper.getMainLooper()));
+        }
+        return instance;
+    }
+
+    /**
+     * Constructor for dependency injection (for testing)
+     *
+     * @param inviteRepo Invite repository instance
+     * @param lotteryService Lottery service used to auto-decline and resample
+     * @param handler Handler the periodic sweep is posted to
+     */
+    public InviteExpiryScheduler(InviteRepository inviteRepo, LotteryService lotteryService, Handler handler) {
+        this.inviteRepo = inviteRepo;
+        this.lotteryService = lotteryService;
+        this.handler = handler;
+    }
+
+    /**
+     * Registers a foreground client (typically a base activity in {@code onStart}). The first
+     * client runs a sweep immediately and starts the periodic schedule.
+     */
+    public void start() {
+        activeClients++;
+        if (activeClients == 1) {
+            handler.removeCallbacks(sweepRunnable);
+            handler.post(sweepRunnable);
+        }
+    }
+
+    /**
+     * Unregisters a foreground client. When the last client stops, the periodic sweep is
+     * cancelled; deadlines remain in Firestore and are handled on the next start.
+     */
+    public void stop() {
+        if (activeClients > 0) {
+            activeClients--;
+        }
+        if (activeClients == 0) {
+            handler.removeCallbacks(sweepRunnable);
+        }
+    }
+
+    private void runScheduledSweep() {
+        sweep().addOnCompleteListener(task -> {
+            if (activeClients > 0) {
+                handler.removeCallbacks(sweepRunnable);
+                handler.postDelayed(sweepRunnable, SWEEP_INTERVAL_MS);
+            }
+        });
+    }
+
+    /**
+     * Expires and auto-declines every invite whose deadline has passed.
+     *
+     * @return Task containing the number of invites expired by this sweep
+     */
+    public Task<Integer> sweep() {
+        TaskCompletionSource<Integer> result = new TaskCompletionSource<>();
+        if (sweepInProgress) {
+            result.setResult(0);
+            return result.getTask();
+        }
+        sweepInProgress = true;
+        sweepPage(0, result);
+        return result.getTask();
+    }
+
+    private void sweepPage(int expiredSoFar, TaskCompletionSource<Integer> result) {
+        inviteRepo.acquireSweepLease(leaseHolder, System.currentTimeMillis(), SWEEP_LEASE_MS)
+                .continueWithTask(leaseTask -> {
+                    if (!leaseTask.isSuccessful()) {
+                        throw leaseTask.getException();
+                    }
+                    if (!leaseTask.getResult()) {
+                        // Another client is sweeping
+                        return Tasks.forResult(null);
+                    }
+                    return inviteRepo.getServerTime().continueWithTask(timeTask -> {
+                        if (!timeTask.isSuccessful()) {
+                            throw timeTask.getException();
+                        }
+                        return inviteRepo.getExpiredPendingInvites(timeTask.getResult(), SWEEP_PAGE_SIZE);
+                    }).continueWithTask(queryTask -> {
+                        if (!queryTask.isSuccessful()) {
+                            throw queryTask.getException();
+                        }
+                        return expirePage(queryTask.getResult());
+                    });
+                })
+                .addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        Log.e(TAG, "Invite expiry sweep failed", task.getException());
+                        finishSweep(expiredSoFar, result);
+                        return;
+                    }
+                    PageResult page = task.getResult();
+                    if (page == null) {
+                        Log.d(TAG, "Sweep lease held by another client");
+                        finishSweep(expiredSoFar, result);
+                        return;
+                    }
+
+                    int expired = expiredSoFar + page.expired;
+                    // A full page means more expired invites may be waiting. Invites that
+                    // failed are still pending and would fill the next page again.
+                    if (page.size == SWEEP_PAGE_SIZE && page.failed == 0) {
+                        sweepPage(expired, result);
+                    } else {
+                        resumeResamples();
+                        finishSweep(expired, result);
+                    }
+                });
+    }
+
+    private void finishSweep(int expired, TaskCompletionSource<Integer> result) {
+        inviteRepo.releaseSweepLease(leaseHolder).addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                Log.w(TAG, "Failed to release sweep lease; it lapses on its own", task.getException());
+            }
+            sweepInProgress = false;
+            if (expired > 0) {
+                Log.d(TAG, "Expired " + expired + " invites");
+            }
+            result.setResult(expired);
+        });
+    }
+
+    /**
+     * Queues the resamples still recorded on events, which the lease holder does for everyone.
+     */
+    private void resumeResamples() {
+        lotteryService.resumePendingResamples().addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Failed to resume pending resamples", task.getException());
+            } else if (task.getResult() > 0) {
+                Log.d(TAG, "Resuming resamples for " + task.getResult() + " events");
+            }
+        });
+    }
+
+    /**
+     * Expires a page of invites, those of one event one after the other so they do not
+     * contend for the event document, and different events in parallel.
+     */
+    private Task<PageResult> expirePage(List<Invite> invites) {
+        Map<String, List<Invite>> invitesByEvent = new LinkedHashMap<>();
+        for (Invite invite : invites) {
+            if (invite.getEventId() == null || invite.getRecipientEmail() == null) {
+                continue;
+            }
+            List<Invite> eventInvites = invitesByEvent.get(invite.getEventId());
+            if (eventInvites == null) {
+                eventInvites = new ArrayList<>();
+                invitesByEvent.put(invite.getEventId(), eventInvites);
+            }
+            eventInvites.add(invite);
+        }
+
+        PageResult page = new PageResult(invites.size());
+        List<Invite> orphaned = new ArrayList<>();
+        List<Task<Void>> events = new ArrayList<>();
+        for (List<Invite> eventInvites : invitesByEvent.values()) {
+            events.add(expireInOrder(eventInvites, 0, page, orphaned));
+        }
+        return Tasks.whenAll(events).continueWithTask(done -> {
+            if (orphaned.isEmpty()) {
+                return Tasks.forResult(page);
+            }
+            // The event was deleted or the entrant left the invited state without the invite,
+            // so no transition applies
+            return inviteRepo.expireInvites(orphaned).continueWith(expireTask -> {
+                if (expireTask.isSuccessful()) {
+                    page.expired += expireTask.getResult();
+                } else {
+                    Log.e(TAG, "Failed to expire orphaned invites", expireTask.getException());
+                    page.failed += orphaned.size();
+                }
+                return page;
+            });
+        });
+    }
+
+    private Task<Void> expireInOrder(List<Invite> invites, int index, PageResult page, List<Invite> orphaned) {
+        if (index == invites.size()) {
+            return Tasks.forResult(null);
+        }
+        Invite invite = invites.get(index);
+        return lotteryService.expireInvitation(invite.getEventId(), invite.getRecipientEmail())
+                .continueWithTask(task -> {
+                    // Continuations run on the main thread, so the totals need no lock
+                    if (!task.isSuccessful()) {
+                        if (isEventNotFound(task.getException())) {
+                            orphaned.add(invite);
+                        } else {
+                            Log.e(TAG, "Failed to expire invite " + invite.getInviteId(), task.getException());
+                            page.failed++;
+                        }
+                    } else if (task.getResult() == LotteryService.InvitationResult.APPLIED) {
+                        page.expired++;
+                    } else if (task.getResult() == LotteryService.InvitationResult.NOT_INVITED) {
+                        orphaned.add(invite);
+                    } else if (task.getResult() == LotteryService.InvitationResult.IN_PROGRESS) {
+                        page.failed++;
+                    }
+                    return expireInOrder(invites, index + 1, page, orphaned);
+                });
+    }
+
+    private static boolean isEventNotFound(Exception e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.NOT_FOUND;
+    }
+
+    /**
+     * Totals of one sweep page.
+     */
+    private static class PageResult {
+        /** Invites the page's query returned. */
+        final int size;
+        /** Invites expired, with or without an entrant to auto-decline. */
+        int expired;
+        /** Invites left pending by a failure, to retry on the next sweep. */
+        int failed;
+
+        PageResult(int size) {
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.atlasevents;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe counters describing how lottery commits behave under contention.
+ * <p>
+ * Every transactional commit made by {@link LotteryService} records how many attempts it
+ * needed. An attempt count above one means a concurrent write (for example an entrant joining
+ * the waitlist mid-draw) changed the event after it was read, and Firestore re-ran the
+ * transaction instead of overwriting that write.
+ * </p>
+ *
+ * @see LotteryService#getCommitStats()
+ */
+public class LotteryCommitStats {
+
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong contendedCommits = new AtomicLong();
+    private final AtomicLong failedCommits = new AtomicLong();
+    private final AtomicLong contentionFailures = new AtomicLong();
+    private final AtomicLong maxAttempts = new AtomicLong();
+
+    /**
+     * Records one finished commit.
+     *
+     * @param attemptCount Number of times the transaction body ran
+     * @param successful Whether the commit succeeded
+     * @param contentionFailure Whether it failed because retries were exhausted
+     */
+    public void record(int attemptCount, boolean successful, boolean contentionFailure) {
+        commits.incrementAndGet();
+        attempts.addAndGet(attemptCount);
+        if (attemptCount > 1) {
+            contendedCommits.incrementAndGet();
+        }
+        if (!successful) {
+            failedCommits.incrementAndGet();
+        }
+        if (contentionFailure) {
+            contentionFailures.incrementAndGet();
+        }
+        maxAttempts.accumulateAndGet(attemptCount, Math::max);
+    }
+
+    /** @return Total number of commits started */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /** @return Total number of transaction attempts across all commits */
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    /** @return Number of attempts beyond the first, i.e. retries caused by concurrent writes */
+    public long getRetries() {
+        return attempts.get() - commits.get();
+    }
+
+    /** @return Number of commits that needed more than one attempt */
+    public long getContendedCommits() {
+        return contendedCommits.get();
+    }
+
+    /** @return Number of commits that failed for any reason */
+    public long getFailedCommits() {
+        return failedCommits.get();
+    }
+
+    /** @return Number of commits that failed because all attempts collided */
+    public long getContentionFailures() {
+        return contentionFailures.get();
+    }
+
+    /** @return Highest attempt count seen for a single commit */
+    public long getMaxAttempts() {
+        return maxAttempts.get();
+    }
+
+    /** Resets all counters to zero. */
+    public void reset() {
+        commits.set(0);
+        attempts.set(0);
+        contendedCommits.set(0);
+        failedCommits.set(0);
+        contentionFailures.set(0);
+        maxAttempts.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "commits=%d attempts=%d retries=%d contended=%d failed=%d contentionFailures=%d maxAttempts=%d",
+                getCommits(), getAttempts(), getRetries(), getContendedCommits(),
+                getFailedCommits(), getContentionFailures(), getMaxAttempts());
+    }
+}
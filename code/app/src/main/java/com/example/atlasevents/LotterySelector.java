@@ -0,0 +1,215 @@
+package com.example.atlasevents;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Selects a uniformly random subset of entrants for a lottery draw.
+ * <p>
+ * Uses a partial Fisher-Yates shuffle over index positions, so choosing {@code k} winners
+ * out of {@code n} eligible entrants costs O(k) time instead of copying and shuffling the
+ * whole waitlist. When {@code k} is small compared to {@code n} the swapped positions are kept
+ * in a sparse map, so memory is also O(k); for large draws a dense {@code int[]} is used.
+ * </p>
+ * <p>
+ * When the population is too large to hold in memory, for example waiting members read page
+ * by page from Firestore, {@link #reservoir(int)} samples a stream in one pass with O(k) memory.
+ * </p>
+ * <p>
+ * This class has no Android or Firebase dependencies so it can be unit tested on the JVM.
+ * The random source is pluggable, which lets tests pass a seeded {@link Random} for
+ * reproducible draws.
+ * </p>
+ *
+ * @see LotteryService
+ */
+public class LotterySelector {
+
+    /**
+     * Draws where {@code k * DENSE_THRESHOLD >= n} use a dense index array, all others
+     * use the sparse swap map.
+     */
+    private static final int DENSE_THRESHOLD = 4;
+
+    private final Random random;
+
+    /**
+     * Creates a selector backed by a new unseeded {@link Random}.
+     */
+    public LotterySelector() {
+        this(new Random());
+    }
+
+    /**
+     * Creates a selector backed by the given random source.
+     *
+     * @param random Random number generator to draw with (seeded for tests,
+     *               {@link java.security.SecureRandom} if unpredictability matters)
+     */
+    public LotterySelector(Random random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Random source cannot be null");
+        }
+        this.random = random;
+    }
+
+    /**
+     * Samples {@code k} distinct indices from {@code [0, n)} uniformly at random.
+     * The returned order is itself random. If {@code k >= n}, every index is returned.
+     *
+     * @param n Size of the population
+     * @param k Number of indices to draw
+     * @return Array of {@code min(k, n)} distinct indices
+     * @throws IllegalArgumentException if {@code n} or {@code k} is negative
+     */
+    public int[] sampleIndices(int n, int k) {
+        if (n < 0 || k < 0) {
+            throw new IllegalArgumentException("Population and sample size must be non-negative");
+        }
+        int count = Math.min(k, n);
+        if (count == 0) {
+            return new int[0];
+        }
+        if ((long) count * DENSE_THRESHOLD >= n) {
+            return sampleDense(n, count);
+        }
+        return sampleSparse(n, count);
+    }
+
+    /**
+     * Returns {@code k} distinct elements of {@code population} chosen uniformly at random.
+     * The population is not modified. If {@code k >= population.size()}, a copy of the whole
+     * population is returned.
+     *
+     * @param population Candidates to choose from
+     * @param k Number of elements to choose
+     * @param <T> Element type
+     * @return Newly allocated list of selected elements
+     */
+    public <T> List<T> select(List<T> population, int k) {
+        if (population == null || population.isEmpty() || k <= 0) {
+            return Collections.emptyList();
+        }
+        if (k >= population.size()) {
+            return new ArrayList<>(population);
+        }
+        int[] indices = sampleIndices(population.size(), k);
+        List<T> selected = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            selected.add(population.get(index));
+        }
+        return selected;
+    }
+
+    /**
+     * Creates a reservoir that keeps a uniform random sample of up to {@code k} of the elements
+     * offered to it, without knowing the population size in advance.
+     *
+     * @param k Number of elements to keep
+     * @param <T> Element type
+     * @return Empty reservoir drawing from this selector's random source
+     * @throws IllegalArgumentException if {@code k} is negative
+     */
+    public <T> Reservoir<T> reservoir(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Sample size must be non-negative");
+        }
+        return new Reservoir<>(k, random);
+    }
+
+    /**
+     * Single-pass uniform sampler (Algorithm R). After {@code n} offers every element has been
+     * kept with probability {@code min(1, k / n)}.
+     *
+     * @param <T> Element type
+     */
+    public static final class Reservoir<T> {
+        private final int capacity;
+        private final Random random;
+        private final List<T> sample;
+        private long seen;
+
+        private Reservoir(int capacity, Random random) {
+            this.capacity = capacity;
+            this.random = random;
+            this.sample = new ArrayList<>(Math.min(capacity, 1024));
+        }
+
+        /**
+         * Offers the next element of the stream.
+         *
+         * @param element The element
+         */
+        public void offer(T element) {
+            seen++;
+            if (sample.size() < capacity) {
+                sample.add(element);
+                return;
+            }
+            long j = seen <= Integer.MAX_VALUE
+                    ? random.nextInt((int) seen)
+                    : (long) (random.nextDouble() * seen);
+            if (j < capacity) {
+                sample.set((int) j, element);
+            }
+        }
+
+        /**
+         * @return Number of elements offered so far
+         */
+        public long getSeen() {
+            return seen;
+        }
+
+        /**
+         * @return Copy of the current sample, at most {@code k} elements
+         */
+        public List<T> getSample() {
+            return new ArrayList<>(sample);
+        }
+    }
+
+    /**
+     * Partial Fisher-Yates over a full index array. O(n) setup, O(k) swaps.
+     */
+    private int[] sampleDense(int n, int count) {
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[i] = i;
+        }
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = positions[i];
+            positions[i] = positions[j];
+            positions[j] = tmp;
+            result[i] = positions[i];
+        }
+        return result;
+    }
+
+    /**
+     * Partial Fisher-Yates where only displaced positions are stored. O(k) time and memory.
+     */
+    private int[] sampleSparse(int n, int count) {
+        Map<Integer, Integer> swapped = new HashMap<>(count * 2);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(n - i);
+            int valueAtJ = valueAt(swapped, j);
+            int valueAtI = valueAt(swapped, i);
+            swapped.put(j, valueAtI);
+            result[i] = valueAtJ;
+        }
+        return result;
+    }
+
+    private static int valueAt(Map<Integer, Integer> swapped, int position) {
+        Integer value = swapped.get(position);
+        return value != null ? value : position;
+    }
+}
@@ -1,20 +1,27 @@
 package com.example.atlasevents;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.example.atlasevents.data.EventMapper;
+import com.example.atlasevents.data.EventSummaryRepository;
 import com.example.atlasevents.data.NotificationRepository;
 import com.example.atlasevents.data.InviteRepository;
+import com.example.atlasevents.data.MembershipRepository;
+import com.example.atlasevents.data.model.Member;
 import com.example.atlasevents.data.model.Notification;
 import com.example.atlasevents.data.model.Invite;
 import com.example.atlasevents.EntrantList;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.TransactionOptions;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -28,7 +35,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
 
 /**
  * Service class for handling lottery draws for event waitlists.
@@ -44,15 +54,37 @@ import java.util.concurrent.TimeUnit;
  */
 public class LotteryService {
     private static final String TAG = "LotteryService";
+
+    /** Maximum attempts for a lottery commit before it fails with ABORTED. */
+    private static final int MAX_COMMIT_ATTEMPTS = 5;
+    private static final TransactionOptions TRANSACTION_OPTIONS =
+            new TransactionOptions.Builder().setMaxAttempts(MAX_COMMIT_ATTEMPTS).build();
+    private static final LotteryCommitStats COMMIT_STATS = new LotteryCommitStats();
+    /** Event field counting freed slots that no resample has refilled yet. */
+    private static final String PENDING_RESAMPLE = "pendingResample";
+    /** Event field counting slots held by member draws that are still inviting. */
+    private static final String RESERVED_SLOTS = "reservedSlots";
+    private static ResampleCoalescer sharedCoalescer;
+
     private final FirebaseFirestore db;
     private final NotificationRepository notificationRepo;
     private final InviteRepository inviteRepo;
+    private final MembershipRepository membershipRepo;
+    private final EventSummaryRepository summaryRepo;
+    private final LotterySelector selector;
+    private final ResampleCoalescer resampleCoalescer;
+    /** Invites, by event ID and email, with a transition started by this service running. */
+    private final Set<String> transitionsInFlight = new HashSet<>();
 
 
     public LotteryService() {
         this.db = FirebaseFirestore.getInstance();
         this.notificationRepo = new NotificationRepository();
         this.inviteRepo = new InviteRepository();
+        this.membershipRepo = new MembershipRepository();
+        this.summaryRepo = new EventSummaryRepository();
+        this.selector = new LotterySelector();
+        this.resampleCoalescer = getSharedCoalescer();
     }
 
     /**
@@ -63,9 +95,49 @@ public class LotteryService {
      * @param inviteRepo Invite repository instance
      */
     public LotteryService(FirebaseFirestore db, NotificationRepository notificationRepo, InviteRepository inviteRepo) {
+        this(db, notificationRepo, inviteRepo, new LotterySelector());
+    }
+
+    /**
+     * Constructor for dependency injection with a custom selector (for seeded, reproducible draws)
+     *
+     * @param db Firebase Firestore instance
+     * @param notificationRepo Notification repository instance
+     * @param inviteRepo Invite repository instance
+     * @param selector Random selector used for draws and re-samples
+     */
+    public LotteryService(FirebaseFirestore db, NotificationRepository notificationRepo,
+                          InviteRepository inviteRepo, LotterySelector selector) {
         this.db = db;
         this.notificationRepo = notificationRepo;
         this.inviteRepo = inviteRepo;
+        this.membershipRepo = new MembershipRepository(db);
+        this.summaryRepo = new EventSummaryRepository(db);
+        this.selector = selector;
+        this.resampleCoalescer = new ResampleCoalescer(this::resampleDeclinedSlots);
+    }
+
+    /**
+     * Returns the process-wide coalescer used by services created with the default
+     * constructor. All screens share it so declines from anywhere in the app are batched.
+     */
+    private static synchronized ResampleCoalescer getSharedCoalescer() {
+        if (sharedCoalescer == null) {
+            LotteryService resampler = new LotteryService(FirebaseFirestore.getInstance(),
+                    new NotificationRepository(), new InviteRepository());
+            sharedCoalescer = resampler.resampleCoalescer;
+        }
+        return sharedCoalescer;
+    }
+
+    /**
+     * Returns the coalescer that batches resamples after declines and expiries. Use it to
+     * tune the collection window and maximum batch size, or to flush pending resamples.
+     *
+     * @return The resample coalescer used by this service
+     */
+    public ResampleCoalescer getResampleCoalescer() {
+        return resampleCoalescer;
     }
 
     /**
@@ -96,62 +168,515 @@ public class LotteryService {
 
         Log.d(TAG, "Starting lottery draw for event: " + eventId);
 
-        // Step 1: Get event details
-        getEventWithAllLists(eventId).addOnCompleteListener(eventTask -> {
-            if (!eventTask.isSuccessful() || eventTask.getResult() == null) {
-                Log.e(TAG, "Failed to get event details", eventTask.getException());
-                callback.onLotteryFailed(eventTask.getException());
+        // Read, validate, select and write inside one transaction so that joins landing
+        // between the read and the write are retried instead of being overwritten
+        commitDraw(eventId, "draw", true, Integer.MAX_VALUE, false, false).addOnCompleteListener(drawTask -> {
+            if (!drawTask.isSuccessful() || drawTask.getResult() == null) {
+                Log.e(TAG, "Lottery draw commit failed", drawTask.getException());
+                callback.onLotteryFailed(drawTask.getException());
                 return;
             }
 
-            Event event = eventTask.getResult();
-            if (event == null) {
-                callback.onLotteryFailed(new Exception("Event not found"));
+            DrawOutcome outcome = drawTask.getResult();
+            if (outcome.rejected) {
+                callback.onLotteryFailed(new Exception(outcome.message));
                 return;
             }
-            // ADD DEBUGGING HERE
-            debugEventLists(event, "BEFORE LOTTERY DRAW");
-            Log.d(TAG, "Event loaded: " + event.getEventName());
-            Log.d(TAG, "Waitlist size from event object: " + (event.getWaitlist() != null ? event.getWaitlist().size() : "null"));
-            // Step 2: Validate registration end date
-            LotteryAvailability availability = checkLotteryAvailability(event);
-            if (!availability.isAvailable()) {
-                callback.onLotteryFailed(new Exception(availability.getMessage()));
+            if (outcome.selected.isEmpty()) {
+                callback.onLotteryCompleted(0, outcome.message);
                 return;
             }
 
-            // Step 3: Calculate available slots
-            int availableSlots = calculateAvailableSlots(event);
-            Log.d(TAG, "Available slots calculated: " + availableSlots);
+            // Side effects only after the commit succeeded (the transaction body may re-run)
+            sendInvitationNotifications(outcome.event, outcome.selected, callback);
+        });
+    }
+
+    /**
+     * Result of a transactional lottery commit. Either the draw was rejected, nothing was
+     * selected (with a reason), or {@code selected} entrants were committed to the invite list.
+     */
+    private static class DrawOutcome {
+        final Event event;
+        final List<Entrant> selected;
+        final boolean rejected;
+        final String message;
+
+        private DrawOutcome(Event event, List<Entrant> selected, boolean rejected, String message) {
+            this.event = event;
+            this.selected = selected;
+            this.rejected = rejected;
+            this.message = message;
+        }
+
+        static DrawOutcome rejected(String message) {
+            return new DrawOutcome(null, Collections.emptyList(), true, message);
+        }
+
+        static DrawOutcome empty(String message) {
+            return new DrawOutcome(null, Collections.emptyList(), false, message);
+        }
+
+        static DrawOutcome drawn(Event event, List<Entrant> selected) {
+            return new DrawOutcome(event, selected, false, selected.size() + " entrants selected");
+        }
+    }
+
+    /**
+     * Returns the process-wide counters for lottery commits, including how often a commit had
+     * to be retried because a concurrent write (e.g. a waitlist join) touched the event.
+     *
+     * @return Shared commit statistics
+     */
+    public static LotteryCommitStats getCommitStats() {
+        return COMMIT_STATS;
+    }
+
+    /**
+     * Runs a Firestore transaction with bounded retry and records attempt counts in
+     * {@link #getCommitStats()}. Firestore re-runs the function when a document it read was
+     * changed before commit, so the function must not have side effects outside the transaction.
+     *
+     * @param operation Name used for logging and statistics (e.g. "draw", "response")
+     * @param function Transaction body
+     * @return Task that resolves with the function's result once committed
+     */
+    private <T> Task<T> runLotteryTransaction(String operation, Transaction.Function<T> function) {
+        AtomicInteger attempts = new AtomicInteger();
+        return db.runTransaction(TRANSACTION_OPTIONS, transaction -> {
+            int attempt = attempts.incrementAndGet();
+            if (attempt > 1) {
+                Log.d(TAG, operation + " commit contended, attempt " + attempt + " of " + MAX_COMMIT_ATTEMPTS);
+            }
+            return function.apply(transaction);
+        }).addOnCompleteListener(task -> {
+            COMMIT_STATS.record(attempts.get(), task.isSuccessful(), isContentionFailure(task.getException()));
+            Log.d(TAG, "Lottery commit stats: " + COMMIT_STATS);
+        });
+    }
+
+    private static boolean isContentionFailure(Exception exception) {
+        return exception instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) exception).getCode() == FirebaseFirestoreException.Code.ABORTED;
+    }
+
+    /**
+     * Reads and parses the event inside a transaction.
+     *
+     * @throws FirebaseFirestoreException with code NOT_FOUND if the event does not exist
+     */
+    private Event readEventInTransaction(Transaction transaction, DocumentReference eventRef)
+            throws FirebaseFirestoreException {
+        DocumentSnapshot doc = transaction.get(eventRef);
+        if (!doc.exists()) {
+            throw new FirebaseFirestoreException("Event document not found",
+                    FirebaseFirestoreException.Code.NOT_FOUND);
+        }
+        return parseEventDocument(doc);
+    }
+
+    /**
+     * Reads the event inside a transaction for an operation on its inline lists.
+     *
+     * @throws FirebaseFirestoreException with code ABORTED if the event was migrated to the
+     *         members subcollection after the caller chose the list path
+     */
+    private Event readListEventInTransaction(Transaction transaction, DocumentReference eventRef)
+            throws FirebaseFirestoreException {
+        Event event = readEventInTransaction(transaction, eventRef);
+        if (event.isMembersEnabled()) {
+            throw new FirebaseFirestoreException("Event membership was migrated, retry the operation",
+                    FirebaseFirestoreException.Code.ABORTED);
+        }
+        return event;
+    }
+
+    /**
+     * Reads and parses the event outside a transaction, for operations that branch on how the
+     * event stores its entrants.
+     */
+    private Task<Event> readEvent(String eventId) {
+        return db.collection("events").document(eventId).get().continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            DocumentSnapshot doc = task.getResult();
+            if (doc == null || !doc.exists()) {
+                throw new FirebaseFirestoreException("Event document not found",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+            return parseEventDocument(doc);
+        });
+    }
+
+    /**
+     * Selects up to {@code maxCount} eligible waiting entrants and invites them, using the
+     * members subcollection for events that have it and the inline lists otherwise.
+     *
+     * @param eventId The event ID
+     * @param operation Name used for logging and statistics
+     * @param requireRegistrationClosed Whether to apply {@link #checkLotteryAvailability(Event)};
+     *                                  such draws also record {@code lastLotteryRun} and
+     *                                  {@code lastDrawnSlots}
+     * @param maxCount Upper bound on entrants to select (further bounded by available slots)
+     * @param excludePendingInvites Whether pending invites count against the available slots
+     * @param refillsDeclines Whether the draw refills slots queued in {@code pendingResample}: it
+     *                        selects no more than are still queued and takes {@code maxCount} off
+     *                        the queue, so a resample dispatched twice invites only once
+     * @return Task containing the commit outcome
+     */
+    private Task<DrawOutcome> commitDraw(String eventId, String operation, boolean requireRegistrationClosed,
+                                         int maxCount, boolean excludePendingInvites, boolean refillsDeclines) {
+        return readEvent(eventId).continueWithTask(readTask -> {
+            if (!readTask.isSuccessful()) {
+                return Tasks.forException(readTask.getException());
+            }
+            Event event = readTask.getResult();
+            if (!event.isMembersEnabled()) {
+                return commitListDraw(eventId, operation, requireRegistrationClosed, maxCount,
+                        excludePendingInvites, refillsDeclines);
+            }
+            return commitMemberDraw(eventId, operation, requireRegistrationClosed, maxCount,
+                    excludePendingInvites, refillsDeclines);
+        });
+    }
+
+    /**
+     * Records on the event, in the transaction that freed them, slots waiting to be refilled,
+     * so a resample lost with this process is picked up by {@link #resumePendingResamples()}.
+     */
+    private static void queueResample(Transaction transaction, DocumentReference eventRef, int count) {
+        if (count > 0) {
+            transaction.update(eventRef, PENDING_RESAMPLE, FieldValue.increment(count));
+        }
+    }
+
+    /**
+     * Takes {@code count} slots off the event's resample queue, read earlier in the transaction.
+     */
+    private static void settleQueuedResample(Transaction transaction, DocumentReference eventRef, Event event,
+                                             int count) {
+        if (event.getPendingResample() > 0) {
+            transaction.update(eventRef, PENDING_RESAMPLE, Math.max(0, event.getPendingResample() - count));
+        }
+    }
+
+    /**
+     * Draws for an event that stores membership in the members subcollection. The slots are
+     * reserved first, in one transaction against the event's counters (see
+     * {@link #reserveSlots}). Waiting members are then read page by page into a
+     * {@link LotterySelector.Reservoir}, so memory stays bounded by the page size and the
+     * number of slots however long the waiting list is, and the selected members are moved to
+     * "invited" in transactional chunks; a member who left or was moved in the meantime is
+     * skipped.
+     *
+     * @see #commitDraw(String, String, boolean, int, boolean, boolean)
+     */
+    private Task<DrawOutcome> commitMemberDraw(String eventId, String operation, boolean requireRegistrationClosed,
+                                               int maxCount, boolean excludePendingInvites, boolean refillsDeclines) {
+        ToIntFunction<Event> slotCounter = excludePendingInvites ? this::calculateOpenSlots : this::calculateAvailableSlots;
+        return reserveSlots(eventId, operation, requireRegistrationClosed, maxCount, refillsDeclines, slotCounter)
+                .continueWithTask(reserveTask -> {
+                    if (!reserveTask.isSuccessful()) {
+                        return Tasks.forException(reserveTask.getException());
+                    }
+                    SlotReservation reservation = reserveTask.getResult();
+                    if (reservation.count == 0) {
+                        return Tasks.forResult(reservation.outcome);
+                    }
+
+                    Log.d(TAG, operation + ": sampling " + reservation.count + " of "
+                            + reservation.event.countWaiting() + " waiting members");
+                    return sampleMembers(eventId, Member.STATUS_WAITING, reservation.count).continueWithTask(sampleTask -> {
+                        if (!sampleTask.isSuccessful()) {
+                            return releaseReservation(reservation, reservation.count, true)
+                                    .continueWithTask(releaseTask -> Tasks.<List<Entrant>>forException(sampleTask.getException()));
+                        }
+                        return fillReservation(operation, reservation, sampleTask.getResult());
+                    }).continueWith(fillTask -> {
+                        if (!fillTask.isSuccessful()) {
+                            throw fillTask.getException();
+                        }
+                        List<Entrant> selected = fillTask.getResult();
+                        return selected.isEmpty()
+                                ? DrawOutcome.empty("No entrants selected from waitlist")
+                                : DrawOutcome.drawn(reservation.event, selected);
+                    });
+                });
+    }
+
+    /**
+     * Slots reserved on a members-subcollection event by a draw that has not finished
+     * inviting yet.
+     */
+    private static class SlotReservation {
+        final Event event;
+        final int count;
+        /** Why nothing was reserved, when {@code count} is 0. */
+        final DrawOutcome outcome;
+        /** The lottery stamp the reservation replaced, or null if it did not stamp the event. */
+        final Map<String, Object> previousStamp;
+
+        SlotReservation(Event event, int count, DrawOutcome outcome, Map<String, Object> previousStamp) {
+            this.event = event;
+            this.count = count;
+            this.outcome = outcome;
+            this.previousStamp = previousStamp;
+        }
+
+        static SlotReservation none(DrawOutcome outcome) {
+            return new SlotReservation(null, 0, outcome, null);
+        }
+    }
+
+    /**
+     * Reserves slots on a members-subcollection event in one transaction. The slots are
+     * counted from the event's per-status counters, minus the {@code reservedSlots} still held
+     * by other draws, so draws running at the same time never invite more entrants than there
+     * are slots. Draws that require registration to be closed stamp {@code lastLotteryRun} and
+     * {@code lastDrawnSlots} in the same transaction, and resamples take their count off
+     * {@code pendingResample} there too.
+     *
+     * @param eventId The event ID
+     * @param operation Name used for logging and statistics
+     * @param requireRegistrationClosed Whether to apply {@link #checkLotteryAvailability(Event)}
+     *                                  and stamp the event
+     * @param maxCount Upper bound on slots to reserve
+     * @param refillsDeclines Whether the draw refills slots queued in {@code pendingResample}
+     * @param slotCounter Slots the draw may fill, before other draws' reservations
+     * @return Task containing the reservation, with a count of 0 and an outcome if nothing
+     *         could be reserved
+     */
+    private Task<SlotReservation> reserveSlots(String eventId, String operation, boolean requireRegistrationClosed,
+                                               int maxCount, boolean refillsDeclines,
+                                               ToIntFunction<Event> slotCounter) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        return runLotteryTransaction(operation, transaction -> {
+            DocumentSnapshot doc = transaction.get(eventRef);
+            if (!doc.exists()) {
+                throw new FirebaseFirestoreException("Event document not found",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+            Event event = parseEventDocument(doc);
+
+            if (requireRegistrationClosed) {
+                LotteryAvailability availability = checkLotteryAvailability(event);
+                if (!availability.isAvailable()) {
+                    return SlotReservation.none(DrawOutcome.rejected(availability.getMessage()));
+                }
+            }
+
+            int count = maxCount;
+            if (refillsDeclines) {
+                count = Math.min(maxCount, event.getPendingResample());
+                settleQueuedResample(transaction, eventRef, event, maxCount);
+                if (count <= 0) {
+                    return SlotReservation.none(DrawOutcome.empty("Declined slots already refilled"));
+                }
+            }
+
+            Long reserved = doc.getLong(RESERVED_SLOTS);
+            int slots = slotCounter.applyAsInt(event) - (reserved != null ? reserved.intValue() : 0);
+            if (slots <= 0) {
+                return SlotReservation.none(DrawOutcome.empty("No available slots for lottery"));
+            }
+            if (event.countWaiting() <= 0) {
+                return SlotReservation.none(DrawOutcome.empty("No eligible entrants in waitlist"));
+            }
+            count = Math.min(count, Math.min(slots, event.countWaiting()));
+
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(RESERVED_SLOTS, FieldValue.increment(count));
+            Map<String, Object> previousStamp = null;
+            if (requireRegistrationClosed) {
+                previousStamp = new HashMap<>();
+                for (String field : new String[]{"lastLotteryRun", "lastDrawnSlots"}) {
+                    previousStamp.put(field, doc.contains(field) ? doc.get(field) : FieldValue.delete());
+                }
+                updates.put("lastLotteryRun", new Date());
+                updates.put("lastDrawnSlots", event.getSlots());
+            }
+            transaction.update(eventRef, updates);
+            return new SlotReservation(event, count, null, previousStamp);
+        });
+    }
+
+    /**
+     * Invites sampled waiting members into reserved slots. Each chunk turns the reservation of
+     * the members it moved into {@code invitedCount}, and slots left over are released. If a
+     * chunk fails, the members already invited go back to waiting, the reservation and the
+     * lottery stamp are undone and the task fails, so a draw never half-succeeds.
+     *
+     * @return Task containing the invited entrants
+     */
+    private Task<List<Entrant>> fillReservation(String operation, SlotReservation reservation, List<Member> sampled) {
+        String eventId = reservation.event.getId();
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        List<Member> invited = new ArrayList<>();
+        return moveMembers(operation, eventId, emailsOf(sampled), Member.STATUS_WAITING, Member.STATUS_INVITED,
+                (transaction, moved) -> transaction.update(eventRef, RESERVED_SLOTS, FieldValue.increment(-moved.size())),
+                invited).continueWithTask(moveTask -> {
+            int unused = reservation.count - invited.size();
+            if (moveTask.isSuccessful()) {
+                return releaseReservation(reservation, unused, invited.isEmpty())
+                        .continueWith(releaseTask -> entrantsOf(invited));
+            }
+
+            Log.e(TAG, operation + " failed after inviting " + invited.size() + " members, undoing",
+                    moveTask.getException());
+            return moveMembers(operation, eventId, emailsOf(invited), Member.STATUS_INVITED, Member.STATUS_WAITING,
+                    null, new ArrayList<>())
+                    .continueWithTask(undoTask -> releaseReservation(reservation, unused, true))
+                    .continueWithTask(releaseTask -> Tasks.<List<Entrant>>forException(moveTask.getException()));
+        });
+    }
+
+    /**
+     * Gives back reserved slots that were not filled and, if asked, the lottery stamp the
+     * reservation replaced. Failures are logged, since the draw's outcome is already decided.
+     */
+    private Task<Void> releaseReservation(SlotReservation reservation, int unused, boolean restoreStamp) {
+        Map<String, Object> updates = new HashMap<>();
+        if (restoreStamp && reservation.previousStamp != null) {
+            updates.putAll(reservation.previousStamp);
+        }
+        if (unused > 0) {
+            updates.put(RESERVED_SLOTS, FieldValue.increment(-unused));
+        }
+        if (updates.isEmpty()) {
+            return Tasks.forResult(null);
+        }
+        return db.collection("events").document(reservation.event.getId()).update(updates)
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to release " + unused + " reserved slots", e));
+    }
+
+    /**
+     * Samples up to {@code count} members with the given status uniformly at random, reading
+     * one page of members at a time.
+     *
+     * @param eventId The event ID
+     * @param status Status of the members to sample from
+     * @param count Number of members to keep
+     * @return Task containing the sampled members
+     */
+    private Task<List<Member>> sampleMembers(String eventId, String status, int count) {
+        return sampleMembersFrom(eventId, status, null, selector.reservoir(count));
+    }
+
+    private Task<List<Member>> sampleMembersFrom(String eventId, String status, DocumentSnapshot startAfter,
+                                                 LotterySelector.Reservoir<Member> reservoir) {
+        return membershipRepo.getMembersPage(eventId, status, MembershipRepository.PAGE_SIZE, startAfter)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.forException(task.getException());
+                    }
+                    List<DocumentSnapshot> docs = task.getResult().getDocuments();
+                    for (DocumentSnapshot doc : docs) {
+                        Member member = MembershipRepository.fromSnapshot(doc);
+                        if (member != null) {
+                            reservoir.offer(member);
+                        }
+                    }
+                    if (docs.size() < MembershipRepository.PAGE_SIZE) {
+                        Log.d(TAG, "Sampled from " + reservoir.getSeen() + " " + status + " members");
+                        return Tasks.forResult(reservoir.getSample());
+                    }
+                    return sampleMembersFrom(eventId, status, docs.get(docs.size() - 1), reservoir);
+                });
+    }
+
+    private static List<String> emailsOf(List<Member> members) {
+        List<String> emails = new ArrayList<>(members.size());
+        for (Member member : members) {
+            emails.add(member.getEmail());
+        }
+        return emails;
+    }
+
+    private static List<Entrant> entrantsOf(List<Member> members) {
+        List<Entrant> entrants = new ArrayList<>(members.size());
+        for (Member member : members) {
+            entrants.add(member.toEntrant());
+        }
+        return entrants;
+    }
+
+    /**
+     * Transactionally selects up to {@code maxCount} eligible waitlist entrants, moves them
+     * to the invite list and commits both lists together. Used for events that store their
+     * lists on the event document.
+     *
+     * @param eventId The event ID
+     * @param operation Name used for logging and statistics
+     * @param requireRegistrationClosed Whether to apply {@link #checkLotteryAvailability(Event)};
+     *                                  such draws also record {@code lastLotteryRun} and
+     *                                  {@code lastDrawnSlots}
+     * @param maxCount Upper bound on entrants to select (further bounded by available slots)
+     * @param excludePendingInvites Whether pending invites count against the available slots
+     * @param refillsDeclines Whether the draw refills slots queued in {@code pendingResample}
+     * @return Task containing the commit outcome
+     */
+    private Task<DrawOutcome> commitListDraw(String eventId, String operation, boolean requireRegistrationClosed,
+                                             int maxCount, boolean excludePendingInvites, boolean refillsDeclines) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        return runLotteryTransaction(operation, transaction -> {
+            Event event = readListEventInTransaction(transaction, eventRef);
+            debugEventLists(event, "BEFORE " + operation.toUpperCase(Locale.ROOT));
+
+            if (requireRegistrationClosed) {
+                LotteryAvailability availability = checkLotteryAvailability(event);
+                if (!availability.isAvailable()) {
+                    return DrawOutcome.rejected(availability.getMessage());
+                }
+            }
+
+            int count = maxCount;
+            if (refillsDeclines) {
+                count = Math.min(maxCount, event.getPendingResample());
+                settleQueuedResample(transaction, eventRef, event, maxCount);
+                if (count <= 0) {
+                    return DrawOutcome.empty("Declined slots already refilled");
+                }
+            }
+
+            int availableSlots = excludePendingInvites ? calculateOpenSlots(event) : calculateAvailableSlots(event);
             if (availableSlots <= 0) {
-                callback.onLotteryCompleted(0, "No available slots for lottery");
-                return;
+                return DrawOutcome.empty("No available slots for lottery");
             }
 
-            // Step 4: Get waitlist and filter out already accepted/declined/invited
             EntrantList waitlist = event.getWaitlist();
-            Log.d(TAG, "Waitlist before filtering: " + waitlist.size());
             List<Entrant> eligibleWaitlist = filterEligibleEntrants(waitlist, event);
-            Log.d(TAG, "Eligible waitlist after filtering: " + eligibleWaitlist.size());
-
             if (eligibleWaitlist.isEmpty()) {
                 Log.w(TAG, "No eligible entrants found. Waitlist size: " + waitlist.size());
+                return DrawOutcome.empty("No eligible entrants in waitlist");
+            }
 
-                callback.onLotteryCompleted(0, "No eligible entrants in waitlist");
-                return;
+            List<Entrant> selectedEntrants =
+                    selectRandomEntrants(eligibleWaitlist, Math.min(availableSlots, count));
+            if (selectedEntrants.isEmpty()) {
+                return DrawOutcome.empty("No entrants selected from waitlist");
             }
 
-            // Step 5: Randomly select entrants
-            List<Entrant> selectedEntrants = selectRandomEntrants(eligibleWaitlist, availableSlots);
+            EntrantList inviteList = event.getInviteList();
+            for (Entrant entrant : selectedEntrants) {
+                inviteList.addEntrant(entrant);
+                waitlist.removeEntrant(entrant);
+            }
 
-            if (selectedEntrants.isEmpty()) {
-                callback.onLotteryCompleted(0, "No entrants selected from waitlist");
-                return;
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("inviteList", convertEntrantListToMap(inviteList));
+            updates.put("waitlist", convertEntrantListToMap(waitlist));
+            if (requireRegistrationClosed) {
+                updates.put("lastLotteryRun", new Date());
+                updates.put("lastDrawnSlots", event.getSlots());
             }
-            // Step 6: Move selected entrants to invited list and send notifications
-            moveToInvitedAndNotify(event, selectedEntrants, callback);
+            transaction.update(eventRef, updates);
+            summaryRepo.updateCounts(transaction, eventId, EventSummaryRepository.countData(event));
+
+            return DrawOutcome.drawn(event, selectedEntrants);
         });
     }
+
     /**
      * Data class to represent lottery availability status
      */
@@ -191,17 +716,18 @@ public class LotteryService {
             return new LotteryAvailability(false, "No available slots for lottery");
         }
 
-        // Check if there are eligible entrants in waitlist
-        EntrantList waitlist = event.getWaitlist();
-        List<Entrant> eligibleWaitlist = filterEligibleEntrants(waitlist, event);
+        // Check if there are eligible entrants in waitlist; waiting members are always eligible
+        int eligibleCount = event.isMembersEnabled()
+                ? event.countWaiting()
+                : filterEligibleEntrants(event.getWaitlist(), event).size();
 
-        if (eligibleWaitlist.isEmpty()) {
+        if (eligibleCount <= 0) {
             return new LotteryAvailability(false, "No eligible entrants in waitlist");
         }
 
         return new LotteryAvailability(true,
                 String.format("Lottery available - %d slots, %d eligible entrants",
-                        availableSlots, eligibleWaitlist.size()));
+                        availableSlots, eligibleCount));
     }
 
     /**
@@ -305,7 +831,7 @@ public class LotteryService {
 
         Log.d(TAG, "=== STARTING EVENT PARSING ===");
 
-        Event event = doc.toObject(Event.class);
+        Event event = EventMapper.fromSnapshot(doc);
         if (event == null) {
             Log.d(TAG, "Event is null after toObject() - creating new Event");
             event = new Event();
@@ -371,82 +897,16 @@ public class LotteryService {
     }
 
     /**
-     * Parses entrant list from Firestore map structure where keys are emails
+     * Parses an entrant list stored in any supported format.
+     *
+     * @see EntrantList#fromFirestoreMap(Map)
      */
     private EntrantList parseEntrantListFromFirestoreMap(Map<String, Object> listData) {
-        Log.d(TAG, "parseEntrantListFromFirestoreMap called with: " + listData);
-
-        EntrantList entrantList = new EntrantList();
-
-        if (listData == null) {
-            Log.d(TAG, "List data is null - returning empty list");
-            return entrantList;
-        }
-
-        Log.d(TAG, "Processing " + listData.size() + " entries in list data");
-
-        // Check if this is the array-based structure (with allEntrants and waitList arrays)
-        if (listData.containsKey("allEntrants") || listData.containsKey("waitList")) {
-            Log.d(TAG, "Found array-based list structure");
-
-            // Try to parse from waitList array first, fall back to allEntrants
-            List<Map<String, Object>> entrantArray = null;
-            if (listData.containsKey("waitList") && listData.get("waitList") instanceof List) {
-                entrantArray = (List<Map<String, Object>>) listData.get("waitList");
-            } else if (listData.containsKey("allEntrants") && listData.get("allEntrants") instanceof List) {
-                entrantArray = (List<Map<String, Object>>) listData.get("allEntrants");
-            }
-
-            if (entrantArray != null) {
-                Log.d(TAG, "Processing " + entrantArray.size() + " entrants from array");
-                for (Map<String, Object> entrantData : entrantArray) {
-                    Entrant entrant = createEntrantFromMap(entrantData);
-                    if (entrant != null && entrant.getEmail() != null) {
-                        entrantList.addEntrant(entrant);
-                    }
-                }
-            }
-        } else {
-            // This is the simple map structure (email -> entrant data)
-            Log.d(TAG, "Found simple map structure");
-            for (Map.Entry<String, Object> entry : listData.entrySet()) {
-                String key = entry.getKey();
-                Object value = entry.getValue();
-
-                if (value instanceof Map) {
-                    Map<String, Object> entrantData = (Map<String, Object>) value;
-                    Entrant entrant = createEntrantFromMap(entrantData);
-                    if (entrant != null && entrant.getEmail() != null) {
-                        entrantList.addEntrant(entrant);
-                    }
-                }
-            }
-        }
-
-        Log.d(TAG, "Final parsed entrant list size: " + entrantList.size());
+        EntrantList entrantList = EntrantList.fromFirestoreMap(listData);
+        Log.d(TAG, "Parsed entrant list size: " + entrantList.size());
         return entrantList;
     }
 
-    /**
-     * Helper method to create Entrant from map data
-     */
-    private Entrant createEntrantFromMap(Map<String, Object> entrantData) {
-        if (entrantData == null) return null;
-
-        Entrant entrant = new Entrant();
-        entrant.setEmail((String) entrantData.get("email"));
-        entrant.setName((String) entrantData.get("name"));
-        entrant.setPhoneNumber((String) entrantData.get("phoneNumber"));
-        entrant.setUserType((String) entrantData.get("userType"));
-
-        // Handle password field if present
-        if (entrantData.containsKey("password")) {
-            // If your Entrant class has a password field, set it here
-            // entrant.setPassword((String) entrantData.get("password"));
-        }
-
-        return entrant;
-    }
     /**
      * Loads all entrant lists (waitlist, invited, accepted, declined) for the event.
      *
@@ -497,7 +957,7 @@ public class LotteryService {
      */
     protected int calculateAvailableSlots(Event event) {
         int entrantLimit = event.getSlots();
-        int acceptedCount = event.getAcceptedList() != null ? event.getAcceptedList().size() : 0;
+        int acceptedCount = event.countAccepted();
 
         int availableSlots = entrantLimit - acceptedCount;
         Log.d(TAG, "Available slots: " + availableSlots + " (Limit: " + entrantLimit +
@@ -507,162 +967,179 @@ public class LotteryService {
     }
 
     /**
-     * Filters out entrants who are already in invited, accepted, or declined lists.
+     * Calculates slots that are neither accepted nor held by a pending invite.
+     * Used by batch draws so re-running an event only fills newly opened slots.
      *
-     * @param waitlist The original waitlist
-     * @param event The event with all lists
-     * @return Filtered list of eligible entrants
+     * @param event The event to calculate slots for
+     * @return Number of open slots
      */
-    private List<Entrant> filterEligibleEntrants(EntrantList waitlist, Event event) {
-        List<Entrant> eligible = new ArrayList<>();
-
-        // Get all emails from other lists
-        Set<String> invitedEmails = getEmailSet(event.getInviteList());
-        Set<String> acceptedEmails = getEmailSet(event.getAcceptedList());
-        Set<String> declinedEmails = getEmailSet(event.getDeclinedList());
-
-        // Combine all excluded emails
-        Set<String> excludedEmails = new HashSet<>();
-        excludedEmails.addAll(invitedEmails);
-        excludedEmails.addAll(acceptedEmails);
-        excludedEmails.addAll(declinedEmails);
-
-        // Filter waitlist
-        for (int i = 0; i < waitlist.size(); i++) {
-            Entrant entrant = waitlist.getEntrant(i);
-            if (entrant != null && entrant.getEmail() != null) {
-                String email = entrant.getEmail();
-                if (!excludedEmails.contains(email)) {
-                    eligible.add(entrant);
-                }
-            }
-        }
-
-        Log.d(TAG, "Eligible entrants: " + eligible.size() + " out of " + waitlist.size());
-        return eligible;
+    protected int calculateOpenSlots(Event event) {
+        return Math.max(0, calculateAvailableSlots(event) - event.countInvited());
     }
 
     /**
-     * Gets a set of emails from an entrant list.
+     * Checks whether the batch runner should draw this event: registration has closed, there
+     * are open slots and eligible entrants, and either the lottery has never run or the event
+     * has more slots than when it was last drawn. An event drawn before {@code lastDrawnSlots}
+     * was recorded is read as drawn for its current slots (see {@link EventMapper}).
      *
-     * @param entrantList The entrant list to extract emails from
-     * @return Set of email addresses
+     * @param event The event to check
+     * @return true if the event is due for a draw
      */
-    private Set<String> getEmailSet(EntrantList entrantList) {
-        Set<String> emails = new HashSet<>();
-        if (entrantList != null) {
-            for (int i = 0; i < entrantList.size(); i++) {
-                Entrant entrant = entrantList.getEntrant(i);
-                if (entrant != null && entrant.getEmail() != null) {
-                    emails.add(entrant.getEmail());
-                }
-            }
+    public boolean isDueForDraw(@NonNull Event event) {
+        boolean neverDrawn = event.getLastLotteryRun() == null;
+        boolean slotsGrew = event.getSlots() > event.getLastDrawnSlots();
+        if (!neverDrawn && !slotsGrew) {
+            return false;
         }
-        return emails;
+        return calculateOpenSlots(event) > 0 && checkLotteryAvailability(event).isAvailable();
     }
 
     /**
-     * Randomly selects entrants from the eligible waitlist.
+     * Finds every event that is due for a draw (see {@link #isDueForDraw(Event)}).
+     * Only events whose registration end date is in the past are read.
      *
-     * @param eligibleEntrants List of eligible entrants
-     * @param count Number of entrants to select
-     * @return List of randomly selected entrants
+     * @return Future resolving with the IDs of due events
+     * @see BatchLotteryRunner
      */
-    private List<Entrant> selectRandomEntrants(List<Entrant> eligibleEntrants, int count) {
-        if (eligibleEntrants.size() <= count) {
-            // If we have fewer or equal eligible entrants than needed, return all
-            Log.d(TAG, "Selecting all " + eligibleEntrants.size() + " eligible entrants");
-            return new ArrayList<>(eligibleEntrants);
-        }
-
-        // Create a shuffled copy and take the first 'count' entrants
-        List<Entrant> shuffled = new ArrayList<>(eligibleEntrants);
-        Collections.shuffle(shuffled);
-
-        List<Entrant> selected = shuffled.subList(0, count);
-        Log.d(TAG, "Randomly selected " + selected.size() + " entrants from " +
-                eligibleEntrants.size() + " eligible");
+    public CompletableFuture<List<String>> findEventsDueForDraw() {
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+        db.collection("events")
+                .whereLessThan("regEndDate", new Date())
+                .get()
+                .addOnCompleteListener(task -> {
+                    if (!task.isSuccessful() || task.getResult() == null) {
+                        future.completeExceptionally(task.getException() != null
+                                ? task.getException() : new Exception("Failed to query events"));
+                        return;
+                    }
 
-        return selected;
+                    List<String> due = new ArrayList<>();
+                    for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                        Event event = parseEventDocument(doc);
+                        if (isDueForDraw(event)) {
+                            due.add(doc.getId());
+                        }
+                    }
+                    Log.d(TAG, "Events due for draw: " + due.size() + " of " + task.getResult().size());
+                    future.complete(due);
+                });
+        return future;
     }
 
     /**
-     * Moves selected entrants to invited list and sends notification invitations.
+     * Creates a runner that draws every due event using this service.
      *
-     * @param event The event
-     * @param selectedEntrants List of selected entrants
-     * @param callback Lottery completion callback
+     * @param maxParallel Maximum number of draws in flight at once
+     * @return Batch runner backed by Firestore
      */
-    private void moveToInvitedAndNotify(Event event, List<Entrant> selectedEntrants,
-                                        LotteryCallback callback) {
-        String eventId = event.getId();
-
-        EntrantList currentInviteList = event.getInviteList() != null ? event.getInviteList() : new EntrantList();
-        EntrantList waitlist = event.getWaitlist() != null ? event.getWaitlist() : new EntrantList();
+    public BatchLotteryRunner createBatchRunner(int maxParallel) {
+        return new BatchLotteryRunner(this::findEventsDueForDraw, this::drawOpenSlotsAsync, maxParallel);
+    }
 
-        for (Entrant entrant : selectedEntrants) {
-            currentInviteList.addEntrant(entrant);
-            waitlist.removeEntrant(entrant);
-        }
+    /**
+     * Draws the open slots of an event (slots not accepted and not held by a pending invite)
+     * and invites the selected entrants. Used by {@link BatchLotteryRunner}.
+     *
+     * @param eventId The event ID
+     * @return Future resolving with the number of entrants invited
+     */
+    public CompletableFuture<Integer> drawOpenSlotsAsync(@NonNull String eventId) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        commitDraw(eventId, "batch-draw", true, Integer.MAX_VALUE, true, false).addOnCompleteListener(task -> {
+            if (!task.isSuccessful() || task.getResult() == null) {
+                future.completeExceptionally(task.getException() != null
+                        ? task.getException() : new Exception("Batch draw failed"));
+                return;
+            }
 
-        event.setInviteList(currentInviteList);
-        event.setWaitlist(waitlist);
+            DrawOutcome outcome = task.getResult();
+            if (outcome.rejected) {
+                future.completeExceptionally(new Exception(outcome.message));
+                return;
+            }
+            if (outcome.selected.isEmpty()) {
+                future.complete(0);
+                return;
+            }
+            sendInvitationNotifications(outcome.event, outcome.selected, new LotteryCallback() {
+                @Override
+                public void onLotteryCompleted(int entrantsSelected, String message) {
+                    future.complete(entrantsSelected);
+                }
 
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("inviteList", convertEntrantListToMap(currentInviteList));
-        updates.put("waitlist", convertEntrantListToMap(waitlist));
-
-        db.collection("events").document(eventId)
-                .update(updates)
-                .addOnCompleteListener(dbTask -> {
-                    if (!dbTask.isSuccessful()) {
-                        Log.e(TAG, "Failed to update invite list and waitlist", dbTask.getException());
-                        callback.onLotteryFailed(dbTask.getException());
-                        return;
-                    }
-                    sendInvitationNotifications(event, selectedEntrants, callback);
-                });
+                @Override
+                public void onLotteryFailed(Exception exception) {
+                    future.completeExceptionally(exception);
+                }
+            });
+        });
+        return future;
     }
 
-
-
     /**
-     * Converts EntrantList to a Map for Firestore storage
+     * Filters out entrants who are already in invited, accepted, or declined lists.
+     *
+     * @param waitlist The original waitlist
+     * @param event The event with all lists
+     * @return Filtered list of eligible entrants
      */
-    private Map<String, Object> convertEntrantListToMap(EntrantList entrantList) {
-        Map<String, Object> map = new HashMap<>();
-
-
-        List<Map<String, Object>> allEntrantsArray = new ArrayList<>();
-        List<Map<String, Object>> waitListArray = new ArrayList<>();
+    private List<Entrant> filterEligibleEntrants(EntrantList waitlist, Event event) {
+        List<Entrant> eligible = new ArrayList<>();
+        EntrantList inviteList = event.getInviteList();
+        EntrantList acceptedList = event.getAcceptedList();
+        EntrantList declinedList = event.getDeclinedList();
 
-        for (int i = 0; i < entrantList.size(); i++) {
-            Entrant entrant = entrantList.getEntrant(i);
+        // Filter waitlist; each membership check is a keyed lookup
+        for (int i = 0; i < waitlist.size(); i++) {
+            Entrant entrant = waitlist.getEntrant(i);
             if (entrant != null && entrant.getEmail() != null) {
-                Map<String, Object> entrantMap = new HashMap<>();
-                entrantMap.put("name", entrant.getName());
-                entrantMap.put("email", entrant.getEmail());
-                entrantMap.put("phoneNumber", entrant.getPhoneNumber());
-                entrantMap.put("userType", entrant.getUserType());
-                // Add password field if it exists in your Entrant class
-                if (entrant.getPassword() != null) {
-                    entrantMap.put("password", entrant.getPassword());
+                String email = entrant.getEmail();
+                if (!isInList(inviteList, email) && !isInList(acceptedList, email)
+                        && !isInList(declinedList, email)) {
+                    eligible.add(entrant);
                 }
-
-                // Add to both arrays (based on your Firestore structure)
-                allEntrantsArray.add(entrantMap);
-                waitListArray.add(entrantMap);
             }
         }
 
-        // Build the final map structure
-        map.put("allEntrants", allEntrantsArray);
-        map.put("waitList", waitListArray);
+        Log.d(TAG, "Eligible entrants: " + eligible.size() + " out of " + waitlist.size());
+        return eligible;
+    }
 
-        Log.d(TAG, "Converted entrant list to map structure - allEntrants: " +
-                allEntrantsArray.size() + ", waitList: " + waitListArray.size());
+    /**
+     * Checks whether an entrant list contains the email.
+     *
+     * @param entrantList The entrant list to check, may be null
+     * @param email The email to look up
+     * @return true if the list contains the email
+     */
+    private boolean isInList(EntrantList entrantList, String email) {
+        return entrantList != null && entrantList.containsEntrant(email);
+    }
 
-        return map;
+    /**
+     * Randomly selects entrants from the eligible waitlist.
+     * Delegates to {@link LotterySelector}, which samples in O(count) time without
+     * copying or shuffling the whole eligible list.
+     *
+     * @param eligibleEntrants List of eligible entrants
+     * @param count Number of entrants to select
+     * @return List of randomly selected entrants
+     */
+    private List<Entrant> selectRandomEntrants(List<Entrant> eligibleEntrants, int count) {
+        List<Entrant> selected = selector.select(eligibleEntrants, count);
+        Log.d(TAG, "Randomly selected " + selected.size() + " entrants from " +
+                eligibleEntrants.size() + " eligible");
+        return selected;
+    }
+
+    /**
+     * Converts EntrantList to a Map for Firestore storage in the compact v2 format
+     *
+     * @see EntrantList#toFirestoreMap()
+     */
+    private Map<String, Object> convertEntrantListToMap(EntrantList entrantList) {
+        return entrantList.toFirestoreMap();
     }
 
     /**
@@ -696,34 +1173,34 @@ public class LotteryService {
             String organizerEmail = event.getOrganizer() != null ?
                     event.getOrganizer().getEmail() : "Unknown Organizer";
 
-            // Set expiration time (24 hours from now)
-            long expirationTime = System.currentTimeMillis() + (24 * 60 * 60 * 1000);
-
             // Create invites for each selected entrant
             List<Invite> invites = new ArrayList<>();
             for (Entrant entrant : selectedEntrants) {
                 if (entrant.getEmail() != null) {
-                    Invite invite = new Invite(
-                            event.getId(),
-                            entrant.getEmail(),
-                            eventName,
-                            organizerEmail,
-                            expirationTime
-                    );
-                    invites.add(invite);
-
-                    // Schedule auto-decline for each entrant
-                    scheduleAutoDecline(event.getId(), entrant.getEmail(), expirationTime);
+                    invites.add(new Invite(event.getId(), entrant.getEmail(), eventName, organizerEmail, 0));
                 }
             }
 
-            // Create invites in Firestore
-            inviteRepo.createInvites(invites)
+            // Set expiration time (24 hours from now, on server time). The deadline is persisted
+            // on the invite and enforced by InviteExpiryScheduler, so no per-entrant timer is needed.
+            inviteRepo.getServerTime()
+                    .continueWithTask(timeTask -> {
+                        if (!timeTask.isSuccessful()) {
+                            throw timeTask.getException();
+                        }
+                        long expirationTime = timeTask.getResult() + (24 * 60 * 60 * 1000);
+                        for (Invite invite : invites) {
+                            invite.setExpirationTime(expirationTime);
+                        }
+                        return inviteRepo.createInvites(invites);
+                    })
                     .addOnCompleteListener(inviteTask -> {
                         if (inviteTask.isSuccessful()) {
-                            Log.d(TAG, "Successfully created invites for " + invites.size() + " entrants");
-                            callback.onLotteryCompleted(invites.size(),
-                                    "Lottery completed. " + invites.size() + " entrants invited.");
+                            // Entrants that already hold a pending or accepted invite are not counted
+                            int created = inviteTask.getResult();
+                            Log.d(TAG, "Created " + created + " invites for " + invites.size() + " entrants");
+                            callback.onLotteryCompleted(created,
+                                    "Lottery completed. " + created + " entrants invited.");
                         } else {
                             Log.e(TAG, "Failed to create invites", inviteTask.getException());
                             callback.onLotteryCompleted(invites.size(),
@@ -733,138 +1210,102 @@ public class LotteryService {
         }
 
     /**
-     * Automatically resamples from waitlist when an entrant declines an invitation
+     * Expires an invitation whose deadline has passed and auto-declines its entrant.
+     * <p>
+     * The invite and the entrant's membership move through
+     * {@link #transitionInvitation(String, String, String)}, so an entrant who answered in the
+     * meantime keeps the answer. When the expiry applies, the entrant is notified and the
+     * freed slot, already recorded on the event in the same transaction, is queued on the
+     * {@link ResampleCoalescer}.
+     * </p>
      *
      * @param eventId The event ID
-     * @param declinedEntrantEmail The email of the entrant who declined
-     * @param callback Callback for result handling
+     * @param entrantEmail Email of the entrant whose invite expired
+     * @return Task containing the result of the transition
+     * @see InviteExpiryScheduler
      */
-    public void autoResampleForDecline(String eventId, String declinedEntrantEmail, LotteryCallback callback) {
-        Log.d(TAG, "Auto-resampling for declined invitation: " + declinedEntrantEmail);
-
-        getEventWithAllLists(eventId).addOnCompleteListener(task -> {
-            if (!task.isSuccessful() || task.getResult() == null) {
-                Log.e(TAG, "Failed to get event for auto-resample", task.getException());
-                callback.onLotteryFailed(task.getException());
-                return;
-            }
-
-            Event event = task.getResult();
-            int availableSlots = calculateAvailableSlots(event);
-
-            if (availableSlots <= 0) {
-                Log.d(TAG, "No available slots for auto-resample");
-                callback.onLotteryCompleted(0, "No available slots for auto-resample");
-                return;
+    public Task<InvitationResult> expireInvitation(@NonNull String eventId, @NonNull String entrantEmail) {
+        return runInvitationTransition(eventId, entrantEmail, "expired").continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
             }
-
-            // Get eligible waitlist (excluding already invited/accepted/declined)
-            EntrantList waitlist = event.getWaitlist();
-            List<Entrant> eligibleWaitlist = filterEligibleEntrants(waitlist, event);
-
-            if (eligibleWaitlist.isEmpty()) {
-                Log.d(TAG, "No eligible entrants for auto-resample");
-                callback.onLotteryCompleted(0, "No eligible entrants available for auto-resample");
-                return;
+            InvitationOutcome outcome = task.getResult();
+            if (outcome.result == InvitationResult.APPLIED) {
+                sendAutoDeclineNotification(outcome.event, entrantEmail);
+                resampleCoalescer.recordDeclines(eventId, 1);
             }
+            return outcome.result;
+        });
+    }
 
-            // Select one new entrant
-            List<Entrant> selectedEntrants = selectRandomEntrants(eligibleWaitlist, 1);
-
-            if (selectedEntrants.isEmpty()) {
-                callback.onLotteryCompleted(0, "No entrants selected for auto-resample");
-                return;
+    /**
+     * Queues on this service's coalescer the freed slots recorded on events in
+     * {@code pendingResample}, including those of processes that ended before resampling
+     * them. Slots this service already holds are not queued twice.
+     *
+     * @return Task containing the number of events with slots waiting to be refilled
+     * @see InviteExpiryScheduler
+     */
+    public Task<Integer> resumePendingResamples() {
+        return db.collection("events").whereGreaterThan(PENDING_RESAMPLE, 0).get().continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
             }
-
-            // Add the new entrant to invite list and send notification
-            moveToInvitedAndNotify(event, selectedEntrants, new LotteryCallback() {
-                @Override
-                public void onLotteryCompleted(int entrantsSelected, String message) {
-                    Log.d(TAG, "Auto-resample completed: " + message);
-                    callback.onLotteryCompleted(entrantsSelected,
-                            "Replaced declined invitation with new entrant: " + selectedEntrants.get(0).getEmail());
-                }
-
-                @Override
-                public void onLotteryFailed(Exception exception) {
-                    Log.e(TAG, "Auto-resample failed", exception);
-                    callback.onLotteryFailed(exception);
+            for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                Long pending = doc.getLong(PENDING_RESAMPLE);
+                if (pending != null && pending > 0) {
+                    resampleCoalescer.restorePending(doc.getId(), pending.intValue());
                 }
-            });
+            }
+            return task.getResult().size();
         });
     }
+
     /**
-     * Schedules automatic decline for unanswered invitations
-     */
-    /**
-     * Schedules automatic decline for unanswered invitations
+     * Draws up to {@code count} replacement entrants for declined slots, logging the result.
+     * This is the action run by the {@link ResampleCoalescer} for each batch.
+     *
+     * @param eventId The event ID
+     * @param count Number of declined slots to refill
      */
-    private void scheduleAutoDecline(String eventId, String entrantEmail, long expirationTime) {
-        long delay = expirationTime - System.currentTimeMillis();
-
-        // Only schedule if delay is positive
-        if (delay <= 0) {
-            Log.d(TAG, "No need to schedule auto-decline - already expired");
-            return;
-        }
-
-        Log.d(TAG, "Scheduling auto-decline for " + entrantEmail + " in " + delay + "ms");
+    public void resampleDeclinedSlots(String eventId, int count) {
+        resampleDeclinedSlots(eventId, count, new LotteryCallback() {
+            @Override
+            public void onLotteryCompleted(int entrantsSelected, String message) {
+                Log.d(TAG, "Resampled " + entrantsSelected + " of " + count + " declined slots: " + message);
+            }
 
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            // Check if invite is still pending in the invites collection
-            inviteRepo.getInviteByEventAndRecipient(eventId, entrantEmail)
-                    .addOnCompleteListener(inviteTask -> {
-                        if (inviteTask.isSuccessful() && inviteTask.getResult() != null) {
-                            Invite invite = inviteTask.getResult();
-                            if ("pending".equals(invite.getStatus())) {
-                                // Update invite status to expired
-                                inviteRepo.updateInviteStatus(invite.getInviteId(), "expired")
-                                        .addOnCompleteListener(updateTask -> {
-                                            if (updateTask.isSuccessful()) {
-                                                Log.d(TAG, "Auto-expired invite for: " + entrantEmail);
-                                            } else {
-                                                Log.e(TAG, "Failed to expire invite", updateTask.getException());
-                                            }
-                                        });
-
-            // Check if entrant is still in invite list (hasn't responded)
-            getEventWithAllLists(eventId).addOnCompleteListener(task -> {
-                if (task.isSuccessful() && task.getResult() != null) {
-                    Event event = task.getResult();
-                    EntrantList inviteList = event.getInviteList();
-
-                    if (inviteList != null && inviteList.containsEntrant(entrantEmail)) {
-                        // Auto-decline if still in invite list
-                        Log.d(TAG, "Auto-declining invitation for: " + entrantEmail);
-                        handleInvitationResponse(eventId, entrantEmail, false, new InvitationResponseCallback() {
-                            @Override
-                            public void onResponseSuccess(boolean accepted) {
-                                Log.d(TAG, "Auto-decline successful for: " + entrantEmail);
-                            }
+            @Override
+            public void onLotteryFailed(Exception exception) {
+                Log.e(TAG, "Resample of " + count + " declined slots failed", exception);
+            }
+        });
+    }
 
-                            @Override
-                            public void onResponseFailed(Exception exception) {
-                                Log.e(TAG, "Auto-decline failed for: " + entrantEmail, exception);
-                            }
-                        });
+    /**
+     * Draws up to {@code count} replacement entrants for slots freed by declines or expiries,
+     * committing them in one transaction and inviting them. No more entrants are drawn than
+     * the event still has queued in {@code pendingResample}.
+     *
+     * @param eventId The event ID
+     * @param count Number of declined slots to refill
+     * @param callback Callback for result handling
+     */
+    public void resampleDeclinedSlots(String eventId, int count, LotteryCallback callback) {
+        commitDraw(eventId, "auto-resample", false, count, false, true).addOnCompleteListener(task -> {
+            if (!task.isSuccessful() || task.getResult() == null) {
+                Log.e(TAG, "Resample commit failed", task.getException());
+                callback.onLotteryFailed(task.getException());
+                return;
+            }
 
-                        // Send auto-decline notification
-                        sendAutoDeclineNotification(event, entrantEmail);
-                    } else {
-                        Log.d(TAG, "Entrant already responded: " + entrantEmail);
-                    }
-                } else {
-                    Log.e(TAG, "Failed to check invite list status for auto-decline", task.getException());
-                                    }
-                                });
-                            } else {
-                                Log.d(TAG, "Invite already responded: " + entrantEmail);
-                            }
-                        } else {
-                            Log.d(TAG, "Invite not found or already removed: " + entrantEmail);
-                }
-            });
-        }, delay);
+            DrawOutcome outcome = task.getResult();
+            if (outcome.selected.isEmpty()) {
+                callback.onLotteryCompleted(0, outcome.message);
+                return;
+            }
+            sendInvitationNotifications(outcome.event, outcome.selected, callback);
+        });
     }
 
     /**
@@ -890,117 +1331,270 @@ public class LotteryService {
                     }
                 });
     }
+    /**
+     * Outcome of moving an invitation out of the pending state.
+     */
+    public enum InvitationResult {
+        /** This call moved the invite and the entrant's membership. */
+        APPLIED,
+        /** The invite was already in the requested state; nothing was written. */
+        ALREADY_APPLIED,
+        /** The invite was already answered or expired the other way; nothing was written. */
+        CONFLICT,
+        /** The response deadline has passed; nothing was written. */
+        EXPIRED,
+        /** The entrant has no pending invite to this event. */
+        NOT_INVITED,
+        /** A transition of the same invite started by this service is still running. */
+        IN_PROGRESS
+    }
+
+    /**
+     * Result of an invitation transition, with the event and entrant it moved.
+     */
+    private static class InvitationOutcome {
+        final InvitationResult result;
+        final Event event;
+        final Entrant entrant;
+
+        InvitationOutcome(InvitationResult result, Event event, Entrant entrant) {
+            this.result = result;
+            this.event = event;
+            this.entrant = entrant;
+        }
+
+        static InvitationOutcome of(InvitationResult result) {
+            return new InvitationOutcome(result, null, null);
+        }
+    }
+
     /**
      * Handles invitation response from entrant
      *
      * @param eventId The event ID
      * @param entrantEmail The entrant's email
      * @param accepted Whether the invitation was accepted
+     * @param callback Succeeds when the response is recorded, including when the same response
+     *                 was already recorded; fails when the invite expired or was answered
+     *                 otherwise
+     * @see #transitionInvitation(String, String, String)
      */
     public void handleInvitationResponse(String eventId, String entrantEmail, boolean accepted, InvitationResponseCallback callback) {
         Log.d(TAG, "Handling invitation response: " + entrantEmail + " accepted: " + accepted);
 
-        // First, update the invite status in the invites collection
         String inviteStatus = accepted ? "accepted" : "declined";
-        inviteRepo.getInviteByEventAndRecipient(eventId, entrantEmail)
-                .addOnCompleteListener(inviteTask -> {
-                    if (inviteTask.isSuccessful() && inviteTask.getResult() != null) {
-                        Invite invite = inviteTask.getResult();
-                        inviteRepo.updateInviteStatus(invite.getInviteId(), inviteStatus)
-                                .addOnCompleteListener(updateTask -> {
-                                    if (updateTask.isSuccessful()) {
-                                        Log.d(TAG, "Invite status updated to: " + inviteStatus);
-                                    } else {
-                                        Log.e(TAG, "Failed to update invite status", updateTask.getException());
-                                    }
-                                });
-                    } else {
-                        Log.w(TAG, "Invite not found in invites collection for event: " + eventId + ", user: " + entrantEmail);
-                    }
-                });
-
-        // Get event details
-        getEventWithAllLists(eventId).addOnCompleteListener(task -> {
-            if (!task.isSuccessful() || task.getResult() == null) {
-                Log.e(TAG, "Failed to get event for invitation response");
+        runInvitationTransition(eventId, entrantEmail, inviteStatus).addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Failed to record invitation response", task.getException());
                 callback.onResponseFailed(task.getException());
                 return;
             }
 
-            Event event = task.getResult();
-            EntrantList inviteList = event.getInviteList();
-            EntrantList acceptedList = event.getAcceptedList();
-            EntrantList declinedList = event.getDeclinedList();
-
-            // Find the entrant in invite list
-            Entrant respondingEntrant = null;
-            for (int i = 0; i < inviteList.size(); i++) {
-                Entrant entrant = inviteList.getEntrant(i);
-                if (entrant != null && entrantEmail.equals(entrant.getEmail())) {
-                    respondingEntrant = entrant;
+            InvitationOutcome outcome = task.getResult();
+            switch (outcome.result) {
+                case APPLIED:
                     break;
-                }
+                case ALREADY_APPLIED:
+                    // A repeated tap or retry; the first one sent the notifications
+                    callback.onResponseSuccess(accepted);
+                    return;
+                case EXPIRED:
+                    callback.onResponseFailed(new Exception("This invitation has expired"));
+                    return;
+                case IN_PROGRESS:
+                    callback.onResponseFailed(new Exception("Your response is already being processed"));
+                    return;
+                default:
+                    Log.w(TAG, "Invitation response " + outcome.result + " for " + entrantEmail);
+                    callback.onResponseFailed(new Exception("Invitation not found or already responded"));
+                    return;
             }
 
-            if (respondingEntrant == null) {
-                Log.e(TAG, "Entrant not found in invite list: " + entrantEmail);
+            Log.d(TAG, "Invitation " + inviteStatus + " by " + entrantEmail);
+            sendConfirmationNotification(outcome.event, outcome.entrant, accepted);
+
+            if (accepted) {
+                callback.onResponseSuccess(true);
                 return;
-                //callback.onResponseFailed(new Exception("Invitation not found or already responded"));
             }
 
-            // Remove from invite list
-            inviteList.removeEntrant(respondingEntrant);
+            // DECLINED: queue the freed slot; declines arriving together are resampled in one pass
+            resampleCoalescer.recordDeclines(eventId, 1);
+            callback.onResponseSuccess(false); // false = declined
+        });
+    }
 
-            // Add to appropriate list
-            if (accepted) {
-                acceptedList.addEntrant(respondingEntrant);
-                sendConfirmationNotification(event, respondingEntrant, true);
+    /**
+     * Moves a pending invitation to {@code accepted}, {@code declined} or {@code expired},
+     * together with the entrant's place in the event, in one transaction.
+     * <p>
+     * The transaction reads the invite and the entrant's membership (their member document,
+     * or the event's inline lists) and writes both or neither, so an accept racing an expiry
+     * or a decline has exactly one winner: the other reads the winner's status when Firestore
+     * re-runs it and reports {@link InvitationResult#CONFLICT}. Asking again for the state the
+     * invite is already in reports {@link InvitationResult#ALREADY_APPLIED} and writes
+     * nothing. Accepting or declining after the invite's deadline reports
+     * {@link InvitationResult#EXPIRED}; expiring does not check the deadline, which is the
+     * caller's decision. An accepted entrant moves to the accepted list, a declined or
+     * expired one to the declined list.
+     * </p>
+     * <p>
+     * Only the state change happens here; notifications and resampling are left to the
+     * caller.
+     * </p>
+     *
+     * @param eventId The event ID
+     * @param entrantEmail The entrant's email
+     * @param toStatus {@code "accepted"}, {@code "declined"} or {@code "expired"}
+     * @return Task containing the result of the transition
+     */
+    public Task<InvitationResult> transitionInvitation(@NonNull String eventId, @NonNull String entrantEmail,
+                                                       @NonNull String toStatus) {
+        return runInvitationTransition(eventId, entrantEmail, toStatus).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            return task.getResult().result;
+        });
+    }
 
-                updateEventLists(event, new InvitationResponseCallback() {
-                    @Override
-                    public void onResponseSuccess(boolean accepted) {
-                        callback.onResponseSuccess(accepted);
-                    }
+    private Task<InvitationOutcome> runInvitationTransition(String eventId, String entrantEmail, String toStatus) {
+        if (!"accepted".equals(toStatus) && !"declined".equals(toStatus) && !"expired".equals(toStatus)) {
+            return Tasks.forException(new IllegalArgumentException("Not an invitation outcome: " + toStatus));
+        }
+        String key = eventId + "/" + entrantEmail;
+        synchronized (transitionsInFlight) {
+            if (!transitionsInFlight.add(key)) {
+                return Tasks.forResult(InvitationOutcome.of(InvitationResult.IN_PROGRESS));
+            }
+        }
 
-                    @Override
-                    public void onResponseFailed(Exception exception) {
-                        callback.onResponseFailed(exception);
-                    }
-                });
-            }else {
-                // DECLINED: Add to declined list AND auto-resample
-                declinedList.addEntrant(respondingEntrant);
-                sendConfirmationNotification(event, respondingEntrant, false);
-
-                // First update the event lists
-                updateEventLists(event, new InvitationResponseCallback(){
-                    @Override
-                    public void onResponseSuccess(boolean accepted) {
-                        // Then auto-resample for the declined spot
-                        autoResampleForDecline(eventId, entrantEmail, new LotteryCallback() {
-                            @Override
-                            public void onLotteryCompleted(int entrantsSelected, String message) {
-                                Log.d(TAG, "Auto-resample completed after decline");
-                                callback.onResponseSuccess(false); // false = declined
-                            }
+        // Deadlines are set and checked on server time, as the expiry sweep does
+        Task<Long> timeTask = inviteRepo.getServerTime();
+        Task<Event> eventTask = readEvent(eventId);
+        Task<DocumentReference> inviteTask = inviteRepo.findInviteRef(eventId, entrantEmail);
+        return Tasks.whenAll(timeTask, eventTask, inviteTask).continueWithTask(readTask -> {
+            if (!readTask.isSuccessful()) {
+                return Tasks.<InvitationOutcome>forException(readTask.getException());
+            }
+            long now = timeTask.getResult();
+            Event event = eventTask.getResult();
+            DocumentReference inviteRef = inviteTask.getResult();
+            if (event.isMembersEnabled()) {
+                return transitionInvitedMember(event, inviteRef, entrantEmail, toStatus, now);
+            }
+            return transitionInvitedEntrant(eventId, inviteRef, entrantEmail, toStatus, now);
+        }).addOnCompleteListener(task -> {
+            synchronized (transitionsInFlight) {
+                transitionsInFlight.remove(key);
+            }
+        });
+    }
 
-                            @Override
-                            public void onLotteryFailed(Exception exception) {
-                                Log.e(TAG, "Auto-resample failed after decline", exception);
-                                // Still consider the decline successful even if resample fails
-                                callback.onResponseSuccess(false);
-                            }
-                        });
-                    }
+    private Task<InvitationOutcome> transitionInvitedMember(Event event, DocumentReference inviteRef,
+                                                            String entrantEmail, String toStatus, long now) {
+        String eventId = event.getId();
+        String memberStatus = "accepted".equals(toStatus) ? Member.STATUS_ACCEPTED : Member.STATUS_DECLINED;
+        return runLotteryTransaction("response", transaction -> {
+            // All reads must happen before any write in a transaction
+            DocumentSnapshot invite = inviteRef != null ? transaction.get(inviteRef) : null;
+            Member member = MembershipRepository.fromSnapshot(
+                    transaction.get(membershipRepo.member(eventId, entrantEmail)));
+
+            InvitationResult blocked = checkInvite(invite, toStatus, now);
+            if (blocked != null) {
+                return InvitationOutcome.of(blocked);
+            }
+            if (member == null || !Member.STATUS_INVITED.equals(member.getStatus())) {
+                return InvitationOutcome.of(member != null && memberStatus.equals(member.getStatus())
+                        ? InvitationResult.ALREADY_APPLIED : InvitationResult.NOT_INVITED);
+            }
 
-                    @Override
-                    public void onResponseFailed(Exception exception) {
-                        callback.onResponseFailed(exception);
-                    }
-                });
+            membershipRepo.transition(transaction, eventId, entrantEmail, Member.STATUS_INVITED, memberStatus);
+            writeInviteStatus(transaction, invite, toStatus);
+            if (Member.STATUS_DECLINED.equals(memberStatus)) {
+                queueResample(transaction, db.collection("events").document(eventId), 1);
             }
+            return new InvitationOutcome(InvitationResult.APPLIED, event, member.toEntrant());
         });
     }
+
+    private Task<InvitationOutcome> transitionInvitedEntrant(String eventId, DocumentReference inviteRef,
+                                                             String entrantEmail, String toStatus, long now) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        return runLotteryTransaction("response", transaction -> {
+            // All reads must happen before any write in a transaction
+            DocumentSnapshot invite = inviteRef != null ? transaction.get(inviteRef) : null;
+            Event event = readListEventInTransaction(transaction, eventRef);
+
+            InvitationResult blocked = checkInvite(invite, toStatus, now);
+            if (blocked != null) {
+                return InvitationOutcome.of(blocked);
+            }
+            EntrantList inviteList = event.getInviteList();
+            Entrant respondingEntrant = inviteList.removeEntrant(entrantEmail);
+            if (respondingEntrant == null) {
+                EntrantList target = "accepted".equals(toStatus) ? event.getAcceptedList() : event.getDeclinedList();
+                return InvitationOutcome.of(target.getEntrantByEmail(entrantEmail) != null
+                        ? InvitationResult.ALREADY_APPLIED : InvitationResult.NOT_INVITED);
+            }
+
+            if ("accepted".equals(toStatus)) {
+                event.getAcceptedList().addEntrant(respondingEntrant);
+            } else {
+                event.getDeclinedList().addEntrant(respondingEntrant);
+            }
+
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("inviteList", convertEntrantListToMap(inviteList));
+            updates.put("acceptedList", convertEntrantListToMap(event.getAcceptedList()));
+            updates.put("declinedList", convertEntrantListToMap(event.getDeclinedList()));
+            if (!"accepted".equals(toStatus)) {
+                updates.put(PENDING_RESAMPLE, FieldValue.increment(1));
+            }
+            transaction.update(eventRef, updates);
+            summaryRepo.updateCounts(transaction, eventId, EventSummaryRepository.countData(event));
+            writeInviteStatus(transaction, invite, toStatus);
+
+            return new InvitationOutcome(InvitationResult.APPLIED, event, respondingEntrant);
+        });
+    }
+
+    /**
+     * Checks whether an invite read in a transaction may move to {@code toStatus}.
+     *
+     * @return Why it may not, or null if it may. Entrants without an invite document, drawn
+     * before invites were stored, are decided by their membership alone.
+     */
+    private static InvitationResult checkInvite(DocumentSnapshot invite, String toStatus, long now) {
+        if (invite == null || !invite.exists()) {
+            return null;
+        }
+        String status = invite.getString("status");
+        if (toStatus.equals(status)) {
+            return InvitationResult.ALREADY_APPLIED;
+        }
+        if ("expired".equals(status)) {
+            return InvitationResult.EXPIRED;
+        }
+        if (!"pending".equals(status)) {
+            return InvitationResult.CONFLICT;
+        }
+        Long expirationTime = invite.getLong("expirationTime");
+        if (!"expired".equals(toStatus) && expirationTime != null && expirationTime > 0
+                && now >= expirationTime) {
+            return InvitationResult.EXPIRED;
+        }
+        return null;
+    }
+
+    private static void writeInviteStatus(Transaction transaction, DocumentSnapshot invite, String toStatus) {
+        if (invite != null && invite.exists()) {
+            transaction.update(invite.getReference(), "status", toStatus,
+                    "respondedAt", FieldValue.serverTimestamp());
+        }
+    }
+
     /**
      * Re-samples the lottery, replacing pending invites with new selections
      *
@@ -1010,97 +1604,249 @@ public class LotteryService {
     public void resampleLottery(@NonNull String eventId, @NonNull LotteryCallback callback) {
         Log.d(TAG, "Re-sampling lottery for event: " + eventId);
 
-        getEventWithAllLists(eventId).addOnCompleteListener(eventTask -> {
-            if (!eventTask.isSuccessful() || eventTask.getResult() == null) {
-                Log.e(TAG, "Failed to get event details for re-sample", eventTask.getException());
-                callback.onLotteryFailed(eventTask.getException());
-                return;
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        readEvent(eventId).continueWithTask(readTask -> {
+            if (!readTask.isSuccessful()) {
+                return Tasks.forException(readTask.getException());
             }
+            if (readTask.getResult().isMembersEnabled()) {
+                return resampleMembers(eventId);
+            }
+            return runLotteryTransaction("resample", transaction -> {
+                Event event = readListEventInTransaction(transaction, eventRef);
 
-            Event event = eventTask.getResult();
+                // Calculate how many slots need to be filled (available slots + pending invites)
+                int availableSlots = calculateAvailableSlots(event);
+                int pendingInvites = event.getInviteList() != null ? event.getInviteList().size() : 0;
+                int totalSlotsToFill = availableSlots + pendingInvites;
 
-            // Calculate how many slots need to be filled (available slots + pending invites)
-            int availableSlots = calculateAvailableSlots(event);
-            int pendingInvites = event.getInviteList() != null ? event.getInviteList().size() : 0;
-            int totalSlotsToFill = availableSlots + pendingInvites;
+                Log.d(TAG, String.format("Re-sample: Available slots: %d, Pending invites: %d, Total to fill: %d",
+                        availableSlots, pendingInvites, totalSlotsToFill));
 
-            Log.d(TAG, String.format("Re-sample: Available slots: %d, Pending invites: %d, Total to fill: %d",
-                    availableSlots, pendingInvites, totalSlotsToFill));
+                if (totalSlotsToFill <= 0) {
+                    return DrawOutcome.empty("No slots available for re-sampling");
+                }
 
-            if (totalSlotsToFill <= 0) {
-                callback.onLotteryCompleted(0, "No slots available for re-sampling");
-                return;
-            }
+                // Get eligible waitlist (excluding accepted and declined, but including current invitees who will be replaced)
+                List<Entrant> eligibleWaitlist = filterEligibleEntrantsForResample(event.getWaitlist(), event);
+                if (eligibleWaitlist.isEmpty()) {
+                    return DrawOutcome.empty("No eligible entrants available for re-sampling");
+                }
 
-            // Get eligible waitlist (excluding accepted and declined, but including current invitees who will be replaced)
-            EntrantList waitlist = event.getWaitlist();
-            List<Entrant> eligibleWaitlist = filterEligibleEntrantsForResample(waitlist, event);
+                List<Entrant> selectedEntrants = selectRandomEntrants(eligibleWaitlist, totalSlotsToFill);
+                if (selectedEntrants.isEmpty()) {
+                    return DrawOutcome.empty("No entrants selected for re-sampling");
+                }
 
-            if (eligibleWaitlist.isEmpty()) {
-                callback.onLotteryCompleted(0, "No eligible entrants available for re-sampling");
+                // Invitees drawn again keep their invite; the others' invites are read so they
+                // expire in this transaction, before any write
+                EntrantList redrawn = new EntrantList();
+                for (Entrant entrant : selectedEntrants) {
+                    redrawn.addEntrant(entrant);
+                }
+                List<DocumentSnapshot> replacedInvites = new ArrayList<>();
+                for (Entrant entrant : event.getInviteList().getAllEntrants()) {
+                    if (entrant != null && entrant.getEmail() != null
+                            && redrawn.getEntrantByEmail(entrant.getEmail()) == null) {
+                        replacedInvites.add(transaction.get(inviteRepo.invite(eventId, entrant.getEmail())));
+                    }
+                }
+
+                // Replace the invite list with the new selections
+                event.setInviteList(redrawn);
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("inviteList", convertEntrantListToMap(event.getInviteList()));
+                transaction.update(eventRef, updates);
+                summaryRepo.updateCounts(transaction, eventId, EventSummaryRepository.countData(event));
+                for (DocumentSnapshot invite : replacedInvites) {
+                    expireReplacedInvite(transaction, invite);
+                }
+
+                return DrawOutcome.drawn(event, selectedEntrants);
+            });
+        }).addOnCompleteListener(task -> {
+            if (!task.isSuccessful() || task.getResult() == null) {
+                Log.e(TAG, "Failed to update invite list for re-sample", task.getException());
+                callback.onLotteryFailed(task.getException());
                 return;
             }
 
-            // Select new entrants
-            List<Entrant> selectedEntrants = selectRandomEntrants(eligibleWaitlist, totalSlotsToFill);
-
-            if (selectedEntrants.isEmpty()) {
-                callback.onLotteryCompleted(0, "No entrants selected for re-sampling");
+            DrawOutcome outcome = task.getResult();
+            if (outcome.selected.isEmpty()) {
+                callback.onLotteryCompleted(0, outcome.message);
                 return;
             }
 
-            // Expire old pending invites for this event before creating new ones
-            EntrantList oldInviteList = event.getInviteList();
-            if (oldInviteList != null && oldInviteList.size() > 0) {
-                List<Task<Void>> expireTasks = new ArrayList<>();
-                for (int i = 0; i < oldInviteList.size(); i++) {
-                    Entrant entrant = oldInviteList.getEntrant(i);
-                    if (entrant != null && entrant.getEmail() != null) {
-                        inviteRepo.getInviteByEventAndRecipient(eventId, entrant.getEmail())
-                                .addOnCompleteListener(inviteTask -> {
-                                    if (inviteTask.isSuccessful() && inviteTask.getResult() != null) {
-                                        Invite oldInvite = inviteTask.getResult();
-                                        if ("pending".equals(oldInvite.getStatus())) {
-                                            inviteRepo.updateInviteStatus(oldInvite.getInviteId(), "expired");
-                                        }
-                                    }
-                                });
-                    }
-                }
+            // Send notifications to newly selected entrants
+            sendInvitationNotifications(outcome.event, outcome.selected, callback);
+        });
+    }
+
+    /**
+     * Expires the invite of an invitee a resample replaced, read earlier in the same
+     * transaction, if it is still pending. Expiring does not check the deadline. Invites
+     * stored under random IDs before IDs were derived are not read here; the state machine
+     * already refuses them because their entrant is no longer invited, and the expiry sweep
+     * closes them at their deadline.
+     */
+    private static void expireReplacedInvite(Transaction transaction, DocumentSnapshot invite) {
+        if (invite.exists() && checkInvite(invite, "expired", 0) == null) {
+            writeInviteStatus(transaction, invite, "expired");
+        }
+    }
+
+    /**
+     * Writes a lottery operation adds to each transaction of {@link #moveMembers}.
+     */
+    private interface ChunkWrites {
+        /**
+         * Reads the writes depend on, before the chunk's members are read and moved.
+         *
+         * @param transaction The chunk's transaction
+         * @param eventId The event ID
+         * @param emails Emails of the chunk's members
+         */
+        default void read(Transaction transaction, String eventId, List<String> emails)
+                throws FirebaseFirestoreException {
+        }
+
+        /**
+         * @param transaction The chunk's transaction, after its reads
+         * @param moved Members the chunk moved
+         */
+        void apply(Transaction transaction, List<Member> moved);
+    }
+
+    /**
+     * Moves members between statuses in transactional chunks of
+     * {@link MembershipRepository#TRANSACTION_CHUNK_SIZE}, one after another, each recorded in
+     * {@link #getCommitStats()} and committing its {@code chunkWrites} with its members. The
+     * first chunk that fails fails the move; {@code moved} then holds what earlier chunks moved.
+     *
+     * @param operation Name used for logging and statistics
+     * @param eventId The event ID
+     * @param emails Emails of the members to move
+     * @param from Status the members must currently have
+     * @param to New status, or null to remove the members
+     * @param chunkWrites Writes to add to each chunk, may be null
+     * @param moved Collects the members moved, with their previous status
+     * @return Task containing {@code moved} once every chunk committed
+     */
+    private Task<List<Member>> moveMembers(String operation, String eventId, List<String> emails, String from,
+                                           String to, ChunkWrites chunkWrites, List<Member> moved) {
+        return moveMembersFrom(0, operation, eventId, emails, from, to, chunkWrites, moved);
+    }
+
+    private Task<List<Member>> moveMembersFrom(int start, String operation, String eventId, List<String> emails,
+                                               String from, String to, ChunkWrites chunkWrites,
+                                               List<Member> moved) {
+        if (start >= emails.size()) {
+            return Tasks.forResult(moved);
+        }
+        int end = Math.min(start + MembershipRepository.TRANSACTION_CHUNK_SIZE, emails.size());
+        List<String> chunk = new ArrayList<>(emails.subList(start, end));
+        return runLotteryTransaction(operation, transaction -> {
+            if (chunkWrites != null) {
+                chunkWrites.read(transaction, eventId, chunk);
+            }
+            List<Member> chunkMoved = membershipRepo.transition(transaction, eventId, chunk, from, to);
+            if (chunkWrites != null) {
+                chunkWrites.apply(transaction, chunkMoved);
+            }
+            return chunkMoved;
+        }).continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                return Tasks.forException(task.getException());
             }
+            moved.addAll(task.getResult());
+            return moveMembersFrom(end, operation, eventId, emails, from, to, chunkWrites, moved);
+        });
+    }
 
-            // Clear current invite list and add new selections
-            event.setInviteList(new EntrantList());
-            for (Entrant entrant : selectedEntrants) {
-                event.getInviteList().addEntrant(entrant);
+    /**
+     * Re-samples a members-subcollection event: reserves the available slots plus the pending
+     * invites in one transaction (see {@link #reserveSlots}), removes every pending invitee and
+     * invites a new sample of waiting members into the reserved slots.
+     */
+    private Task<DrawOutcome> resampleMembers(String eventId) {
+        return reserveSlots(eventId, "resample", false, Integer.MAX_VALUE, false,
+                event -> calculateAvailableSlots(event) + event.countInvited()).continueWithTask(reserveTask -> {
+            if (!reserveTask.isSuccessful()) {
+                return Tasks.forException(reserveTask.getException());
+            }
+            SlotReservation reservation = reserveTask.getResult();
+            if (reservation.count == 0) {
+                return Tasks.forResult(reservation.outcome);
             }
 
-            // Update event in Firestore and send notifications
-            updateEventWithNewInvites(event, selectedEntrants, callback);
+            Task<List<Member>> invitedTask = membershipRepo.getMembers(eventId, Member.STATUS_INVITED);
+            Task<List<Member>> sampleTask = sampleMembers(eventId, Member.STATUS_WAITING, reservation.count);
+            List<Member> replaced = new ArrayList<>();
+            return Tasks.whenAll(invitedTask, sampleTask).continueWithTask(readTask -> {
+                if (!readTask.isSuccessful()) {
+                    return Tasks.<List<Member>>forException(readTask.getException());
+                }
+                return moveMembers("resample", eventId, emailsOf(invitedTask.getResult()),
+                        Member.STATUS_INVITED, null, new ExpireReplacedInvites(), replaced);
+            }).continueWithTask(removeTask -> {
+                if (!removeTask.isSuccessful()) {
+                    return releaseReservation(reservation, reservation.count, false)
+                            .continueWithTask(releaseTask -> Tasks.<List<Entrant>>forException(removeTask.getException()));
+                }
+                return fillReservation("resample", reservation, sampleTask.getResult());
+            }).continueWith(fillTask -> {
+                if (!fillTask.isSuccessful()) {
+                    throw fillTask.getException();
+                }
+                List<Entrant> selected = fillTask.getResult();
+                return selected.isEmpty()
+                        ? DrawOutcome.empty("No entrants selected for re-sampling")
+                        : DrawOutcome.drawn(reservation.event, selected);
+            });
         });
     }
 
+    /**
+     * Expires, in each chunk's transaction, the pending invites of the invitees a resample
+     * removes.
+     */
+    private class ExpireReplacedInvites implements ChunkWrites {
+        /** The chunk's invites by email, read in the current attempt. */
+        private final Map<String, DocumentSnapshot> invites = new HashMap<>();
+
+        @Override
+        public void read(Transaction transaction, String eventId, List<String> emails)
+                throws FirebaseFirestoreException {
+            invites.clear();
+            for (String email : emails) {
+                invites.put(email, transaction.get(inviteRepo.invite(eventId, email)));
+            }
+        }
+
+        @Override
+        public void apply(Transaction transaction, List<Member> moved) {
+            for (Member member : moved) {
+                expireReplacedInvite(transaction, invites.get(member.getEmail()));
+            }
+        }
+    }
+
     /**
      * Filters eligible entrants for re-sampling (includes current invitees since they'll be replaced)
      */
     private List<Entrant> filterEligibleEntrantsForResample(EntrantList waitlist, Event event) {
         List<Entrant> eligible = new ArrayList<>();
 
-        // Get emails from accepted and declined lists only
-        Set<String> acceptedEmails = getEmailSet(event.getAcceptedList());
-        Set<String> declinedEmails = getEmailSet(event.getDeclinedList());
-
-        // Combine excluded emails (don't exclude current invitees since we're replacing them)
-        Set<String> excludedEmails = new HashSet<>();
-        excludedEmails.addAll(acceptedEmails);
-        excludedEmails.addAll(declinedEmails);
+        // Exclude accepted and declined entrants only (current invitees are being replaced)
+        EntrantList acceptedList = event.getAcceptedList();
+        EntrantList declinedList = event.getDeclinedList();
 
         // Filter waitlist
         for (int i = 0; i < waitlist.size(); i++) {
             Entrant entrant = waitlist.getEntrant(i);
             if (entrant != null && entrant.getEmail() != null) {
                 String email = entrant.getEmail();
-                if (!excludedEmails.contains(email)) {
+                if (!isInList(acceptedList, email) && !isInList(declinedList, email)) {
                     eligible.add(entrant);
                 }
             }
@@ -1110,52 +1856,6 @@ public class LotteryService {
         return eligible;
     }
 
-    /**
-     * Updates event with new invite list and sends notifications
-     */
-    private void updateEventWithNewInvites(Event event, List<Entrant> selectedEntrants, LotteryCallback callback) {
-        String eventId = event.getId();
-
-        // Update the invite list in Firestore
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("inviteList", convertEntrantListToMap(event.getInviteList()));
-
-        db.collection("events").document(eventId)
-                .update(updates)
-                .addOnCompleteListener(dbTask -> {
-                    if (!dbTask.isSuccessful()) {
-                        Log.e(TAG, "Failed to update invite list for re-sample", dbTask.getException());
-                        callback.onLotteryFailed(dbTask.getException());
-                        return;
-                    }
-
-                    // Send notifications to newly selected entrants
-                    sendInvitationNotifications(event, selectedEntrants, callback);
-                });
-    }
-
-    /**
-     * Updates all event lists in Firestore
-     */
-    private void updateEventLists(Event event, InvitationResponseCallback callback) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("inviteList", convertEntrantListToMap(event.getInviteList()));
-        updates.put("acceptedList", convertEntrantListToMap(event.getAcceptedList()));
-        updates.put("declinedList", convertEntrantListToMap(event.getDeclinedList()));
-
-        db.collection("events").document(event.getId())
-                .update(updates)
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        Log.d(TAG, "Successfully updated event lists");
-                        callback.onResponseSuccess(true);
-                    } else {
-                        Log.e(TAG, "Failed to update event lists", task.getException());
-                        callback.onResponseFailed(task.getException());
-                    }
-                });
-    }
-
     /**
      * Sends confirmation notification to entrant
      * Uses "Confirmation" groupType to ensure it displays as a regular text notification, not an invitation
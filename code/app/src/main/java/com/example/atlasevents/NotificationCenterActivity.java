@@ -9,6 +9,7 @@ import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 import com.example.atlasevents.data.model.Notification;
@@ -18,7 +19,9 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import com.example.atlasevents.User;
 import com.bumptech.glide.Glide;
+import com.example.atlasevents.data.EventPager;
 import com.example.atlasevents.data.EventRepository;
+import com.example.atlasevents.utils.PagingScrollListener;
 
 import java.util.ArrayList;
 
@@ -56,6 +59,14 @@ public class NotificationCenterActivity extends AppCompatActivity {
      * Session manager to get current organizer's email
      */
     private Session session;
+    /**
+     * Loads the organizer's events page by page
+     */
+    private EventPager eventPager;
+    /**
+     * Requests the next page as the organizer scrolls towards the end
+     */
+    private PagingScrollListener scrollListener;
 
     /**
      * Called when the activity is created.
@@ -101,12 +112,12 @@ public class NotificationCenterActivity extends AppCompatActivity {
     }
 
     /**
-     * Loads all events that belong to the current organizer from Firebase.
+     * Loads the events that belong to the current organizer from Firebase.
      * <p>
      * This method:
-     * 1. Gets all events from the database
-     * 2. Filters them to only show events where the organizer's email matches
-     * 3. Shows either the event list or an empty state message
+     * 1. Queries the database for the first page of events where the organizer's email matches
+     * 2. Shows either the event list or an empty state message
+     * 3. Loads further pages as the organizer scrolls
      */
     private void loadOrganizerEvents() {
         // Get the organizer's email from the session
@@ -119,50 +130,48 @@ public class NotificationCenterActivity extends AppCompatActivity {
             return;
         }
 
-        // Fetch all events from Firebase
-        eventRepository.getAllEvents(new EventRepository.EventsCallback() {
-            @Override
-            public void onSuccess(ArrayList<Event> events) {
-                // Filter to only show this organizer's events
-                ArrayList<Event> organizerEvents = new ArrayList<>();
-
-                for (Event event : events) {
-                    // Check if this event belongs to the current organizer
-                    if (event.getOrganizer() != null &&
-                            event.getOrganizer().getEmail() != null &&
-                            event.getOrganizer().getEmail().equals(organizerEmail)) {
-                        organizerEvents.add(event);
+        // Fetch this organizer's events from Firebase, a page at a time
+        eventPager = eventRepository.pageEventsByOrganizer(organizerEmail, EventPager.DEFAULT_PAGE_SIZE,
+                EventPager.DEFAULT_PREFETCH_DISTANCE, new EventPager.PageCallback() {
+                    @Override
+                    public void onPage(ArrayList<Event> events, boolean firstPage, boolean hasMore) {
+                        // Show either the events or an empty message
+                        if (firstPage && events.isEmpty()) {
+                            showEmptyView();
+                            return;
+                        }
+                        showEventsList(events, firstPage);
+                        eventsContainer.post(scrollListener::check);
                     }
-                }
-
-                // Show either the events or an empty message
-                if (organizerEvents.isEmpty()) {
-                    showEmptyView();
-                } else {
-                    showEventsList(organizerEvents);
-                }
-            }
 
-            @Override
-            public void onFailure(Exception e) {
-                // Something went wrong loading events
-                Log.e(TAG, "Failed to load events", e);
-                showEmptyView();
-            }
-        });
+                    @Override
+                    public void onFailure(Exception e) {
+                        // Something went wrong loading events
+                        Log.e(TAG, "Failed to load events", e);
+                        if (eventPager.getLoadedCount() == 0) {
+                            showEmptyView();
+                        }
+                    }
+                });
+        ScrollView scrollView = findViewById(R.id.notification_center_scroll);
+        scrollListener = PagingScrollListener.attach(scrollView, eventsContainer, eventPager);
+        eventPager.loadNextPage();
     }
 
     /**
-     * Displays the list of events as clickable cards.
+     * Displays a page of events as clickable cards.
      * Each card shows the event name and opens ComposeNotificationActivity when clicked.
      *
-     * @param events List of events to display
+     * @param events Page of events to display
+     * @param firstPage True to replace the cards already shown
      */
-    private void showEventsList(ArrayList<Event> events) {
+    private void showEventsList(ArrayList<Event> events, boolean firstPage) {
         // Hide empty view, show events container
         emptyView.setVisibility(View.GONE);
         eventsContainer.setVisibility(View.VISIBLE);
-        eventsContainer.removeAllViews(); // Clear any old cards
+        if (firstPage) {
+            eventsContainer.removeAllViews(); // Clear any old cards
+        }
 
         LayoutInflater inflater = LayoutInflater.from(this);
 
@@ -38,7 +38,7 @@ public class Organizer extends User implements Serializable {
      * @param password The password for the organizer's account
      * @param phoneNumber The phone number of the organizer
      */
-    private NotificationRepository notificationRepository;
+    private transient NotificationRepository notificationRepository;
     public Organizer(String name, String email, String password, String phoneNumber) {
         super(name, email, password, phoneNumber);
         this.setUserType("Organizer");
@@ -53,7 +53,6 @@ public class Organizer extends User implements Serializable {
     
     public Organizer(){
         this.setUserType("Organizer");
-         this.notificationRepository = new NotificationRepository();
     }
 
     /**
@@ -81,7 +80,7 @@ public class Organizer extends User implements Serializable {
 
     public void sendSingleNotification(String title, String message, Event event, Entrant entrant) {
         Notification notification = new Notification(title, message, event.getId(), this.getEmail(), event.getEventName(), "Direct message");
-        notificationRepository.sendToUser(entrant.getEmail(), notification);
+        notificationRepository().sendToUser(entrant.getEmail(), notification);
     }
 
     /**
@@ -137,7 +136,17 @@ public class Organizer extends User implements Serializable {
         }
         
         Notification notification = new Notification(title, message, event.getId(), this.getEmail(), event.getEventName(), "Batch message");
-        notificationRepository.sendToUsers(emails, notification);
+        notificationRepository().sendToUsers(emails, notification);
     }
 
-}
\ No newline at end of file
+    /**
+     * Returns the repository used to send notifications, created on first use so that
+     * organizers loaded with an event do not each connect to Firestore.
+     */
+    private NotificationRepository notificationRepository() {
+        if (notificationRepository == null) {
+            notificationRepository = new NotificationRepository();
+        }
+        return notificationRepository;
+    }
+}
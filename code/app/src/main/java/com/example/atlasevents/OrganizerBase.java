@@ -98,10 +98,12 @@ public abstract class OrganizerBase extends AppCompatActivity {
     protected void onStart() {
         super.onStart();
         // No badges for organizer
+        InviteExpiryScheduler.getInstance().start();
     }
 
     @Override
     protected void onStop() {
+        InviteExpiryScheduler.getInstance().stop();
         super.onStop();
     }
 
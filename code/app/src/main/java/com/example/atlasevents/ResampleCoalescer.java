@@ -0,0 +1,251 @@
+package com.example.atlasevents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects declined or expired invitations per event and triggers one resample per burst.
+ * <p>
+ * Without coalescing, every decline re-reads the event, draws one replacement and rewrites the
+ * lists. With this class, the first decline for an event opens a window of
+ * {@link #getWindowMillis()}; all declines for that event arriving within the window are summed
+ * and handed to the {@link ResampleAction} as a single request for N replacements. If the
+ * pending count reaches {@link #getMaxBatchSize()} before the window closes, a batch is
+ * dispatched immediately so a single resample never grows without bound.
+ * </p>
+ * <p>
+ * This class has no Android or Firebase dependencies; the resample itself is supplied by the
+ * caller (normally {@link LotteryService#resampleDeclinedSlots}).
+ * </p>
+ *
+ * @see LotteryService#getResampleCoalescer()
+ */
+public class ResampleCoalescer {
+
+    /** Default time declines are collected before resampling. */
+    public static final long DEFAULT_WINDOW_MS = 10_000;
+
+    /** Default maximum number of replacements drawn by one resample. */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    /**
+     * Performs the actual resample for an event.
+     */
+    public interface ResampleAction {
+        /**
+         * Draws up to {@code count} replacement entrants for the event.
+         *
+         * @param eventId The event ID
+         * @param count Number of declined slots to refill
+         */
+        void resample(String eventId, int count);
+    }
+
+    private final ResampleAction action;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Integer> pendingDeclines = new HashMap<>();
+    private final Map<String, ScheduledFuture<?>> windowTimers = new HashMap<>();
+
+    private volatile long windowMillis;
+    private volatile int maxBatchSize;
+
+    private final AtomicLong declinesRecorded = new AtomicLong();
+    private final AtomicLong resamplesDispatched = new AtomicLong();
+
+    /** Daemon thread shared by every coalescer created without an explicit scheduler. */
+    private static ScheduledExecutorService sharedScheduler;
+
+    /**
+     * Creates a coalescer with the default window and batch size, backed by a single daemon
+     * thread shared with every other coalescer created this way.
+     *
+     * @param action Resample to run for each batch
+     */
+    public ResampleCoalescer(ResampleAction action) {
+        this(action, DEFAULT_WINDOW_MS, DEFAULT_MAX_BATCH_SIZE, getSharedScheduler());
+    }
+
+    private static synchronized ScheduledExecutorService getSharedScheduler() {
+        if (sharedScheduler == null) {
+            sharedScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ResampleCoalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedScheduler;
+    }
+
+    /**
+     * Creates a coalescer with explicit configuration.
+     *
+     * @param action Resample to run for each batch
+     * @param windowMillis How long declines for an event are collected before resampling
+     * @param maxBatchSize Maximum replacements per resample; reaching it flushes immediately
+     * @param scheduler Executor used to close collection windows
+     */
+    public ResampleCoalescer(ResampleAction action, long windowMillis, int maxBatchSize,
+                             ScheduledExecutorService scheduler) {
+        if (action == null || scheduler == null) {
+            throw new IllegalArgumentException("Action and scheduler cannot be null");
+        }
+        this.action = action;
+        this.scheduler = scheduler;
+        setWindowMillis(windowMillis);
+        setMaxBatchSize(maxBatchSize);
+    }
+
+    /**
+     * Records declined invitations for an event. The resample for them runs when the event's
+     * window closes or as soon as a full batch has accumulated.
+     *
+     * @param eventId The event ID
+     * @param count Number of invitations declined or expired
+     */
+    public void recordDeclines(String eventId, int count) {
+        if (eventId == null || count <= 0) {
+            return;
+        }
+        declinesRecorded.addAndGet(count);
+
+        List<Integer> batches = new ArrayList<>();
+        synchronized (this) {
+            Integer current = pendingDeclines.get(eventId);
+            int total = (current != null ? current : 0) + count;
+            int max = maxBatchSize;
+            while (total >= max) {
+                batches.add(max);
+                total -= max;
+            }
+
+            if (total > 0) {
+                pendingDeclines.put(eventId, total);
+                if (!windowTimers.containsKey(eventId)) {
+                    windowTimers.put(eventId,
+                            scheduler.schedule(() -> flush(eventId), windowMillis, TimeUnit.MILLISECONDS));
+                }
+            } else {
+                pendingDeclines.remove(eventId);
+                cancelTimer(eventId);
+            }
+        }
+
+        for (int batch : batches) {
+            dispatch(eventId, batch);
+        }
+    }
+
+    /**
+     * Makes sure at least {@code count} declines are pending for the event. Used for declines
+     * persisted on the event by a process that ended before resampling them: declines this
+     * coalescer already holds for the event are not counted twice.
+     *
+     * @param eventId The event ID
+     * @param count Number of declines persisted for the event
+     */
+    public void restorePending(String eventId, int count) {
+        int missing = count - getPendingCount(eventId);
+        if (missing > 0) {
+            recordDeclines(eventId, missing);
+        }
+    }
+
+    /**
+     * Immediately resamples any declines pending for the event.
+     *
+     * @param eventId The event ID
+     */
+    public void flush(String eventId) {
+        Integer count;
+        synchronized (this) {
+            count = pendingDeclines.remove(eventId);
+            cancelTimer(eventId);
+        }
+        if (count != null && count > 0) {
+            dispatch(eventId, count);
+        }
+    }
+
+    /**
+     * Immediately resamples pending declines for every event.
+     */
+    public void flushAll() {
+        List<String> eventIds;
+        synchronized (this) {
+            eventIds = new ArrayList<>(pendingDeclines.keySet());
+        }
+        for (String eventId : eventIds) {
+            flush(eventId);
+        }
+    }
+
+    /**
+     * @param eventId The event ID
+     * @return Declines waiting for the event's window to close
+     */
+    public synchronized int getPendingCount(String eventId) {
+        Integer count = pendingDeclines.get(eventId);
+        return count != null ? count : 0;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Sets the collection window. Takes effect for windows opened after the call.
+     *
+     * @param windowMillis Window length in milliseconds (0 resamples on the scheduler right away)
+     */
+    public void setWindowMillis(long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Window cannot be negative");
+        }
+        this.windowMillis = windowMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of replacements drawn by one resample.
+     *
+     * @param maxBatchSize Batch size, at least 1
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /** @return Total declines recorded */
+    public long getDeclinesRecorded() {
+        return declinesRecorded.get();
+    }
+
+    /** @return Total resamples dispatched; compare with {@link #getDeclinesRecorded()} */
+    public long getResamplesDispatched() {
+        return resamplesDispatched.get();
+    }
+
+    private void cancelTimer(String eventId) {
+        ScheduledFuture<?> timer = windowTimers.remove(eventId);
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    private void dispatch(String eventId, int count) {
+        resamplesDispatched.incrementAndGet();
+        action.resample(eventId, count);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.atlasevents;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds the keywords used to search events by name and tags in Firestore.
+ * <p>
+ * Each word of the name and tags contributes its edge n-grams: its prefixes from
+ * {@link #MIN_GRAM_LENGTH} up to {@link #MAX_GRAM_LENGTH} characters. A word therefore adds at
+ * most seven keywords however long it is, and an event adds at most {@link #MAX_KEYWORDS}
+ * however many tags it has, with name keywords kept first. Queries longer than the cap look up
+ * their capped prefix and the matches are checked against the whole query with
+ * {@link #matches(String, String, List)}.
+ * </p>
+ * <p>
+ * Text is normalized the same way for indexing and querying: lowercased, with accents removed
+ * and split at every character that is not a letter or digit.
+ * </p>
+ *
+ * @see com.example.atlasevents.data.SearchIndexRepository
+ */
+public final class SearchKeywords {
+
+    /** Shortest prefix indexed; single letters match too many events to be useful. */
+    public static final int MIN_GRAM_LENGTH = 2;
+    /** Longest prefix indexed; longer queries are narrowed on the client. */
+    public static final int MAX_GRAM_LENGTH = 8;
+    /** Maximum keywords stored for one event. */
+    public static final int MAX_KEYWORDS = 100;
+
+    private SearchKeywords() {
+    }
+
+    /**
+     * Builds the keywords for an event.
+     *
+     * @param eventName The event name, may be null
+     * @param tags The event tags, may be null
+     * @return Distinct keywords, name keywords first
+     */
+    public static List<String> build(String eventName, List<String> tags) {
+        LinkedHashSet<String> keywords = new LinkedHashSet<>();
+        addEdgeGrams(keywords, eventName);
+        if (tags != null) {
+            for (String tag : tags) {
+                addEdgeGrams(keywords, tag);
+            }
+        }
+
+        List<String> result = new ArrayList<>(Math.min(keywords.size(), MAX_KEYWORDS));
+        for (String keyword : keywords) {
+            if (result.size() == MAX_KEYWORDS) {
+                break;
+            }
+            result.add(keyword);
+        }
+        return result;
+    }
+
+    private static void addEdgeGrams(LinkedHashSet<String> keywords, String value) {
+        for (String token : tokenize(value)) {
+            int longest = Math.min(token.length(), MAX_GRAM_LENGTH);
+            for (int i = MIN_GRAM_LENGTH; i <= longest; i++) {
+                keywords.add(token.substring(0, i));
+            }
+        }
+    }
+
+    /**
+     * Chooses the keyword to look a query up by: its longest word, which is usually the most
+     * selective, capped at {@link #MAX_GRAM_LENGTH} characters.
+     *
+     * @param query Text typed by the user
+     * @return The keyword, or null if no word of the query is long enough to be indexed
+     */
+    public static String queryKeyword(String query) {
+        String longest = null;
+        for (String token : tokenize(query)) {
+            if (longest == null || token.length() > longest.length()) {
+                longest = token;
+            }
+        }
+        if (longest == null || longest.length() < MIN_GRAM_LENGTH) {
+            return null;
+        }
+        return longest.length() > MAX_GRAM_LENGTH ? longest.substring(0, MAX_GRAM_LENGTH) : longest;
+    }
+
+    /**
+     * Checks that every word of a query is a prefix of a word in an event's name or tags.
+     *
+     * @param query Text typed by the user
+     * @param eventName The event name, may be null
+     * @param tags The event tags, may be null
+     * @return True if the event matches the whole query
+     */
+    public static boolean matches(String query, String eventName, List<String> tags) {
+        List<String> words = tokenize(eventName);
+        if (tags != null) {
+            for (String tag : tags) {
+                words.addAll(tokenize(tag));
+            }
+        }
+        for (String queryToken : tokenize(query)) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the storage Firestore counts for a keyword array: each string is its UTF-8
+     * length plus one byte.
+     *
+     * @param keywords The keywords
+     * @return Size in bytes
+     */
+    public static long storageBytes(List<String> keywords) {
+        long bytes = 0;
+        for (String keyword : keywords) {
+            bytes += keyword.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        return bytes;
+    }
+
+    /**
+     * Lowercases text and strips accents, so "Café" and "cafe" match.
+     *
+     * @param text Text to normalize, may be null
+     * @return Normalized text, empty for null
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                builder.append(c);
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ROOT).trim();
+    }
+
+    /**
+     * Splits text into normalized words at every character that is not a letter or digit.
+     *
+     * @param text Text to split, may be null
+     * @return Words in order, without empty strings
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.atlasevents.data;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.GeoPoint;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the size of Firestore documents using Firestore's storage size rules, to report how
+ * many bytes a change reads or saves.
+ * <p>
+ * Strings count their UTF-8 length plus one byte; numbers, dates and timestamps 8 bytes;
+ * booleans and nulls 1 byte; geo points 16 bytes; arrays and maps the sum of their contents,
+ * with map keys counted as strings. A document adds its name and 32 bytes.
+ * </p>
+ */
+public final class DocumentSize {
+
+    private DocumentSize() {
+    }
+
+    /**
+     * @param doc A document snapshot
+     * @return Estimated size in bytes, 0 if the document does not exist
+     */
+    public static long of(@NonNull DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? ofDocument(doc.getReference().getPath(), data) : 0;
+    }
+
+    /**
+     * @param path The document path, such as {@code events/abc}
+     * @param data The document data
+     * @return Estimated size in bytes
+     */
+    public static long ofDocument(@NonNull String path, @NonNull Map<String, Object> data) {
+        return ofName(path) + ofValue(data) + 32;
+    }
+
+    /**
+     * @param value A field value
+     * @return Estimated size in bytes
+     */
+    public static long ofValue(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof String) {
+            return ofString((String) value);
+        }
+        if (value instanceof Number || value instanceof Date || value instanceof Timestamp) {
+            return 8;
+        }
+        if (value instanceof GeoPoint) {
+            return 16;
+        }
+        if (value instanceof DocumentReference) {
+            return ofName(((DocumentReference) value).getPath());
+        }
+        long size = 0;
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += ofString(String.valueOf(entry.getKey())) + ofValue(entry.getValue());
+            }
+        } else if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                size += ofValue(item);
+            }
+        }
+        return size;
+    }
+
+    private static long ofString(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length + 1;
+    }
+
+    private static long ofName(String path) {
+        long size = 16;
+        for (String segment : path.split("/")) {
+            size += ofString(segment);
+        }
+        return size;
+    }
+}
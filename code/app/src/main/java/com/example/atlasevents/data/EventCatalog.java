@@ -0,0 +1,204 @@
+package com.example.atlasevents.data;
+
+import android.util.Log;
+
+import com.example.atlasevents.Event;
+import com.example.atlasevents.EventSearchIndex;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cached catalog of open events, kept in an {@link EventSearchIndex} so the search screen can
+ * answer each keystroke locally instead of querying Firestore.
+ * <p>
+ * The catalog listens to the same query as {@link EventRepository#getAvailableEvents}, on the
+ * small {@code eventSummaries} documents rather than the events themselves, or on the event
+ * documents while the summaries backfill has not run. The first snapshot fills the index
+ * (from the local cache when offline persistence has it) and every later snapshot applies
+ * only its document changes, so keeping the catalog current costs one read per changed event
+ * rather than a new query per search.
+ * </p>
+ * <p>
+ * Like {@link com.example.atlasevents.InviteExpiryScheduler}, the listener is reference
+ * counted: it is attached by the first {@link #start()} and detached by the last
+ * {@link #stop()}. The index is kept while detached so searches still answer from it, and
+ * is rebuilt from the first snapshot after the listener is attached again, since that
+ * snapshot only reports the events that currently match and not the ones removed in the
+ * meantime. All methods must be called on the main thread.
+ * </p>
+ *
+ * @see EventSearchIndex
+ */
+public class EventCatalog {
+    private static final String TAG = "EventCatalog";
+
+    /**
+     * Receives a callback whenever the catalog's contents change.
+     */
+    public interface Listener {
+        void onCatalogChanged();
+    }
+
+    private static EventCatalog instance;
+
+    private final FirebaseFirestore db;
+    private final MigrationRepository migrations;
+    private final EventSearchIndex index = new EventSearchIndex();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private ListenerRegistration registration;
+    private boolean attaching = false;
+    private int activeClients = 0;
+    private boolean loaded = false;
+
+    /**
+     * Returns the process-wide catalog, creating it on first use.
+     *
+     * @return The shared catalog
+     */
+    public static synchronized EventCatalog getInstance() {
+        if (instance == null) {
+            instance = new EventCatalog(FirebaseFirestore.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Constructor for dependency injection (for testing)
+     *
+     * @param db Firestore instance
+     */
+    public EventCatalog(FirebaseFirestore db) {
+        this.db = db;
+        this.migrations = new MigrationRepository(db);
+    }
+
+    /**
+     * Registers a client and attaches the snapshot listener if it is the first one.
+     */
+    public void start() {
+        activeClients++;
+        if (activeClients == 1 && registration == null && !attaching) {
+            attach();
+        }
+    }
+
+    /**
+     * Picks the collection once the summaries marker has been checked and attaches the
+     * listener, unless every client stopped in the meantime.
+     */
+    private void attach() {
+        attaching = true;
+        migrations.isComplete(MigrationRepository.SUMMARIES).addOnCompleteListener(check -> {
+            attaching = false;
+            if (activeClients == 0 || registration != null) {
+                return;
+            }
+            String collection = check.isSuccessful() && check.getResult()
+                    ? EventSummaryRepository.SUMMARIES_COLLECTION
+                    : "events";
+            boolean[] first = {true};
+            registration = db.collection(collection)
+                    .whereGreaterThan("slots", 0)
+                    .addSnapshotListener((snapshot, error) -> {
+                        if (error != null) {
+                            Log.e(TAG, "Event catalog listener failed", error);
+                            return;
+                        }
+                        if (snapshot == null) {
+                            return;
+                        }
+                        if (first[0]) {
+                            // Events deleted or filled while detached are not reported as
+                            // removals, so replace the index with what matches now
+                            first[0] = false;
+                            index.clear();
+                            for (DocumentSnapshot document : snapshot.getDocuments()) {
+                                index.put(EventMapper.fromSnapshot(document));
+                            }
+                        } else {
+                            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                                if (change.getType() == DocumentChange.Type.REMOVED) {
+                                    index.remove(change.getDocument().getId());
+                                } else {
+                                    index.put(EventMapper.fromSnapshot(change.getDocument()));
+                                }
+                            }
+                        }
+                        if (!loaded) {
+                            loaded = true;
+                            Log.d(TAG, "Loaded " + index.size() + " events, "
+                                    + index.tokenCount() + " tokens");
+                        }
+                        notifyListeners();
+                    });
+        });
+    }
+
+    /**
+     * Unregisters a client and detaches the snapshot listener when the last one stops.
+     */
+    public void stop() {
+        if (activeClients > 0) {
+            activeClients--;
+        }
+        if (activeClients == 0 && registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    /**
+     * @return True once the first snapshot has been applied
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Number of cached events
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Searches the cached events by name and tags.
+     *
+     * @param query Text typed by the user
+     * @param limit Maximum number of results
+     * @return Matching events, best match first
+     * @see EventSearchIndex#search(String, int)
+     */
+    public ArrayList<Event> search(String query, int limit) {
+        return new ArrayList<>(index.search(query, limit));
+    }
+
+    /**
+     * @return Every cached event
+     */
+    public ArrayList<Event> getAll() {
+        return new ArrayList<>(index.getAll());
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onCatalogChanged();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.atlasevents.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.atlasevents.EntrantList;
+import com.example.atlasevents.Event;
+import com.example.atlasevents.Organizer;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts event documents to {@link Event} objects without reflection.
+ * <p>
+ * {@link DocumentSnapshot#toObject(Class)} inspects the class's getters and setters on every call
+ * and goes through every bean property of {@link Event}, {@link EntrantList} and
+ * {@link Organizer}. This mapper reads the fields it knows from the document's data map directly,
+ * which is noticeably cheaper when a screen loads hundreds or thousands of events. Fields that
+ * are missing keep the defaults of a new {@link Event}.
+ * </p>
+ * <p>
+ * When a field is added to {@link Event} it must also be added here, or it will silently stay at
+ * its default when events are loaded, and to {@link #changes(Event)}, or edits to it will not be
+ * saved.
+ * </p>
+ *
+ * @see EventRepository
+ */
+public final class EventMapper {
+
+    private EventMapper() {
+    }
+
+    /**
+     * Converts an event document, or an {@code eventSummaries} document into an event with only
+     * the summary fields set (see {@link Event#isSummary()}).
+     *
+     * @param doc The event document
+     * @return The event, or null if the document does not exist
+     */
+    @Nullable
+    public static Event fromSnapshot(@NonNull DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? fromMap(doc.getId(), data) : null;
+    }
+
+    /**
+     * Converts the data of an event document. The event starts tracking changes once it has
+     * been read.
+     *
+     * @param documentId The document ID, used when the data has no {@code id} field
+     * @param data The document data
+     * @return The event
+     */
+    @NonNull
+    public static Event fromMap(@Nullable String documentId, @NonNull Map<String, Object> data) {
+        Event event = new Event();
+
+        String id = string(data.get("id"));
+        event.setId(id != null ? id : documentId);
+        event.setOrganizer(organizer(data.get("organizer")));
+        event.setAddress(string(data.get("address")));
+        event.setDescription(string(data.get("description")));
+        event.setLocation(data.get("location") instanceof GeoPoint ? (GeoPoint) data.get("location") : null);
+        event.setDate(date(data.get("date")));
+        event.setRegStartDate(date(data.get("regStartDate")));
+        event.setRegEndDate(date(data.get("regEndDate")));
+        event.setTime(string(data.get("time")));
+        event.setSlots(intValue(data.get("slots"), 0));
+        event.setRequireGeolocation(Boolean.TRUE.equals(data.get("requireGeolocation")));
+        event.setEntrantLimit(intValue(data.get("entrantLimit"), -1));
+        event.setLastLotteryRun(date(data.get("lastLotteryRun")));
+        // Draws recorded before lastDrawnSlots existed covered the slots the event has now
+        event.setLastDrawnSlots(intValue(data.get("lastDrawnSlots"),
+                event.getLastLotteryRun() != null ? event.getSlots() : 0));
+        event.setPendingResample(intValue(data.get("pendingResample"), 0));
+
+        String imageUrl = string(data.get("imageUrl"));
+        if (imageUrl != null) {
+            event.setImageUrl(imageUrl);
+        }
+
+        event.setMembersEnabled(Boolean.TRUE.equals(data.get("membersEnabled")));
+        event.setWaitingCount(intValue(data.get("waitingCount"), 0));
+        event.setInvitedCount(intValue(data.get("invitedCount"), 0));
+        event.setAcceptedCount(intValue(data.get("acceptedCount"), 0));
+        event.setDeclinedCount(intValue(data.get("declinedCount"), 0));
+        event.setSummary(Boolean.TRUE.equals(data.get("summary")));
+        event.setVersion(data.get("version") instanceof Number ? ((Number) data.get("version")).longValue() : 0L);
+
+        event.setWaitlist(entrantList(data.get("waitlist")));
+        event.setInviteList(entrantList(data.get("inviteList")));
+        event.setAcceptedList(entrantList(data.get("acceptedList")));
+        event.setDeclinedList(entrantList(data.get("declinedList")));
+
+        Object coords = data.get("entrantCoords");
+        if (coords instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) coords).entrySet()) {
+                if (entry.getKey() instanceof String && entry.getValue() instanceof GeoPoint) {
+                    event.addToEntrantLocation((String) entry.getKey(), (GeoPoint) entry.getValue());
+                }
+            }
+        }
+
+        // The name and tags rebuild the search keywords; keywords stored on older event
+        // documents use the unbounded format and are ignored
+        event.setEventName(string(data.get("eventName")));
+        List<String> tags = strings(data.get("tags"));
+        if (tags != null) {
+            event.setTags(tags);
+        }
+        event.startTrackingChanges();
+        return event;
+    }
+
+    /**
+     * Builds the update for the fields changed on an event since it was read.
+     * <p>
+     * Counters and the membership flag are never included; they are written only by the
+     * transactions that move entrants. Entrant lists and join locations are included only for
+     * events that store them inline.
+     * </p>
+     *
+     * @param event An event tracking its changes
+     * @return Document fields to values, empty if nothing changed
+     * @see Event#getChangedFields()
+     */
+    @NonNull
+    public static Map<String, Object> changes(@NonNull Event event) {
+        Map<String, Object> changes = new HashMap<>();
+        for (String field : event.getChangedFields()) {
+            switch (field) {
+                case "eventName":
+                    changes.put(field, event.getEventName());
+                    break;
+                case "description":
+                    changes.put(field, event.getDescription());
+                    break;
+                case "address":
+                    changes.put(field, event.getAddress());
+                    break;
+                case "location":
+                    changes.put(field, event.getLocation());
+                    changes.put("geohash", event.getGeohash());
+                    break;
+                case "date":
+                    changes.put(field, event.getDate());
+                    break;
+                case "time":
+                    changes.put(field, event.getTime());
+                    break;
+                case "regStartDate":
+                    changes.put(field, event.getRegStartDate());
+                    break;
+                case "regEndDate":
+                    changes.put(field, event.getRegEndDate());
+                    break;
+                case "slots":
+                    changes.put(field, event.getSlots());
+                    break;
+                case "organizer":
+                    changes.put(field, event.getOrganizer());
+                    break;
+                case "imageUrl":
+                    changes.put(field, event.getImageUrl());
+                    break;
+                case "requireGeolocation":
+                    changes.put(field, event.getRequireGeolocation());
+                    break;
+                case "entrantLimit":
+                    changes.put(field, event.getEntrantLimit());
+                    break;
+                case "tags":
+                    changes.put(field, event.getTags());
+                    break;
+                case "lastLotteryRun":
+                    changes.put(field, event.getLastLotteryRun());
+                    break;
+                case "lastDrawnSlots":
+                    changes.put(field, event.getLastDrawnSlots());
+                    break;
+                case "waitlist":
+                case "inviteList":
+                case "acceptedList":
+                case "declinedList":
+                    if (!event.isMembersEnabled()) {
+                        EntrantList list = listOf(event, field);
+                        changes.put(field, (list != null ? list : new EntrantList()).toFirestoreMap());
+                    }
+                    break;
+                case "entrantCoords":
+                    if (!event.isMembersEnabled()) {
+                        changes.put(field, new HashMap<>(event.getEntrantCoords()));
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("No update for changed field " + field);
+            }
+        }
+        return changes;
+    }
+
+    private static EntrantList listOf(Event event, String field) {
+        switch (field) {
+            case "waitlist":
+                return event.getWaitlist();
+            case "inviteList":
+                return event.getInviteList();
+            case "acceptedList":
+                return event.getAcceptedList();
+            default:
+                return event.getDeclinedList();
+        }
+    }
+
+    private static Organizer organizer(Object value) {
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) value;
+        Organizer organizer = new Organizer();
+        organizer.setName(string(map.get("name")));
+        organizer.setEmail(string(map.get("email")));
+        organizer.setPhoneNumber(string(map.get("phoneNumber")));
+        String userType = string(map.get("userType"));
+        if (userType != null) {
+            organizer.setUserType(userType);
+        }
+        return organizer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static EntrantList entrantList(Object value) {
+        return EntrantList.fromFirestoreMap(value instanceof Map ? (Map<String, Object>) value : null);
+    }
+
+    private static String string(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static int intValue(Object value, int fallback) {
+        return value instanceof Number ? ((Number) value).intValue() : fallback;
+    }
+
+    private static Date date(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toDate();
+        }
+        return value instanceof Date ? (Date) value : null;
+    }
+
+    private static List<String> strings(Object value) {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (Object item : (List<?>) value) {
+            if (item instanceof String) {
+                result.add((String) item);
+            }
+        }
+        return result;
+    }
+}
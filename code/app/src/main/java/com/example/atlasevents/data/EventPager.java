@@ -0,0 +1,194 @@
+package com.example.atlasevents.data;
+
+import android.util.Log;
+
+import com.example.atlasevents.Event;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the events of an ordered query one page at a time, using the last document of each
+ * page as the cursor for the next.
+ * <p>
+ * Screens load the first page when they open and call {@link #onItemVisible(int)} as the user
+ * scrolls; the next page is requested once an item within the prefetch distance of the end
+ * becomes visible, so it usually arrives before the user reaches it. The cost of opening a
+ * screen therefore depends on the page size, not on how many events exist. Only one page is
+ * loaded at a time, and pages requested before {@link #reset()} are ignored when they arrive.
+ * All methods must be called on the main thread.
+ * </p>
+ *
+ * @see EventRepository#pageEvents(int, int, PageCallback)
+ */
+public class EventPager {
+    private static final String TAG = "EventPager";
+
+    /** Events per page when the screen does not choose. */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    /** How many items before the end of the loaded events the next page is requested. */
+    public static final int DEFAULT_PREFETCH_DISTANCE = 5;
+
+    /**
+     * Receives the pages of an {@link EventPager}.
+     */
+    public interface PageCallback {
+        /**
+         * Called when a page has loaded.
+         *
+         * @param events The events of the page, in query order
+         * @param firstPage True for the first page after creation or {@link #reset()}, when the
+         *                  screen should replace what it shows
+         * @param hasMore True if there may be more pages
+         */
+        void onPage(ArrayList<Event> events, boolean firstPage, boolean hasMore);
+
+        /**
+         * Called when a page fails to load. The page can be requested again.
+         *
+         * @param e The exception thrown.
+         */
+        void onFailure(Exception e);
+    }
+
+    private final Task<Query> query;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final PageCallback callback;
+
+    private DocumentSnapshot last;
+    private boolean loading;
+    private boolean exhausted;
+    private int loadedCount;
+    private int generation;
+
+    /**
+     * @param query An ordered query over event documents
+     * @param pageSize Events per page, at least 1
+     * @param prefetchDistance Items before the end at which the next page is requested
+     * @param callback Receives the pages
+     */
+    public EventPager(Query query, int pageSize, int prefetchDistance, PageCallback callback) {
+        this(Tasks.forResult(query), pageSize, prefetchDistance, callback);
+    }
+
+    /**
+     * Creates a pager whose query is only known once {@code query} completes, for queries
+     * that depend on a lookup such as a migration marker. Every page waits for it.
+     *
+     * @param query Task containing an ordered query over event documents
+     * @param pageSize Events per page, at least 1
+     * @param prefetchDistance Items before the end at which the next page is requested
+     * @param callback Receives the pages
+     */
+    public EventPager(Task<Query> query, int pageSize, int prefetchDistance, PageCallback callback) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.query = query;
+        this.pageSize = pageSize;
+        this.prefetchDistance = Math.max(0, prefetchDistance);
+        this.callback = callback;
+    }
+
+    /**
+     * Requests the next page, unless one is already loading or the last page has been
+     * delivered.
+     */
+    public void loadNextPage() {
+        if (loading || exhausted) {
+            return;
+        }
+        loading = true;
+        int requestGeneration = generation;
+        boolean firstPage = last == null;
+        DocumentSnapshot cursor = last;
+        query.continueWithTask(queryTask -> {
+            if (!queryTask.isSuccessful()) {
+                throw queryTask.getException();
+            }
+            Query page = queryTask.getResult().limit(pageSize);
+            if (cursor != null) {
+                page = page.startAfter(cursor);
+            }
+            return page.get();
+        }).addOnCompleteListener(task -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading = false;
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Failed to load page", task.getException());
+                callback.onFailure(task.getException());
+                return;
+            }
+            List<DocumentSnapshot> docs = task.getResult().getDocuments();
+            if (!docs.isEmpty()) {
+                last = docs.get(docs.size() - 1);
+            }
+            exhausted = docs.size() < pageSize;
+            ArrayList<Event> events = new ArrayList<>();
+            for (DocumentSnapshot doc : docs) {
+                Event event = EventMapper.fromSnapshot(doc);
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+            loadedCount += events.size();
+            callback.onPage(events, firstPage, !exhausted);
+        });
+    }
+
+    /**
+     * Tells the pager which item is visible furthest down the list, and loads the next page
+     * if it is within the prefetch distance of the end.
+     *
+     * @param position Index of the item among the events delivered so far
+     */
+    public void onItemVisible(int position) {
+        if (position >= loadedCount - 1 - prefetchDistance) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Starts again from the first page. Pages still loading are discarded.
+     */
+    public void reset() {
+        generation++;
+        last = null;
+        loading = false;
+        exhausted = false;
+        loadedCount = 0;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * @return False once a page shorter than the page size has been delivered
+     */
+    public boolean hasMore() {
+        return !exhausted;
+    }
+
+    /**
+     * @return Events delivered since creation or the last {@link #reset()}
+     */
+    public int getLoadedCount() {
+        return loadedCount;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPrefetchDistance() {
+        return prefetchDistance;
+    }
+}
@@ -1,19 +1,36 @@
 package com.example.atlasevents.data;
 
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.example.atlasevents.Entrant;
+import com.example.atlasevents.EntrantList;
 import com.example.atlasevents.Event;
+import com.example.atlasevents.GeoHash;
+import com.example.atlasevents.SearchKeywords;
+import com.example.atlasevents.data.model.Member;
 import com.example.atlasevents.utils.ImageUploader;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.TransactionOptions;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Repository class for handling CRUD operations on {@link Event} objects in Firebase Firestore.
@@ -24,6 +41,14 @@ import java.util.Locale;
  */
 public class EventRepository {
 
+    /**
+     * Attempts for a waitlist join or leave before it fails with ABORTED. Joins on a popular
+     * event all contend for the event document, so allow more retries than the default of 5.
+     */
+    private static final int MAX_WAITLIST_ATTEMPTS = 10;
+    private static final TransactionOptions WAITLIST_TRANSACTION_OPTIONS =
+            new TransactionOptions.Builder().setMaxAttempts(MAX_WAITLIST_ATTEMPTS).build();
+
     /** Reference to the Firestore database instance. */
     private FirebaseFirestore db;
 
@@ -32,22 +57,116 @@ public class EventRepository {
      */
     private ImageUploader uploader;
 
+    /** Membership writes for events that use the {@code members} subcollection. */
+    private MembershipRepository membershipRepository;
+
+    /** Search keywords, written alongside each event. */
+    private SearchIndexRepository searchIndexRepository;
+
+    /** Summaries for list screens, written alongside each event. */
+    private EventSummaryRepository summaryRepository;
+
+    /** Results of recent searches. */
+    private SearchResultCache searchCache;
+
+    /** Events shared between screens. */
+    private EventStore eventStore;
+
+    /** Markers of the one-time backfills, checked before dropping a legacy fallback. */
+    private MigrationRepository migrations;
+
     /** Initializes the repository and connects to Firestore. */
     public EventRepository() {
         db = FirebaseFirestore.getInstance();
         uploader = new ImageUploader();
+        membershipRepository = new MembershipRepository(db);
+        searchIndexRepository = new SearchIndexRepository(db);
+        summaryRepository = new EventSummaryRepository(db);
+        searchCache = SearchResultCache.getInstance();
+        eventStore = EventStore.getInstance();
+        migrations = new MigrationRepository(db);
+    }
+
+    /**
+     * Initializes the repository with a custom Firebase Firestore instance.
+     * For testing; image deletion is not available and searches and events use their own
+     * caches.
+     *
+     * @param db Firebase Firestore instance
+     */
+    public EventRepository(FirebaseFirestore db) {
+        this.db = db;
+        membershipRepository = new MembershipRepository(db);
+        searchIndexRepository = new SearchIndexRepository(db);
+        summaryRepository = new EventSummaryRepository(db);
+        searchCache = new SearchResultCache(db, SystemClock::elapsedRealtime);
+        eventStore = new EventStore(db, SystemClock::elapsedRealtime);
+        migrations = new MigrationRepository(db);
+    }
+
+    /**
+     * Outcome of {@link #joinWaitlist(String, Entrant, GeoPoint)}.
+     */
+    public enum JoinResult {
+        /** The entrant was added to the waitlist. */
+        JOINED,
+        /** The entrant is already on the waitlist, invited or accepted. */
+        ALREADY_JOINED,
+        /** The waitlist has reached the event's entrant limit. */
+        WAITLIST_FULL,
+        /** Registration has not started yet or has ended. */
+        REGISTRATION_CLOSED,
+        /** No event exists with the given ID. */
+        EVENT_NOT_FOUND
+    }
+
+    /**
+     * Outcome of {@link #saveEvent(Event)}.
+     */
+    public enum SaveResult {
+        /** The changes were written, or there were none. */
+        SAVED,
+        /** The event was saved by someone else since it was loaded; nothing was written. */
+        VERSION_CONFLICT,
+        /** No event exists with the given ID. */
+        EVENT_NOT_FOUND
+    }
+
+    /**
+     * Outcome of {@link #leaveWaitlist(String, String)}.
+     */
+    public enum LeaveResult {
+        /** The entrant was removed from the waitlist. */
+        LEFT,
+        /** The entrant is not on the waitlist (they may have been invited in the meantime). */
+        NOT_ON_WAITLIST,
+        /** No event exists with the given ID. */
+        EVENT_NOT_FOUND
     }
 
     /**
      * Adds a new event to Firestore.
+     * <p>
+     * New events store their entrants in the {@code members} subcollection. The event's search
+     * keywords and its summary are written to the {@code searchIndex} and
+     * {@code eventSummaries} collections in the same batch.
+     * </p>
      *
      * @param event The {@link Event} object to be added.
      * @return A {@link Task} that resolves with the document ID of the newly added event.
+     * @see MembershipRepository
+     * @see SearchIndexRepository
+     * @see EventSummaryRepository
      */
     public Task<String> addEvent(Event event) {
         DocumentReference docRef = db.collection("events").document();
         event.setId(docRef.getId()); // Assign Firestore document ID to the event object
-        return docRef.set(event)
+        event.setMembersEnabled(true);
+        WriteBatch batch = db.batch();
+        batch.set(docRef, event);
+        batch.set(searchIndexRepository.entry(docRef.getId()), SearchIndexRepository.entryData(event));
+        batch.set(summaryRepository.summary(docRef.getId()), EventSummaryRepository.summaryData(event));
+        return batch.commit()
                 .continueWith(task -> docRef.getId());
     }
 
@@ -102,7 +221,8 @@ public class EventRepository {
     }
 
     /**
-     * Fetches all events from Firestore.
+     * Fetches all events from Firestore. This reads the whole collection; screens that list
+     * events should page through them with {@link #pageEvents(int, int, EventPager.PageCallback)}.
      *
      * @param callback The {@link EventsCallback} to handle success or failure.
      */
@@ -112,7 +232,7 @@ public class EventRepository {
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     ArrayList<Event> events = new ArrayList<>();
                     for (DocumentSnapshot document : queryDocumentSnapshots) {
-                        Event event = document.toObject(Event.class);
+                        Event event = EventMapper.fromSnapshot(document);
                         if (event != null) {
                             events.add(event);
                         }
@@ -123,18 +243,91 @@ public class EventRepository {
     }
 
     /**
-     * Fetches only events that have available slots (open for registration).
+     * Pages through the summaries of all events in document ID order. Nothing is loaded until
+     * {@link EventPager#loadNextPage()} is called. Pages come from the event documents until
+     * the summaries backfill has run.
+     *
+     * @param pageSize Events per page
+     * @param prefetchDistance Items before the end at which the next page is requested
+     * @param callback Receives the pages
+     * @return The pager
+     */
+    public EventPager pageEvents(int pageSize, int prefetchDistance, EventPager.PageCallback callback) {
+        Task<Query> query = summariesReady().continueWith(task -> task.getResult()
+                ? summaryRepository.summaries().orderBy(FieldPath.documentId())
+                : db.collection("events").orderBy(FieldPath.documentId()));
+        return new EventPager(query, pageSize, prefetchDistance, callback);
+    }
+
+    /**
+     * Pages through the events that have an image, ordered by image URL.
+     *
+     * @param pageSize Events per page
+     * @param prefetchDistance Items before the end at which the next page is requested
+     * @param callback Receives the pages
+     * @return The pager
+     * @see #pageEvents(int, int, EventPager.PageCallback)
+     */
+    public EventPager pageEventsWithImages(int pageSize, int prefetchDistance, EventPager.PageCallback callback) {
+        return new EventPager(db.collection("events").whereGreaterThan("imageUrl", "").orderBy("imageUrl"),
+                pageSize, prefetchDistance, callback);
+    }
+
+    /**
+     * Pages through the events created by an organizer in document ID order.
+     *
+     * @param organizerEmail The email of the organizer.
+     * @param pageSize Events per page
+     * @param prefetchDistance Items before the end at which the next page is requested
+     * @param callback Receives the pages
+     * @return The pager
+     * @see #pageEvents(int, int, EventPager.PageCallback)
+     */
+    public EventPager pageEventsByOrganizer(String organizerEmail, int pageSize, int prefetchDistance,
+                                            EventPager.PageCallback callback) {
+        return new EventPager(db.collection("events")
+                .whereEqualTo("organizer.email", organizerEmail)
+                .orderBy(FieldPath.documentId()),
+                pageSize, prefetchDistance, callback);
+    }
+
+    /**
+     * Checks whether the summaries backfill has run. Until it has, some events have no summary
+     * and list screens read the event documents instead. A failed check counts as not run.
+     *
+     * @return Task containing whether the summaries can be read, never failing
+     */
+    private Task<Boolean> summariesReady() {
+        return migrations.isComplete(MigrationRepository.SUMMARIES)
+                .continueWith(task -> task.isSuccessful() && task.getResult());
+    }
+
+    /**
+     * @return Task containing the collection list screens read: the summaries once they are
+     *         backfilled, the event documents before
+     */
+    private Task<String> listCollection() {
+        return summariesReady().continueWith(task -> task.getResult()
+                ? EventSummaryRepository.SUMMARIES_COLLECTION
+                : "events");
+    }
+
+    /**
+     * Fetches the summaries of events that have available slots (open for registration).
+     * Reads the event documents until the summaries backfill has run.
      *
      * @param callback The {@link EventsCallback} to handle success or failure.
+     * @see EventSummaryRepository
      */
     public void getAvailableEvents(EventsCallback callback) {
-        db.collection("events")
-                .whereGreaterThan("slots", 0)
-                .get()
+        listCollection()
+                .continueWithTask(collection -> db.collection(collection.getResult())
+                        .whereGreaterThan("slots", 0)
+                        .get())
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     ArrayList<Event> events = new ArrayList<>();
                     for (DocumentSnapshot document : queryDocumentSnapshots) {
-                        Event event = document.toObject(Event.class);
+                        Event event = EventMapper.fromSnapshot(document);
                         if (event != null) {
                             events.add(event);
                         }
@@ -145,40 +338,35 @@ public class EventRepository {
     }
 
     /**
-     * Fetches a single event by its ID.
+     * Fetches a single event by its ID, through the {@link EventStore} so that screens opening
+     * the same event share one read.
      *
      * @param eventId  The unique identifier of the event.
      * @param callback The {@link EventCallback} to handle success or failure.
      */
     public void getEventById(String eventId, EventCallback callback) {
-        db.collection("events")
-                .document(eventId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    Event event = documentSnapshot.toObject(Event.class);
-                    if (event != null) {
-                        callback.onSuccess(event);
-                    } else {
-                        callback.onFailure(new Exception("Event not found"));
-                    }
-                })
+        eventStore.get(eventId)
+                .addOnSuccessListener(callback::onSuccess)
                 .addOnFailureListener(callback::onFailure);
     }
 
     /**
-     * Fetches all events created by a specific organizer.
+     * Fetches the summaries of all events created by a specific organizer. Reads the event
+     * documents until the summaries backfill has run.
      *
      * @param organizerEmail The email of the organizer.
      * @param callback        The {@link EventsCallback} to handle success or failure.
+     * @see EventSummaryRepository
      */
     public void getEventsByOrganizer(String organizerEmail, EventsCallback callback) {
-        db.collection("events")
-                .whereEqualTo("organizer.email", organizerEmail)
-                .get()
+        listCollection()
+                .continueWithTask(collection -> db.collection(collection.getResult())
+                        .whereEqualTo("organizer.email", organizerEmail)
+                        .get())
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     ArrayList<Event> events = new ArrayList<>();
                     for (DocumentSnapshot document : queryDocumentSnapshots) {
-                        Event event = document.toObject(Event.class);
+                        Event event = EventMapper.fromSnapshot(document);
                         if (event != null && organizerEmail.equals(event.getOrganizer().getEmail())) {
                             events.add(event);
                         }
@@ -189,7 +377,20 @@ public class EventRepository {
     }
 
     /**
-     * Fetches all events where a specific entrant is on the waitlist.
+     * Fetches the summaries of all events where a specific entrant is on the waitlist, invited
+     * or accepted.
+     * <p>
+     * The entrant's {@code members} documents serve as a reverse index: one collection group
+     * query on {@code email} finds them, and only their events' summaries are read, so the cost
+     * grows with the entrant's own events rather than with the whole collection. Member
+     * documents are written by every join, leave, draw and response, so the index cannot fall
+     * behind. The query needs a collection group index on {@code members.email}.
+     * </p>
+     * <p>
+     * Until the {@link MigrationRepository#MEMBERS} backfill has finished, events that still
+     * keep inline lists are also found by scanning the events collection, as before the index
+     * existed. The scan stops for good once the backfill's marker is written.
+     * </p>
      *
      * @param entrantEmail The entrant’s email.
      * @param callback     The {@link EventsCallback} to handle success or failure.
@@ -205,89 +406,118 @@ public class EventRepository {
 
         Log.d("EventRepository", "Looking for events by entrant: " + entrantEmail);
 
-        db.collection("events")
+        Task<List<Event>> legacyEvents = migrations.isComplete(MigrationRepository.MEMBERS)
+                .continueWithTask(check -> {
+                    if (check.isSuccessful() && check.getResult()) {
+                        return Tasks.forResult(new ArrayList<>());
+                    }
+                    return getLegacyEventsByEntrant(entrantEmail);
+                });
+        Task<List<DocumentSnapshot>> memberEvents = db.collectionGroup("members")
+                .whereEqualTo("email", entrantEmail)
                 .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    Log.d("EventRepository", "Total events in Firebase: " + queryDocumentSnapshots.size());
-
-                    ArrayList<Event> events = new ArrayList<>();
-
-                    for (DocumentSnapshot document : queryDocumentSnapshots) {
-
-                        Event event = document.toObject(Event.class);
-                        if (event == null) continue;
-
-                        boolean matches = false;
-
-
-                        if (event.getWaitlist() != null &&
-                                event.getWaitlist().containsEntrant(entrantEmail)) {
-                            matches = true;
-                        }
-
-                        if (!matches && document.contains("inviteList")) {
-                            Map<String, Object> inviteMap =
-                                    (Map<String, Object>) document.get("inviteList");
-
-                            if (inviteMap != null && inviteMap.containsKey("allEntrants")) {
-                                List<Map<String, Object>> allEntrants =
-                                        (List<Map<String, Object>>) inviteMap.get("allEntrants");
-
-                                if (allEntrants != null) {
-                                    for (Map<String, Object> entrant : allEntrants) {
-                                        if (entrantEmail.equals(entrant.get("email"))) {
-                                            matches = true;
-                                            break;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-
-                        if (!matches && document.contains("acceptedList")) {
-                            Map<String, Object> acceptedMap =
-                                    (Map<String, Object>) document.get("acceptedList");
-
-                            if (acceptedMap != null && acceptedMap.containsKey("allEntrants")) {
-                                List<Map<String, Object>> allEntrants =
-                                        (List<Map<String, Object>>) acceptedMap.get("allEntrants");
-
-                                if (allEntrants != null) {
-                                    for (Map<String, Object> entrant : allEntrants) {
-                                        if (entrantEmail.equals(entrant.get("email"))) {
-                                            matches = true;
-                                            break;
-                                        }
-                                    }
-                                }
-                            }
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.<List<DocumentSnapshot>>forException(task.getException());
+                    }
+                    List<String> eventIds = new ArrayList<>();
+                    for (DocumentSnapshot member : task.getResult()) {
+                        if (!Member.STATUS_DECLINED.equals(member.getString("status"))) {
+                            eventIds.add(member.getReference().getParent().getParent().getId());
                         }
-
-                        if (matches) {
+                    }
+                    return summaryRepository.getSummaries(eventIds);
+                });
+        Tasks.whenAll(legacyEvents, memberEvents)
+                .addOnSuccessListener(unused -> {
+                    ArrayList<Event> events = new ArrayList<>(legacyEvents.getResult());
+                    for (DocumentSnapshot result : memberEvents.getResult()) {
+                        Event event = EventMapper.fromSnapshot(result);
+                        if (event != null) {
                             events.add(event);
-                            Log.d("EventRepository", "Added event: " + event.getEventName());
                         }
                     }
-
-                    Log.d("EventRepository", "Filtered events count: " + events.size());
+                    Log.d("EventRepository", "Events for entrant: " + events.size());
                     callback.onSuccess(events);
                 })
                 .addOnFailureListener(callback::onFailure);
     }
 
+    /**
+     * Scans the events collection for events that keep inline lists and have the entrant on
+     * the waitlist, invited or accepted. Events that use the members subcollection are left to
+     * the reverse index, so no event is returned twice.
+     */
+    private Task<List<Event>> getLegacyEventsByEntrant(String entrantEmail) {
+        return db.collection("events").get().continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            List<Event> events = new ArrayList<>();
+            for (DocumentSnapshot document : task.getResult()) {
+                if (Boolean.TRUE.equals(document.getBoolean("membersEnabled"))) {
+                    continue;
+                }
+                if (readList(document, "waitlist").containsEntrant(entrantEmail)
+                        || readList(document, "inviteList").containsEntrant(entrantEmail)
+                        || readList(document, "acceptedList").containsEntrant(entrantEmail)) {
+                    Event event = EventMapper.fromSnapshot(document);
+                    if (event != null) {
+                        events.add(event);
+                    }
+                }
+            }
+            return events;
+        });
+    }
+
+
+    /**
+     * Fetches the summaries of several events at once, for screens that show a card per event
+     * they already know the ID of. The summaries are read with a few {@code in} queries rather
+     * than one request per event, and carry no entrant lists.
+     *
+     * @param eventIds The event IDs
+     * @return Task containing the summaries of the events that exist, in the order of
+     * {@code eventIds}
+     * @see EventSummaryRepository#getSummaries(List)
+     */
+    public Task<List<Event>> getEventsByIds(List<String> eventIds) {
+        return summaryRepository.getSummaries(eventIds).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            List<Event> events = new ArrayList<>();
+            for (DocumentSnapshot result : task.getResult()) {
+                Event event = EventMapper.fromSnapshot(result);
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+            return events;
+        });
+    }
 
     /**
      * Updates an existing event in Firestore.
      *
      * @param event    The updated {@link Event} object.
-     * @param callback The {@link EventUpdateCallback} to indicate success or failure.
+     * @param callback The {@link EventUpdateCallback} to indicate success or failure; a
+     *                 version conflict is a failure.
+     * @see #saveEvent(Event)
      */
     public void updateEvent(Event event, EventUpdateCallback callback) {
-        db.collection("events")
-                .document(event.getId())
-                .set(event)
-                .addOnSuccessListener(aVoid -> {
-                    if (callback != null) callback.onComplete(true);
+        if (event.isSummary()) {
+            Log.e("EventRepository", "Refusing to save event summary: " + event.getId());
+            if (callback != null) callback.onComplete(false);
+            return;
+        }
+        saveEvent(event)
+                .addOnSuccessListener(result -> {
+                    if (result != SaveResult.SAVED) {
+                        Log.e("EventRepository", "Event " + event.getId() + " not saved: " + result);
+                    }
+                    if (callback != null) callback.onComplete(result == SaveResult.SAVED);
                 })
                 .addOnFailureListener(e -> {
                     if (callback != null) callback.onComplete(false);
@@ -295,16 +525,205 @@ public class EventRepository {
     }
 
     /**
-     * Deletes an event from Firestore by its ID.
+     * Saves the changes made to an event.
+     * <p>
+     * Events read from Firestore track their changed fields, and only those are written.
+     * Other events are written in full, after which the fields the lottery maintains
+     * ({@code reservedSlots}, {@code pendingResample}, {@code lastLotteryRun} and
+     * {@code lastDrawnSlots}) are put back from the stored document; for events that use the
+     * {@code members} subcollection, the membership counters and join locations are kept the
+     * same way. A stale local copy therefore cannot overwrite draws or joins that happened
+     * since it was loaded.
+     * </p>
+     * <p>
+     * The transaction checks the event's {@link Event#getVersion() version} against the stored
+     * one and increments it, so a save based on an outdated copy fails with
+     * {@link SaveResult#VERSION_CONFLICT} instead of overwriting the newer edit, even when the
+     * two edits changed different fields. Documents
+     * without a version count as version 0. The event's search index entry and summary are
+     * rewritten in the same transaction. On success the event takes the new version and its
+     * changed fields are cleared.
+     * </p>
+     *
+     * @param event The event, not a summary
+     * @return Task resolving with the outcome of the save
+     */
+    public Task<SaveResult> saveEvent(Event event) {
+        if (event.isSummary()) {
+            return Tasks.forException(new IllegalArgumentException("Event summaries cannot be saved"));
+        }
+        boolean partial = event.isTrackingChanges();
+        Map<String, Object> changes = partial ? EventMapper.changes(event) : null;
+        if (partial && changes.isEmpty()) {
+            return Tasks.forResult(SaveResult.SAVED);
+        }
+        Set<String> changedFields = event.getChangedFields();
+        long expectedVersion = event.getVersion();
+        DocumentReference ref = db.collection("events").document(event.getId());
+        return db.runTransaction(transaction -> {
+                    DocumentSnapshot current = transaction.get(ref);
+                    if (partial && !current.exists()) {
+                        return SaveResult.EVENT_NOT_FOUND;
+                    }
+                    Long storedVersion = current.getLong("version");
+                    if (expectedVersion != (storedVersion != null ? storedVersion : 0L)) {
+                        return SaveResult.VERSION_CONFLICT;
+                    }
+
+                    boolean membersEnabled = Boolean.TRUE.equals(current.getBoolean("membersEnabled"));
+                    Map<String, Object> summary = EventSummaryRepository.summaryData(event);
+                    if (partial) {
+                        Map<String, Object> update = new HashMap<>(changes);
+                        update.put("version", expectedVersion + 1);
+                        transaction.update(ref, update);
+                        summary.putAll(membersEnabled ? storedCounts(current)
+                                : storedListCounts(current, event, changedFields));
+                    } else {
+                        transaction.set(ref, event);
+                        Map<String, Object> restored = lotteryFields(current);
+                        restored.put("version", expectedVersion + 1);
+                        transaction.update(ref, restored);
+                        if (membersEnabled) {
+                            transaction.update(ref, membershipFields(current));
+                            summary.putAll(storedCounts(current));
+                        }
+                    }
+                    transaction.set(searchIndexRepository.entry(event.getId()),
+                            SearchIndexRepository.entryData(event));
+                    transaction.set(summaryRepository.summary(event.getId()), summary);
+                    return SaveResult.SAVED;
+                })
+                .continueWithTask(task -> {
+                    // Applied before the returned task completes
+                    if (task.isSuccessful()) {
+                        eventStore.invalidate(event.getId());
+                        if (task.getResult() == SaveResult.SAVED) {
+                            event.setVersion(expectedVersion + 1);
+                            event.startTrackingChanges();
+                        }
+                    }
+                    return task;
+                });
+    }
+
+    /**
+     * Adds an entrant to an event's waitlist.
+     * <p>
+     * Runs in a transaction that reads the event, checks the registration dates and the
+     * entrant limit against the stored document and writes only the entrant's entry: their
+     * member document and {@code waitingCount} for events using the {@code members}
+     * subcollection, or the {@code waitlist} field for older events. Concurrent joins are
+     * retried by Firestore, so the limit holds however many entrants join at once.
+     * </p>
+     *
+     * @param eventId  The event ID
+     * @param entrant  The entrant joining
+     * @param location Where the entrant joined from, stored in {@code entrantCoords}, may be null
+     * @return Task resolving with the outcome of the join
+     */
+    public Task<JoinResult> joinWaitlist(String eventId, Entrant entrant, GeoPoint location) {
+        DocumentReference ref = db.collection("events").document(eventId);
+        String email = entrant.getEmail();
+        return db.runTransaction(WAITLIST_TRANSACTION_OPTIONS, transaction -> {
+            DocumentSnapshot current = transaction.get(ref);
+            if (!current.exists()) {
+                return JoinResult.EVENT_NOT_FOUND;
+            }
+            boolean membersEnabled = Boolean.TRUE.equals(current.getBoolean("membersEnabled"));
+
+            // All reads happen before the first write
+            EntrantList waitlist = null;
+            if (membersEnabled) {
+                if (transaction.get(membershipRepository.member(eventId, email)).exists()) {
+                    return JoinResult.ALREADY_JOINED;
+                }
+            } else {
+                waitlist = readList(current, "waitlist");
+                if (waitlist.containsEntrant(email)
+                        || readList(current, "inviteList").containsEntrant(email)
+                        || readList(current, "acceptedList").containsEntrant(email)) {
+                    return JoinResult.ALREADY_JOINED;
+                }
+            }
+
+            if (!Event.isRegistrationOpen(current.getDate("regStartDate"), current.getDate("regEndDate"))) {
+                return JoinResult.REGISTRATION_CLOSED;
+            }
+            Long limit = current.getLong("entrantLimit");
+            long waiting = membersEnabled ? longOrZero(current.getLong("waitingCount")) : waitlist.size();
+            if (limit != null && limit != -1 && waiting >= limit) {
+                return JoinResult.WAITLIST_FULL;
+            }
+
+            if (membersEnabled) {
+                membershipRepository.addWaiting(transaction, eventId, entrant, location);
+            } else {
+                waitlist.addEntrant(entrant);
+                transaction.update(ref, "waitlist", waitlist.toFirestoreMap());
+                summaryRepository.updateCounts(transaction, eventId,
+                        Collections.singletonMap("waitingCount", waitlist.size()));
+                if (location != null) {
+                    transaction.update(ref, FieldPath.of("entrantCoords", email), location);
+                }
+            }
+            return JoinResult.JOINED;
+        }).addOnSuccessListener(result -> eventStore.invalidate(eventId));
+    }
+
+    /**
+     * Removes an entrant from an event's waitlist, along with their join location.
+     * <p>
+     * Like {@link #joinWaitlist}, only the entrant's entry is written. Entrants who have been
+     * invited, accepted or declined are not removed.
+     * </p>
+     *
+     * @param eventId The event ID
+     * @param email   The entrant's email
+     * @return Task resolving with the outcome of the leave
+     */
+    public Task<LeaveResult> leaveWaitlist(String eventId, String email) {
+        DocumentReference ref = db.collection("events").document(eventId);
+        return db.runTransaction(WAITLIST_TRANSACTION_OPTIONS, transaction -> {
+            DocumentSnapshot current = transaction.get(ref);
+            if (!current.exists()) {
+                return LeaveResult.EVENT_NOT_FOUND;
+            }
+
+            if (Boolean.TRUE.equals(current.getBoolean("membersEnabled"))) {
+                DocumentSnapshot member = transaction.get(membershipRepository.member(eventId, email));
+                if (!Member.STATUS_WAITING.equals(member.getString("status"))) {
+                    return LeaveResult.NOT_ON_WAITLIST;
+                }
+                membershipRepository.removeWaiting(transaction, eventId, email);
+                return LeaveResult.LEFT;
+            }
+
+            EntrantList waitlist = readList(current, "waitlist");
+            if (waitlist.removeEntrant(email) == null) {
+                return LeaveResult.NOT_ON_WAITLIST;
+            }
+            transaction.update(ref, "waitlist", waitlist.toFirestoreMap());
+            transaction.update(ref, FieldPath.of("entrantCoords", email), FieldValue.delete());
+            summaryRepository.updateCounts(transaction, eventId,
+                    Collections.singletonMap("waitingCount", waitlist.size()));
+            return LeaveResult.LEFT;
+        }).addOnSuccessListener(result -> eventStore.invalidate(eventId));
+    }
+
+    /**
+     * Deletes an event, its search index entry and its summary from Firestore by its ID, then
+     * its member documents, which deleting the event document leaves behind.
      *
      * @param eventId The unique identifier of the event to delete.
      */
     public void deleteEvent(String eventId) {
+        searchCache.invalidate(eventId, null);
+        eventStore.invalidate(eventId);
         DocumentReference ref = db.collection("events").document(eventId);
         ref.get().onSuccessTask(documentSnapshot -> {
-            Event event = documentSnapshot.toObject(Event.class);
+            Event event = EventMapper.fromSnapshot(documentSnapshot);
             assert event != null;
-            if (!event.getImageUrl().isEmpty()) {
+            if (uploader != null && !event.getImageUrl().isEmpty()) {
                 uploader.deleteImage(event.getImageUrl(), new ImageUploader.DeleteCallback() {
                     @Override
                     public void onSuccess() {
@@ -315,7 +734,12 @@ public class EventRepository {
                     }
                 });
             }
-            return ref.delete();
+            WriteBatch batch = db.batch();
+            batch.delete(ref);
+            batch.delete(searchIndexRepository.entry(eventId));
+            batch.delete(summaryRepository.summary(eventId));
+            // Members go after the event, so no join can add one to an event being deleted
+            return batch.commit().onSuccessTask(unused -> membershipRepository.deleteMembers(eventId));
         });
     }
 
@@ -334,7 +758,7 @@ public class EventRepository {
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     ArrayList<Event> events = new ArrayList<>();
                     for (DocumentSnapshot document : queryDocumentSnapshots) {
-                        Event event = document.toObject(Event.class);
+                        Event event = EventMapper.fromSnapshot(document);
                         if (event != null) {
                             events.add(event);
                         }
@@ -345,55 +769,368 @@ public class EventRepository {
     }
 
     /**
-     * Searches events using the precomputed searchKeywords field (name and tags prefixes).
-     * The query is normalized to lowercase and must be at least two characters long.
+     * Receives the results of {@link #searchEvents(String, SearchCallback)} as each of its
+     * queries answers.
+     */
+    public interface SearchCallback {
+        /**
+         * Called when a query answers, with the results of every query answered so far.
+         *
+         * @param events Matching events, search index matches first
+         * @param complete True once both queries have answered
+         */
+        void onResults(ArrayList<Event> events, boolean complete);
+
+        /**
+         * Called instead of the final {@link #onResults} when both queries failed.
+         *
+         * @param e The first exception thrown
+         */
+        void onFailure(Exception e);
+    }
+
+    /**
+     * A running {@link #searchEvents(String, SearchCallback)} call, used to cancel it and to
+     * read how long each of its queries took. Not thread-safe; use it on the main thread.
+     */
+    public static class SearchRequest {
+        private final String query;
+        private final long startNanos = System.nanoTime();
+        private final LinkedHashMap<String, Event> indexMatches = new LinkedHashMap<>();
+        private final LinkedHashMap<String, Event> nameMatches = new LinkedHashMap<>();
+        private final Map<String, Long> bytesById = new HashMap<>();
+        private boolean cancelled;
+        private int pending;
+        private int failures;
+        private Exception failure;
+        private long indexLatencyMs = -1;
+        private long nameLatencyMs = -1;
+
+        SearchRequest(String query, int pending) {
+            this.query = query;
+            this.pending = pending;
+        }
+
+        /**
+         * Cancels the search. Results that arrive later are dropped before they are converted,
+         * follow-up reads are not started and the callback is not called again.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * @return Milliseconds until the search index matches were loaded, or -1 if they have
+         *         not arrived
+         */
+        public long getIndexLatencyMs() {
+            return indexLatencyMs;
+        }
+
+        /**
+         * @return Milliseconds until the name prefix query answered, or -1 if it has not
+         */
+        public long getNameLatencyMs() {
+            return nameLatencyMs;
+        }
+
+        private void failed(Exception e) {
+            failures++;
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        private long elapsedMs() {
+            return (System.nanoTime() - startNanos) / 1_000_000L;
+        }
+
+        private ArrayList<Event> merged() {
+            LinkedHashMap<String, Event> combined = new LinkedHashMap<>(indexMatches);
+            combined.putAll(nameMatches);
+            return new ArrayList<>(combined.values());
+        }
+    }
+
+    /**
+     * Searches events by name and tags. Two queries run at the same time: the
+     * {@code searchIndex} lookup, whose matching events' summaries are fetched and checked
+     * against every word of the query, and a prefix query on the name in the event summaries.
+     * Results are therefore summaries (see {@link EventSummaryRepository}). The callback receives the merged
+     * results as each query answers, so the first results arrive after the faster of the two.
+     * The query must be at least two characters long.
+     * <p>
+     * Results are cached for a short time. A query that is cached, or that extends a cached
+     * query, is answered from {@link SearchResultCache} without reading Firestore, with a
+     * single complete callback.
+     * </p>
      *
      * @param searchQuery partial search text from the UI
      * @param callback callback to deliver matching events
+     * @return The running search, which can be cancelled when the user types on
+     * @see SearchIndexRepository#findEventIds(String)
      */
-    public void searchEventsByKeyword(String searchQuery, EventsCallback callback) {
-        if (searchQuery == null) {
-            callback.onSuccess(new ArrayList<>());
-            return;
+    public SearchRequest searchEvents(String searchQuery, SearchCallback callback) {
+        String normalized = searchQuery == null ? "" : searchQuery.trim().toLowerCase(Locale.ROOT);
+        if (normalized.length() < 2) {
+            SearchRequest request = new SearchRequest(normalized, 0);
+            callback.onResults(new ArrayList<>(), true);
+            return request;
+        }
+        ArrayList<Event> cached = searchCache.get(normalized);
+        if (cached != null) {
+            SearchRequest request = new SearchRequest(normalized, 0);
+            callback.onResults(cached, true);
+            return request;
         }
-
-        String normalized = searchQuery.trim().toLowerCase(Locale.ROOT);
         String prefixQuery = searchQuery.trim();
-        if (normalized.length() < 2) {
-            callback.onSuccess(new ArrayList<>());
+        SearchRequest request = new SearchRequest(normalized, 2);
+
+        searchIndexRepository.findEventIds(normalized)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.<List<DocumentSnapshot>>forException(task.getException());
+                    }
+                    if (request.isCancelled()) {
+                        return Tasks.forResult(Collections.<DocumentSnapshot>emptyList());
+                    }
+                    return summaryRepository.getSummaries(task.getResult());
+                })
+                .addOnCompleteListener(task -> {
+                    if (request.isCancelled()) {
+                        return;
+                    }
+                    request.indexLatencyMs = request.elapsedMs();
+                    if (task.isSuccessful()) {
+                        for (DocumentSnapshot document : task.getResult()) {
+                            Event event = EventMapper.fromSnapshot(document);
+                            if (event != null && SearchKeywords.matches(normalized, event.getEventName(), event.getTags())) {
+                                String key = event.getId() != null ? event.getId() : document.getId();
+                                request.indexMatches.put(key, event);
+                                request.bytesById.put(key, DocumentSize.of(document));
+                            }
+                        }
+                    } else {
+                        request.failed(task.getException());
+                    }
+                    deliverSearchResults(request, callback);
+                });
+
+        listCollection()
+                .continueWithTask(collection -> db.collection(collection.getResult())
+                        .orderBy("eventName")
+                        .startAt(prefixQuery)
+                        .endAt(prefixQuery + "\uf8ff")
+                        .get())
+                .addOnCompleteListener(task -> {
+                    if (request.isCancelled()) {
+                        return;
+                    }
+                    request.nameLatencyMs = request.elapsedMs();
+                    if (task.isSuccessful()) {
+                        for (DocumentSnapshot document : task.getResult()) {
+                            Event event = EventMapper.fromSnapshot(document);
+                            if (event != null) {
+                                String key = event.getId() != null ? event.getId() : document.getId();
+                                request.nameMatches.put(key, event);
+                                request.bytesById.put(key, DocumentSize.of(document));
+                            }
+                        }
+                    } else {
+                        request.failed(task.getException());
+                    }
+                    deliverSearchResults(request, callback);
+                });
+        return request;
+    }
+
+    /**
+     * Passes the merged results to the callback after one of the search queries answered, and
+     * caches them once both succeeded. Only a search where both queries failed reports a
+     * failure.
+     */
+    private void deliverSearchResults(SearchRequest request, SearchCallback callback) {
+        request.pending--;
+        boolean complete = request.pending == 0;
+        if (complete) {
+            Log.d("EventRepository", "Search '" + request.query + "': index " + request.indexLatencyMs
+                    + " ms, name " + request.nameLatencyMs + " ms");
+            if (request.failures == 0) {
+                searchCache.put(request.query, request.merged(), request.bytesById);
+            }
+        }
+
+        if (request.failures == 2) {
+            callback.onFailure(request.failure);
+            return;
+        }
+        if (!complete && request.failures > 0) {
+            // Wait for the other query rather than showing an empty list
             return;
         }
+        callback.onResults(request.merged(), complete);
+    }
 
-        db.collection("events")
-                .whereArrayContains("searchKeywords", normalized)
-                .get()
-                .addOnSuccessListener(keywordSnapshots -> {
-                    LinkedHashMap<String, Event> combined = new LinkedHashMap<>();
-                    for (DocumentSnapshot document : keywordSnapshots) {
-                        Event event = document.toObject(Event.class);
-                        if (event != null) {
-                            String key = event.getId() != null ? event.getId() : document.getId();
-                            combined.put(key, event);
+    /**
+     * Searches events by name and tags and reports the results once both queries have
+     * answered.
+     *
+     * @param searchQuery partial search text from the UI
+     * @param callback callback to deliver matching events
+     * @see #searchEvents(String, SearchCallback)
+     */
+    public void searchEventsByKeyword(String searchQuery, EventsCallback callback) {
+        searchEvents(searchQuery, new SearchCallback() {
+            @Override
+            public void onResults(ArrayList<Event> events, boolean complete) {
+                if (complete) {
+                    callback.onSuccess(events);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * Fetches events within a radius of a point, nearest first.
+     * <p>
+     * Each event document stores the geohash of its location (see {@link Event#getGeohash()}).
+     * The circle is covered by at most nine geohash ranges, queried in parallel, and the
+     * events they return are filtered by their exact distance, because the cells reach beyond
+     * the circle. Events without a location, or saved before the geohash was stored, are not
+     * found.
+     * </p>
+     *
+     * @param latitude Latitude of the center in degrees
+     * @param longitude Longitude of the center in degrees
+     * @param radiusKm Radius in kilometres
+     * @param callback The {@link EventsCallback} to handle success or failure.
+     * @see GeoHash#queryBounds(double, double, double)
+     */
+    public void searchEventsNear(double latitude, double longitude, double radiusKm, EventsCallback callback) {
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (GeoHash.Range range : GeoHash.queryBounds(latitude, longitude, radiusKm)) {
+            queries.add(db.collection("events")
+                    .orderBy("geohash")
+                    .startAt(range.start)
+                    .endAt(range.end)
+                    .get());
+        }
+        Tasks.<QuerySnapshot>whenAllSuccess(queries)
+                .addOnSuccessListener(snapshots -> {
+                    Map<String, Double> distances = new HashMap<>();
+                    ArrayList<Event> events = new ArrayList<>();
+                    int candidates = 0;
+                    for (QuerySnapshot snapshot : snapshots) {
+                        for (DocumentSnapshot document : snapshot) {
+                            candidates++;
+                            Event event = EventMapper.fromSnapshot(document);
+                            if (event == null || event.getLocation() == null
+                                    || distances.containsKey(event.getId())) {
+                                continue;
+                            }
+                            GeoPoint location = event.getLocation();
+                            double distance = GeoHash.distanceKm(latitude, longitude,
+                                    location.getLatitude(), location.getLongitude());
+                            if (distance <= radiusKm) {
+                                distances.put(event.getId(), distance);
+                                events.add(event);
+                            }
                         }
                     }
-
-                    db.collection("events")
-                            .orderBy("eventName")
-                            .startAt(prefixQuery)
-                            .endAt(prefixQuery + "\uf8ff")
-                            .get()
-                            .addOnSuccessListener(nameSnapshots -> {
-                                for (DocumentSnapshot document : nameSnapshots) {
-                                    Event event = document.toObject(Event.class);
-                                    if (event != null) {
-                                        String key = event.getId() != null ? event.getId() : document.getId();
-                                        combined.put(key, event);
-                                    }
-                                }
-                                callback.onSuccess(new ArrayList<>(combined.values()));
-                            })
-                            .addOnFailureListener(callback::onFailure);
+                    events.sort((a, b) -> Double.compare(distances.get(a.getId()), distances.get(b.getId())));
+                    Log.d("EventRepository", "Events near: " + events.size() + " of "
+                            + candidates + " read from " + queries.size() + " geohash ranges");
+                    callback.onSuccess(events);
                 })
                 .addOnFailureListener(callback::onFailure);
     }
+
+    /**
+     * Builds the update that restores the fields written by the lottery after a stored event
+     * has been overwritten by {@code set()}. Fields the stored event doesn't have are deleted
+     * again, so the defaults of the saved copy don't take their place.
+     */
+    private static Map<String, Object> lotteryFields(DocumentSnapshot current) {
+        Map<String, Object> fields = new HashMap<>();
+        for (String field : new String[]{"reservedSlots", "pendingResample", "lastLotteryRun",
+                "lastDrawnSlots"}) {
+            Object stored = current.get(field);
+            fields.put(field, stored != null ? stored : FieldValue.delete());
+        }
+        return fields;
+    }
+
+    /**
+     * Builds the update that restores the membership fields of a stored event after it has been
+     * overwritten by {@code set()}.
+     */
+    private static Map<String, Object> membershipFields(DocumentSnapshot current) {
+        Map<String, Object> fields = storedCounts(current);
+        fields.put("membersEnabled", true);
+        Object coords = current.get("entrantCoords");
+        fields.put("entrantCoords", coords != null ? coords : new HashMap<>());
+        fields.put("waitlist", FieldValue.delete());
+        fields.put("inviteList", FieldValue.delete());
+        fields.put("acceptedList", FieldValue.delete());
+        fields.put("declinedList", FieldValue.delete());
+        return fields;
+    }
+
+    /**
+     * Counts the inline entrant lists of a stored event, taking the lists changed on the event
+     * being saved from the event instead.
+     */
+    private static Map<String, Object> storedListCounts(DocumentSnapshot current, Event event,
+                                                        Set<String> changedFields) {
+        Map<String, Object> counts = EventSummaryRepository.countData(event);
+        String[][] lists = {{"waitlist", "waitingCount"}, {"inviteList", "invitedCount"},
+                {"acceptedList", "acceptedCount"}, {"declinedList", "declinedCount"}};
+        for (String[] list : lists) {
+            if (!changedFields.contains(list[0])) {
+                counts.put(list[1], readList(current, list[0]).size());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Reads the membership counters of a stored event that uses the {@code members}
+     * subcollection.
+     */
+    private static Map<String, Object> storedCounts(DocumentSnapshot current) {
+        Map<String, Object> counts = new HashMap<>();
+        for (String status : new String[]{Member.STATUS_WAITING, Member.STATUS_INVITED,
+                Member.STATUS_ACCEPTED, Member.STATUS_DECLINED}) {
+            String field = Member.counterField(status);
+            Long count = current.getLong(field);
+            counts.put(field, count != null ? count : 0L);
+        }
+        return counts;
+    }
+
+    /**
+     * Parses one of the entrant lists stored on an event document.
+     */
+    @SuppressWarnings("unchecked")
+    private static EntrantList readList(DocumentSnapshot doc, String field) {
+        Object value = doc.get(field);
+        return EntrantList.fromFirestoreMap(value instanceof Map ? (Map<String, Object>) value : null);
+    }
+
+    private static long longOrZero(Long value) {
+        return value != null ? value : 0L;
+    }
 }
@@ -0,0 +1,305 @@
+package com.example.atlasevents.data;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.atlasevents.Event;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide store of event documents, so that screens showing the same event share one
+ * copy of it instead of each fetching it.
+ * <p>
+ * {@link #get(String)} answers from the store when it can and otherwise reads the document;
+ * requests for an event that is already being read wait for that read instead of starting
+ * another, so a burst of screens opening the same event costs one network call.
+ * {@link #subscribe(String, Listener)} attaches one snapshot listener per event, shared by all
+ * its subscribers and detached with the last of them, and delivers every change to each
+ * subscriber. Events nobody is subscribed to are kept for {@link #MAX_UNWATCHED_AGE_MS}, long
+ * enough to hand an event from one screen to the next, and writes through
+ * {@link EventRepository} drop them earlier.
+ * </p>
+ * <p>
+ * The store keeps document snapshots and maps a new {@link Event} for each caller, so screens
+ * may change the events they receive without affecting each other. All methods must be called
+ * on the main thread.
+ * </p>
+ *
+ * @see EventRepository#getEventById(String, EventRepository.EventCallback)
+ */
+public class EventStore {
+    private static final String TAG = "EventStore";
+
+    /** How long an event nobody is subscribed to is served without reading it again. */
+    public static final long MAX_UNWATCHED_AGE_MS = 10_000L;
+    /** Events nobody is subscribed to kept before the least recently used is dropped. */
+    public static final int MAX_UNWATCHED_ENTRIES = 50;
+
+    private static EventStore instance;
+
+    /**
+     * Receives an event and its later changes.
+     */
+    public interface Listener {
+        /**
+         * Called with the event when subscribing, if the store has it, and on every change.
+         *
+         * @param event A copy of the event for this listener
+         */
+        void onEvent(Event event);
+
+        /**
+         * Called when the event is deleted or cannot be read.
+         *
+         * @param e The exception thrown.
+         */
+        void onFailure(Exception e);
+    }
+
+    /** What the store holds for one event. */
+    private static final class Entry {
+        DocumentSnapshot snapshot;
+        long storedAt;
+        Task<DocumentSnapshot> read;
+        ListenerRegistration registration;
+        final List<Listener> listeners = new ArrayList<>();
+
+        boolean isWatched() {
+            return registration != null;
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int requests;
+    private int networkReads;
+
+    /**
+     * Returns the process-wide store, creating it on first use.
+     *
+     * @return The shared store
+     */
+    public static synchronized EventStore getInstance() {
+        if (instance == null) {
+            instance = new EventStore(FirebaseFirestore.getInstance(), SystemClock::elapsedRealtime);
+        }
+        return instance;
+    }
+
+    /**
+     * Constructor for dependency injection (for testing)
+     *
+     * @param db Firestore instance
+     * @param clock Milliseconds from a monotonic clock, used for expiry
+     */
+    public EventStore(FirebaseFirestore db, LongSupplier clock) {
+        this.db = db;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets an event, from the store if it is current and otherwise from Firestore, joining a
+     * read of the same event already in flight.
+     *
+     * @param eventId The event ID
+     * @return Task resolving with a copy of the event, or failing if it does not exist
+     */
+    public Task<Event> get(@NonNull String eventId) {
+        requests++;
+        Entry entry = entries.get(eventId);
+        if (entry != null && isCurrent(entry)) {
+            return toEventTask(entry.snapshot);
+        }
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(eventId, entry);
+        }
+        if (entry.read == null) {
+            networkReads++;
+            Task<DocumentSnapshot> read = document(eventId).get();
+            entry.read = read;
+            read.addOnCompleteListener(task -> onReadComplete(eventId, read));
+        }
+        return entry.read.continueWithTask(task -> task.isSuccessful()
+                ? toEventTask(task.getResult())
+                : Tasks.forException(task.getException()));
+    }
+
+    /**
+     * Subscribes to an event. The listener receives the event straight away if the store has
+     * a current copy, then every change until the subscription is removed.
+     *
+     * @param eventId The event ID
+     * @param listener Receives the event and its changes
+     * @return The subscription, removed when the screen no longer shows the event
+     */
+    public ListenerRegistration subscribe(@NonNull String eventId, @NonNull Listener listener) {
+        Entry entry = entries.get(eventId);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(eventId, entry);
+        }
+        boolean current = isCurrent(entry);
+        entry.listeners.add(listener);
+        if (entry.registration == null) {
+            entry.registration = document(eventId).addSnapshotListener((snapshot, error) ->
+                    onSnapshot(eventId, snapshot, error));
+        }
+        if (current) {
+            deliver(listener, entry.snapshot);
+        }
+        return () -> unsubscribe(eventId, listener);
+    }
+
+    /**
+     * Drops the stored copy of an event after it was written, unless a snapshot listener is
+     * keeping it current.
+     *
+     * @param eventId The event ID
+     */
+    public void invalidate(@NonNull String eventId) {
+        Entry entry = entries.get(eventId);
+        if (entry != null && !entry.isWatched()) {
+            entry.snapshot = null;
+        }
+    }
+
+    /**
+     * @return Calls to {@link #get(String)}
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return Reads {@link #get(String)} sent to Firestore; the rest were answered by the
+     * store or joined a read in flight
+     */
+    public int getNetworkReads() {
+        return networkReads;
+    }
+
+    private DocumentReference document(String eventId) {
+        return db.collection("events").document(eventId);
+    }
+
+    private boolean isCurrent(Entry entry) {
+        return entry.snapshot != null
+                && (entry.isWatched() || clock.getAsLong() - entry.storedAt < MAX_UNWATCHED_AGE_MS);
+    }
+
+    private void onReadComplete(String eventId, Task<DocumentSnapshot> read) {
+        Entry entry = entries.get(eventId);
+        if (entry == null || entry.read != read) {
+            return;
+        }
+        entry.read = null;
+        if (!read.isSuccessful()) {
+            Log.e(TAG, "Failed to read event " + eventId, read.getException());
+        } else if (!entry.isWatched()) {
+            // A snapshot listener's copy is at least as recent
+            store(entry, read.getResult());
+        }
+        removeUnwatched();
+    }
+
+    private void onSnapshot(String eventId, @Nullable DocumentSnapshot snapshot, @Nullable Exception error) {
+        Entry entry = entries.get(eventId);
+        if (entry == null) {
+            return;
+        }
+        List<Listener> listeners = new ArrayList<>(entry.listeners);
+        if (error != null) {
+            // Firestore has removed the listener
+            Log.e(TAG, "Event listener failed for " + eventId, error);
+            entry.registration = null;
+            entry.snapshot = null;
+            for (Listener listener : listeners) {
+                listener.onFailure(error);
+            }
+            return;
+        }
+        if (snapshot == null) {
+            return;
+        }
+        store(entry, snapshot);
+        for (Listener listener : listeners) {
+            deliver(listener, snapshot);
+        }
+    }
+
+    private void unsubscribe(String eventId, Listener listener) {
+        Entry entry = entries.get(eventId);
+        if (entry == null || !entry.listeners.remove(listener) || !entry.listeners.isEmpty()) {
+            return;
+        }
+        if (entry.registration != null) {
+            entry.registration.remove();
+            entry.registration = null;
+        }
+        // Kept like any other unwatched event, from the last snapshot received
+        removeUnwatched();
+    }
+
+    private void store(Entry entry, DocumentSnapshot snapshot) {
+        entry.snapshot = snapshot;
+        entry.storedAt = clock.getAsLong();
+    }
+
+    /**
+     * Removes expired unwatched events, then the least recently used ones above
+     * {@link #MAX_UNWATCHED_ENTRIES}. Events being read or subscribed to are kept.
+     */
+    private void removeUnwatched() {
+        int unwatched = 0;
+        for (Entry entry : entries.values()) {
+            if (!entry.isWatched()) {
+                unwatched++;
+            }
+        }
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.isWatched() || entry.read != null) {
+                continue;
+            }
+            if (unwatched > MAX_UNWATCHED_ENTRIES || !isCurrent(entry)) {
+                iterator.remove();
+                unwatched--;
+            }
+        }
+    }
+
+    private static void deliver(Listener listener, DocumentSnapshot snapshot) {
+        Event event = EventMapper.fromSnapshot(snapshot);
+        if (event != null) {
+            listener.onEvent(event);
+        } else {
+            listener.onFailure(new Exception("Event not found"));
+        }
+    }
+
+    private static Task<Event> toEventTask(DocumentSnapshot snapshot) {
+        Event event = EventMapper.fromSnapshot(snapshot);
+        return event != null
+                ? Tasks.forResult(event)
+                : Tasks.forException(new Exception("Event not found"));
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.atlasevents.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.atlasevents.Event;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Repository for the {@code eventSummaries} collection, which holds for each event the few
+ * fields that list screens show, in a document keyed by the event ID.
+ * <p>
+ * Dashboards and search show an event's name, image, dates, slots and list counts, but an event
+ * document also carries the description, location, join locations and, for older events, every
+ * entrant list. Reading summaries instead keeps list screens to a small, fixed size per event.
+ * They are mapped by {@link EventMapper} into events marked {@link Event#isSummary()}.
+ * </p>
+ * <p>
+ * Summaries are written in the same batch or transaction as the event: in full by
+ * {@link EventRepository} when an event is added or updated, and as counts wherever entrants move
+ * between lists. Count writes merge into the summary, so they never fail on an event whose
+ * summary has not been built yet; such partial documents lack the {@code summary} marker and
+ * are treated as missing. {@link #rebuildAll()} builds the summaries of existing events and
+ * runs as the {@link MigrationRepository#SUMMARIES} backfill.
+ * </p>
+ */
+public class EventSummaryRepository {
+    private static final String TAG = "EventSummaryRepository";
+    private static final String EVENTS_COLLECTION = "events";
+    public static final String SUMMARIES_COLLECTION = "eventSummaries";
+
+    /** IDs per {@code in} query, the most one filter may hold. */
+    private static final int IDS_PER_QUERY = 30;
+    /** Events per rebuild batch; each takes one write, below the 500-write limit. */
+    private static final int REBUILD_PAGE_SIZE = 400;
+
+    private final FirebaseFirestore db;
+
+    /**
+     * Constructs a new EventSummaryRepository with the default Firebase Firestore instance.
+     */
+    public EventSummaryRepository() {
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    /**
+     * Constructs a new EventSummaryRepository with a custom Firebase Firestore instance.
+     * For testing.
+     *
+     * @param db Firebase Firestore instance
+     */
+    public EventSummaryRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * @param eventId The event ID
+     * @return The event's summary document, which may not exist
+     */
+    public DocumentReference summary(String eventId) {
+        return db.collection(SUMMARIES_COLLECTION).document(eventId);
+    }
+
+    /**
+     * @return Every complete summary, for paging with {@code startAfter}
+     */
+    public Query summaries() {
+        return db.collection(SUMMARIES_COLLECTION).whereEqualTo("summary", true);
+    }
+
+    /**
+     * Builds the summary document of an event.
+     *
+     * @param event The event, with its counters or inline lists
+     * @return Data for {@link #summary(String)}
+     */
+    public static Map<String, Object> summaryData(@NonNull Event event) {
+        Map<String, Object> data = countData(event);
+        data.put("summary", true);
+        data.put("id", event.getId());
+        data.put("eventName", event.getEventName());
+        data.put("imageUrl", event.getImageUrl());
+        data.put("date", event.getDate());
+        data.put("regStartDate", event.getRegStartDate());
+        data.put("regEndDate", event.getRegEndDate());
+        data.put("slots", event.getSlots());
+        data.put("tags", event.getTags());
+        Map<String, Object> organizer = new HashMap<>();
+        organizer.put("email", event.getOrganizer() != null ? event.getOrganizer().getEmail() : null);
+        data.put("organizer", organizer);
+        return data;
+    }
+
+    /**
+     * @param event The event, with its counters or inline lists
+     * @return The four list counts of an event, keyed by counter field
+     */
+    public static Map<String, Object> countData(@NonNull Event event) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("waitingCount", event.countWaiting());
+        data.put("invitedCount", event.countInvited());
+        data.put("acceptedCount", event.countAccepted());
+        data.put("declinedCount", event.countDeclined());
+        return data;
+    }
+
+    /**
+     * Merges counts into an event's summary within a transaction.
+     *
+     * @param transaction The running transaction
+     * @param eventId The event ID
+     * @param counts Counter fields to values or {@code FieldValue.increment} amounts
+     */
+    public void updateCounts(@NonNull Transaction transaction, @NonNull String eventId,
+                             @NonNull Map<String, Object> counts) {
+        transaction.set(summary(eventId), counts, SetOptions.merge());
+    }
+
+    /**
+     * Merges counts into an event's summary within a batch.
+     *
+     * @param batch The batch
+     * @param eventId The event ID
+     * @param counts Counter fields to values or {@code FieldValue.increment} amounts
+     */
+    public void updateCounts(@NonNull WriteBatch batch, @NonNull String eventId,
+                             @NonNull Map<String, Object> counts) {
+        batch.set(summary(eventId), counts, SetOptions.merge());
+    }
+
+    /**
+     * Reads the summaries of several events, falling back to the event document for events
+     * whose summary has not been built.
+     * <p>
+     * Documents are read with {@code in} queries on the document ID, up to
+     * {@value #IDS_PER_QUERY} per query, so a screen showing many events makes a handful of
+     * requests rather than one per event.
+     * </p>
+     *
+     * @param eventIds The event IDs
+     * @return Task containing one snapshot per event that exists, summary or event document,
+     * in the order of {@code eventIds}
+     */
+    public Task<List<DocumentSnapshot>> getSummaries(@NonNull List<String> eventIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(eventIds));
+        return getByIds(SUMMARIES_COLLECTION, ids).continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                return Tasks.<List<DocumentSnapshot>>forException(task.getException());
+            }
+            Map<String, DocumentSnapshot> found = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (DocumentSnapshot doc : task.getResult()) {
+                if (isComplete(doc)) {
+                    found.put(doc.getId(), doc);
+                }
+            }
+            for (String id : ids) {
+                if (!found.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            return getByIds(EVENTS_COLLECTION, missing).continueWith(eventsTask -> {
+                if (!eventsTask.isSuccessful()) {
+                    throw eventsTask.getException();
+                }
+                for (DocumentSnapshot doc : eventsTask.getResult()) {
+                    found.put(doc.getId(), doc);
+                }
+                List<DocumentSnapshot> ordered = new ArrayList<>();
+                for (String id : ids) {
+                    DocumentSnapshot doc = found.get(id);
+                    if (doc != null) {
+                        ordered.add(doc);
+                    }
+                }
+                return ordered;
+            });
+        });
+    }
+
+    private Task<List<DocumentSnapshot>> getByIds(String collection, List<String> ids) {
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += IDS_PER_QUERY) {
+            List<String> chunk = new ArrayList<>(ids.subList(start, Math.min(start + IDS_PER_QUERY, ids.size())));
+            queries.add(db.collection(collection).whereIn(FieldPath.documentId(), chunk).get());
+        }
+        return Tasks.<QuerySnapshot>whenAllSuccess(queries).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            List<DocumentSnapshot> docs = new ArrayList<>();
+            for (QuerySnapshot snapshot : task.getResult()) {
+                docs.addAll(snapshot.getDocuments());
+            }
+            return docs;
+        });
+    }
+
+    /**
+     * @return True if the document is a summary written in full, not only counts
+     */
+    public static boolean isComplete(@Nullable DocumentSnapshot doc) {
+        return doc != null && Boolean.TRUE.equals(doc.getBoolean("summary"));
+    }
+
+    /**
+     * Writes the summary of every event. Events are read page by page and each page is written
+     * in one batch. Running it again repairs summaries that fell out of date.
+     *
+     * @return Task containing how much smaller the summaries are than the event documents
+     */
+    public Task<SizeReport> rebuildAll() {
+        return rebuildAfter(null, new SizeReport());
+    }
+
+    private Task<SizeReport> rebuildAfter(@Nullable DocumentSnapshot last, SizeReport report) {
+        Query page = db.collection(EVENTS_COLLECTION)
+                .orderBy(FieldPath.documentId())
+                .limit(REBUILD_PAGE_SIZE);
+        if (last != null) {
+            page = page.startAfter(last);
+        }
+        return page.get().continueWithTask(pageTask -> {
+            if (!pageTask.isSuccessful()) {
+                return Tasks.forException(pageTask.getException());
+            }
+            List<DocumentSnapshot> docs = pageTask.getResult().getDocuments();
+            WriteBatch batch = db.batch();
+            for (DocumentSnapshot doc : docs) {
+                Event event = EventMapper.fromSnapshot(doc);
+                if (event == null) {
+                    continue;
+                }
+                event.setId(doc.getId());
+                Map<String, Object> data = summaryData(event);
+                report.add(DocumentSize.of(doc),
+                        DocumentSize.ofDocument(SUMMARIES_COLLECTION + "/" + doc.getId(), data));
+                batch.set(summary(doc.getId()), data);
+            }
+            return batch.commit().continueWithTask(commitTask -> {
+                if (!commitTask.isSuccessful()) {
+                    return Tasks.forException(commitTask.getException());
+                }
+                if (docs.size() == REBUILD_PAGE_SIZE) {
+                    return rebuildAfter(docs.get(docs.size() - 1), report);
+                }
+                Log.d(TAG, "Event summaries rebuilt: " + report);
+                return Tasks.forResult(report);
+            });
+        });
+    }
+
+    /**
+     * Totals from {@link #rebuildAll()}: the bytes a list screen downloads per event when it
+     * reads event documents, against when it reads summaries.
+     */
+    public static class SizeReport {
+        private int events;
+        private long eventBytes;
+        private long summaryBytes;
+
+        void add(long eventSize, long summarySize) {
+            events++;
+            eventBytes += eventSize;
+            summaryBytes += summarySize;
+        }
+
+        /** @return Number of summaries written */
+        public int getEvents() {
+            return events;
+        }
+
+        /** @return Total size of the event documents, in bytes */
+        public long getEventBytes() {
+            return eventBytes;
+        }
+
+        /** @return Total size of the summaries, in bytes */
+        public long getSummaryBytes() {
+            return summaryBytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d events, %d bytes as events, %d bytes as summaries (%.0f%% saved)",
+                    events, eventBytes, summaryBytes,
+                    eventBytes > 0 ? 100.0 * (eventBytes - summaryBytes) / eventBytes : 0.0);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.atlasevents.data;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -7,14 +10,21 @@ import androidx.annotation.NonNull;
 import com.example.atlasevents.data.model.Invite;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
-import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,12 +36,34 @@ import java.util.Map;
  * event invitations. Invitations are stored in a separate "invites" collection
  * and are distinct from regular notifications.
  * </p>
+ * <p>
+ * An invite's document ID is derived from its event ID and recipient (see
+ * {@link #inviteId(String, String)}), so an entrant has at most one invite per event, looking it
+ * up is a single document read and creating it again never adds a duplicate: a pending or
+ * accepted invite is left as it is, and a declined or expired one is replaced by the new
+ * invite, as when the entrant is drawn again. Invites created before IDs were derived are
+ * still found through a query.
+ * </p>
  *
  * @see Invite
  */
 public class InviteRepository {
     private static final String TAG = "InviteRepository";
     private static final String COLLECTION_NAME = "invites";
+    /**
+     * Invites created per transaction. Each one is read before it is written, so the chunks
+     * are kept well below the write limit.
+     */
+    private static final int TRANSACTION_CHUNK_SIZE = 100;
+    private static final String LEASE_COLLECTION = "leases";
+    private static final String SWEEP_LEASE_ID = "inviteExpirySweep";
+    /** Document whose server timestamp {@link #getServerTime()} reads back. */
+    private static final String CLOCK_ID = "serverClock";
+    /** How long a learned server time is advanced locally before it is read again. */
+    private static final long SERVER_TIME_MAX_AGE_MS = 10 * 60 * 1000;
+    /** Last server time read, and the {@link SystemClock#elapsedRealtime()} it was read at. */
+    private static long serverTimeAtSync;
+    private static long serverTimeSyncedAt;
     private final FirebaseFirestore db;
 
     /**
@@ -52,16 +84,32 @@ public class InviteRepository {
     }
 
     /**
-     * Creates a new invitation in Firestore.
+     * Derives the document ID of the invite to an event sent to a recipient.
      *
-     * @param invite The invite object to create
-     * @return Task that completes when the invite is created
+     * @param eventId The event ID
+     * @param recipientEmail The recipient email
+     * @return The invite ID
      */
-    public Task<Void> createInvite(@NonNull Invite invite) {
-        CollectionReference invitesRef = db.collection(COLLECTION_NAME);
-        DocumentReference inviteDoc = invitesRef.document();
-        invite.setInviteId(inviteDoc.getId());
+    public static String inviteId(@NonNull String eventId, @NonNull String recipientEmail) {
+        // Document IDs cannot contain slashes
+        return eventId + "_" + recipientEmail.replace("/", "%2F");
+    }
 
+    /**
+     * @param eventId The event ID
+     * @param recipientEmail The recipient email
+     * @return The document the recipient's invite to the event is stored in
+     */
+    public DocumentReference invite(@NonNull String eventId, @NonNull String recipientEmail) {
+        return db.collection(COLLECTION_NAME).document(inviteId(eventId, recipientEmail));
+    }
+
+    private DocumentReference inviteRef(@NonNull Invite invite) {
+        invite.setInviteId(inviteId(invite.getEventId(), invite.getRecipientEmail()));
+        return db.collection(COLLECTION_NAME).document(invite.getInviteId());
+    }
+
+    private static Map<String, Object> inviteData(@NonNull Invite invite) {
         Map<String, Object> data = new HashMap<>();
         data.put("inviteId", invite.getInviteId());
         data.put("eventId", invite.getEventId());
@@ -72,34 +120,90 @@ public class InviteRepository {
         data.put("expirationTime", invite.getExpirationTime());
         data.put("message", invite.getMessage());
         data.put("createdAt", FieldValue.serverTimestamp());
+        return data;
+    }
 
-        return inviteDoc.set(data)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Invite created successfully: " + invite.getInviteId());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to create invite", e);
+    /**
+     * Creates a new invitation in Firestore unless the recipient already has a pending or
+     * accepted invite to the same event. A declined or expired invite is replaced.
+     *
+     * @param invite The invite object to create
+     * @return Task containing whether the invite was written
+     */
+    public Task<Boolean> createInvite(@NonNull Invite invite) {
+        return createChunk(Collections.singletonList(invite))
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        Log.e(TAG, "Failed to create invite", task.getException());
+                        throw task.getException();
+                    }
+                    Log.d(TAG, "Invite " + invite.getInviteId()
+                            + (task.getResult() > 0 ? " created" : " already open"));
+                    return task.getResult() > 0;
                 });
     }
 
     /**
-     * Creates multiple invitations in parallel.
+     * Creates multiple invitations in transactions of up to {@value #TRANSACTION_CHUNK_SIZE},
+     * committed in parallel.
+     * <p>
+     * Each transaction reads its invites first and only writes those that are missing or were
+     * declined or expired, so a pending invite keeps its deadline and an accepted one is never
+     * reset, while an entrant drawn again gets a fresh pending invite. Because invite IDs are
+     * derived, retrying after a failure skips the invites already created rather than creating
+     * duplicates.
+     * </p>
      *
      * @param invites List of invites to create
-     * @return Task containing a list of individual create tasks
+     * @return Task containing the number of invites written, failing if any transaction failed
      */
-    public Task<List<Task<Void>>> createInvites(@NonNull List<Invite> invites) {
-        List<Task<Void>> tasks = new ArrayList<>();
-        for (Invite invite : invites) {
-            tasks.add(createInvite(invite));
+    public Task<Integer> createInvites(@NonNull List<Invite> invites) {
+        List<Task<Integer>> commits = new ArrayList<>();
+        for (int start = 0; start < invites.size(); start += TRANSACTION_CHUNK_SIZE) {
+            commits.add(createChunk(invites.subList(start, Math.min(start + TRANSACTION_CHUNK_SIZE, invites.size()))));
         }
-        return Tasks.whenAll(tasks).continueWith(task -> {
-            if (task.isSuccessful()) {
-                Log.d(TAG, "Successfully created " + invites.size() + " invites");
-            } else {
+        return Tasks.whenAll(commits).continueWith(task -> {
+            if (!task.isSuccessful()) {
                 Log.e(TAG, "Failed to create some invites", task.getException());
+                throw task.getException();
+            }
+            int created = 0;
+            for (Task<Integer> commit : commits) {
+                created += commit.getResult();
             }
-            return tasks;
+            Log.d(TAG, "Created " + created + " of " + invites.size() + " invites in "
+                    + commits.size() + " transactions");
+            return created;
+        });
+    }
+
+    /**
+     * @return True if the invite exists and is pending or accepted, so a new invite for the
+     *         same entrant and event must not replace it
+     */
+    private static boolean isOpen(DocumentSnapshot invite) {
+        String status = invite.getString("status");
+        return invite.exists() && ("pending".equals(status) || "accepted".equals(status));
+    }
+
+    private Task<Integer> createChunk(List<Invite> chunk) {
+        List<DocumentReference> refs = new ArrayList<>();
+        for (Invite invite : chunk) {
+            refs.add(inviteRef(invite));
+        }
+        return db.runTransaction(transaction -> {
+            List<Boolean> open = new ArrayList<>();
+            for (DocumentReference ref : refs) {
+                open.add(isOpen(transaction.get(ref)));
+            }
+            int created = 0;
+            for (int i = 0; i < refs.size(); i++) {
+                if (!open.get(i)) {
+                    transaction.set(refs.get(i), inviteData(chunk.get(i)));
+                    created++;
+                }
+            }
+            return created;
         });
     }
 
@@ -139,6 +243,77 @@ public class InviteRepository {
                 });
     }
     
+    /**
+     * Receives the changes to a user's pending invites.
+     */
+    public interface PendingInvitesListener {
+        /**
+         * Called with the invites that changed since the previous call, on every snapshot; the
+         * first call reports every pending invite as added. Each list is newest first.
+         *
+         * @param added Invites that became pending
+         * @param modified Pending invites whose fields changed
+         * @param removedIds IDs of invites that were answered, expired or deleted
+         */
+        void onInvitesChanged(List<Invite> added, List<Invite> modified, List<String> removedIds);
+
+        /**
+         * Called when the listener fails; Firestore has removed it.
+         *
+         * @param e The exception thrown.
+         */
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Listens to the pending invites of a user, reporting only what changed in each snapshot
+     * so a screen can patch its list instead of reloading it. Invites past their deadline are
+     * reported as removed even before the expiry sweep marks them.
+     * <p>
+     * Uses the same composite index as {@link #getPendingInvitesForUser(String)}.
+     * </p>
+     *
+     * @param userEmail The email of the user
+     * @param listener Receives the changes
+     * @return The registration, to remove when the invites are no longer shown
+     */
+    public ListenerRegistration listenToPendingInvites(@NonNull String userEmail,
+                                                       @NonNull PendingInvitesListener listener) {
+        return db.collection(COLLECTION_NAME)
+                .whereEqualTo("recipientEmail", userEmail)
+                .whereEqualTo("status", "pending")
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Pending invites listener failed", error);
+                        listener.onFailure(error);
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+                    List<Invite> added = new ArrayList<>();
+                    List<Invite> modified = new ArrayList<>();
+                    List<String> removedIds = new ArrayList<>();
+                    for (DocumentChange change : snapshot.getDocumentChanges()) {
+                        String inviteId = change.getDocument().getId();
+                        Invite invite = change.getDocument().toObject(Invite.class);
+                        if (change.getType() == DocumentChange.Type.REMOVED
+                                || invite == null || invite.isExpired()) {
+                            removedIds.add(inviteId);
+                            continue;
+                        }
+                        invite.setInviteId(inviteId);
+                        if (change.getType() == DocumentChange.Type.ADDED) {
+                            added.add(invite);
+                        } else {
+                            modified.add(invite);
+                        }
+                    }
+                    listener.onInvitesChanged(added, modified, removedIds);
+                });
+    }
+
     /**
      * Retrieves pending invites without ordering (fallback when index is missing).
      * Results will be sorted in memory.
@@ -173,7 +348,8 @@ public class InviteRepository {
     }
     
     /**
-     * Helper method to process invite documents from a query snapshot
+     * Helper method to process invite documents from a query snapshot, leaving out expired
+     * invites. Reads never write.
      */
     private List<Invite> processInviteDocuments(QuerySnapshot snapshot) {
         List<Invite> invites = new ArrayList<>();
@@ -183,12 +359,9 @@ public class InviteRepository {
             Invite invite = doc.toObject(Invite.class);
             if (invite != null) {
                 invite.setInviteId(doc.getId());
-                // Filter out expired invites
+                // Expired invites are left for InviteExpiryScheduler to mark
                 if (!invite.isExpired()) {
                     invites.add(invite);
-                } else {
-                    // Auto-expire expired invites
-                    updateInviteStatus(doc.getId(), "expired");
                 }
             }
         }
@@ -223,18 +396,67 @@ public class InviteRepository {
     }
 
     /**
-     * Retrieves an invite by event ID and recipient email.
+     * Retrieves the pending invite of a recipient to an event.
+     * <p>
+     * Reads the invite's document directly; only when it does not exist is an invite created
+     * before IDs were derived looked for with a query.
+     * </p>
      *
      * @param eventId The event ID
      * @param recipientEmail The recipient email
-     * @return Task containing the invite, or null if not found
+     * @return Task containing the invite, or null if there is no pending invite
      */
     public Task<Invite> getInviteByEventAndRecipient(@NonNull String eventId, @NonNull String recipientEmail) {
-        return db.collection(COLLECTION_NAME)
+        return getInviteById(inviteId(eventId, recipientEmail)).continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                return Tasks.forException(task.getException());
+            }
+            Invite invite = task.getResult();
+            if (invite != null) {
+                return Tasks.forResult("pending".equals(invite.getStatus()) ? invite : null);
+            }
+            return getLegacyInvite(eventId, recipientEmail, true);
+        });
+    }
+
+    /**
+     * Finds the document of a recipient's invite to an event, whatever its status, for
+     * callers that read and write it in a transaction.
+     *
+     * @param eventId The event ID
+     * @param recipientEmail The recipient email
+     * @return Task containing the invite's document, or null if the recipient has no invite
+     */
+    public Task<DocumentReference> findInviteRef(@NonNull String eventId, @NonNull String recipientEmail) {
+        DocumentReference ref = invite(eventId, recipientEmail);
+        return ref.get().continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            if (task.getResult().exists()) {
+                return Tasks.forResult(ref);
+            }
+            return getLegacyInvite(eventId, recipientEmail, false).continueWith(legacyTask -> {
+                if (!legacyTask.isSuccessful()) {
+                    throw legacyTask.getException();
+                }
+                Invite legacy = legacyTask.getResult();
+                return legacy != null ? db.collection(COLLECTION_NAME).document(legacy.getInviteId()) : null;
+            });
+        });
+    }
+
+    /**
+     * Looks up an invite with a random ID, written before IDs were derived.
+     */
+    private Task<Invite> getLegacyInvite(String eventId, String recipientEmail, boolean pendingOnly) {
+        Query query = db.collection(COLLECTION_NAME)
                 .whereEqualTo("eventId", eventId)
-                .whereEqualTo("recipientEmail", recipientEmail)
-                .whereEqualTo("status", "pending")
-                .limit(1)
+                .whereEqualTo("recipientEmail", recipientEmail);
+        if (pendingOnly) {
+            query = query.whereEqualTo("status", "pending");
+        }
+        return query.limit(1)
                 .get()
                 .continueWith(task -> {
                     if (!task.isSuccessful()) {
@@ -276,6 +498,193 @@ public class InviteRepository {
                 });
     }
 
+    /**
+     * Retrieves pending invites whose expiration time has passed, oldest deadline first.
+     * <p>
+     * Requires a composite index on {@code status} (ascending) and {@code expirationTime}
+     * (ascending) in the invites collection.
+     * </p>
+     *
+     * @param now Current time in milliseconds
+     * @param limit Maximum number of invites to return
+     * @return Task containing expired pending invites ordered by expirationTime
+     */
+    public Task<List<Invite>> getExpiredPendingInvites(long now, int limit) {
+        return db.collection(COLLECTION_NAME)
+                .whereEqualTo("status", "pending")
+                .whereLessThanOrEqualTo("expirationTime", now)
+                .orderBy("expirationTime", Query.Direction.ASCENDING)
+                .limit(limit)
+                .get()
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+
+                    List<Invite> invites = new ArrayList<>();
+                    for (com.google.firebase.firestore.DocumentSnapshot doc : task.getResult().getDocuments()) {
+                        Invite invite = doc.toObject(Invite.class);
+                        if (invite != null) {
+                            invite.setInviteId(doc.getId());
+                            invites.add(invite);
+                        }
+                    }
+                    return invites;
+                });
+    }
+
+    /**
+     * Marks the given invites as expired, in transactions of up to
+     * {@value #TRANSACTION_CHUNK_SIZE} invites committed in parallel.
+     * <p>
+     * Each transaction reads its invites and only expires those still pending, so an invite
+     * accepted or declined after it was queried keeps its answer. Invites that were expired
+     * have their status set to {@code "expired"}; the others are left as they were, and a
+     * repeated page expires nothing.
+     * </p>
+     *
+     * @param invites Invites to expire (typically from {@link #getExpiredPendingInvites(long, int)})
+     * @return Task containing the number of invites expired, failing if any transaction failed
+     */
+    public Task<Integer> expireInvites(@NonNull List<Invite> invites) {
+        List<Task<Integer>> commits = new ArrayList<>();
+        for (int start = 0; start < invites.size(); start += TRANSACTION_CHUNK_SIZE) {
+            commits.add(expireChunk(invites.subList(start, Math.min(start + TRANSACTION_CHUNK_SIZE, invites.size()))));
+        }
+        return Tasks.whenAll(commits).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Failed to expire some invites", task.getException());
+                throw task.getException();
+            }
+            int expired = 0;
+            for (Task<Integer> commit : commits) {
+                expired += commit.getResult();
+            }
+            Log.d(TAG, "Expired " + expired + " of " + invites.size() + " invites in "
+                    + commits.size() + " transactions");
+            return expired;
+        });
+    }
+
+    private Task<Integer> expireChunk(List<Invite> chunk) {
+        return db.runTransaction(transaction -> {
+            List<Invite> pending = new ArrayList<>();
+            for (Invite invite : chunk) {
+                DocumentReference ref = db.collection(COLLECTION_NAME).document(invite.getInviteId());
+                if ("pending".equals(transaction.get(ref).getString("status"))) {
+                    pending.add(invite);
+                }
+            }
+            for (Invite invite : pending) {
+                transaction.update(db.collection(COLLECTION_NAME).document(invite.getInviteId()),
+                        "status", "expired");
+            }
+            return pending;
+        }).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            // Only once committed, since a transaction may run more than once
+            for (Invite invite : task.getResult()) {
+                invite.setStatus("expired");
+            }
+            return task.getResult().size();
+        });
+    }
+
+    /**
+     * Takes or renews the lease that lets one client at a time expire invites.
+     * <p>
+     * The lease is a document holding its holder and expiry time. It is granted when it is
+     * free, has lapsed, or is already held by {@code holder}, so a sweep renews it by calling
+     * this again before each page. A client that stops without releasing it blocks others
+     * only until it lapses.
+     * </p>
+     *
+     * @param holder ID of the client asking for the lease
+     * @param now Current time in milliseconds
+     * @param durationMs How long the lease lasts from now
+     * @return Task containing whether the lease is now held by {@code holder}
+     */
+    public Task<Boolean> acquireSweepLease(@NonNull String holder, long now, long durationMs) {
+        DocumentReference leaseRef = db.collection(LEASE_COLLECTION).document(SWEEP_LEASE_ID);
+        return db.runTransaction(transaction -> {
+            com.google.firebase.firestore.DocumentSnapshot lease = transaction.get(leaseRef);
+            String currentHolder = lease.getString("holder");
+            Long expiresAt = lease.getLong("expiresAt");
+            if (currentHolder != null && !currentHolder.equals(holder)
+                    && expiresAt != null && expiresAt > now) {
+                return false;
+            }
+            Map<String, Object> data = new HashMap<>();
+            data.put("holder", holder);
+            data.put("expiresAt", now + durationMs);
+            data.put("renewedAt", FieldValue.serverTimestamp());
+            transaction.set(leaseRef, data);
+            return true;
+        });
+    }
+
+    /**
+     * Returns the current server time, the one clock invite deadlines are set and checked
+     * against, so a device clock that is off neither shortens nor stretches an invite.
+     * <p>
+     * The server time is learned by writing a server timestamp and reading it back, then
+     * advanced with the device's monotonic clock, which changing the time does not affect. It
+     * is learned again once {@value #SERVER_TIME_MAX_AGE_MS} ms have passed.
+     * </p>
+     *
+     * @return Task containing the server time in milliseconds
+     */
+    public Task<Long> getServerTime() {
+        synchronized (InviteRepository.class) {
+            if (serverTimeSyncedAt != 0
+                    && SystemClock.elapsedRealtime() - serverTimeSyncedAt < SERVER_TIME_MAX_AGE_MS) {
+                return Tasks.forResult(serverTimeAtSync + SystemClock.elapsedRealtime() - serverTimeSyncedAt);
+            }
+        }
+        DocumentReference clockRef = db.collection(LEASE_COLLECTION).document(CLOCK_ID);
+        return clockRef.set(Collections.singletonMap("now", FieldValue.serverTimestamp()))
+                .continueWithTask(writeTask -> {
+                    if (!writeTask.isSuccessful()) {
+                        throw writeTask.getException();
+                    }
+                    return clockRef.get(Source.SERVER);
+                })
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+                    Timestamp now = task.getResult().getTimestamp("now");
+                    if (now == null) {
+                        throw new FirebaseFirestoreException("No server time",
+                                FirebaseFirestoreException.Code.UNAVAILABLE);
+                    }
+                    synchronized (InviteRepository.class) {
+                        serverTimeAtSync = now.toDate().getTime();
+                        serverTimeSyncedAt = SystemClock.elapsedRealtime();
+                    }
+                    return now.toDate().getTime();
+                });
+    }
+
+    /**
+     * Releases the sweep lease if {@code holder} still holds it.
+     *
+     * @param holder ID of the client that took the lease
+     * @return Task that completes when the lease is released or found held by another client
+     */
+    public Task<Void> releaseSweepLease(@NonNull String holder) {
+        DocumentReference leaseRef = db.collection(LEASE_COLLECTION).document(SWEEP_LEASE_ID);
+        return db.runTransaction(transaction -> {
+            com.google.firebase.firestore.DocumentSnapshot lease = transaction.get(leaseRef);
+            if (holder.equals(lease.getString("holder"))) {
+                transaction.delete(leaseRef);
+            }
+            return null;
+        });
+    }
+
     /**
      * Deletes an invite.
      *
@@ -302,27 +711,32 @@ public class InviteRepository {
      * @return Task that completes when the invite is deleted
      */
     public Task<Void> deleteInviteByEventAndRecipient(@NonNull String eventId, @NonNull String recipientEmail) {
-        return db.collection(COLLECTION_NAME)
-                .whereEqualTo("eventId", eventId)
-                .whereEqualTo("recipientEmail", recipientEmail)
-                .limit(1)
-                .get()
-                .continueWithTask(task -> {
-                    if (!task.isSuccessful()) {
-                        throw task.getException();
-                    }
-
-                    QuerySnapshot snapshot = task.getResult();
-                    if (!snapshot.isEmpty()) {
-                        String inviteId = snapshot.getDocuments().get(0).getId();
-                        return deleteInvite(inviteId);
-                    }
-                    return Tasks.forResult(null);
-                });
+        String inviteId = inviteId(eventId, recipientEmail);
+        return db.collection(COLLECTION_NAME).document(inviteId).get().continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            if (task.getResult().exists()) {
+                return deleteInvite(inviteId);
+            }
+            return getLegacyInvite(eventId, recipientEmail, false).continueWithTask(legacyTask -> {
+                if (!legacyTask.isSuccessful()) {
+                    throw legacyTask.getException();
+                }
+                Invite legacy = legacyTask.getResult();
+                return legacy != null ? deleteInvite(legacy.getInviteId()) : Tasks.forResult(null);
+            });
+        });
     }
 
     /**
-     * Counts the number of pending invites for a user.
+     * Counts the unexpired pending invites for a user.
+     * <p>
+     * The count is an aggregate query with the expiration check in the query itself, so it
+     * costs one read per thousand matching invites rather than downloading each of them.
+     * Requires a composite index on {@code recipientEmail}, {@code status} and
+     * {@code expirationTime} (all ascending) in the invites collection.
+     * </p>
      *
      * @param userEmail The email of the user
      * @return Task containing the count of pending invites
@@ -331,23 +745,112 @@ public class InviteRepository {
         return db.collection(COLLECTION_NAME)
                 .whereEqualTo("recipientEmail", userEmail)
                 .whereEqualTo("status", "pending")
-                .get()
+                .whereGreaterThan("expirationTime", System.currentTimeMillis())
+                .count()
+                .get(AggregateSource.SERVER)
                 .continueWith(task -> {
                     if (!task.isSuccessful()) {
                         throw task.getException();
                     }
+                    return (int) task.getResult().getCount();
+                });
+    }
 
-                    QuerySnapshot snapshot = task.getResult();
-                    int count = 0;
-                    long currentTime = System.currentTimeMillis();
-                    for (com.google.firebase.firestore.DocumentSnapshot doc : snapshot.getDocuments()) {
-                        Long expirationTime = doc.getLong("expirationTime");
-                        if (expirationTime != null && expirationTime > currentTime) {
-                            count++;
-                        }
+    /**
+     * Receives the number of a user's pending invites whenever it changes.
+     */
+    public interface PendingCountListener {
+        /**
+         * @param count Pending invites whose deadline has not passed
+         */
+        void onCount(int count);
+    }
+
+    /**
+     * Keeps a badge's count of a user's unexpired pending invites up to date.
+     * <p>
+     * The count is taken from the listener's own snapshot, so it costs no reads beyond the
+     * changed invites the listener downloads anyway. Deadlines are compared with
+     * {@link #getServerTime()}, and the count is taken again when the next deadline passes,
+     * so the badge drops even if nothing is written when an invite runs out.
+     * </p>
+     *
+     * @param userEmail The email of the user
+     * @param listener Receives the count once when attached and after every change, on the
+     *                 main thread
+     * @return The registration, to remove when the badge is no longer shown
+     */
+    public ListenerRegistration listenForPendingInviteCount(@NonNull String userEmail,
+                                                            @NonNull PendingCountListener listener) {
+        PendingCountRegistration registration = new PendingCountRegistration(listener);
+        registration.snapshots = db.collection(COLLECTION_NAME)
+                .whereEqualTo("recipientEmail", userEmail)
+                .whereEqualTo("status", "pending")
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Pending invites listener failed", error);
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+                    List<Long> deadlines = new ArrayList<>();
+                    for (DocumentSnapshot invite : snapshot.getDocuments()) {
+                        Long expirationTime = invite.getLong("expirationTime");
+                        deadlines.add(expirationTime != null ? expirationTime : 0L);
                     }
-                    return count;
+                    registration.deadlines = deadlines;
+                    registration.recount();
                 });
+        return registration;
+    }
+
+    /**
+     * Counts the pending invites last seen by a {@link #listenForPendingInviteCount} listener
+     * and schedules the next count for the earliest deadline still ahead.
+     */
+    private class PendingCountRegistration implements ListenerRegistration {
+        private final PendingCountListener listener;
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private final Runnable scheduledRecount = this::recount;
+        private ListenerRegistration snapshots;
+        private List<Long> deadlines = new ArrayList<>();
+        private boolean removed = false;
+
+        PendingCountRegistration(PendingCountListener listener) {
+            this.listener = listener;
+        }
+
+        void recount() {
+            getServerTime().addOnCompleteListener(timeTask -> {
+                if (removed) {
+                    return;
+                }
+                long now = timeTask.isSuccessful() ? timeTask.getResult() : System.currentTimeMillis();
+                int count = 0;
+                long next = Long.MAX_VALUE;
+                for (long deadline : deadlines) {
+                    if (deadline > now) {
+                        count++;
+                        next = Math.min(next, deadline);
+                    }
+                }
+                handler.removeCallbacks(scheduledRecount);
+                if (next != Long.MAX_VALUE) {
+                    handler.postDelayed(scheduledRecount, next - now);
+                }
+                listener.onCount(count);
+            });
+        }
+
+        @Override
+        public void remove() {
+            removed = true;
+            handler.removeCallbacks(scheduledRecount);
+            if (snapshots != null) {
+                snapshots.remove();
+            }
+        }
     }
 }
 
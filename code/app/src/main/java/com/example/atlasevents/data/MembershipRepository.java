@@ -0,0 +1,646 @@
+package com.example.atlasevents.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.atlasevents.Entrant;
+import com.example.atlasevents.EntrantList;
+import com.example.atlasevents.Event;
+import com.example.atlasevents.data.model.Member;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository class for event membership stored in the {@code events/{eventId}/members}
+ * subcollection.
+ * <p>
+ * Each entrant has one {@link Member} document per event, keyed by email, carrying their status
+ * (waiting, invited, accepted or declined). The event document keeps a counter per status
+ * ({@code waitingCount}, {@code invitedCount}, {@code acceptedCount}, {@code declinedCount}),
+ * updated with increments in the same transaction as the member document. Joining, leaving and
+ * responding therefore write a constant number of small documents no matter how large the event
+ * is, and never rewrite other entrants' data.
+ * </p>
+ * <p>
+ * Only events with {@code membersEnabled} set use this layout. New events are created with it;
+ * older events keep their lists on the event document until {@link #migrateEvent(String)} moves
+ * them here.
+ * </p>
+ *
+ * @see Member
+ * @see Event#isMembersEnabled()
+ */
+public class MembershipRepository {
+    private static final String TAG = "MembershipRepository";
+    private static final String EVENTS_COLLECTION = "events";
+    private static final String MEMBERS_COLLECTION = "members";
+
+    /** Documents read per page when scanning members. */
+    public static final int PAGE_SIZE = 500;
+    /** Members moved per transaction by {@link #transitionMembers}, well below the write limit. */
+    public static final int TRANSACTION_CHUNK_SIZE = 100;
+    /** Writes per batch when migrating, below the 500-write limit. */
+    private static final int MIGRATION_BATCH_SIZE = 450;
+    /** Events read per page by {@link #migrateAllEvents()}. */
+    private static final int MIGRATION_PAGE_SIZE = 50;
+
+    private final FirebaseFirestore db;
+    private final EventSummaryRepository summaries;
+
+    /**
+     * Constructs a new MembershipRepository with the default Firebase Firestore instance.
+     */
+    public MembershipRepository() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    /**
+     * Constructs a new MembershipRepository with a custom Firebase Firestore instance.
+     * For testing.
+     *
+     * @param db Firebase Firestore instance
+     */
+    public MembershipRepository(FirebaseFirestore db) {
+        this.db = db;
+        this.summaries = new EventSummaryRepository(db);
+    }
+
+    private DocumentReference eventRef(String eventId) {
+        return db.collection(EVENTS_COLLECTION).document(eventId);
+    }
+
+    /**
+     * @param eventId The event ID
+     * @return The event's members subcollection
+     */
+    public CollectionReference members(String eventId) {
+        return eventRef(eventId).collection(MEMBERS_COLLECTION);
+    }
+
+    /**
+     * @param eventId The event ID
+     * @param email The entrant's email
+     * @return The entrant's member document, which may not exist
+     */
+    public DocumentReference member(String eventId, String email) {
+        return members(eventId).document(email);
+    }
+
+    /**
+     * Writes a new waiting member in a transaction that has already checked the entrant is not
+     * a member, and increments {@code waitingCount} on the event and its summary. The rest of
+     * the event document is not rewritten.
+     *
+     * @param transaction The running transaction
+     * @param eventId The event ID
+     * @param entrant The entrant joining
+     * @param location Where the entrant joined from, stored in {@code entrantCoords}, may be null
+     */
+    public void addWaiting(@NonNull Transaction transaction, @NonNull String eventId,
+                           @NonNull Entrant entrant, @Nullable GeoPoint location) {
+        String email = entrant.getEmail();
+        transaction.set(member(eventId, email), new Member(email, entrant.getName(), Member.STATUS_WAITING));
+        transaction.update(eventRef(eventId), Member.counterField(Member.STATUS_WAITING), FieldValue.increment(1));
+        Map<String, Object> counters = new HashMap<>();
+        counters.put(Member.counterField(Member.STATUS_WAITING), FieldValue.increment(1));
+        summaries.updateCounts(transaction, eventId, counters);
+        if (location != null) {
+            transaction.update(eventRef(eventId), FieldPath.of("entrantCoords", email), location);
+        }
+    }
+
+    /**
+     * Removes a waiting member, read earlier in the same transaction, along with their join
+     * location.
+     *
+     * @param transaction The running transaction
+     * @param eventId The event ID
+     * @param email The member's email
+     */
+    public void removeWaiting(@NonNull Transaction transaction, @NonNull String eventId, @NonNull String email) {
+        transition(transaction, eventId, email, Member.STATUS_WAITING, null);
+        transaction.update(eventRef(eventId), FieldPath.of("entrantCoords", email), FieldValue.delete());
+    }
+
+    /**
+     * Retrieves one entrant's membership.
+     *
+     * @param eventId The event ID
+     * @param email The entrant's email
+     * @return Task containing the member, or null if the entrant is not a member
+     */
+    public Task<Member> getMember(@NonNull String eventId, @NonNull String email) {
+        return member(eventId, email).get().continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            return fromSnapshot(task.getResult());
+        });
+    }
+
+    /**
+     * Retrieves one page of members, ordered by email.
+     *
+     * @param eventId The event ID
+     * @param status Status to filter by, or null for every member
+     * @param pageSize Maximum number of members in the page
+     * @param startAfter Last document of the previous page, or null for the first page
+     * @return Task containing the page
+     */
+    public Task<QuerySnapshot> getMembersPage(@NonNull String eventId, @Nullable String status,
+                                              int pageSize, @Nullable DocumentSnapshot startAfter) {
+        Query query = members(eventId);
+        if (status != null) {
+            query = query.whereEqualTo("status", status);
+        }
+        query = query.orderBy(FieldPath.documentId()).limit(pageSize);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        return query.get();
+    }
+
+    /**
+     * Retrieves every member with the given status, reading {@link #PAGE_SIZE} documents at a time.
+     *
+     * @param eventId The event ID
+     * @param status Status to filter by, or null for every member
+     * @return Task containing the members, ordered by email
+     */
+    public Task<List<Member>> getMembers(@NonNull String eventId, @Nullable String status) {
+        return collectMembers(eventId, status, null, new ArrayList<>());
+    }
+
+    private Task<List<Member>> collectMembers(String eventId, String status, DocumentSnapshot startAfter,
+                                              List<Member> collected) {
+        return getMembersPage(eventId, status, PAGE_SIZE, startAfter).continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                return Tasks.forException(task.getException());
+            }
+            List<DocumentSnapshot> docs = task.getResult().getDocuments();
+            for (DocumentSnapshot doc : docs) {
+                Member member = fromSnapshot(doc);
+                if (member != null) {
+                    collected.add(member);
+                }
+            }
+            if (docs.size() < PAGE_SIZE) {
+                return Tasks.forResult(collected);
+            }
+            return collectMembers(eventId, status, docs.get(docs.size() - 1), collected);
+        });
+    }
+
+    /**
+     * Loads the members of an event with one status as an entrant list, for screens that show
+     * one list at a time.
+     *
+     * @param eventId The event ID
+     * @param status The members' status, such as {@link Member#STATUS_WAITING}
+     * @return Task containing the members as entrants
+     */
+    public Task<EntrantList> loadEntrantList(@NonNull String eventId, @NonNull String status) {
+        return getMembers(eventId, status).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            EntrantList list = new EntrantList();
+            for (Member member : task.getResult()) {
+                list.addEntrant(member.toEntrant());
+            }
+            return list;
+        });
+    }
+
+    /**
+     * Fills the event's four entrant lists from its members, for screens that display or
+     * export whole lists. Events that still store their lists inline are returned unchanged.
+     *
+     * @param event The event to load lists for
+     * @return Task containing the same event with populated lists
+     */
+    public Task<Event> loadEntrantLists(@NonNull Event event) {
+        if (!event.isMembersEnabled() || event.getId() == null) {
+            return Tasks.forResult(event);
+        }
+        return getMembers(event.getId(), null).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            EntrantList waitlist = new EntrantList();
+            EntrantList inviteList = new EntrantList();
+            EntrantList acceptedList = new EntrantList();
+            EntrantList declinedList = new EntrantList();
+            for (Member member : task.getResult()) {
+                if (Member.STATUS_INVITED.equals(member.getStatus())) {
+                    inviteList.addEntrant(member.toEntrant());
+                } else if (Member.STATUS_ACCEPTED.equals(member.getStatus())) {
+                    acceptedList.addEntrant(member.toEntrant());
+                } else if (Member.STATUS_DECLINED.equals(member.getStatus())) {
+                    declinedList.addEntrant(member.toEntrant());
+                } else {
+                    waitlist.addEntrant(member.toEntrant());
+                }
+            }
+            event.setWaitlist(waitlist);
+            event.setInviteList(inviteList);
+            event.setAcceptedList(acceptedList);
+            event.setDeclinedList(declinedList);
+            return event;
+        });
+    }
+
+    /**
+     * Moves members from one status to another. Members are re-read inside transactional
+     * chunks and only those still in {@code from} are moved, so concurrent callers never move
+     * the same member twice and the counters stay exact.
+     *
+     * @param eventId The event ID
+     * @param emails Emails of the members to move
+     * @param from Status the members must currently have, or null to accept any status
+     * @param to New status, or null to remove the members
+     * @return Task containing the members that this call moved, with their previous status;
+     *         fails if any chunk failed, even though other chunks may have committed
+     */
+    public Task<List<Member>> transitionMembers(@NonNull String eventId, @NonNull List<String> emails,
+                                                @Nullable String from, @Nullable String to) {
+        List<Task<List<Member>>> chunkTasks = new ArrayList<>();
+        for (int start = 0; start < emails.size(); start += TRANSACTION_CHUNK_SIZE) {
+            List<String> chunk = new ArrayList<>(
+                    emails.subList(start, Math.min(start + TRANSACTION_CHUNK_SIZE, emails.size())));
+            chunkTasks.add(transitionChunk(eventId, chunk, from, to));
+        }
+
+        return Tasks.whenAllComplete(chunkTasks).continueWith(task -> {
+            List<Member> moved = new ArrayList<>();
+            Exception failure = null;
+            for (Task<List<Member>> chunkTask : chunkTasks) {
+                if (chunkTask.isSuccessful() && chunkTask.getResult() != null) {
+                    moved.addAll(chunkTask.getResult());
+                } else {
+                    Log.e(TAG, "Failed to move a chunk of members", chunkTask.getException());
+                    failure = chunkTask.getException();
+                }
+            }
+            if (failure != null) {
+                Log.e(TAG, "Moved only " + moved.size() + " of " + emails.size() + " members to " + to);
+                throw failure;
+            }
+            Log.d(TAG, "Moved " + moved.size() + " of " + emails.size() + " members to " + to);
+            return moved;
+        });
+    }
+
+    private Task<List<Member>> transitionChunk(String eventId, List<String> emails, String from, String to) {
+        return db.runTransaction(transaction -> transition(transaction, eventId, emails, from, to));
+    }
+
+    /**
+     * Moves those of the given members still in {@code from} to {@code to} within a running
+     * transaction that has not written anything yet. Callers keep {@code emails} to at most
+     * {@link #TRANSACTION_CHUNK_SIZE} so the transaction stays under the write limit.
+     *
+     * @param transaction The running transaction
+     * @param eventId The event ID
+     * @param emails Emails of the members to move
+     * @param from Status the members must currently have, or null to accept any status
+     * @param to New status, or null to remove the members
+     * @return The members moved, with their previous status
+     */
+    public List<Member> transition(@NonNull Transaction transaction, @NonNull String eventId,
+                                   @NonNull List<String> emails, @Nullable String from, @Nullable String to)
+            throws FirebaseFirestoreException {
+        // All reads must happen before any write in a transaction
+        List<Member> eligible = new ArrayList<>();
+        for (String email : emails) {
+            Member member = fromSnapshot(transaction.get(member(eventId, email)));
+            if (member != null && (from == null || from.equals(member.getStatus()))
+                    && !member.getStatus().equals(to)) {
+                eligible.add(member);
+            }
+        }
+        for (Member member : eligible) {
+            transition(transaction, eventId, member.getEmail(), member.getStatus(), to);
+        }
+        return eligible;
+    }
+
+    /**
+     * Writes a status change for a member that the caller has already read in this transaction,
+     * and moves one count between the counters of the event and its summary.
+     *
+     * @param transaction The running transaction
+     * @param eventId The event ID
+     * @param email The member's email
+     * @param from The member's current status
+     * @param to The new status, or null to remove the member
+     */
+    public void transition(@NonNull Transaction transaction, @NonNull String eventId, @NonNull String email,
+                           @NonNull String from, @Nullable String to) {
+        DocumentReference memberRef = member(eventId, email);
+        if (to == null) {
+            transaction.delete(memberRef);
+        } else {
+            transaction.update(memberRef, "status", to);
+        }
+
+        Map<String, Object> counters = new HashMap<>();
+        String fromField = Member.counterField(from);
+        String toField = Member.counterField(to);
+        if (fromField != null) {
+            counters.put(fromField, FieldValue.increment(-1));
+        }
+        if (toField != null) {
+            counters.put(toField, FieldValue.increment(1));
+        }
+        if (!counters.isEmpty()) {
+            transaction.update(eventRef(eventId), counters);
+            summaries.updateCounts(transaction, eventId, counters);
+        }
+    }
+
+    /**
+     * Moves an event that stores its entrant lists on the event document to the members
+     * subcollection. Member documents are written in batches, and member documents left by an
+     * earlier attempt for entrants no longer on the lists are deleted with them. The event is
+     * then switched over in a transaction that sets the counters, sets {@code membersEnabled}
+     * and deletes the inline lists. Entrants who joined, left or moved while the members were
+     * being copied are written or deleted in the same transaction, so the subcollection always
+     * matches the lists it replaces; if too many changed, the switch is aborted and the
+     * migration can simply be run again.
+     *
+     * @param eventId The event ID
+     * @return Task containing the number of members written, 0 if the event was already migrated
+     */
+    public Task<Integer> migrateEvent(@NonNull String eventId) {
+        DocumentReference eventRef = eventRef(eventId);
+        Task<DocumentSnapshot> eventTask = eventRef.get();
+        Task<QuerySnapshot> existingTask = members(eventId).get();
+        return Tasks.whenAll(eventTask, existingTask).continueWithTask(readTask -> {
+            if (!readTask.isSuccessful()) {
+                return Tasks.forException(readTask.getException());
+            }
+            DocumentSnapshot doc = eventTask.getResult();
+            if (!doc.exists()) {
+                return Tasks.forException(new FirebaseFirestoreException("Event document not found",
+                        FirebaseFirestoreException.Code.NOT_FOUND));
+            }
+            if (Boolean.TRUE.equals(doc.getBoolean("membersEnabled"))) {
+                return Tasks.forResult(0);
+            }
+
+            Map<String, Member> legacy = readLegacyMembers(doc);
+            List<DocumentReference> stale = new ArrayList<>();
+            for (DocumentSnapshot existing : existingTask.getResult()) {
+                if (!legacy.containsKey(existing.getId())) {
+                    stale.add(existing.getReference());
+                }
+            }
+
+            List<Task<Void>> batches = new ArrayList<>();
+            WriteBatch batch = db.batch();
+            int pending = 0;
+            for (Member member : legacy.values()) {
+                batch.set(member(eventId, member.getEmail()), member);
+                if (++pending == MIGRATION_BATCH_SIZE) {
+                    batches.add(batch.commit());
+                    batch = db.batch();
+                    pending = 0;
+                }
+            }
+            for (DocumentReference ref : stale) {
+                batch.delete(ref);
+                if (++pending == MIGRATION_BATCH_SIZE) {
+                    batches.add(batch.commit());
+                    batch = db.batch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                batches.add(batch.commit());
+            }
+
+            return Tasks.whenAll(batches).continueWithTask(writeTask -> {
+                if (!writeTask.isSuccessful()) {
+                    return Tasks.forException(writeTask.getException());
+                }
+                return db.runTransaction(transaction -> {
+                    DocumentSnapshot current = transaction.get(eventRef);
+                    if (Boolean.TRUE.equals(current.getBoolean("membersEnabled"))) {
+                        return 0;
+                    }
+                    Map<String, Member> members = readLegacyMembers(current);
+
+                    // Bring the copied members in line with the lists as they are now
+                    List<String> removed = new ArrayList<>();
+                    for (String email : legacy.keySet()) {
+                        if (!members.containsKey(email)) {
+                            removed.add(email);
+                        }
+                    }
+                    List<Member> changed = new ArrayList<>();
+                    for (Member member : members.values()) {
+                        Member copied = legacy.get(member.getEmail());
+                        if (copied == null || !copied.getStatus().equals(member.getStatus())) {
+                            changed.add(member);
+                        }
+                    }
+                    if (removed.size() + changed.size() > MIGRATION_BATCH_SIZE - 2) {
+                        throw new FirebaseFirestoreException("Entrant lists changed during migration",
+                                FirebaseFirestoreException.Code.ABORTED);
+                    }
+                    for (String email : removed) {
+                        transaction.delete(member(eventId, email));
+                    }
+                    for (Member member : changed) {
+                        transaction.set(member(eventId, member.getEmail()), member);
+                    }
+
+                    Map<String, Object> updates = new HashMap<>();
+                    for (String status : new String[]{Member.STATUS_WAITING, Member.STATUS_INVITED,
+                            Member.STATUS_ACCEPTED, Member.STATUS_DECLINED}) {
+                        updates.put(Member.counterField(status), countStatus(members, status));
+                    }
+                    summaries.updateCounts(transaction, eventId, new HashMap<>(updates));
+                    updates.put("membersEnabled", true);
+                    updates.put("waitlist", FieldValue.delete());
+                    updates.put("inviteList", FieldValue.delete());
+                    updates.put("acceptedList", FieldValue.delete());
+                    updates.put("declinedList", FieldValue.delete());
+                    transaction.update(eventRef, updates);
+                    return members.size();
+                });
+            }).addOnSuccessListener(count ->
+                    Log.d(TAG, "Migrated " + count + " members for event: " + eventId));
+        });
+    }
+
+    /**
+     * Deletes every member document of an event, page by page in batches. Used when the event
+     * itself is deleted, since deleting a document leaves its subcollections behind.
+     *
+     * @param eventId The event ID
+     * @return Task containing the number of member documents deleted
+     */
+    public Task<Integer> deleteMembers(@NonNull String eventId) {
+        return deleteMembersFrom(eventId, 0);
+    }
+
+    private Task<Integer> deleteMembersFrom(String eventId, int deleted) {
+        return members(eventId).limit(MIGRATION_BATCH_SIZE).get().continueWithTask(pageTask -> {
+            if (!pageTask.isSuccessful()) {
+                return Tasks.forException(pageTask.getException());
+            }
+            List<DocumentSnapshot> docs = pageTask.getResult().getDocuments();
+            if (docs.isEmpty()) {
+                return Tasks.forResult(deleted);
+            }
+            WriteBatch batch = db.batch();
+            for (DocumentSnapshot doc : docs) {
+                batch.delete(doc.getReference());
+            }
+            return batch.commit().continueWithTask(commitTask -> {
+                if (!commitTask.isSuccessful()) {
+                    return Tasks.forException(commitTask.getException());
+                }
+                if (docs.size() < MIGRATION_BATCH_SIZE) {
+                    return Tasks.forResult(deleted + docs.size());
+                }
+                return deleteMembersFrom(eventId, deleted + docs.size());
+            });
+        });
+    }
+
+    /**
+     * Backfills the members subcollection for every event that still stores its entrant lists
+     * inline, so that those events are found through the members reverse index (see
+     * {@link EventRepository#getEventsByEntrant}). Events are read page by page and each page is
+     * migrated in parallel with {@link #migrateEvent(String)}. Events that fail are skipped and
+     * reported at the end; running the backfill again retries only the events still unmigrated.
+     * {@link MigrationRepository#runPending()} runs it until it succeeds once.
+     *
+     * @return Task containing the number of events migrated, failing with ABORTED if any event
+     *         could not be migrated
+     */
+    public Task<Integer> migrateAllEvents() {
+        return migrateEventsAfter(null, 0, 0);
+    }
+
+    private Task<Integer> migrateEventsAfter(@Nullable DocumentSnapshot last, int migrated, int failed) {
+        Query page = db.collection(EVENTS_COLLECTION)
+                .orderBy(FieldPath.documentId())
+                .limit(MIGRATION_PAGE_SIZE);
+        if (last != null) {
+            page = page.startAfter(last);
+        }
+        return page.get().continueWithTask(pageTask -> {
+            if (!pageTask.isSuccessful()) {
+                return Tasks.forException(pageTask.getException());
+            }
+            List<DocumentSnapshot> docs = pageTask.getResult().getDocuments();
+            List<Task<Integer>> migrations = new ArrayList<>();
+            for (DocumentSnapshot doc : docs) {
+                if (!Boolean.TRUE.equals(doc.getBoolean("membersEnabled"))) {
+                    migrations.add(migrateEvent(doc.getId()));
+                }
+            }
+            return Tasks.whenAllComplete(migrations).continueWithTask(done -> {
+                int pageMigrated = 0;
+                int pageFailed = 0;
+                for (Task<Integer> migration : migrations) {
+                    if (migration.isSuccessful()) {
+                        pageMigrated++;
+                    } else {
+                        pageFailed++;
+                        Log.e(TAG, "Backfill failed for an event", migration.getException());
+                    }
+                }
+                int totalMigrated = migrated + pageMigrated;
+                int totalFailed = failed + pageFailed;
+                if (docs.size() == MIGRATION_PAGE_SIZE) {
+                    return migrateEventsAfter(docs.get(docs.size() - 1), totalMigrated, totalFailed);
+                }
+                Log.d(TAG, "Backfill migrated " + totalMigrated + " events, " + totalFailed + " failed");
+                if (totalFailed > 0) {
+                    return Tasks.<Integer>forException(new FirebaseFirestoreException(
+                            totalFailed + " events could not be migrated, run the backfill again",
+                            FirebaseFirestoreException.Code.ABORTED));
+                }
+                return Tasks.forResult(totalMigrated);
+            });
+        });
+    }
+
+    /**
+     * Reads the inline lists of an unmigrated event. An entrant found in several lists keeps
+     * the most advanced status: accepted, then declined, then invited, then waiting.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Member> readLegacyMembers(DocumentSnapshot doc) {
+        Map<String, Member> members = new LinkedHashMap<>();
+        String[][] lists = {
+                {"acceptedList", Member.STATUS_ACCEPTED},
+                {"declinedList", Member.STATUS_DECLINED},
+                {"inviteList", Member.STATUS_INVITED},
+                {"waitlist", Member.STATUS_WAITING}
+        };
+        for (String[] list : lists) {
+            Object data = doc.get(list[0]);
+            EntrantList entrants = EntrantList.fromFirestoreMap(
+                    data instanceof Map ? (Map<String, Object>) data : null);
+            for (Entrant entrant : entrants.getAllEntrants()) {
+                if (!members.containsKey(entrant.getEmail())) {
+                    members.put(entrant.getEmail(), new Member(entrant.getEmail(), entrant.getName(), list[1]));
+                }
+            }
+        }
+        return members;
+    }
+
+    private static int countStatus(Map<String, Member> members, String status) {
+        int count = 0;
+        for (Member member : members.values()) {
+            if (status.equals(member.getStatus())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Parses a member document, using the document ID as the email.
+     *
+     * @param doc Member document snapshot, may be null
+     * @return The member, or null if the document does not exist
+     */
+    public static Member fromSnapshot(DocumentSnapshot doc) {
+        if (doc == null || !doc.exists()) {
+            return null;
+        }
+        Member member = doc.toObject(Member.class);
+        if (member != null) {
+            member.setEmail(doc.getId());
+        }
+        return member;
+    }
+}
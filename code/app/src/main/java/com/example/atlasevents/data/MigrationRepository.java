@@ -0,0 +1,153 @@
+package com.example.atlasevents.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the one-time data backfills and records which of them have finished.
+ * <p>
+ * Each backfill has a marker document in the {@code migrations} collection, written once the
+ * backfill completed without failures. Readers that depend on a backfill check its marker
+ * with {@link #isComplete(String)} and fall back to the old data layout until it exists.
+ * {@link #runPending()} is called when an admin screen starts and runs every backfill whose
+ * marker is missing; backfills are idempotent, so two admins running them at once only
+ * repeat work.
+ * </p>
+ */
+public class MigrationRepository {
+    private static final String TAG = "MigrationRepository";
+    public static final String MIGRATIONS_COLLECTION = "migrations";
+
+    /** Moves inline entrant lists to the members subcollection. */
+    public static final String MEMBERS = "members";
+
+    /** Moves search keywords from event documents to the {@code searchIndex} collection. */
+    public static final String SEARCH_INDEX = "searchIndex";
+
+    /** Builds the {@code eventSummaries} documents that list screens read. */
+    public static final String SUMMARIES = "eventSummaries";
+
+    /** Markers already seen by this repository; a backfill is never undone. */
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+    /** Whether {@link #runPending()} is running in this process. */
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final FirebaseFirestore db;
+
+    /**
+     * Constructs a new MigrationRepository with the default Firebase Firestore instance.
+     */
+    public MigrationRepository() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    /**
+     * Constructs a new MigrationRepository with a custom Firebase Firestore instance.
+     * For testing.
+     *
+     * @param db Firebase Firestore instance
+     */
+    public MigrationRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * @param name The backfill name, such as {@link #MEMBERS}
+     * @return The backfill's marker document
+     */
+    public DocumentReference marker(@NonNull String name) {
+        return db.collection(MIGRATIONS_COLLECTION).document(name);
+    }
+
+    /**
+     * Checks whether a backfill has finished. Once a marker is seen it is not read again.
+     *
+     * @param name The backfill name
+     * @return Task containing whether the backfill's marker exists
+     */
+    public Task<Boolean> isComplete(@NonNull String name) {
+        if (completed.contains(name)) {
+            return Tasks.forResult(true);
+        }
+        return marker(name).get().continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            boolean done = task.getResult().exists();
+            if (done) {
+                completed.add(name);
+            }
+            return done;
+        });
+    }
+
+    /**
+     * Runs every backfill whose marker is missing, one after the other, and writes the marker
+     * of each one that succeeds. A backfill that fails keeps its fallback and is retried the
+     * next time. Does nothing while a previous call in this process is still running.
+     *
+     * @return Task that completes when the pending backfills have run, failing if any failed
+     */
+    public Task<Void> runPending() {
+        if (!running.compareAndSet(false, true)) {
+            return Tasks.forResult(null);
+        }
+        Task<Void> members = run(MEMBERS, () -> new MembershipRepository(db).migrateAllEvents());
+        Task<Void> searchIndex = members.continueWithTask(done ->
+                run(SEARCH_INDEX, () -> new SearchIndexRepository(db).migrateAllEvents()));
+        Task<Void> summaries = searchIndex.continueWithTask(done ->
+                run(SUMMARIES, () -> new EventSummaryRepository(db).rebuildAll()));
+        return summaries
+                .continueWithTask(done -> !members.isSuccessful() ? members
+                        : !searchIndex.isSuccessful() ? searchIndex : summaries)
+                .addOnCompleteListener(task -> running.set(false));
+    }
+
+    private Task<Void> run(String name, Backfill backfill) {
+        return isComplete(name).continueWithTask(check -> {
+            if (!check.isSuccessful()) {
+                return Tasks.<Void>forException(check.getException());
+            }
+            if (check.getResult()) {
+                return Tasks.<Void>forResult(null);
+            }
+            Log.d(TAG, "Running backfill: " + name);
+            return backfill.run().continueWithTask(done -> {
+                if (!done.isSuccessful()) {
+                    Log.e(TAG, "Backfill " + name + " failed", done.getException());
+                    return Tasks.<Void>forException(done.getException());
+                }
+                return markComplete(name, String.valueOf(done.getResult()));
+            });
+        });
+    }
+
+    private Task<Void> markComplete(String name, String result) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("result", result);
+        data.put("completedAt", FieldValue.serverTimestamp());
+        return marker(name).set(data).addOnSuccessListener(unused -> {
+            completed.add(name);
+            Log.d(TAG, "Backfill " + name + " complete: " + result);
+        });
+    }
+
+    /** One backfill, returning a summary of what it did. */
+    private interface Backfill {
+        Task<?> run();
+    }
+}
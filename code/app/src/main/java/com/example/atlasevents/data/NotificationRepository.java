@@ -26,11 +26,14 @@ import com.example.atlasevents.Entrant;
 import com.example.atlasevents.EntrantList;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.example.atlasevents.data.UserRepository;
 import com.google.firebase.firestore.QuerySnapshot;
@@ -38,11 +41,16 @@ import com.google.firebase.firestore.QuerySnapshot;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class NotificationRepository {
     private static final String TAG = "NotificationRepo";
+    /** Blocked organizers per count query, the most values an "in" filter may hold. */
+    private static final int BLOCKED_CHUNK_SIZE = 30;
     private final FirebaseFirestore db;
 
     /**
@@ -55,6 +63,16 @@ public class NotificationRepository {
         db = FirebaseFirestore.getInstance();
     }
 
+    /**
+     * Constructs a new NotificationRepository with a custom Firebase Firestore instance.
+     * For testing.
+     *
+     * @param db Firebase Firestore instance
+     */
+    public NotificationRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
     /**
      * Sends a notification to a single user after checking their notification preferences.
      * If the user has opted out of notifications, the notification is logged but not delivered to their collection.
@@ -312,6 +330,90 @@ public class NotificationRepository {
         return out;
     }
 
+    /**
+     * Counts a user's unread notifications, leaving out those from blocked organizers.
+     * <p>
+     * Uses aggregate queries, so the badge costs one read per thousand notifications counted
+     * instead of one per notification: all unread notifications are counted, then those
+     * from blocked organizers in groups of {@value #BLOCKED_CHUNK_SIZE} and subtracted. An
+     * organizer listed twice is only subtracted once.
+     * </p>
+     *
+     * @param userEmail The email of the user
+     * @param blockedOrganizers Emails of the organizers the user has blocked
+     * @return Task containing the number of unread notifications
+     */
+    public Task<Integer> countUnreadForUser(@NonNull String userEmail, @NonNull List<String> blockedOrganizers) {
+        Query unread = db.collection("users")
+                .document(userEmail)
+                .collection("notifications")
+                .whereEqualTo("read", false);
+        List<Task<AggregateQuerySnapshot>> counts = new ArrayList<>();
+        counts.add(unread.count().get(AggregateSource.SERVER));
+        List<String> blocked = new ArrayList<>(new LinkedHashSet<>(blockedOrganizers));
+        for (int start = 0; start < blocked.size(); start += BLOCKED_CHUNK_SIZE) {
+            List<String> chunk = blocked.subList(start, Math.min(start + BLOCKED_CHUNK_SIZE, blocked.size()));
+            counts.add(unread.whereIn("fromOrganizeremail", new ArrayList<>(chunk))
+                    .count().get(AggregateSource.SERVER));
+        }
+        return Tasks.whenAllSuccess(counts).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            long total = counts.get(0).getResult().getCount();
+            for (int i = 1; i < counts.size(); i++) {
+                total -= counts.get(i).getResult().getCount();
+            }
+            return (int) Math.max(0, total);
+        });
+    }
+
+    /**
+     * Receives the number of a user's unread notifications whenever it changes.
+     */
+    public interface UnreadCountListener {
+        /**
+         * @param count Unread notifications from organizers the user has not blocked
+         */
+        void onCount(int count);
+    }
+
+    /**
+     * Keeps a badge's count of a user's unread notifications up to date. The count is taken
+     * from the listener's own snapshot, leaving out blocked organizers, so it costs no reads
+     * beyond the changed notifications the listener downloads anyway.
+     *
+     * @param userEmail The email of the user
+     * @param blockedOrganizers Emails of the organizers the user has blocked
+     * @param listener Receives the count once when attached and after every change
+     * @return The registration, to remove when the badge is no longer shown
+     */
+    public ListenerRegistration listenForUnreadCount(@NonNull String userEmail,
+                                                     @NonNull List<String> blockedOrganizers,
+                                                     @NonNull UnreadCountListener listener) {
+        Set<String> blocked = new HashSet<>(blockedOrganizers);
+        return db.collection("users")
+                .document(userEmail)
+                .collection("notifications")
+                .whereEqualTo("read", false)
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Unread notifications listener failed", error);
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+                    int count = 0;
+                    for (DocumentSnapshot notification : snapshot.getDocuments()) {
+                        if (!blocked.contains(notification.getString("fromOrganizeremail"))) {
+                            count++;
+                        }
+                    }
+                    listener.onCount(count);
+                });
+    }
+
     public void getNotificationLogs(@NonNull NotificationLogsCallback callback) {
         Log.d(TAG, "Fetching ALL notification logs with index fallback");
 
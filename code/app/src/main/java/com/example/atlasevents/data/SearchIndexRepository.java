@@ -0,0 +1,272 @@
+package com.example.atlasevents.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.atlasevents.Event;
+import com.example.atlasevents.SearchKeywords;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repository for the {@code searchIndex} collection, which holds the search keywords of each
+ * event in a document keyed by the event ID.
+ * <p>
+ * Keeping the keywords out of the event document means the event documents that every screen
+ * loads stay small, and saving an event's other fields does not rewrite its keyword array and
+ * its index entries. The keywords are the bounded edge n-grams built by {@link SearchKeywords}.
+ * {@link EventRepository} writes the index entry in the same batch or transaction as the event.
+ * </p>
+ * <p>
+ * Events saved by older versions store every prefix of every word in a {@code searchKeywords}
+ * field on the event document. {@link #migrateAllEvents()} moves them here; until its
+ * {@link MigrationRepository#SEARCH_INDEX} marker exists, lookups also query that field.
+ * </p>
+ *
+ * @see SearchKeywords
+ */
+public class SearchIndexRepository {
+    private static final String TAG = "SearchIndexRepository";
+    private static final String EVENTS_COLLECTION = "events";
+    public static final String SEARCH_INDEX_COLLECTION = "searchIndex";
+
+    /** Events per migration batch; each event takes two writes, below the 500-write limit. */
+    private static final int MIGRATION_PAGE_SIZE = 200;
+
+    private final FirebaseFirestore db;
+    private final MigrationRepository migrations;
+
+    /**
+     * Constructs a new SearchIndexRepository with the default Firebase Firestore instance.
+     */
+    public SearchIndexRepository() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    /**
+     * Constructs a new SearchIndexRepository with a custom Firebase Firestore instance.
+     * For testing.
+     *
+     * @param db Firebase Firestore instance
+     */
+    public SearchIndexRepository(FirebaseFirestore db) {
+        this.db = db;
+        this.migrations = new MigrationRepository(db);
+    }
+
+    /**
+     * @param eventId The event ID
+     * @return The event's index document, which may not exist
+     */
+    public DocumentReference entry(String eventId) {
+        return db.collection(SEARCH_INDEX_COLLECTION).document(eventId);
+    }
+
+    /**
+     * Builds the index document for an event. Its {@code updatedAt} server timestamp lets
+     * {@link SearchResultCache} listen for events changed after it started.
+     *
+     * @param event The event
+     * @return Data for {@link #entry(String)}
+     */
+    public static Map<String, Object> entryData(@NonNull Event event) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("eventId", event.getId());
+        data.put("keywords", event.getSearchKeywords());
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        return data;
+    }
+
+    /**
+     * Finds the IDs of events that may match a query. The lookup uses one keyword of the query
+     * (see {@link SearchKeywords#queryKeyword(String)}), so callers must check the events
+     * against the whole query with {@link SearchKeywords#matches(String, String, List)}.
+     * Until the search index backfill has finished, events not yet indexed are found through
+     * the {@code searchKeywords} field they were saved with.
+     *
+     * @param query Text typed by the user
+     * @return Task containing the candidate event IDs, empty if the query is too short
+     */
+    public Task<List<String>> findEventIds(String query) {
+        String keyword = SearchKeywords.queryKeyword(query);
+        if (keyword == null) {
+            return Tasks.forResult(new ArrayList<>());
+        }
+        Task<QuerySnapshot> indexed = db.collection(SEARCH_INDEX_COLLECTION)
+                .whereArrayContains("keywords", keyword)
+                .get();
+        Task<List<String>> legacy = migrations.isComplete(MigrationRepository.SEARCH_INDEX)
+                .continueWithTask(check -> {
+                    if (check.isSuccessful() && check.getResult()) {
+                        return Tasks.forResult(new ArrayList<>());
+                    }
+                    return db.collection(EVENTS_COLLECTION)
+                            .whereArrayContains("searchKeywords", keyword)
+                            .get()
+                            .continueWith(task -> ids(task.getResult()));
+                });
+        return Tasks.whenAll(indexed, legacy).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            Set<String> ids = new LinkedHashSet<>(ids(indexed.getResult()));
+            ids.addAll(legacy.getResult());
+            return new ArrayList<>(ids);
+        });
+    }
+
+    private static List<String> ids(QuerySnapshot snapshot) {
+        List<String> ids = new ArrayList<>();
+        for (DocumentSnapshot doc : snapshot) {
+            ids.add(doc.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Writes the index entry of every event and removes the unbounded {@code searchKeywords}
+     * field from event documents that still have it. Event documents saved before geohashes
+     * were stored get their {@code geohash} field, so {@link EventRepository#searchEventsNear}
+     * finds them. Events are read page by page and each page is written in one batch. Running it
+     * again rewrites the entries, so it also repairs entries that fell out of date.
+     * {@link MigrationRepository#runPending()} runs it until it succeeds once.
+     *
+     * @return Task containing what was migrated and how much keyword storage it saved
+     */
+    public Task<MigrationReport> migrateAllEvents() {
+        return migrateEventsAfter(null, new MigrationReport());
+    }
+
+    private Task<MigrationReport> migrateEventsAfter(@Nullable DocumentSnapshot last, MigrationReport report) {
+        Query page = db.collection(EVENTS_COLLECTION)
+                .orderBy(FieldPath.documentId())
+                .limit(MIGRATION_PAGE_SIZE);
+        if (last != null) {
+            page = page.startAfter(last);
+        }
+        return page.get().continueWithTask(pageTask -> {
+            if (!pageTask.isSuccessful()) {
+                return Tasks.forException(pageTask.getException());
+            }
+            List<DocumentSnapshot> docs = pageTask.getResult().getDocuments();
+            WriteBatch batch = db.batch();
+            for (DocumentSnapshot doc : docs) {
+                Event event = EventMapper.fromSnapshot(doc);
+                if (event == null) {
+                    continue;
+                }
+                List<String> legacy = legacyKeywords(doc);
+                List<String> keywords = event.getSearchKeywords();
+                report.add(legacy, keywords);
+
+                batch.set(entry(doc.getId()), entryData(event));
+                Map<String, Object> updates = new HashMap<>();
+                if (doc.contains("searchKeywords")) {
+                    updates.put("searchKeywords", FieldValue.delete());
+                }
+                String geohash = event.getGeohash();
+                if (geohash != null && !geohash.equals(doc.getString("geohash"))) {
+                    updates.put("geohash", geohash);
+                }
+                if (!updates.isEmpty()) {
+                    batch.update(doc.getReference(), updates);
+                }
+            }
+            return batch.commit().continueWithTask(commitTask -> {
+                if (!commitTask.isSuccessful()) {
+                    return Tasks.forException(commitTask.getException());
+                }
+                if (docs.size() == MIGRATION_PAGE_SIZE) {
+                    return migrateEventsAfter(docs.get(docs.size() - 1), report);
+                }
+                Log.d(TAG, "Search index migration: " + report);
+                return Tasks.forResult(report);
+            });
+        });
+    }
+
+    private static List<String> legacyKeywords(DocumentSnapshot doc) {
+        List<String> keywords = new ArrayList<>();
+        Object value = doc.get("searchKeywords");
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof String) {
+                    keywords.add((String) item);
+                }
+            }
+        }
+        return keywords;
+    }
+
+    /**
+     * Totals from {@link #migrateAllEvents()}, comparing the keywords stored on event documents
+     * before the migration with the bounded keywords written to the index.
+     */
+    public static class MigrationReport {
+        private int events;
+        private long legacyKeywords;
+        private long keywords;
+        private long legacyBytes;
+        private long bytes;
+
+        void add(List<String> legacy, List<String> bounded) {
+            events++;
+            legacyKeywords += legacy.size();
+            keywords += bounded.size();
+            legacyBytes += SearchKeywords.storageBytes(legacy);
+            bytes += SearchKeywords.storageBytes(bounded);
+        }
+
+        /** @return Number of events indexed */
+        public int getEvents() {
+            return events;
+        }
+
+        /** @return Keywords removed from event documents */
+        public long getLegacyKeywords() {
+            return legacyKeywords;
+        }
+
+        /** @return Keywords written to the index */
+        public long getKeywords() {
+            return keywords;
+        }
+
+        /** @return Storage of the keywords removed from event documents, in bytes */
+        public long getLegacyBytes() {
+            return legacyBytes;
+        }
+
+        /** @return Storage of the keywords written to the index, in bytes */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d events, keywords %d -> %d, keyword storage %d -> %d bytes (%.0f%% saved)",
+                    events, legacyKeywords, keywords, legacyBytes, bytes,
+                    legacyBytes > 0 ? 100.0 * (legacyBytes - bytes) / legacyBytes : 0.0);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.atlasevents.data;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.atlasevents.Event;
+import com.example.atlasevents.SearchKeywords;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Least-recently-used cache of event search results, keyed by the normalized query, used by
+ * {@link EventRepository#searchEvents(String, EventRepository.SearchCallback)}.
+ * <p>
+ * A query's results are a subset of the results of any prefix of it, so when "bas" is cached
+ * the results for "bask" are found by filtering the cached events locally instead of querying
+ * Firestore again. Only searches where both queries succeeded are cached. Entries expire after
+ * {@link #TTL_MS} and are not refreshed by refinement.
+ * </p>
+ * <p>
+ * While a client has started the cache, it listens to {@code searchIndex} entries written
+ * since then (their {@code updatedAt} is set on every event write) and drops cached queries
+ * that contain the changed event or that the event may now match. When the last client stops,
+ * the cache is cleared because later changes would be missed. All methods must be called on
+ * the main thread.
+ * </p>
+ *
+ * @see SearchIndexRepository
+ */
+public class SearchResultCache {
+    private static final String TAG = "SearchResultCache";
+
+    /** Cached queries kept before the least recently used is evicted. */
+    public static final int MAX_ENTRIES = 50;
+    /** How long a query's results are served without asking Firestore. */
+    public static final long TTL_MS = 60_000L;
+
+    private static SearchResultCache instance;
+
+    private final FirebaseFirestore db;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private ListenerRegistration registration;
+    private int activeClients = 0;
+
+    private int lookups;
+    private int hits;
+    private int refinedHits;
+    private long bytesSaved;
+
+    /**
+     * Results of one query, with the size of each event document so that hits can report the
+     * bytes they did not download.
+     */
+    private static final class Entry {
+        final ArrayList<Event> events;
+        final Map<String, Long> bytesById;
+        final long storedAt;
+
+        Entry(ArrayList<Event> events, Map<String, Long> bytesById, long storedAt) {
+            this.events = events;
+            this.bytesById = bytesById;
+            this.storedAt = storedAt;
+        }
+
+        boolean contains(String eventId) {
+            for (Event event : events) {
+                if (eventId.equals(event.getId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long bytes() {
+            long total = 0;
+            for (Event event : events) {
+                Long size = bytesById.get(event.getId());
+                total += size != null ? size : 0;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Returns the process-wide cache, creating it on first use.
+     *
+     * @return The shared cache
+     */
+    public static synchronized SearchResultCache getInstance() {
+        if (instance == null) {
+            instance = new SearchResultCache(FirebaseFirestore.getInstance(), SystemClock::elapsedRealtime);
+        }
+        return instance;
+    }
+
+    /**
+     * Constructor for dependency injection (for testing)
+     *
+     * @param db Firestore instance the invalidation listener is attached to
+     * @param clock Milliseconds from a monotonic clock, used for expiry
+     */
+    public SearchResultCache(FirebaseFirestore db, LongSupplier clock) {
+        this.db = db;
+        this.clock = clock;
+    }
+
+    /**
+     * Registers a client and attaches the invalidation listener if it is the first one.
+     */
+    public void start() {
+        activeClients++;
+        if (activeClients == 1 && registration == null) {
+            registration = db.collection(SearchIndexRepository.SEARCH_INDEX_COLLECTION)
+                    .whereGreaterThan("updatedAt", Timestamp.now())
+                    .addSnapshotListener((snapshot, error) -> {
+                        if (error != null) {
+                            // Without the listener, changes could be missed
+                            Log.e(TAG, "Search cache listener failed", error);
+                            entries.clear();
+                            return;
+                        }
+                        if (snapshot == null) {
+                            return;
+                        }
+                        for (DocumentChange change : snapshot.getDocumentChanges()) {
+                            DocumentSnapshot doc = change.getDocument();
+                            invalidate(doc.getId(), keywords(doc));
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Unregisters a client. When the last one stops, the listener is detached, the cache is
+     * cleared and its statistics are logged.
+     */
+    public void stop() {
+        if (activeClients > 0) {
+            activeClients--;
+        }
+        if (activeClients == 0 && registration != null) {
+            registration.remove();
+            registration = null;
+            entries.clear();
+            Log.d(TAG, getStatsSummary());
+        }
+    }
+
+    /**
+     * Looks a query up, either directly or by refining the results of its longest cached
+     * prefix.
+     *
+     * @param query The normalized query
+     * @return The cached results, or null on a miss
+     */
+    @Nullable
+    public ArrayList<Event> get(@NonNull String query) {
+        lookups++;
+        long now = clock.getAsLong();
+        removeExpired(now);
+
+        Entry exact = entries.get(query);
+        if (exact != null) {
+            hits++;
+            bytesSaved += exact.bytes();
+            return new ArrayList<>(exact.events);
+        }
+
+        Entry prefix = null;
+        int prefixLength = 0;
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            String key = cached.getKey();
+            if (key.length() > prefixLength && query.startsWith(key)) {
+                prefix = cached.getValue();
+                prefixLength = key.length();
+            }
+        }
+        if (prefix == null) {
+            return null;
+        }
+
+        ArrayList<Event> refined = new ArrayList<>();
+        for (Event event : prefix.events) {
+            if (matches(query, event)) {
+                refined.add(event);
+            }
+        }
+        // Keeps the prefix's age so refinement never extends how long results are trusted
+        Entry entry = new Entry(refined, prefix.bytesById, prefix.storedAt);
+        entries.put(query, entry);
+        hits++;
+        refinedHits++;
+        bytesSaved += entry.bytes();
+        return new ArrayList<>(refined);
+    }
+
+    /**
+     * Caches the complete results of a query.
+     *
+     * @param query The normalized query
+     * @param events Every matching event
+     * @param bytesById Size of each event's document, by event ID
+     */
+    public void put(@NonNull String query, @NonNull List<Event> events, @NonNull Map<String, Long> bytesById) {
+        entries.put(query, new Entry(new ArrayList<>(events), new HashMap<>(bytesById), clock.getAsLong()));
+    }
+
+    /**
+     * Drops cached queries affected by a change to an event: those whose results contain it
+     * and those it may match now.
+     *
+     * @param eventId The changed event
+     * @param keywords The event's current search keywords, or null if it was deleted
+     */
+    public void invalidate(@NonNull String eventId, @Nullable Collection<String> keywords) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> cached = iterator.next();
+            String keyword = SearchKeywords.queryKeyword(cached.getKey());
+            if (cached.getValue().contains(eventId)
+                    || (keywords != null && keyword != null && keywords.contains(keyword))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return Lookups answered from the cache, including refinements
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Lookups answered by refining a cached prefix
+     */
+    public int getRefinedHits() {
+        return refinedHits;
+    }
+
+    /**
+     * @return Share of lookups answered from the cache, between 0 and 1
+     */
+    public double getHitRate() {
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+
+    /**
+     * @return Estimated event document bytes that hits did not download
+     * @see DocumentSize
+     */
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * @return The statistics in one line, for logging
+     */
+    public String getStatsSummary() {
+        return String.format(Locale.ROOT,
+                "Search cache: %d lookups, %d hits (%d refined), %.0f%% hit rate, %d bytes saved",
+                lookups, hits, refinedHits, 100 * getHitRate(), bytesSaved);
+    }
+
+    private void removeExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().storedAt >= TTL_MS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks an event against a query the way the two search queries would: by the search
+     * index keywords or by the start of the name.
+     */
+    private static boolean matches(String query, Event event) {
+        return SearchKeywords.matches(query, event.getEventName(), event.getTags())
+                || SearchKeywords.normalize(event.getEventName()).startsWith(query);
+    }
+
+    private static List<String> keywords(DocumentSnapshot doc) {
+        List<String> keywords = new ArrayList<>();
+        Object value = doc.get("keywords");
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof String) {
+                    keywords.add((String) item);
+                }
+            }
+        }
+        return keywords;
+    }
+}
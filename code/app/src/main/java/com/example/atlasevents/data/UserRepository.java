@@ -11,11 +11,17 @@ import com.example.atlasevents.Event;
 import com.example.atlasevents.Organizer;
 import com.example.atlasevents.PasswordHasher;
 import com.example.atlasevents.User;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -28,6 +34,9 @@ import java.util.Map;
  */
 public class UserRepository {
 
+    /** Maximum emails per {@code whereIn} query when hydrating entrants. */
+    private static final int HYDRATE_CHUNK_SIZE = 30;
+
     private final FirebaseFirestore db;
     private final PasswordHasher passwordHasher;
 
@@ -281,6 +290,67 @@ public class UserRepository {
                 })
                 .addOnFailureListener(e -> listener.onEntrantFetched(null));
     }
+
+    /**
+     * Fills in profile details for entrants read from an event list.
+     * <p>
+     * Event documents store only each entrant's email and name, so phone numbers and other
+     * profile fields are loaded from {@code users} on demand. Entrants that already have a
+     * phone number are skipped; the rest are fetched by document ID (the email) in chunks of
+     * {@value #HYDRATE_CHUNK_SIZE}. Entrants are updated in place.
+     * </p>
+     *
+     * @param entrants The entrants to complete
+     * @return Task containing the same list once every chunk has been applied
+     */
+    public Task<List<Entrant>> hydrateEntrants(@NonNull List<Entrant> entrants) {
+        Map<String, List<Entrant>> missing = new LinkedHashMap<>();
+        for (Entrant entrant : entrants) {
+            if (entrant != null && entrant.getEmail() != null && entrant.getPhoneNumber() == null) {
+                List<Entrant> sameEmail = missing.get(entrant.getEmail());
+                if (sameEmail == null) {
+                    sameEmail = new ArrayList<>();
+                    missing.put(entrant.getEmail(), sameEmail);
+                }
+                sameEmail.add(entrant);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Tasks.forResult(entrants);
+        }
+
+        List<String> emails = new ArrayList<>(missing.keySet());
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int start = 0; start < emails.size(); start += HYDRATE_CHUNK_SIZE) {
+            List<String> chunk = emails.subList(start, Math.min(start + HYDRATE_CHUNK_SIZE, emails.size()));
+            chunks.add(db.collection("users")
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get()
+                    .addOnSuccessListener(snapshot -> {
+                        for (DocumentSnapshot document : snapshot.getDocuments()) {
+                            User user = document.toObject(User.class);
+                            List<Entrant> targets = missing.get(document.getId());
+                            if (user == null || targets == null) {
+                                continue;
+                            }
+                            for (Entrant entrant : targets) {
+                                if (user.getName() != null) {
+                                    entrant.setName(user.getName());
+                                }
+                                entrant.setPhoneNumber(user.getPhoneNumber());
+                            }
+                        }
+                    }));
+        }
+        return Tasks.whenAllComplete(chunks).continueWith(task -> {
+            for (Task<QuerySnapshot> chunk : chunks) {
+                if (!chunk.isSuccessful()) {
+                    Log.w(TAG, "Failed to load some entrant profiles", chunk.getException());
+                }
+            }
+            return entrants;
+        });
+    }
     
     /**
      * Callback interface for blocked organizers operations
@@ -0,0 +1,118 @@
+package com.example.atlasevents.data.model;
+
+import com.example.atlasevents.Entrant;
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.util.Date;
+
+/**
+ * Represents one entrant's membership in an event.
+ * <p>
+ * This class maps to Firestore documents in the {@code events/{eventId}/members} subcollection.
+ * The document ID is the entrant's email, so each entrant has at most one membership per event
+ * and joining or responding only writes that entrant's document. The event document keeps an
+ * aggregate counter for each status.
+ * </p>
+ *
+ * @see com.example.atlasevents.data.MembershipRepository
+ */
+public class Member {
+    public static final String STATUS_WAITING = "waiting";
+    public static final String STATUS_INVITED = "invited";
+    public static final String STATUS_ACCEPTED = "accepted";
+    public static final String STATUS_DECLINED = "declined";
+
+    private String email;
+    private String name;
+    private String status; // "waiting", "invited", "accepted", "declined"
+    private Date joinedAt;
+
+    /**
+     * Default constructor required for Firestore deserialization.
+     */
+    public Member() {
+        this.status = STATUS_WAITING;
+    }
+
+    /**
+     * Constructs a new Member with the given status.
+     *
+     * @param email The entrant's email
+     * @param name The entrant's display name
+     * @param status The membership status
+     */
+    public Member(String email, String name, String status) {
+        this.email = email;
+        this.name = name;
+        this.status = status;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @ServerTimestamp
+    public Date getJoinedAt() {
+        return joinedAt;
+    }
+
+    public void setJoinedAt(Date joinedAt) {
+        this.joinedAt = joinedAt;
+    }
+
+    /**
+     * Builds the entrant shown in lists for this membership.
+     *
+     * @return Entrant with this member's email and name
+     */
+    public Entrant toEntrant() {
+        Entrant entrant = new Entrant();
+        entrant.setEmail(email);
+        entrant.setName(name);
+        return entrant;
+    }
+
+    /**
+     * Returns the event counter field that tracks members with the given status.
+     *
+     * @param status A membership status
+     * @return Counter field name, or null for an unknown status
+     */
+    public static String counterField(String status) {
+        if (status == null) {
+            return null;
+        }
+        switch (status) {
+            case STATUS_WAITING:
+                return "waitingCount";
+            case STATUS_INVITED:
+                return "invitedCount";
+            case STATUS_ACCEPTED:
+                return "acceptedCount";
+            case STATUS_DECLINED:
+                return "declinedCount";
+            default:
+                return null;
+        }
+    }
+}
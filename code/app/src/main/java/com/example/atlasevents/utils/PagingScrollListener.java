@@ -0,0 +1,87 @@
+package com.example.atlasevents.utils;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.ScrollView;
+
+import com.example.atlasevents.data.EventPager;
+
+/**
+ * Scroll listener that tells an {@link EventPager} which card is visible furthest down a
+ * {@link ScrollView}, so that the next page loads before the user reaches the end.
+ * <p>
+ * The container must hold one child view per event, in the order the pager delivered them.
+ * Screens call {@link #check()} after adding a page, so that a page too short to fill the
+ * screen is followed by the next one without waiting for a scroll.
+ * </p>
+ */
+public class PagingScrollListener implements View.OnScrollChangeListener {
+    private final ScrollView scrollView;
+    private final ViewGroup container;
+    private final EventPager pager;
+
+    /**
+     * @param scrollView The scroll view containing the cards
+     * @param container The layout holding one card per event
+     * @param pager The pager the cards came from
+     */
+    public PagingScrollListener(ScrollView scrollView, ViewGroup container, EventPager pager) {
+        this.scrollView = scrollView;
+        this.container = container;
+        this.pager = pager;
+    }
+
+    /**
+     * Creates a listener and sets it on the scroll view.
+     *
+     * @return The listener, for calling {@link #check()}
+     */
+    public static PagingScrollListener attach(ScrollView scrollView, ViewGroup container, EventPager pager) {
+        PagingScrollListener listener = new PagingScrollListener(scrollView, container, pager);
+        scrollView.setOnScrollChangeListener(listener);
+        return listener;
+    }
+
+    @Override
+    public void onScrollChange(View v, int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
+        check();
+    }
+
+    /**
+     * Finds the last card whose top is above the bottom of the visible area and reports it to
+     * the pager.
+     */
+    public void check() {
+        int count = container.getChildCount();
+        if (count == 0) {
+            return;
+        }
+        int offset = offsetInScrollView(container);
+        int visibleBottom = scrollView.getScrollY() + scrollView.getHeight();
+        int low = 0;
+        int high = count - 1;
+        int lastVisible = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (offset + container.getChildAt(mid).getTop() < visibleBottom) {
+                lastVisible = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        pager.onItemVisible(lastVisible);
+    }
+
+    private int offsetInScrollView(View view) {
+        int offset = 0;
+        View current = view;
+        while (current != null && current != scrollView) {
+            offset += current.getTop();
+            ViewParent parent = current.getParent();
+            current = parent instanceof View ? (View) parent : null;
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.atlasevents;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for BatchLotteryRunner
+ */
+public class BatchLotteryRunnerTest {
+
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newScheduledThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRunAll_DrawsEveryDueEventWithinParallelismBound() throws Exception {
+        List<String> due = eventIds(40);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Set<String> drawn = Collections.synchronizedSet(new HashSet<>());
+
+        BatchLotteryRunner runner = new BatchLotteryRunner(
+                () -> CompletableFuture.completedFuture(due),
+                eventId -> {
+                    int now = inFlight.incrementAndGet();
+                    maxInFlight.accumulateAndGet(now, Math::max);
+                    CompletableFuture<Integer> future = new CompletableFuture<>();
+                    executor.schedule(() -> {
+                        drawn.add(eventId);
+                        inFlight.decrementAndGet();
+                        future.complete(3);
+                    }, 5, TimeUnit.MILLISECONDS);
+                    return future;
+                },
+                4);
+
+        BatchLotteryRunner.Report report = runner.runAll().get(10, TimeUnit.SECONDS);
+
+        assertEquals(40, report.getEventCount());
+        assertEquals(new HashSet<>(due), drawn);
+        assertEquals(120, report.getTotalEntrantsSelected());
+        assertEquals(0, report.getFailureCount());
+        assertTrue("Parallelism exceeded: " + maxInFlight.get(), maxInFlight.get() <= 4);
+        assertTrue(report.getEventsPerSecond() > 0);
+    }
+
+    @Test
+    public void testRun_FailedDrawIsReportedAndOthersContinue() throws Exception {
+        BatchLotteryRunner runner = new BatchLotteryRunner(
+                () -> CompletableFuture.completedFuture(new ArrayList<>()),
+                eventId -> {
+                    CompletableFuture<Integer> future = new CompletableFuture<>();
+                    if ("event-1".equals(eventId)) {
+                        future.completeExceptionally(new Exception("No eligible entrants in waitlist"));
+                    } else {
+                        future.complete(2);
+                    }
+                    return future;
+                },
+                2);
+
+        BatchLotteryRunner.Report report =
+                runner.run(Arrays.asList("event-0", "event-1", "event-2")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(3, report.getEventCount());
+        assertEquals(1, report.getFailureCount());
+        assertEquals(4, report.getTotalEntrantsSelected());
+        assertTrue(report.toString().contains("event-1"));
+    }
+
+    @Test
+    public void testRunAll_NoDueEvents_CompletesWithEmptyReport() throws Exception {
+        BatchLotteryRunner runner = new BatchLotteryRunner(
+                () -> CompletableFuture.completedFuture(new ArrayList<>()),
+                eventId -> CompletableFuture.completedFuture(1),
+                4);
+
+        BatchLotteryRunner.Report report = runner.runAll().get(10, TimeUnit.SECONDS);
+
+        assertEquals(0, report.getEventCount());
+        assertEquals(0, report.getTotalEntrantsSelected());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_InvalidParallelism_Throws() {
+        new BatchLotteryRunner(() -> CompletableFuture.completedFuture(new ArrayList<>()),
+                eventId -> CompletableFuture.completedFuture(0), 0);
+    }
+
+    @Test
+    public void testRun_ManyImmediateDrawsDoNotDeepenTheStack() throws Exception {
+        List<String> ids = eventIds(20_000);
+        AtomicInteger maxDepth = new AtomicInteger();
+        BatchLotteryRunner runner = new BatchLotteryRunner(
+                () -> CompletableFuture.completedFuture(ids),
+                eventId -> {
+                    maxDepth.accumulateAndGet(Thread.currentThread().getStackTrace().length, Math::max);
+                    return CompletableFuture.completedFuture(1);
+                },
+                1, executor);
+
+        BatchLotteryRunner.Report report = runner.runAll().get(30, TimeUnit.SECONDS);
+
+        assertEquals(20_000, report.getTotalEntrantsSelected());
+        assertTrue("Stack grew to " + maxDepth.get(), maxDepth.get() < 200);
+    }
+
+    private static List<String> eventIds(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add("event-" + i);
+        }
+        return ids;
+    }
+}
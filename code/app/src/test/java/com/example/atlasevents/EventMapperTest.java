@@ -0,0 +1,197 @@
+package com.example.atlasevents;
+
+import static org.junit.Assert.*;
+
+import com.example.atlasevents.data.EventMapper;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.GeoPoint;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link EventMapper}.
+ */
+public class EventMapperTest {
+
+    @Test
+    public void fromMap_ReadsAllStoredFields() {
+        Date date = new Date(1_700_000_000_000L);
+        Date regEnd = new Date(1_699_000_000_000L);
+
+        Map<String, Object> organizer = new HashMap<>();
+        organizer.put("name", "Org");
+        organizer.put("email", "org@test.com");
+        organizer.put("phoneNumber", "555");
+        organizer.put("userType", "Organizer");
+
+        EntrantList waitlist = new EntrantList();
+        waitlist.addEntrant(new Entrant("A", "a@test.com", "pw", "1"));
+        waitlist.addEntrant(new Entrant("B", "b@test.com", "pw", "2"));
+
+        Map<String, Object> coords = new HashMap<>();
+        coords.put("a@test.com", new GeoPoint(53.5, -113.5));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", "event-1");
+        data.put("eventName", "Swim Lessons");
+        data.put("description", "Learn to swim");
+        data.put("address", "1 Pool Rd");
+        data.put("organizer", organizer);
+        data.put("slots", 20L);
+        data.put("entrantLimit", 50L);
+        data.put("requireGeolocation", true);
+        data.put("date", date);
+        data.put("regEndDate", new Timestamp(regEnd));
+        data.put("time", "10:00");
+        data.put("imageUrl", "images/swim.png");
+        data.put("location", new GeoPoint(1, 2));
+        data.put("lastDrawnSlots", 20L);
+        data.put("waitlist", waitlist.toFirestoreMap());
+        data.put("entrantCoords", coords);
+        data.put("tags", Arrays.asList("sports", "kids"));
+        data.put("searchKeywords", Arrays.asList("sw", "swi"));
+
+        Event event = EventMapper.fromMap("ignored", data);
+
+        assertEquals("event-1", event.getId());
+        assertEquals("Swim Lessons", event.getEventName());
+        assertEquals("Learn to swim", event.getDescription());
+        assertEquals("1 Pool Rd", event.getAddress());
+        assertEquals("org@test.com", event.getOrganizer().getEmail());
+        assertEquals("Org", event.getOrganizer().getName());
+        assertEquals(20, event.getSlots());
+        assertEquals(50, event.getEntrantLimit());
+        assertTrue(event.getRequireGeolocation());
+        assertEquals(date, event.getDate());
+        assertEquals("10:00", event.getTime());
+        assertEquals("images/swim.png", event.getImageUrl());
+        assertEquals(1.0, event.getLocation().getLatitude(), 0.0);
+        assertEquals(20, event.getLastDrawnSlots());
+        assertEquals(2, event.getWaitlist().size());
+        assertEquals("B", event.getWaitlist().getEntrant(1).getName());
+        assertEquals(0, event.getInviteList().size());
+        assertEquals(-113.5, event.getEntrantCoords().get("a@test.com").getLongitude(), 0.0);
+        assertEquals(Arrays.asList("sports", "kids"), event.getTags());
+        // Keywords stored by older versions are ignored and rebuilt from the name and tags
+        assertEquals(SearchKeywords.build("Swim Lessons", Arrays.asList("sports", "kids")),
+                event.getSearchKeywords());
+        assertFalse(event.isMembersEnabled());
+    }
+
+    @Test
+    public void fromMap_MissingFieldsKeepDefaults() {
+        Event event = EventMapper.fromMap("doc-id", new HashMap<>());
+
+        assertEquals("doc-id", event.getId());
+        assertNull(event.getOrganizer());
+        assertEquals(-1, event.getEntrantLimit());
+        assertEquals("", event.getImageUrl());
+        assertNotNull(event.getWaitlist());
+        assertNotNull(event.getDeclinedList());
+        assertNotNull(event.getEntrantCoords());
+        assertTrue(event.getTags().isEmpty());
+    }
+
+    @Test
+    public void fromMap_DrawWithoutRecordedSlotsCoveredCurrentSlots() {
+        Map<String, Object> drawn = new HashMap<>();
+        drawn.put("slots", 8L);
+        drawn.put("lastLotteryRun", new Date());
+        assertEquals(8, EventMapper.fromMap("e", drawn).getLastDrawnSlots());
+
+        Map<String, Object> neverDrawn = new HashMap<>();
+        neverDrawn.put("slots", 8L);
+        assertEquals(0, EventMapper.fromMap("e", neverDrawn).getLastDrawnSlots());
+    }
+
+    @Test
+    public void fromMap_ReadsMemberCounters() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("membersEnabled", true);
+        data.put("waitingCount", 7L);
+        data.put("invitedCount", 3L);
+        data.put("acceptedCount", 2L);
+        data.put("declinedCount", 1L);
+        data.put("eventName", "Chess");
+
+        Event event = EventMapper.fromMap("e", data);
+
+        assertTrue(event.isMembersEnabled());
+        assertEquals(7, event.countWaiting());
+        assertEquals(3, event.countInvited());
+        assertEquals(2, event.countAccepted());
+        assertEquals(1, event.countDeclined());
+        // Without stored keywords they are built from the name
+        List<String> expected = new ArrayList<>(Arrays.asList("ch", "che", "ches", "chess"));
+        assertEquals(expected, event.getSearchKeywords());
+    }
+
+    @Test
+    public void fromMap_TracksChangesFromLoadedState() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("eventName", "Chess");
+        data.put("slots", 10L);
+        data.put("version", 4L);
+        data.put("tags", Arrays.asList("games"));
+
+        Event event = EventMapper.fromMap("e", data);
+
+        assertTrue(event.isTrackingChanges());
+        assertEquals(4L, event.getVersion());
+        assertTrue(event.getChangedFields().isEmpty());
+
+        // Setting a field to its current value is not a change
+        event.setEventName("Chess");
+        event.setSlots(10);
+        event.setTags(Arrays.asList("games"));
+        assertTrue(EventMapper.changes(event).isEmpty());
+
+        event.setSlots(12);
+        event.setDescription("Weekly club");
+        event.setLocation(new GeoPoint(53.5, -113.5));
+        Map<String, Object> changes = EventMapper.changes(event);
+        assertEquals(12, changes.get("slots"));
+        assertEquals("Weekly club", changes.get("description"));
+        assertEquals(event.getGeohash(), changes.get("geohash"));
+        assertEquals(4, changes.size());
+        assertFalse(changes.containsKey("eventName"));
+    }
+
+    @Test
+    public void changes_ListsOnlyForInlineEvents() {
+        Entrant entrant = new Entrant();
+        entrant.setEmail("a@test.com");
+
+        Event legacy = EventMapper.fromMap("e", new HashMap<>());
+        legacy.getWaitlist().addEntrant(entrant);
+        // Changes through the list's own methods are not seen
+        assertTrue(EventMapper.changes(legacy).isEmpty());
+        legacy.removeFromWaitlist(entrant);
+        assertTrue(EventMapper.changes(legacy).containsKey("waitlist"));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("membersEnabled", true);
+        Event members = EventMapper.fromMap("e", data);
+        members.setWaitlist(new EntrantList());
+        members.addToEntrantLocation("a@test.com", new GeoPoint(1, 2));
+        assertEquals(2, members.getChangedFields().size());
+        assertTrue(EventMapper.changes(members).isEmpty());
+    }
+
+    @Test
+    public void newEvent_DoesNotTrackChanges() {
+        Event event = new Event();
+        event.setEventName("Chess");
+
+        assertFalse(event.isTrackingChanges());
+        assertTrue(event.getChangedFields().isEmpty());
+        assertEquals(0L, event.getVersion());
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.atlasevents;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for EventSearchIndex, including a latency check over a 10k event catalog
+ */
+public class EventSearchIndexTest {
+
+    private static final int BENCHMARK_EVENTS = 10_000;
+    private static final int BENCHMARK_ROUNDS = 20;
+
+    private static final String[] WORDS = {
+            "swim", "swimming", "basketball", "soccer", "chess", "yoga", "pottery", "painting",
+            "guitar", "piano", "coding", "robotics", "cooking", "baking", "dance", "salsa",
+            "hiking", "camping", "photography", "writing", "poetry", "science", "astronomy",
+            "tennis", "badminton", "karate", "skating", "hockey", "volleyball", "drama"
+    };
+    private static final String[] QUALIFIERS = {
+            "lessons", "club", "workshop", "camp", "night", "festival", "beginners", "advanced",
+            "kids", "seniors", "community", "summer", "winter", "weekend", "tournament"
+    };
+    private static final String[] TAGS = {
+            "sports", "music", "arts", "outdoor", "indoor", "family", "education", "fitness"
+    };
+
+    private EventSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new EventSearchIndex();
+        index.put(event("1", "Swim Lessons", "sports", "kids"));
+        index.put(event("2", "Swimming Club", "sports"));
+        index.put(event("3", "Chess Night", "games"));
+        index.put(event("4", "Community Pottery", "arts", "swim"));
+        index.put(event("5", "Café Concert", "music"));
+    }
+
+    @Test
+    public void testSearch_PrefixMatchesNamesAndTags() {
+        List<String> ids = ids(index.search("sw", 10));
+
+        // Name matches rank above the tag match
+        assertEquals(Arrays.asList("1", "2", "4"), ids);
+    }
+
+    @Test
+    public void testSearch_WholeWordRanksAbovePrefix() {
+        assertEquals(Arrays.asList("1", "2", "4"), ids(index.search("swim", 10)));
+        assertEquals(Arrays.asList("2"), ids(index.search("swimming", 10)));
+    }
+
+    @Test
+    public void testSearch_EveryTokenMustMatch() {
+        assertEquals(Arrays.asList("1"), ids(index.search("swim les", 10)));
+        assertTrue(index.search("swim chess", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch_ToleratesTypos() {
+        assertEquals(Arrays.asList("3"), ids(index.search("chss", 10)));
+        assertEquals(Arrays.asList("4"), ids(index.search("potery", 10)));
+        // Prefix matches win, so no fuzzy results are mixed in
+        assertEquals(Arrays.asList("3"), ids(index.search("che", 10)));
+    }
+
+    @Test
+    public void testSearch_IgnoresCaseAndAccents() {
+        assertEquals(Arrays.asList("5"), ids(index.search("CAFE", 10)));
+        assertEquals(Arrays.asList("5"), ids(index.search("café", 10)));
+    }
+
+    @Test
+    public void testSearch_BlankQueryAndLimit() {
+        assertTrue(index.search("  ", 10).isEmpty());
+        assertTrue(index.search(null, 10).isEmpty());
+        assertEquals(2, index.search("s", 2).size());
+    }
+
+    @Test
+    public void testPutAndRemove_UpdateTheIndex() {
+        index.put(event("3", "Chess Tournament", "games"));
+        assertEquals(5, index.size());
+        assertTrue(index.search("night", 10).isEmpty());
+        assertEquals(Arrays.asList("3"), ids(index.search("tourn", 10)));
+
+        index.remove("3");
+        assertEquals(4, index.size());
+        assertTrue(index.search("chess", 10).isEmpty());
+        assertFalse(index.search("sports", 10).isEmpty());
+    }
+
+    @Test
+    public void testPrefixEditDistance() {
+        assertEquals(0, EventSearchIndex.prefixEditDistance("bask", "basketball", 1));
+        assertEquals(1, EventSearchIndex.prefixEditDistance("baks", "basketball", 1));
+        assertEquals(1, EventSearchIndex.prefixEditDistance("basktb", "basketball", 2));
+        assertEquals(2, EventSearchIndex.prefixEditDistance("xyz", "basketball", 1));
+    }
+
+    @Test
+    public void testSearch_TenThousandEvents_AnswersKeystrokesUnderAMillisecond() {
+        Random random = new Random(12L);
+        EventSearchIndex large = new EventSearchIndex();
+        for (int i = 0; i < BENCHMARK_EVENTS; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " "
+                    + QUALIFIERS[random.nextInt(QUALIFIERS.length)] + " " + i;
+            large.put(event("e" + i, name, TAGS[random.nextInt(TAGS.length)],
+                    TAGS[random.nextInt(TAGS.length)]));
+        }
+
+        // Every keystroke of each word, plus a few typos and two-word queries
+        List<String> keystrokes = new ArrayList<>();
+        for (String word : WORDS) {
+            for (int length = 1; length <= word.length(); length++) {
+                keystrokes.add(word.substring(0, length));
+            }
+        }
+        keystrokes.addAll(Arrays.asList("baskteball", "potery", "gutiar", "swim less", "yoga kids"));
+
+        for (String query : keystrokes) {
+            large.search(query, 20); // warm up
+        }
+        long start = System.nanoTime();
+        int answered = 0;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            for (String query : keystrokes) {
+                if (!large.search(query, 20).isEmpty()) {
+                    answered++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int searches = keystrokes.size() * BENCHMARK_ROUNDS;
+        double microsPerSearch = elapsed / 1000.0 / searches;
+        assertEquals(BENCHMARK_EVENTS, large.size());
+        assertEquals(searches, answered);
+        assertTrue(String.format(Locale.ROOT,
+                "EventSearchIndex: %d events, %d tokens, %d searches, %.1f us/search",
+                large.size(), large.tokenCount(), searches, microsPerSearch), microsPerSearch < 1000);
+    }
+
+    private static Event event(String id, String name, String... tags) {
+        Event event = new Event();
+        event.setId(id);
+        event.setEventName(name);
+        event.setTags(new ArrayList<>(Arrays.asList(tags)));
+        return event;
+    }
+
+    private static List<String> ids(List<Event> events) {
+        List<String> ids = new ArrayList<>();
+        for (Event event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+}
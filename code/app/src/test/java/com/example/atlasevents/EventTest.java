@@ -5,8 +5,12 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -69,6 +73,100 @@ public class EventTest {
         assertFalse("List should not contain removed entrant", list.containsEntrant(entrant));
     }
 
+    @Test
+    public void testEntrantListKeyedByEmail() {
+        EntrantList list = new EntrantList();
+        Entrant a = new Entrant("A", "a@test.com", "pw", "1");
+        Entrant b = new Entrant("B", "b@test.com", "pw", "2");
+        Entrant c = new Entrant("C", "c@test.com", "pw", "3");
+        list.addEntrant(a);
+        list.addEntrant(b);
+        list.addEntrant(c);
+
+        // A second entrant with the same email is not added
+        assertFalse(list.addEntrant(new Entrant("A again", "a@test.com", "pw", "4")));
+        assertEquals(3, list.size());
+        assertSame(b, list.getEntrantByEmail("b@test.com"));
+
+        // Removal by email keeps insertion order for positional access
+        assertSame(b, list.removeEntrant("b@test.com"));
+        assertFalse(list.containsEntrant("b@test.com"));
+        assertEquals(2, list.size());
+        assertSame(a, list.getEntrant(0));
+        assertSame(c, list.getEntrant(1));
+        assertNull(list.removeEntrant("missing@test.com"));
+    }
+
+    @Test
+    public void testEntrantListWaitListViewWritesThrough() {
+        EntrantList list = new EntrantList();
+        ArrayList<Entrant> loaded = new ArrayList<>();
+        loaded.add(new Entrant("A", "a@test.com", "pw", "1"));
+        loaded.add(new Entrant("B", "b@test.com", "pw", "2"));
+        list.setWaitList(loaded);
+
+        assertEquals(2, list.getWaitList().size());
+        assertEquals("b@test.com", list.getWaitList().get(1).getEmail());
+        assertEquals(2, list.getAllEntrants().size());
+
+        list.getWaitList().clear();
+        assertEquals(0, list.size());
+        assertFalse(list.containsEntrant("a@test.com"));
+    }
+
+    @Test
+    public void testEntrantListCompactFormat_WritesEachEntrantOnceWithoutPassword() {
+        EntrantList list = new EntrantList();
+        list.addEntrant(new Entrant("A", "a@test.com", "secret-hash", "780"));
+        list.addEntrant(new Entrant("B", "b@test.com", "secret-hash", "781"));
+
+        Map<String, Object> map = list.toFirestoreMap();
+
+        assertEquals(EntrantList.WIRE_FORMAT, map.get("format"));
+        assertFalse(map.containsKey("waitList"));
+        assertFalse(map.containsKey("allEntrants"));
+        List<?> entries = (List<?>) map.get("entrants");
+        assertEquals(2, entries.size());
+        Map<?, ?> first = (Map<?, ?>) entries.get(0);
+        assertEquals("a@test.com", first.get("email"));
+        assertEquals("A", first.get("name"));
+        assertFalse(first.containsKey("password"));
+        assertFalse(first.containsKey("phoneNumber"));
+
+        EntrantList parsed = EntrantList.fromFirestoreMap(map);
+        assertEquals(2, parsed.size());
+        assertEquals("b@test.com", parsed.getEntrant(1).getEmail());
+        assertEquals("B", parsed.getEntrant(1).getName());
+        assertNull(parsed.getEntrant(1).getPhoneNumber());
+    }
+
+    @Test
+    public void testEntrantListReadsLegacyFormats() {
+        Map<String, Object> legacyEntrant = new HashMap<>();
+        legacyEntrant.put("email", "old@test.com");
+        legacyEntrant.put("name", "Old");
+        legacyEntrant.put("phoneNumber", "555");
+        legacyEntrant.put("password", "hash");
+        List<Map<String, Object>> array = new ArrayList<>();
+        array.add(legacyEntrant);
+
+        // Legacy arrays: the same entrant in both waitList and allEntrants
+        Map<String, Object> arrays = new HashMap<>();
+        arrays.put("waitList", array);
+        arrays.put("allEntrants", array);
+        EntrantList fromArrays = EntrantList.fromFirestoreMap(arrays);
+        assertEquals(1, fromArrays.size());
+        assertEquals("555", fromArrays.getEntrantByEmail("old@test.com").getPhoneNumber());
+        assertNull(fromArrays.getEntrantByEmail("old@test.com").getPassword());
+
+        // Map keyed by email
+        Map<String, Object> keyed = new HashMap<>();
+        keyed.put("old@test.com", legacyEntrant);
+        assertTrue(EntrantList.fromFirestoreMap(keyed).containsEntrant("old@test.com"));
+
+        assertEquals(0, EntrantList.fromFirestoreMap(null).size());
+    }
+
     @Test
     public void testSimpleDataMethods() {
         // If you can create Event without triggering Firebase (e.g., using reflection)
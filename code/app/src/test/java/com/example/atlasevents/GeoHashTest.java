@@ -0,0 +1,122 @@
+package com.example.atlasevents;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GeoHash
+ */
+public class GeoHashTest {
+
+    @Test
+    public void testEncode_KnownHash() {
+        assertEquals("u4pruydqqv", GeoHash.encode(57.64911, 10.40744));
+        assertEquals("u4pru", GeoHash.encode(57.64911, 10.40744, 5));
+        assertEquals("s000", GeoHash.encode(0, 0, 4));
+    }
+
+    @Test
+    public void testEncode_NearbyPointsSharePrefix() {
+        String a = GeoHash.encode(53.5232, -113.5263);
+        String b = GeoHash.encode(53.5240, -113.5270);
+
+        assertEquals(a.substring(0, 6), b.substring(0, 6));
+    }
+
+    @Test
+    public void testDistanceKm() {
+        // Edmonton to Calgary
+        double distance = GeoHash.distanceKm(53.5461, -113.4938, 51.0447, -114.0719);
+
+        assertEquals(281, distance, 2);
+        assertEquals(0, GeoHash.distanceKm(10, 20, 10, 20), 1e-9);
+    }
+
+    @Test
+    public void testQueryBounds_AtMostNineDisjointRanges() {
+        for (double radiusKm : new double[]{0.1, 1, 5, 25, 100, 1000}) {
+            List<GeoHash.Range> ranges = GeoHash.queryBounds(53.5461, -113.4938, radiusKm);
+
+            assertFalse(ranges.isEmpty());
+            assertTrue(ranges.size() <= 9);
+            for (int i = 1; i < ranges.size(); i++) {
+                assertTrue(ranges.get(i - 1).end.compareTo(ranges.get(i).start) < 0);
+            }
+        }
+    }
+
+    @Test
+    public void testQueryBounds_FindsEveryPointInRadius() {
+        Random random = new Random(42);
+        double[][] centers = {
+                {53.5461, -113.4938},  // Edmonton
+                {0.0, 0.0},            // Both hemisphere boundaries
+                {-33.8688, 151.2093},  // Sydney
+                {64.1466, -21.9426},   // High latitude
+                {51.4779, -0.0015},    // Prime meridian
+                {-17.7134, 179.95}     // Antimeridian
+        };
+        double[] radii = {0.5, 2, 10, 50};
+        int found = 0;
+        for (double[] center : centers) {
+            for (double radiusKm : radii) {
+                List<double[]> points = randomPointsAround(random, center, radiusKm * 2, 2000);
+                Set<Integer> expected = new HashSet<>();
+                Set<Integer> actual = new HashSet<>();
+                List<GeoHash.Range> ranges = GeoHash.queryBounds(center[0], center[1], radiusKm);
+                for (int i = 0; i < points.size(); i++) {
+                    double[] point = points.get(i);
+                    double distance = GeoHash.distanceKm(center[0], center[1], point[0], point[1]);
+                    if (distance <= radiusKm) {
+                        expected.add(i);
+                    }
+                    if (inAnyRange(ranges, GeoHash.encode(point[0], point[1])) && distance <= radiusKm) {
+                        actual.add(i);
+                    }
+                }
+
+                assertEquals("Recall at " + center[0] + "," + center[1] + " r=" + radiusKm,
+                        expected, actual);
+                found += expected.size();
+            }
+        }
+        assertTrue(found > 0);
+    }
+
+    private static boolean inAnyRange(List<GeoHash.Range> ranges, String hash) {
+        for (GeoHash.Range range : ranges) {
+            if (range.contains(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Points spread uniformly over a square about the center, wrapping across the
+     * antimeridian.
+     */
+    private static List<double[]> randomPointsAround(Random random, double[] center, double halfSideKm, int count) {
+        double latDelta = halfSideKm / 110.574;
+        double lngDelta = halfSideKm / (111.320 * Math.cos(Math.toRadians(center[0])));
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double lat = center[0] + (random.nextDouble() * 2 - 1) * latDelta;
+            double lng = center[1] + (random.nextDouble() * 2 - 1) * lngDelta;
+            if (lng > 180) {
+                lng -= 360;
+            } else if (lng < -180) {
+                lng += 360;
+            }
+            points.add(new double[]{lat, lng});
+        }
+        return points;
+    }
+}
@@ -65,6 +65,7 @@ public class InviteRepositoryTest {
         // Mock query chain
         Mockito.lenient().when(mockInvitesCollection.whereEqualTo(anyString(), any())).thenReturn(mockQuery);
         Mockito.lenient().when(mockQuery.whereEqualTo(anyString(), any())).thenReturn(mockQuery);
+        Mockito.lenient().when(mockQuery.whereLessThanOrEqualTo(anyString(), any())).thenReturn(mockQuery);
         Mockito.lenient().when(mockQuery.orderBy(anyString(), any())).thenReturn(mockQuery);
         Mockito.lenient().when(mockQuery.limit(anyInt())).thenReturn(mockQuery);
         Mockito.lenient().when(mockQuery.get()).thenReturn(mockQueryTask);
@@ -118,6 +119,22 @@ public class InviteRepositoryTest {
         assertFalse(testInvite.isExpired());
     }
 
+    @Test
+    public void testGetExpiredPendingInvites_QueriesByDeadline() {
+        // Arrange
+        long now = System.currentTimeMillis();
+
+        // Act
+        inviteRepository.getExpiredPendingInvites(now, 500);
+
+        // Assert - one query for all expired pending invites, oldest deadline first
+        verify(mockInvitesCollection).whereEqualTo("status", "pending");
+        verify(mockQuery).whereLessThanOrEqualTo("expirationTime", now);
+        verify(mockQuery).orderBy("expirationTime", Query.Direction.ASCENDING);
+        verify(mockQuery).limit(500);
+        verify(mockQuery).get();
+    }
+
     @Test
     public void testUpdateInviteStatus_Success() {
         // Arrange
@@ -0,0 +1,189 @@
+package com.example.atlasevents;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LotterySelector
+ */
+public class LotterySelectorTest {
+
+    private LotterySelector selector;
+
+    @Before
+    public void setUp() {
+        selector = new LotterySelector(new Random(301L));
+    }
+
+    @Test
+    public void testSampleIndices_ReturnsDistinctIndicesInRange() {
+        // Sparse path (k much smaller than n)
+        int[] sparse = selector.sampleIndices(50_000, 100);
+        assertDistinctInRange(sparse, 50_000, 100);
+
+        // Dense path (k close to n)
+        int[] dense = selector.sampleIndices(100, 90);
+        assertDistinctInRange(dense, 100, 90);
+    }
+
+    @Test
+    public void testSampleIndices_KAtLeastN_ReturnsEveryIndex() {
+        int[] result = selector.sampleIndices(10, 25);
+        assertDistinctInRange(result, 10, 10);
+    }
+
+    @Test
+    public void testSampleIndices_EmptyCases() {
+        assertEquals(0, selector.sampleIndices(0, 5).length);
+        assertEquals(0, selector.sampleIndices(5, 0).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSampleIndices_NegativeSize_Throws() {
+        selector.sampleIndices(-1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_NullRandom_Throws() {
+        new LotterySelector(null);
+    }
+
+    @Test
+    public void testSelect_DoesNotModifyPopulation() {
+        List<String> population = emails(20);
+        List<String> copy = new ArrayList<>(population);
+
+        List<String> selected = selector.select(population, 5);
+
+        assertEquals(5, selected.size());
+        assertEquals(5, new HashSet<>(selected).size());
+        assertTrue(population.containsAll(selected));
+        assertEquals(copy, population);
+    }
+
+    @Test
+    public void testSelect_FewerCandidatesThanSlots_ReturnsAll() {
+        List<String> population = emails(3);
+        List<String> selected = selector.select(population, 10);
+        assertEquals(population, selected);
+    }
+
+    @Test
+    public void testSelect_SameSeed_IsReproducible() {
+        List<String> population = emails(1000);
+        List<String> first = new LotterySelector(new Random(42L)).select(population, 10);
+        List<String> second = new LotterySelector(new Random(42L)).select(population, 10);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testSampleIndices_SparseIsUniform() {
+        assertUniform(200, 5, 40_000);
+    }
+
+    @Test
+    public void testSampleIndices_DenseIsUniform() {
+        assertUniform(20, 10, 20_000);
+    }
+
+    @Test
+    public void testReservoir_KeepsDistinctSampleOfOfferedElements() {
+        LotterySelector.Reservoir<String> reservoir = selector.reservoir(25);
+        List<String> population = emails(1_000);
+        for (String email : population) {
+            reservoir.offer(email);
+        }
+
+        List<String> sample = reservoir.getSample();
+        assertEquals(1_000, reservoir.getSeen());
+        assertEquals(25, sample.size());
+        assertEquals(25, new HashSet<>(sample).size());
+        assertTrue(population.containsAll(sample));
+    }
+
+    @Test
+    public void testReservoir_FewerElementsThanCapacity_KeepsAll() {
+        LotterySelector.Reservoir<String> reservoir = selector.reservoir(10);
+        for (String email : emails(4)) {
+            reservoir.offer(email);
+        }
+        assertEquals(emails(4), reservoir.getSample());
+        assertTrue(selector.<String>reservoir(0).getSample().isEmpty());
+    }
+
+    @Test
+    public void testReservoir_IsUniform() {
+        int n = 50;
+        int k = 5;
+        int trials = 20_000;
+        long[] hits = new long[n];
+        for (int t = 0; t < trials; t++) {
+            LotterySelector.Reservoir<Integer> reservoir = selector.reservoir(k);
+            for (int i = 0; i < n; i++) {
+                reservoir.offer(i);
+            }
+            for (int index : reservoir.getSample()) {
+                hits[index]++;
+            }
+        }
+        assertChiSquare(hits, (double) trials * k / n);
+    }
+
+    /**
+     * Runs many draws and checks each index is selected about k/n of the time using a
+     * chi-square goodness-of-fit test. The seed is fixed, so the test is deterministic.
+     */
+    private void assertUniform(int n, int k, int trials) {
+        long[] hits = new long[n];
+        for (int t = 0; t < trials; t++) {
+            for (int index : selector.sampleIndices(n, k)) {
+                hits[index]++;
+            }
+        }
+
+        assertChiSquare(hits, (double) trials * k / n);
+    }
+
+    /**
+     * Chi-square goodness-of-fit check that every index was hit about {@code expected} times.
+     */
+    private static void assertChiSquare(long[] hits, double expected) {
+        int n = hits.length;
+        double chiSquare = 0;
+        for (long observed : hits) {
+            double diff = observed - expected;
+            chiSquare += diff * diff / expected;
+        }
+
+        // n - 1 degrees of freedom; mean n - 1, standard deviation sqrt(2(n - 1)).
+        // Allow five standard deviations above the mean.
+        int df = n - 1;
+        double limit = df + 5 * Math.sqrt(2.0 * df);
+        assertTrue("Chi-square " + chiSquare + " exceeds " + limit, chiSquare < limit);
+    }
+
+    private static void assertDistinctInRange(int[] indices, int n, int expectedCount) {
+        assertEquals(expectedCount, indices.length);
+        Set<Integer> seen = new HashSet<>();
+        for (int index : indices) {
+            assertTrue("Index out of range: " + index, index >= 0 && index < n);
+            assertTrue("Duplicate index: " + index, seen.add(index));
+        }
+    }
+
+    private static List<String> emails(int count) {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add("entrant" + i + "@test.com");
+        }
+        return list;
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import com.example.atlasevents.data.EventMapper;
 import com.example.atlasevents.data.InviteRepository;
 import com.example.atlasevents.data.NotificationRepository;
 import com.example.atlasevents.data.model.Invite;
@@ -350,6 +351,70 @@ public class LotteryServiceUnitTest {
         assertTrue("Time remaining should account for end of day", timeRemaining > 0);
     }
 
+    @Test
+    public void testIsDueForDraw_NeverDrawn() {
+        // Registration closed yesterday, 4 waiting, 5 slots
+        assertTrue(lotteryService.isDueForDraw(testEvent));
+    }
+
+    @Test
+    public void testIsDueForDraw_AlreadyDrawnWithSameSlots() {
+        testEvent.setLastLotteryRun(new Date());
+        testEvent.setLastDrawnSlots(5);
+
+        assertFalse(lotteryService.isDueForDraw(testEvent));
+    }
+
+    @Test
+    public void testIsDueForDraw_SlotsGrewSinceLastDraw() {
+        testEvent.setLastLotteryRun(new Date());
+        testEvent.setLastDrawnSlots(2);
+        testEvent.getInviteList().addEntrant(testEntrants.get(0));
+        testEvent.getInviteList().addEntrant(testEntrants.get(1));
+
+        // 5 slots - 2 pending invites = 3 open
+        assertEquals(3, lotteryService.calculateOpenSlots(testEvent));
+        assertTrue(lotteryService.isDueForDraw(testEvent));
+    }
+
+    @Test
+    public void testIsDueForDraw_DrawnBeforeSlotsWereRecorded() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("slots", 5L);
+        data.put("regEndDate", testEvent.getRegEndDate());
+        data.put("lastLotteryRun", new Date());
+        data.put("waitlist", testEvent.getWaitlist().toFirestoreMap());
+        Event legacy = EventMapper.fromMap("legacy", data);
+
+        assertEquals(5, legacy.getLastDrawnSlots());
+        assertFalse(lotteryService.isDueForDraw(legacy));
+    }
+
+    @Test
+    public void testIsDueForDraw_RegistrationStillOpen() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, 2);
+        testEvent.setRegEndDate(cal.getTime());
+
+        assertFalse(lotteryService.isDueForDraw(testEvent));
+    }
+
+    @Test
+    public void testMembersEnabled_UsesCountersInsteadOfLists() {
+        testEvent.setMembersEnabled(true);
+        testEvent.setWaitingCount(0);
+        testEvent.setAcceptedCount(1);
+        testEvent.setInvitedCount(2);
+
+        // The inline waitlist still has 4 entrants but is ignored
+        assertFalse(lotteryService.checkLotteryAvailability(testEvent).isAvailable());
+        assertEquals(4, lotteryService.calculateAvailableSlots(testEvent));
+        assertEquals(2, lotteryService.calculateOpenSlots(testEvent));
+
+        testEvent.setWaitingCount(10);
+        assertTrue(lotteryService.checkLotteryAvailability(testEvent).isAvailable());
+        assertTrue(lotteryService.isDueForDraw(testEvent));
+    }
 
     @Test
     public void testEntrantListOperations() {
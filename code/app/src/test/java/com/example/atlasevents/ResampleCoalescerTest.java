@@ -0,0 +1,142 @@
+package com.example.atlasevents;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ResampleCoalescer
+ */
+public class ResampleCoalescerTest {
+
+    private ScheduledExecutorService scheduler;
+    private List<String> dispatched;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        dispatched = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testBurstWithinWindow_DispatchesOneResample() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        ResampleCoalescer coalescer = new ResampleCoalescer((eventId, count) -> {
+            dispatched.add(eventId + ":" + count);
+            latch.countDown();
+        }, 100, 1000, scheduler);
+
+        for (int i = 0; i < 200; i++) {
+            coalescer.recordDeclines("event-1", 1);
+        }
+        assertEquals(200, coalescer.getPendingCount("event-1"));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("event-1:200"), dispatched);
+        assertEquals(200, coalescer.getDeclinesRecorded());
+        assertEquals(1, coalescer.getResamplesDispatched());
+        assertEquals(0, coalescer.getPendingCount("event-1"));
+    }
+
+    @Test
+    public void testMaxBatchSize_FlushesFullBatchesImmediately() {
+        ResampleCoalescer coalescer = new ResampleCoalescer(
+                (eventId, count) -> dispatched.add(eventId + ":" + count), 60_000, 50, scheduler);
+
+        for (int i = 0; i < 120; i++) {
+            coalescer.recordDeclines("event-1", 1);
+        }
+
+        // Two full batches dispatched synchronously; the remainder waits for the window
+        assertEquals(2, dispatched.size());
+        assertEquals("event-1:50", dispatched.get(0));
+        assertEquals("event-1:50", dispatched.get(1));
+        assertEquals(20, coalescer.getPendingCount("event-1"));
+
+        coalescer.flush("event-1");
+        assertEquals("event-1:20", dispatched.get(2));
+        assertEquals(0, coalescer.getPendingCount("event-1"));
+    }
+
+    @Test
+    public void testEventsAreCoalescedSeparately() {
+        ResampleCoalescer coalescer = new ResampleCoalescer(
+                (eventId, count) -> dispatched.add(eventId + ":" + count), 60_000, 100, scheduler);
+
+        coalescer.recordDeclines("event-1", 3);
+        coalescer.recordDeclines("event-2", 1);
+        coalescer.recordDeclines("event-1", 2);
+        coalescer.flushAll();
+
+        assertEquals(2, dispatched.size());
+        assertTrue(dispatched.contains("event-1:5"));
+        assertTrue(dispatched.contains("event-2:1"));
+    }
+
+    @Test
+    public void testFlushWithNothingPending_DoesNothing() {
+        ResampleCoalescer coalescer = new ResampleCoalescer(
+                (eventId, count) -> dispatched.add(eventId + ":" + count), 60_000, 100, scheduler);
+
+        coalescer.flush("event-1");
+        coalescer.recordDeclines("event-1", 0);
+        coalescer.recordDeclines(null, 3);
+
+        assertTrue(dispatched.isEmpty());
+    }
+
+    @Test
+    public void testRestorePending_DoesNotCountHeldDeclinesTwice() {
+        ResampleCoalescer coalescer = new ResampleCoalescer(
+                (eventId, count) -> dispatched.add(eventId + ":" + count), 60_000, 100, scheduler);
+
+        coalescer.recordDeclines("event-1", 2);
+        coalescer.restorePending("event-1", 3);
+        assertEquals(3, coalescer.getPendingCount("event-1"));
+        coalescer.restorePending("event-1", 1);
+        assertEquals(3, coalescer.getPendingCount("event-1"));
+
+        coalescer.flushAll();
+        assertEquals(Collections.singletonList("event-1:3"), dispatched);
+    }
+
+    @Test
+    public void testDefaultCoalescers_ShareOneSchedulerThread() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        ResampleCoalescer.ResampleAction action = (eventId, count) -> {
+            threads.add(Thread.currentThread().getName() + "/" + Thread.currentThread().getId());
+            latch.countDown();
+        };
+        ResampleCoalescer first = new ResampleCoalescer(action);
+        ResampleCoalescer second = new ResampleCoalescer(action);
+        first.setWindowMillis(0);
+        second.setWindowMillis(0);
+
+        first.recordDeclines("event-1", 1);
+        second.recordDeclines("event-2", 1);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(threads.get(0), threads.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize_Throws() {
+        new ResampleCoalescer((eventId, count) -> { }, 100, 0, scheduler);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.atlasevents;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SearchKeywords
+ */
+public class SearchKeywordsTest {
+
+    @Test
+    public void testBuild_EdgeGramsAreCapped() {
+        List<String> keywords = SearchKeywords.build("Photography", null);
+
+        assertEquals(Arrays.asList("ph", "pho", "phot", "photo", "photog", "photogr", "photogra"), keywords);
+    }
+
+    @Test
+    public void testBuild_NormalizesAndDeduplicates() {
+        List<String> keywords = SearchKeywords.build("Café Night!", Arrays.asList("cafe", "NIGHT life"));
+
+        assertEquals(Arrays.asList("ca", "caf", "cafe", "ni", "nig", "nigh", "night", "li", "lif", "life"),
+                keywords);
+    }
+
+    @Test
+    public void testBuild_KeepsNameKeywordsWhenCapped() {
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tags.add("tag" + i + "extralong");
+        }
+        List<String> keywords = SearchKeywords.build("Basketball", tags);
+
+        assertEquals(SearchKeywords.MAX_KEYWORDS, keywords.size());
+        assertEquals("ba", keywords.get(0));
+        assertTrue(keywords.contains("basketba"));
+    }
+
+    @Test
+    public void testQueryKeyword_UsesLongestWordCapped() {
+        assertEquals("basketba", SearchKeywords.queryKeyword("kids Basketball"));
+        assertEquals("swim", SearchKeywords.queryKeyword("  swim a"));
+        assertNull(SearchKeywords.queryKeyword("a b"));
+        assertNull(SearchKeywords.queryKeyword(null));
+    }
+
+    @Test
+    public void testMatches_RequiresEveryWord() {
+        List<String> tags = Collections.singletonList("sports");
+
+        assertTrue(SearchKeywords.matches("basketball", "Basketball Camp", tags));
+        assertTrue(SearchKeywords.matches("camp spo", "Basketball Camp", tags));
+        assertFalse(SearchKeywords.matches("basketballs", "Basketball Camp", tags));
+        assertFalse(SearchKeywords.matches("camp music", "Basketball Camp", tags));
+    }
+
+    @Test
+    public void testBuild_IsSmallerThanEveryPrefix() {
+        String[] names = {
+                "Introduction to Astrophotography", "Community Volunteering Orientation",
+                "Intermediate Conversational Spanish", "Swim Lessons", "Chess Night"
+        };
+        List<String> tags = Arrays.asList("education", "international", "photography", "outdoors");
+
+        long legacyBytes = 0;
+        long bytes = 0;
+        for (String name : names) {
+            List<String> legacy = everyPrefix(name, tags);
+            List<String> bounded = SearchKeywords.build(name, tags);
+            assertTrue(bounded.size() <= legacy.size());
+            legacyBytes += SearchKeywords.storageBytes(legacy);
+            bytes += SearchKeywords.storageBytes(bounded);
+        }
+
+        assertTrue(String.format(Locale.ROOT, "Search keywords: %d -> %d bytes (%.0f%% saved)",
+                legacyBytes, bytes, 100.0 * (legacyBytes - bytes) / legacyBytes),
+                bytes * 10 < legacyBytes * 7);
+    }
+
+    /**
+     * The previous scheme: every prefix of at least two characters of every word.
+     */
+    private static List<String> everyPrefix(String name, List<String> tags) {
+        LinkedHashSet<String> keywords = new LinkedHashSet<>();
+        List<String> values = new ArrayList<>(tags);
+        values.add(0, name);
+        for (String value : values) {
+            for (String piece : value.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+                for (int i = 2; i <= piece.length(); i++) {
+                    keywords.add(piece.substring(0, i));
+                }
+            }
+        }
+        return new ArrayList<>(keywords);
+    }
+}
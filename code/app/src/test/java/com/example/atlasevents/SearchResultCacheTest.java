@@ -0,0 +1,150 @@
+package com.example.atlasevents;
+
+import com.example.atlasevents.data.SearchResultCache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SearchResultCache
+ */
+public class SearchResultCacheTest {
+
+    private long now;
+    private SearchResultCache cache;
+    private Event basketball;
+    private Event baseball;
+    private Event bass;
+
+    @Before
+    public void setUp() {
+        now = 1_000L;
+        cache = new SearchResultCache(null, () -> now);
+        basketball = event("1", "Basketball Camp", "sports");
+        baseball = event("2", "Baseball Night", "sports");
+        bass = event("3", "Bass Fishing", "outdoor");
+    }
+
+    @Test
+    public void testGet_ExactHitAndMiss() {
+        assertNull(cache.get("bas"));
+
+        cache.put("bas", Arrays.asList(basketball, baseball, bass), sizes(100));
+
+        assertEquals(3, cache.get("bas").size());
+        assertEquals(2, cache.getLookups());
+        assertEquals(1, cache.getHits());
+        assertEquals(300, cache.getBytesSaved());
+    }
+
+    @Test
+    public void testGet_RefinesLongestCachedPrefix() {
+        cache.put("ba", Arrays.asList(basketball, baseball, bass), sizes(100));
+
+        assertEquals(ids(basketball), ids(cache.get("bask")));
+        assertEquals(ids(bass), ids(cache.get("bass f")));
+        // "bask" is now cached and is the longest prefix of "baske"
+        assertEquals(ids(basketball), ids(cache.get("baske")));
+        assertNull(cache.get("football"));
+
+        assertEquals(3, cache.getHits());
+        assertEquals(3, cache.getRefinedHits());
+        assertEquals(300, cache.getBytesSaved());
+    }
+
+    @Test
+    public void testGet_ExpiresAfterTtl() {
+        cache.put("bas", Arrays.asList(basketball), sizes(100));
+        now += SearchResultCache.TTL_MS - 1;
+        assertNotNull(cache.get("bask"));
+
+        // The refined entry keeps the age of the prefix it came from
+        now += 1;
+        assertNull(cache.get("bas"));
+        assertNull(cache.get("bask"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPut_EvictsLeastRecentlyUsed() {
+        for (int i = 0; i < SearchResultCache.MAX_ENTRIES; i++) {
+            cache.put("query" + i, new ArrayList<>(), sizes(0));
+        }
+        assertNotNull(cache.get("query0"));
+
+        cache.put("another", new ArrayList<>(), sizes(0));
+
+        assertEquals(SearchResultCache.MAX_ENTRIES, cache.size());
+        assertNotNull(cache.get("query0"));
+        assertNull(cache.get("query1"));
+    }
+
+    @Test
+    public void testInvalidate_ByResultAndByKeyword() {
+        cache.put("bask", Arrays.asList(basketball), sizes(100));
+        cache.put("fish", Arrays.asList(bass), sizes(100));
+        cache.put("chess", new ArrayList<>(), sizes(0));
+
+        // Basketball changed
+        cache.invalidate("1", SearchKeywords.build("Basketball Camp", Arrays.asList("sports")));
+        assertNull(cache.get("bask"));
+        assertNotNull(cache.get("fish"));
+
+        // A new chess event may now match the cached empty "chess" results
+        cache.invalidate("4", SearchKeywords.build("Chess Club", null));
+        assertNull(cache.get("chess"));
+        assertNotNull(cache.get("fish"));
+
+        // Deleted events only drop results that contain them
+        cache.invalidate("3", null);
+        assertNull(cache.get("fish"));
+    }
+
+    @Test
+    public void testHitRate() {
+        cache.put("swim", new ArrayList<>(), sizes(0));
+        cache.get("swim");
+        cache.get("swimming");
+        cache.get("chess");
+        cache.get("yoga");
+
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+        assertTrue(cache.getStatsSummary().contains("50% hit rate"));
+    }
+
+    private Map<String, Long> sizes(long bytes) {
+        Map<String, Long> sizes = new HashMap<>();
+        for (Event event : Arrays.asList(basketball, baseball, bass)) {
+            sizes.put(event.getId(), bytes);
+        }
+        return sizes;
+    }
+
+    private static Event event(String id, String name, String... tags) {
+        Event event = new Event();
+        event.setId(id);
+        event.setEventName(name);
+        event.setTags(new ArrayList<>(Arrays.asList(tags)));
+        return event;
+    }
+
+    private static List<String> ids(Event... events) {
+        return ids(Arrays.asList(events));
+    }
+
+    private static List<String> ids(List<Event> events) {
+        List<String> ids = new ArrayList<>();
+        for (Event event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+}